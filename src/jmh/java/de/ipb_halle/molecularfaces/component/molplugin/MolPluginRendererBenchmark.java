@@ -0,0 +1,128 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.molplugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.renderkit.html.HtmlResponseWriterImpl;
+import org.apache.myfaces.test.mock.MockedJsfTestContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the encoding of the molecular structure plugin components by their
+ * renderers in a mocked JSF environment. The markup is written into a
+ * discarding writer, so the results reflect the costs of the renderers and the
+ * {@link HtmlResponseWriterImpl}. Run with "-prof gc" to compare the
+ * allocations per encoded component.
+ * 
+ * @author flange
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MolPluginRendererBenchmark {
+	private MockedJsfTestContainer container;
+	private FacesContext context;
+
+	private OpenChemLibJSComponent openChemLibJSEditor;
+	private OpenChemLibJSComponent openChemLibJSViewer;
+	private MolPaintJSComponent molPaintJSEditor;
+	private MarvinJSComponent marvinJSEditor;
+
+	private OpenChemLibJSRenderer openChemLibJSRenderer = new OpenChemLibJSRenderer();
+	private MolPaintJSRenderer molPaintJSRenderer = new MolPaintJSRenderer();
+	private MarvinJSRenderer marvinJSRenderer = new MarvinJSRenderer();
+
+	@Setup
+	public void setUp() {
+		container = new MockedJsfTestContainer();
+		container.setUpAll();
+		container.getApplication().addComponent("jakarta.faces.ComponentResourceContainer",
+				"org.apache.myfaces.component.ComponentResourceContainer");
+
+		context = container.getFacesContext();
+		context.setResponseWriter(new HtmlResponseWriterImpl(Writer.nullWriter(), "text/html", "UTF-8", false));
+
+		openChemLibJSEditor = new OpenChemLibJSComponent();
+		openChemLibJSEditor.setId("editor1");
+		openChemLibJSEditor.setValue(MOLFILE);
+		openChemLibJSEditor.setWidgetVar("editorVar1");
+		openChemLibJSEditor.setChangeDebounce(250);
+
+		openChemLibJSViewer = new OpenChemLibJSComponent();
+		openChemLibJSViewer.setId("viewer1");
+		openChemLibJSViewer.setValue(MOLFILE);
+		openChemLibJSViewer.setReadonly(true);
+
+		molPaintJSEditor = new MolPaintJSComponent();
+		molPaintJSEditor.setId("editor2");
+		molPaintJSEditor.setValue(MOLFILE);
+
+		marvinJSEditor = new MarvinJSComponent();
+		marvinJSEditor.setId("editor3");
+		marvinJSEditor.setValue(MOLFILE);
+	}
+
+	@TearDown
+	public void tearDown() {
+		container.tearDownAll();
+	}
+
+	@Benchmark
+	public void encodeOpenChemLibJSEditor() throws IOException {
+		openChemLibJSRenderer.encodeBegin(context, openChemLibJSEditor);
+	}
+
+	@Benchmark
+	public void encodeOpenChemLibJSViewer() throws IOException {
+		openChemLibJSRenderer.encodeBegin(context, openChemLibJSViewer);
+	}
+
+	@Benchmark
+	public void encodeMolPaintJSEditor() throws IOException {
+		molPaintJSRenderer.encodeBegin(context, molPaintJSEditor);
+	}
+
+	@Benchmark
+	public void encodeMarvinJSEditor() throws IOException {
+		marvinJSRenderer.encodeBegin(context, marvinJSEditor);
+	}
+
+	private static final String MOLFILE = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "   11.6115  -11.0625   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END\n";
+}
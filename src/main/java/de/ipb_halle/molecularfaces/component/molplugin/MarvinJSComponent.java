@@ -24,8 +24,7 @@ import jakarta.faces.event.ComponentSystemEventListener;
 import jakarta.faces.event.ListenerFor;
 import jakarta.faces.event.PostAddToViewEvent;
 
-import de.ipb_halle.molecularfaces.util.WebXml;
-import de.ipb_halle.molecularfaces.util.WebXmlImpl;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
 
 /**
  * This {@link jakarta.faces.component.UIComponent} renders a chemical structure
@@ -66,9 +65,15 @@ public class MarvinJSComponent extends MolPluginCore implements ComponentSystemE
 	 */
 	public static final String WEBXML_MARVINJS_LICENSE_URL = "de.ipb_halle.molecularfaces.MARVINJS_LICENSE_URL";
 
-	private WebXml webXml = new WebXmlImpl();
+	/**
+	 * Name of the context-param in web.xml that specifies if the viewer should
+	 * down-convert MDL Molfile V3000 values to V2000 on the server. If "true",
+	 * values that can be expressed in V2000 are depicted locally by Marvin JS
+	 * without a round trip to the molconvertws webservice.
+	 */
+	public static final String WEBXML_MARVINJS_V3000_TO_V2000 = "de.ipb_halle.molecularfaces.MARVINJS_V3000_TO_V2000";
 
-	private final String baseDir = webXml.getContextParam(WEBXML_MARVINJS_BASE_URL, getFacesContext(), "");
+	private final String baseDir = MolecularFacesConfig.getInstance(getFacesContext()).getMarvinJSBaseUrl();
 
 	public MarvinJSComponent() {
 		super();
@@ -93,7 +98,8 @@ public class MarvinJSComponent extends MolPluginCore implements ComponentSystemE
 	}
 
 	/*
-	 * webservices.js needs to be included if we use the viewer.
+	 * webservices.js needs to be included if we use the viewer. This also applies
+	 * to pooled editors, which redraw their previews via the viewer.
 	 * 
 	 * The usual trouble with loading resources dynamically: We cannot use
 	 * isReadonly() in the constructor of the component, because the attribute from
@@ -101,8 +107,9 @@ public class MarvinJSComponent extends MolPluginCore implements ComponentSystemE
 	 * in the {@link PostAddToViewEvent}.
 	 */
 	private void processPostAddToViewEvent() {
-		boolean useWebServices = webXml.isContextParamTrue(WEBXML_MARVINJS_WEBSERVICES, getFacesContext());
-		if (isReadonly() && useWebServices) {
+		boolean useWebServices = MolecularFacesConfig.getInstance(getFacesContext()).isMarvinJSWebServices();
+		boolean pooled = (getEditorPool() != null) && !getEditorPool().isEmpty();
+		if ((isReadonly() || pooled) && useWebServices) {
 			getResourceLoader().addScriptExtToHead(baseDir + "/js/webservices.js");
 		}
 	}
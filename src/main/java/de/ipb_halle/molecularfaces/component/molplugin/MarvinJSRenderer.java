@@ -18,15 +18,14 @@
 package de.ipb_halle.molecularfaces.component.molplugin;
 
 import java.io.IOException;
-import java.util.Formatter;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.render.FacesRenderer;
 
-import de.ipb_halle.molecularfaces.util.RendererUtils;
-import de.ipb_halle.molecularfaces.util.WebXml;
-import de.ipb_halle.molecularfaces.util.WebXmlImpl;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.converter.MolfileDowngrader;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
 
 /**
  * This {@link jakarta.faces.render.Renderer} renders a chemical structure editor or viewer using the
@@ -46,7 +45,26 @@ public class MarvinJSRenderer extends MolPluginRenderer {
 	 */
 	private String loaderJSVar = "molecularfaces.marvinJSLoaderInstance";
 
-	private WebXml webXml = new WebXmlImpl();
+	private static final ScriptTemplate VIEWER_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {"
+			+ "return molecularfaces.MarvinJSViewer.newViewer(\"%s\", "
+			+ "document.getElementById(\"%s\").getAttribute(\"value\"), \"%s\", %r, %r, \"%s\");});");
+	private static final ScriptTemplate APPEND_IFRAME_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.MarvinJSEditor.appendIframe(\"%s\", \"%s\", \"%s\", %r, %r);");
+	private static final ScriptTemplate EDITOR_TEMPLATE = ScriptTemplate
+			.compile("let editorPromise = molecularfaces.MarvinJSEditor"
+					+ ".newEditor(\"%s\", document.getElementById(\"%s\").getAttribute(\"value\"), "
+					+ "\"%s\", \"%s\", %r, %r, \"%s\");"
+					+ "editorPromise.then(editor => editor.getOnChangeSubject()%r.addChangeCallback((mol) => { "
+					+ "document.getElementById(\"%s\").setAttribute(\"value\", mol); }));"
+					+ "return editorPromise;});");
+	private static final ScriptTemplate POOLED_EDITOR_TEMPLATE = ScriptTemplate
+			.compile("newEditor: (containerId, molecule) => {"
+					+ "molecularfaces.MarvinJSEditor.appendIframe(containerId, containerId + \"_MarvinJSEditor\", "
+					+ "\"%s\", %r, %r);"
+					+ "return molecularfaces.MarvinJSEditor.newEditor(containerId + \"_MarvinJSEditor\", molecule, "
+					+ "\"%s\", \"%s\", %r, %r, \"%s\");}, "
+					+ "newViewer: (divId, molecule) => molecularfaces.MarvinJSViewer.newViewer(divId, molecule, "
+					+ "\"%s\", %r, %r, \"%s\")});");
 
 	@Override
 	public void encodeBegin(FacesContext context, UIComponent component) throws IOException {
@@ -77,23 +95,38 @@ public class MarvinJSRenderer extends MolPluginRenderer {
 		String clientId = plugin.getClientId();
 		String hiddenInputId = clientId + "_Input";
 		String divId = clientId + "_MarvinJSViewer";
+		String molecule = convertValueToClientString(context, plugin);
+		String format = plugin.getFormat();
 
-		encodeViewerHTML(context, writer, plugin, divId, hiddenInputId);
-		encodeViewerJS(context, writer, plugin, divId, hiddenInputId);
+		/*
+		 * Marvin JS depicts V3000 via the molconvertws webservice. Avoid this round
+		 * trip by down-converting the molecule on the server if possible.
+		 */
+		if (MolPluginCore.Format.MDLV3000.toString().equals(format)
+				&& MolecularFacesConfig.getInstance(context).isMarvinJSV3000ToV2000()) {
+			String v2000Molecule = MolfileDowngrader.toV2000(molecule);
+			if (v2000Molecule != null) {
+				molecule = minifyMolfile(context, v2000Molecule, MolPluginCore.Format.MDLV2000.toString());
+				format = MolPluginCore.Format.MDLV2000.toString();
+			}
+		}
+
+		encodeViewerHTML(writer, plugin, divId, hiddenInputId, molecule);
+		encodeViewerJS(context, writer, plugin, divId, hiddenInputId, molecule, format);
 	}
 
 	/**
 	 * Encodes the HTML part of the plugin viewer into the writer. It consists of a
 	 * &lt;div&gt; element that the Javascript plugin uses as rendering target.
 	 * 
-	 * @param context
 	 * @param writer
 	 * @param plugin
 	 * @param divId         DOM id of the embedded &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param molecule      molecule to be depicted
 	 */
-	private void encodeViewerHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String divId,
-			String hiddenInputId) throws IOException {
+	private void encodeViewerHTML(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId,
+			String molecule) throws IOException {
 		// inner <div> is used for the plugin's rendering (aka the Javascript target)
 		writer.startElement("div", plugin);
 		writer.writeAttribute("id", divId, null);
@@ -104,7 +137,7 @@ public class MarvinJSRenderer extends MolPluginRenderer {
 		writer.startElement("input", plugin);
 		writer.writeAttribute("type", "hidden", null);
 		writer.writeAttribute("id", hiddenInputId, null);
-		writer.writeAttribute("value", RendererUtils.convertValueToString(context, plugin, plugin.getValue()), "value");
+		writer.writeAttribute("value", molecule, "value");
 		writer.endElement("input");
 	}
 
@@ -116,43 +149,26 @@ public class MarvinJSRenderer extends MolPluginRenderer {
 	 * @param plugin
 	 * @param divId         DOM id of the &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param molecule      molecule to be depicted
+	 * @param format        chemical file format of the molecule
 	 */
 	private void encodeViewerJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String divId,
-			String hiddenInputId) throws IOException {
+			String hiddenInputId, String molecule, String format) throws IOException {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
 
-		String installPath = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_BASE_URL, context, "");
-
-		StringBuilder sb = new StringBuilder(512 + installPath.length());
-
-		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
-
-		Formatter fmt = new Formatter(sb);
-
-		// Register a JS variable if required.
-		String widgetVar = plugin.getWidgetVar();
-		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
-		}
+		String installPath = MolecularFacesConfig.getInstance(context).getMarvinJSBaseUrl();
 
 		/*
 		 * Start viewer, set the molecule from the hidden <input> element's value and
 		 * return the viewer object embedded in a Promise.
 		 */
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-		fmt.format(
-				"return molecularfaces.MarvinJSViewer.newViewer(\"%s\", "
-						+ "document.getElementById(\"%s\").getAttribute(\"value\"), \"%s\", %d, %d, \"%s\");",
-				divId, hiddenInputId, installPath, plugin.getHeight(), plugin.getWidth(), plugin.getFormat());
-
-		fmt.close();
+		String viewerJS = VIEWER_TEMPLATE.apply(loaderJSVar, divId, hiddenInputId, installPath,
+				Integer.toString(plugin.getHeight()), Integer.toString(plugin.getWidth()), format);
 
-		// end of then()
-		sb.append("});");
+		// resource loading, widgetVar registration and depiction cache lookup
+		writeViewerStartJS(writer, plugin, loaderJSVar, "MarvinJS", divId, hiddenInputId, molecule, viewerJS);
 
-		writer.writeText(sb, null);
 		writer.endElement("script");
 	}
 
@@ -160,41 +176,80 @@ public class MarvinJSRenderer extends MolPluginRenderer {
 		String clientId = plugin.getClientId();
 		String hiddenInputId = clientId + "_Input";
 		String iframeId = clientId + "_MarvinJSEditor";
+		String previewId = isClickActivated(plugin) ? clientId + "_Preview" : null;
+
+		encodeEditorHTML(context, writer, plugin, iframeId, hiddenInputId, previewId);
+		if (isEditorPooled(plugin)) {
+			encodePooledEditorJS(context, writer, plugin, previewId, hiddenInputId);
+		} else {
+			encodeEditorJS(context, writer, plugin, iframeId, hiddenInputId, previewId);
+		}
+		encodeLiveValidationJS(context, writer, plugin, hiddenInputId);
+	}
+
+	/**
+	 * Encodes the JavaScript part of a pooled plugin editor into the writer. It
+	 * registers the editor field at the client-side editor pool. Moving an
+	 * &lt;iframe&gt; in the DOM reloads it, thus the pool recreates the editor
+	 * each time it is attached to another field.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param plugin
+	 * @param previewId     DOM id of the preview element
+	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 */
+	private void encodePooledEditorJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin,
+			String previewId, String hiddenInputId) throws IOException {
+		writer.startElement("script", plugin);
+		writer.writeAttribute("type", "text/javascript", null);
+
+		MolecularFacesConfig config = MolecularFacesConfig.getInstance(context);
+		String installPath = config.getMarvinJSBaseUrl();
+		String license = config.getMarvinJSLicenseUrl();
+
+		String height = Integer.toString(plugin.getHeight());
+		String width = Integer.toString(plugin.getWidth());
 
-		encodeEditorHTML(context, writer, plugin, iframeId, hiddenInputId);
-		encodeEditorJS(context, writer, plugin, iframeId, hiddenInputId);
+		writePooledEditorStartJS(writer, context, plugin, loaderJSVar, previewId, hiddenInputId, "MarvinJS", true);
+		POOLED_EDITOR_TEMPLATE.write(writer, config.getMarvinJSEditorSrc(), height, width, installPath, license,
+				height, width, plugin.getFormat(), installPath, height, width, plugin.getFormat());
+		writer.endElement("script");
 	}
 
 	/**
 	 * Encodes the HTML part of the plugin editor into the writer. It consists of an
-	 * &lt;iframe&gt; and a hidden &lt;input&gt; element.
+	 * &lt;iframe&gt; and a hidden &lt;input&gt; element. In case of click
+	 * activation, a static preview of the molecule is rendered instead of the
+	 * &lt;iframe&gt;, which is created not before the user activates the editor.
 	 * 
 	 * @param context
 	 * @param writer
 	 * @param plugin
 	 * @param iframeId      DOM id of the embedded &lt;iframe&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param previewId     DOM id of the preview element or {@code null}
 	 */
 	private void encodeEditorHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String iframeId,
-			String hiddenInputId) throws IOException {
-		String installPath = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_BASE_URL, context, "");
-		String embed = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES, context, "").equalsIgnoreCase("true")
-				? "/editorws.html"
-				: "/editor.html";
-
-		// inner <iframe> used for the plugin's rendering (aka the JavaScript target)
-		writer.startElement("iframe", plugin);
-		writer.writeAttribute("id", iframeId, null);
-		writer.writeAttribute("src", installPath + embed, null);
-		writer.writeAttribute("style", "height:" + plugin.getHeight() + "px;width:" + plugin.getWidth() + "px;", null);
-		writer.endElement("iframe");
+			String hiddenInputId, String previewId) throws IOException {
+		if (previewId != null) {
+			encodePreview(context, writer, plugin, previewId,
+					"height:" + plugin.getHeight() + "px;width:" + plugin.getWidth() + "px;");
+		} else {
+			// inner <iframe> used for the plugin's rendering (aka the JavaScript target)
+			writer.startElement("iframe", plugin);
+			writer.writeAttribute("id", iframeId, null);
+			writer.writeAttribute("src", MolecularFacesConfig.getInstance(context).getMarvinJSEditorSrc(), null);
+			writer.writeAttribute("style", "height:" + plugin.getHeight() + "px;width:" + plugin.getWidth() + "px;", null);
+			writer.endElement("iframe");
+		}
 
 		// hidden <input>
 		writer.startElement("input", plugin);
 		writer.writeAttribute("type", "hidden", null);
 		writer.writeAttribute("id", hiddenInputId, null);
 		writer.writeAttribute("name", plugin.getClientId(), null);
-		writer.writeAttribute("value", RendererUtils.convertValueToString(context, plugin, plugin.getValue()), "value");
+		writer.writeAttribute("value", convertValueToClientString(context, plugin), "value");
 		writer.endElement("input");
 	}
 
@@ -209,55 +264,39 @@ public class MarvinJSRenderer extends MolPluginRenderer {
 	 * @param plugin
 	 * @param iframeId      DOM id of the &lt;iframe&gt; element
 	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 * @param previewId     DOM id of the preview element or {@code null}
 	 */
 	private void encodeEditorJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String iframeId,
-			String hiddenInputId) throws IOException {
+			String hiddenInputId, String previewId) throws IOException {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
 
-		String installPath = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_BASE_URL, context, "");
-		String license = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_LICENSE_URL, context, "");
-
-		StringBuilder sb = new StringBuilder(512 + installPath.length() + license.length());
-
-		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
+		MolecularFacesConfig config = MolecularFacesConfig.getInstance(context);
+		String installPath = config.getMarvinJSBaseUrl();
+		String license = config.getMarvinJSLicenseUrl();
 
-		Formatter fmt = new Formatter(sb);
+		String height = Integer.toString(plugin.getHeight());
+		String width = Integer.toString(plugin.getWidth());
 
-		// Register a JS variable if required.
-		String widgetVar = plugin.getWidgetVar();
-		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
+		// The <iframe> is created upon activation in case of click activation.
+		String onActivationJS = "";
+		if (previewId != null) {
+			onActivationJS = APPEND_IFRAME_TEMPLATE.apply(plugin.getClientId(), iframeId,
+					config.getMarvinJSEditorSrc(), height, width);
 		}
 
-		// after resource loading finished
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-
-		// Start editor, set the molecule from the hidden <input> element's value.
-		fmt.format("let editorPromise = molecularfaces.MarvinJSEditor"
-				+ ".newEditor(\"%s\", document.getElementById(\"%s\").getAttribute(\"value\"), \"%s\", \"%s\", %d, %d, \"%s\");",
-				iframeId, hiddenInputId, installPath, license, plugin.getHeight(), plugin.getWidth(),
-				plugin.getFormat());
+		// resource loading (upon activation) and widgetVar registration
+		writeEditorStartJS(writer, plugin, loaderJSVar, previewId, null, onActivationJS);
 
 		/*
-		 * Register an on-change callback to fill the value of the hidden <input>
-		 * element.
+		 * Start editor, set the molecule from the hidden <input> element's value and
+		 * register an on-change callback to fill the value of the hidden <input>
+		 * element. The OnChangeSubject may debounce the changes. The editor object
+		 * is returned embedded in another Promise that is written into widgetVar.
 		 */
-		fmt.format("editorPromise.then(editor => "
-				+ "editor.getOnChangeSubject().addChangeCallback((mol) => { "
-				+ "document.getElementById(\"%s\").setAttribute(\"value\", mol); }));",
-				hiddenInputId);
-
-		fmt.close();
-
-		// Return the editor object embedded in another Promise that is written into widgetVar.
-		sb.append("return editorPromise;");
-
-		// end of then() block of the ResourcesLoader's Promise
-		sb.append("});");
+		EDITOR_TEMPLATE.write(writer, iframeId, hiddenInputId, installPath, license, height, width, plugin.getFormat(),
+				generateSetDebounceJS(plugin), hiddenInputId);
 
-		writer.writeText(sb, null);
 		writer.endElement("script");
 	}
 }
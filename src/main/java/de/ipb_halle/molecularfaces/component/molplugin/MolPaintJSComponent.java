@@ -19,8 +19,7 @@ package de.ipb_halle.molecularfaces.component.molplugin;
 
 import jakarta.faces.component.FacesComponent;
 
-import de.ipb_halle.molecularfaces.util.WebXml;
-import de.ipb_halle.molecularfaces.util.WebXmlImpl;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
 
 /**
  * This {@link jakarta.faces.component.UIComponent} renders a chemical structure
@@ -35,8 +34,6 @@ public class MolPaintJSComponent extends MolPluginCore {
 	public static final String COMPONENT_TYPE = "molecularfaces.MolPaintJS";
 	public static final String DEFAULT_RENDERER = MolPaintJSRenderer.RENDERER_TYPE;
 
-	private WebXml webXml = new WebXmlImpl();
-
 	/**
 	 * Name of the context-param in web.xml that specifies the location of
 	 * molpaint.js relative to the application's context root.
@@ -46,8 +43,8 @@ public class MolPaintJSComponent extends MolPluginCore {
 	public MolPaintJSComponent() {
 		super();
 
-		String resourceUrl = webXml.getContextParam(WEBXML_CUSTOM_RESOURCE_URL, getFacesContext(), null);
-		if ((resourceUrl != null) && (!resourceUrl.isEmpty())) {
+		String resourceUrl = MolecularFacesConfig.getInstance(getFacesContext()).getMolPaintJSUrl();
+		if (resourceUrl != null) {
 			getResourceLoader().addScriptExtToHead(resourceUrl);
 		} else {
 			getResourceLoader().addScriptResourceToHead("plugins/molpaintjs/molpaint.js");
@@ -18,13 +18,14 @@
 package de.ipb_halle.molecularfaces.component.molplugin;
 
 import java.io.IOException;
-import java.util.Formatter;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.render.FacesRenderer;
 
+import de.ipb_halle.molecularfaces.converter.SmilesTranscoder;
 import de.ipb_halle.molecularfaces.util.RendererUtils;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
 
 /**
  * This {@link jakarta.faces.render.Renderer} renders a chemical structure editor or viewer using the
@@ -44,6 +45,21 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 	 */
 	private String loaderJSVar = "molecularfaces.molPaintJSLoaderInstance";
 
+	private static final ScriptTemplate VIEWER_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {"
+			+ "return molecularfaces.MolPaintJSViewer.newViewer(\"%s\", "
+			+ "document.getElementById(\"%s\").getAttribute(\"value\"), %r, %r);});");
+	private static final ScriptTemplate EDITOR_TEMPLATE = ScriptTemplate
+			.compile("let editorPromise = molecularfaces.MolPaintJSEditor"
+					+ ".newEditor(\"%s\", document.getElementById(\"%s\").getAttribute(\"value\"), %r, %r, \"%s\");"
+					+ "editorPromise.then(editor => editor.getOnChangeSubject()%r.addChangeCallback((mol) => { "
+					+ "document.getElementById(\"%s\").setAttribute(\"value\", mol); }));"
+					+ "return editorPromise;});");
+	private static final ScriptTemplate POOLED_EDITOR_TEMPLATE = ScriptTemplate
+			.compile("newEditor: (containerId, molecule) => molecularfaces.MolPaintJSEditor.newEditor(containerId, "
+					+ "molecule, %r, %r, \"%s\"), "
+					+ "newViewer: (divId, molecule) => molecularfaces.MolPaintJSViewer.newViewer(divId, molecule, "
+					+ "%r, %r)});");
+
 	@Override
 	public void encodeBegin(FacesContext context, UIComponent component) throws IOException {
 		MolPluginCore plugin = (MolPluginCore) component;
@@ -68,6 +84,46 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 		writer.endElement("div");
 	}
 
+	/**
+	 * Decodes the submitted value. MolPaintJS does not support SMILES, thus the
+	 * submitted MDL Molfile V2000 is converted to SMILES if the component's
+	 * format is "SMILES".
+	 */
+	@Override
+	public void decode(FacesContext context, UIComponent component) {
+		super.decode(context, component);
+
+		MolPluginCore plugin = (MolPluginCore) component;
+		Object submittedValue = plugin.getSubmittedValue();
+		if (isSmiles(plugin) && (submittedValue instanceof String)) {
+			String smiles = SmilesTranscoder.fromV2000((String) submittedValue);
+			if (smiles != null) {
+				plugin.setSubmittedValue(smiles);
+			}
+		}
+	}
+
+	/*
+	 * SMILES values are sent to MolPaintJS as MDL Molfile V2000.
+	 */
+	private String getClientMolecule(FacesContext context, MolPluginCore plugin) {
+		if (!isSmiles(plugin)) {
+			return convertValueToClientString(context, plugin);
+		}
+
+		String molecule = RendererUtils.convertValueToString(context, plugin, plugin.getValue());
+		String molfile = SmilesTranscoder.toV2000(molecule);
+		return (molfile != null) ? minifyMolfile(context, molfile, getClientFormat(plugin)) : "";
+	}
+
+	private String getClientFormat(MolPluginCore plugin) {
+		return isSmiles(plugin) ? MolPluginCore.Format.MDLV2000.toString() : plugin.getFormat();
+	}
+
+	private boolean isSmiles(MolPluginCore plugin) {
+		return MolPluginCore.Format.SMILES.toString().equals(plugin.getFormat());
+	}
+
 	private void encodeViewer(FacesContext context, ResponseWriter writer, MolPluginCore plugin) throws IOException {
 		String clientId = plugin.getClientId();
 		String hiddenInputId = clientId + "_Input";
@@ -99,7 +155,7 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 		writer.startElement("input", plugin);
 		writer.writeAttribute("type", "hidden", null);
 		writer.writeAttribute("id", hiddenInputId, null);
-		writer.writeAttribute("value", RendererUtils.convertValueToString(context, plugin, plugin.getValue()), "value");
+		writer.writeAttribute("value", getClientMolecule(context, plugin), "value");
 		writer.endElement("input");
 	}
 
@@ -116,35 +172,19 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
 
-		StringBuilder sb = new StringBuilder(512);
-
 		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
-
-		Formatter fmt = new Formatter(sb);
+		plugin.getResourceLoader().writeLoadExtResources(writer, loaderJSVar);
 
 		// Register a JS variable if required.
-		String widgetVar = plugin.getWidgetVar();
-		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
-		}
+		writeWidgetVarJS(writer, plugin);
 
 		/*
 		 * Start viewer, set the molecule from the hidden <input> element's value and
 		 * return the viewer object embedded in a Promise.
 		 */
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-		fmt.format(
-				"return molecularfaces.MolPaintJSViewer.newViewer(\"%s\", "
-						+ "document.getElementById(\"%s\").getAttribute(\"value\"), %d, %d);",
-				divId, hiddenInputId, plugin.getHeight(), plugin.getWidth());
-
-		fmt.close();
-
-		// end of then()
-		sb.append("});");
+		VIEWER_TEMPLATE.write(writer, loaderJSVar, divId, hiddenInputId, Integer.toString(plugin.getHeight()),
+				Integer.toString(plugin.getWidth()));
 
-		writer.writeText(sb, null);
 		writer.endElement("script");
 	}
 
@@ -152,27 +192,91 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 		String clientId = plugin.getClientId();
 		String hiddenInputId = clientId + "_Input";
 		String divId = clientId + "_MolPaintJSEditor";
+		String previewId = isClickActivated(plugin) ? clientId + "_Preview" : null;
 
-		encodeEditorHTML(context, writer, plugin, divId, hiddenInputId);
-		encodeEditorJS(writer, plugin, divId, hiddenInputId);
+		if (isEditorPooled(plugin)) {
+			encodePooledEditorHTML(context, writer, plugin, previewId, hiddenInputId);
+			encodePooledEditorJS(context, writer, plugin, previewId, hiddenInputId);
+		} else {
+			encodeEditorHTML(context, writer, plugin, divId, hiddenInputId, previewId);
+			encodeEditorJS(writer, plugin, divId, hiddenInputId, previewId);
+		}
+		encodeLiveValidationJS(context, writer, plugin, hiddenInputId);
+	}
+
+	/**
+	 * Encodes the HTML part of a pooled plugin editor into the writer. It consists
+	 * of a static preview of the molecule and a hidden &lt;input&gt; element. A
+	 * pooled editor instance is attached not before the user activates the
+	 * preview.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param plugin
+	 * @param previewId     DOM id of the preview element
+	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 */
+	private void encodePooledEditorHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin,
+			String previewId, String hiddenInputId) throws IOException {
+		encodePreview(context, writer, plugin, previewId, generateDivStyle(plugin));
+
+		// hidden <input>
+		writer.startElement("input", plugin);
+		writer.writeAttribute("type", "hidden", null);
+		writer.writeAttribute("id", hiddenInputId, null);
+		writer.writeAttribute("name", plugin.getClientId(), null);
+		writer.writeAttribute("value", getClientMolecule(context, plugin), "value");
+		writer.endElement("input");
+	}
+
+	/**
+	 * Encodes the Javascript part of a pooled plugin editor into the writer. It
+	 * registers the editor field at the client-side editor pool.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param plugin
+	 * @param previewId     DOM id of the preview element
+	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 */
+	private void encodePooledEditorJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin,
+			String previewId, String hiddenInputId) throws IOException {
+		writer.startElement("script", plugin);
+		writer.writeAttribute("type", "text/javascript", null);
+
+		writePooledEditorStartJS(writer, context, plugin, loaderJSVar, previewId, hiddenInputId, "MolPaintJS",
+				false);
+		String height = Integer.toString(plugin.getHeight());
+		String width = Integer.toString(plugin.getWidth());
+		POOLED_EDITOR_TEMPLATE.write(writer, height, width, getClientFormat(plugin), height, width);
+		writer.endElement("script");
 	}
 
 	/**
 	 * Encodes the HTML part of the plugin editor into the writer. It consists of a
-	 * &lt;div&gt; and a hidden &lt;input&gt; element.
+	 * &lt;div&gt; and a hidden &lt;input&gt; element. In case of click activation,
+	 * the &lt;div&gt; is hidden behind a static preview of the molecule.
 	 * 
 	 * @param context
 	 * @param writer
 	 * @param plugin
 	 * @param divId         DOM id of the embedded &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param previewId     DOM id of the preview element or {@code null}
 	 */
 	private void encodeEditorHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String divId,
-			String hiddenInputId) throws IOException {
+			String hiddenInputId, String previewId) throws IOException {
+		String divStyle = generateDivStyle(plugin);
+
+		if (previewId != null) {
+			encodePreview(context, writer, plugin, previewId, divStyle);
+			divStyle = "display:none;" + divStyle;
+		}
+
 		// inner <div> used for the plugin's rendering (aka the Javascript target)
 		writer.startElement("div", plugin);
 		writer.writeAttribute("id", divId, null);
-		writer.writeAttribute("style", generateDivStyle(plugin), null);
+		writer.writeAttribute("style", divStyle, null);
 		writer.endElement("div");
 
 		// hidden <input>
@@ -180,7 +284,7 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 		writer.writeAttribute("type", "hidden", null);
 		writer.writeAttribute("id", hiddenInputId, null);
 		writer.writeAttribute("name", plugin.getClientId(), null);
-		writer.writeAttribute("value", RendererUtils.convertValueToString(context, plugin, plugin.getValue()), "value");
+		writer.writeAttribute("value", getClientMolecule(context, plugin), "value");
 		writer.endElement("input");
 	}
 
@@ -194,51 +298,25 @@ public class MolPaintJSRenderer extends MolPluginRenderer {
 	 * @param plugin
 	 * @param divId         DOM id of the &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 * @param previewId     DOM id of the preview element or {@code null}
 	 */
-	private void encodeEditorJS(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId)
-			throws IOException {
+	private void encodeEditorJS(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId,
+			String previewId) throws IOException {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
 
-		StringBuilder sb = new StringBuilder(512);
-
-		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
-
-		Formatter fmt = new Formatter(sb);
-
-		// Register a JS variable if required.
-		String widgetVar = plugin.getWidgetVar();
-		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
-		}
-
-		// after resource loading finished
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-
-		// Start editor, set the molecule from the hidden <input> element's value.
-		fmt.format("let editorPromise = molecularfaces.MolPaintJSEditor"
-				+ ".newEditor(\"%s\", document.getElementById(\"%s\").getAttribute(\"value\"), %d, %d, \"%s\");",
-				divId, hiddenInputId, plugin.getHeight(), plugin.getWidth(), plugin.getFormat());
+		// resource loading (upon activation) and widgetVar registration
+		writeEditorStartJS(writer, plugin, loaderJSVar, previewId, divId, "");
 
 		/*
-		 * Register an on-change callback to fill the value of the hidden <input>
-		 * element.
+		 * Start editor, set the molecule from the hidden <input> element's value and
+		 * register an on-change callback to fill the value of the hidden <input>
+		 * element. The OnChangeSubject may debounce the changes. The editor object
+		 * is returned embedded in another Promise that is written into widgetVar.
 		 */
-		fmt.format("editorPromise.then(editor => "
-				+ "editor.getOnChangeSubject().addChangeCallback((mol) => { "
-				+ "document.getElementById(\"%s\").setAttribute(\"value\", mol); }));",
-				hiddenInputId);
-
-		fmt.close();
-
-		// Return the editor object embedded in another Promise that is written into widgetVar.
-		sb.append("return editorPromise;");
-
-		// end of then() block of the ResourcesLoader's Promise
-		sb.append("});");
+		EDITOR_TEMPLATE.write(writer, divId, hiddenInputId, Integer.toString(plugin.getHeight()),
+				Integer.toString(plugin.getWidth()), getClientFormat(plugin), generateSetDebounceJS(plugin), hiddenInputId);
 
-		writer.writeText(sb, null);
 		writer.endElement("script");
 	}
 }
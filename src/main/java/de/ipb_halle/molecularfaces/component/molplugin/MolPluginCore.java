@@ -17,8 +17,17 @@
  */
 package de.ipb_halle.molecularfaces.component.molplugin;
 
+import jakarta.faces.application.FacesMessage;
 import jakarta.faces.component.UIInput;
+import jakarta.faces.context.FacesContext;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.converter.AtomContainerCodec;
+import de.ipb_halle.molecularfaces.converter.CompactAtomContainer;
+import de.ipb_halle.molecularfaces.converter.LazyAtomContainer;
 import de.ipb_halle.molecularfaces.util.ResourceLoader;
+import de.ipb_halle.molecularfaces.validator.MolfileValidationResourceHandler;
 
 /**
  * This class holds the attribute states of the chemical structure plugins.
@@ -31,6 +40,14 @@ public abstract class MolPluginCore extends UIInput {
 	 */
 	public static final String COMPONENT_FAMILY = "molecularfaces.MolPluginFamily";
 
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * live editor instances per editor pool (see {@link #getEditorPool()}).
+	 */
+	public static final String WEBXML_EDITOR_POOL_SIZE = "de.ipb_halle.molecularfaces.EDITOR_POOL_SIZE";
+
+	public static final int DEFAULT_EDITOR_POOL_SIZE = 1;
+
 	private ResourceLoader resourceLoader = new ResourceLoader(this);
 
 	protected MolPluginCore() {
@@ -46,6 +63,102 @@ public abstract class MolPluginCore extends UIInput {
 		return COMPONENT_FAMILY;
 	}
 
+	/**
+	 * Message of the validation failure that is raised when the value of a
+	 * {@link MoleculeHandle} has been evicted from the {@link MoleculeStore}.
+	 */
+	public static final String VALUE_EXPIRED_MESSAGE = "The value has expired, please re-enter it.";
+
+	/**
+	 * Returns the value of the component. A {@link MoleculeHandle} or a
+	 * {@link CompactAtomContainer} in the component's state is resolved. If the
+	 * value of a handle has been evicted from the {@link MoleculeStore},
+	 * {@code null} is returned; {@link #validate(FacesContext)} marks the
+	 * component invalid in this case.
+	 */
+	@Override
+	public Object getValue() {
+		Object value = super.getValue();
+		if (value instanceof MoleculeHandle) {
+			value = resolve((MoleculeHandle) value);
+		}
+
+		return unwrap(value);
+	}
+
+	/**
+	 * Returns the local value of the component. A {@link MoleculeHandle} or a
+	 * {@link CompactAtomContainer} in the component's state is resolved.
+	 */
+	@Override
+	public Object getLocalValue() {
+		Object value = super.getLocalValue();
+		if (value instanceof MoleculeHandle) {
+			value = resolve((MoleculeHandle) value);
+		}
+
+		return unwrap(value);
+	}
+
+	/**
+	 * Sets the local value of the component. With <code>valueHandle="true"</code>,
+	 * the value is put into the {@link MoleculeStore} and only its
+	 * {@link MoleculeHandle} is kept in the component's state. The value itself is
+	 * kept in the attributes of the {@link FacesContext} for the rest of the
+	 * request. Otherwise, {@link IAtomContainer} values are wrapped in a
+	 * {@link CompactAtomContainer}, which saves them in a compact binary encoding,
+	 * except for unparsed {@link LazyAtomContainer} proxies, which are saved with
+	 * their Molfile.
+	 */
+	@Override
+	public void setValue(Object value) {
+		if ((value == null) || (value instanceof MoleculeHandle) || (value instanceof CompactAtomContainer)) {
+			super.setValue(value);
+		} else if (isValueHandle()) {
+			MoleculeHandle handle = MoleculeStore.getInstance(getFacesContext()).put(value);
+			getFacesContext().getAttributes().put(handle, value);
+			super.setValue(handle);
+		} else if ((value instanceof IAtomContainer) && !LazyAtomContainer.isUnparsed(value)
+				&& AtomContainerCodec.isSupported((IAtomContainer) value)) {
+			super.setValue(new CompactAtomContainer((IAtomContainer) value));
+		} else {
+			super.setValue(value);
+		}
+	}
+
+	private Object resolve(MoleculeHandle handle) {
+		Object value = getFacesContext().getAttributes().get(handle);
+
+		return (value != null) ? value : MoleculeStore.getInstance(getFacesContext()).get(handle);
+	}
+
+	/**
+	 * Validates the component. If no value has been submitted and the value of
+	 * the {@link MoleculeHandle} in the component's state has been evicted from
+	 * the {@link MoleculeStore}, the component is marked invalid and an error
+	 * message is queued. The handle is kept as local value, thus the value
+	 * expression is neither evaluated nor updated until the user re-enters the
+	 * value.
+	 */
+	@Override
+	public void validate(FacesContext context) {
+		Object value = super.getLocalValue();
+		if ((getSubmittedValue() == null) && (value instanceof MoleculeHandle)
+				&& (resolve((MoleculeHandle) value) == null)) {
+			context.addMessage(getClientId(context),
+					new FacesMessage(FacesMessage.SEVERITY_ERROR, VALUE_EXPIRED_MESSAGE, null));
+			setValid(false);
+			context.validationFailed();
+			return;
+		}
+
+		super.validate(context);
+	}
+
+	private Object unwrap(Object value) {
+		return (value instanceof CompactAtomContainer) ? ((CompactAtomContainer) value).getMolecule() : value;
+	}
+
 	/**
 	 * Supported chemical structure plugin types.
 	 * 
@@ -64,7 +177,7 @@ public abstract class MolPluginCore extends UIInput {
 	 * Possible values for the <code>format</code> property.
 	 */
 	public enum Format {
-		MDLV2000, MDLV3000;
+		MDLV2000, MDLV3000, SMILES;
 
 		@Override
 		public String toString() {
@@ -72,8 +185,48 @@ public abstract class MolPluginCore extends UIInput {
 		}
 	};
 
+	/**
+	 * Possible values for the <code>activation</code> property.
+	 */
+	public enum Activation {
+		load, click;
+
+		@Override
+		public String toString() {
+			return this.name();
+		}
+	}
+
 	protected enum PropertyKeys {
-		border, format, height, readonly, widgetVar, width;
+		activation, border, changeDebounce, depictionCache, editorPool, format, height, liveValidation, readonly, valueHandle, widgetVar, width, workerDepiction;
+	}
+
+	public static final String DEFAULT_ACTIVATION = Activation.load.toString();
+
+	/**
+	 * Return the value of the <code>activation</code> property.
+	 * <p>
+	 * Controls when the editor is loaded. With "load", the editor is loaded and
+	 * initialized directly with the page. With "click", a static preview image of
+	 * the molecule is rendered by the server and the editor is loaded only when
+	 * the user clicks on the preview. This property has no effect on viewers.
+	 * <p>
+	 * Possible values are provided by the {@link Activation} enumeration.
+	 * 
+	 * @return the value of the attribute or "load" if it has not been set in the
+	 *         JSF view.
+	 */
+	public String getActivation() {
+		return (String) getStateHelper().eval(PropertyKeys.activation, DEFAULT_ACTIVATION);
+	}
+
+	/**
+	 * Set the value of the <code>activation</code> property.
+	 * 
+	 * @param activation activation mode of the editor
+	 */
+	public void setActivation(String activation) {
+		getStateHelper().put(PropertyKeys.activation, activation);
 	}
 
 	/**
@@ -98,6 +251,62 @@ public abstract class MolPluginCore extends UIInput {
 		getStateHelper().put(PropertyKeys.border, border);
 	}
 
+	public static final int DEFAULT_CHANGE_DEBOUNCE = -1;
+
+	/**
+	 * Return the value of the <code>changeDebounce</code> property.
+	 * <p>
+	 * Controls how the editor propagates molecule changes to the hidden input
+	 * element. A negative value propagates every single change immediately, 0
+	 * coalesces all changes within one animation frame and a positive value
+	 * propagates the last change after the given idle time in milliseconds
+	 * (trailing-edge debouncing). Pending changes are propagated before the form
+	 * is submitted.
+	 * 
+	 * @return the value of the attribute or -1 if it has not been set in the JSF
+	 *         view.
+	 */
+	public int getChangeDebounce() {
+		return (int) getStateHelper().eval(PropertyKeys.changeDebounce, DEFAULT_CHANGE_DEBOUNCE);
+	}
+
+	/**
+	 * Set the value of the <code>changeDebounce</code> property.
+	 * 
+	 * @param changeDebounce debounce delay in milliseconds, 0 for coalescing per
+	 *                       animation frame or a negative value to disable
+	 *                       debouncing
+	 */
+	public void setChangeDebounce(int changeDebounce) {
+		getStateHelper().put(PropertyKeys.changeDebounce, changeDebounce);
+	}
+
+	/**
+	 * Return the value of the <code>editorPool</code> property.
+	 * <p>
+	 * Name of the client-side pool of editor instances this editor belongs to.
+	 * All editors of a pool share a limited number of live editor instances (see
+	 * {@link #WEBXML_EDITOR_POOL_SIZE}), which are attached to the field the user
+	 * clicks on. Inactive fields show a static preview of their molecule. Pooled
+	 * editors are always activated by click. This property has no effect on
+	 * viewers.
+	 * 
+	 * @return the value of the attribute or {@code null} if the editor is not
+	 *         pooled.
+	 */
+	public String getEditorPool() {
+		return (String) getStateHelper().eval(PropertyKeys.editorPool);
+	}
+
+	/**
+	 * Set the value of the <code>editorPool</code> property.
+	 * 
+	 * @param editorPool name of the client-side editor pool
+	 */
+	public void setEditorPool(String editorPool) {
+		getStateHelper().put(PropertyKeys.editorPool, editorPool);
+	}
+
 	public static final String DEFAULT_FORMAT = Format.MDLV2000.toString();
 
 	/**
@@ -147,6 +356,29 @@ public abstract class MolPluginCore extends UIInput {
 		getStateHelper().put(PropertyKeys.height, height);
 	}
 
+	/**
+	 * Return the value of the <code>liveValidation</code> property.
+	 * <p>
+	 * Flag indicating that the editor checks its molfile on the server after
+	 * each change (see {@link MolfileValidationResourceHandler}).
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isLiveValidation() {
+		return (boolean) getStateHelper().eval(PropertyKeys.liveValidation, false);
+	}
+
+	/**
+	 * Set the value of the <code>liveValidation</code> property.
+	 * 
+	 * @param liveValidation boolean value which indicates that the editor checks
+	 *                       its molfile on the server after each change
+	 */
+	public void setLiveValidation(boolean liveValidation) {
+		getStateHelper().put(PropertyKeys.liveValidation, liveValidation);
+	}
+
 	/**
 	 * Return the value of the <code>readonly</code> property.
 	 * <p>
@@ -170,6 +402,31 @@ public abstract class MolPluginCore extends UIInput {
 		getStateHelper().put(PropertyKeys.readonly, readonly);
 	}
 
+	/**
+	 * Return the value of the <code>valueHandle</code> property.
+	 * <p>
+	 * Flag indicating that the local value of this component is kept in the
+	 * session-scoped {@link MoleculeStore} and only its handle is saved in the
+	 * view state. Evicted values fail the validation (see
+	 * {@link #validate(FacesContext)}).
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isValueHandle() {
+		return (boolean) getStateHelper().eval(PropertyKeys.valueHandle, false);
+	}
+
+	/**
+	 * Set the value of the <code>valueHandle</code> property.
+	 * 
+	 * @param valueHandle boolean value which indicates that the local value is
+	 *                    kept in the server-side store
+	 */
+	public void setValueHandle(boolean valueHandle) {
+		getStateHelper().put(PropertyKeys.valueHandle, valueHandle);
+	}
+
 	/**
 	 * Return the value of the <code>widgetVar</code> property.
 	 * <p>
@@ -214,4 +471,55 @@ public abstract class MolPluginCore extends UIInput {
 	public void setWidth(int width) {
 		getStateHelper().put(PropertyKeys.width, width);
 	}
+
+	/**
+	 * Return the value of the <code>depictionCache</code> property.
+	 * <p>
+	 * Flag indicating that a viewer stores its depiction in a persistent cache of
+	 * the browser (IndexedDB). The cache is looked up before the plugin's
+	 * resources are loaded, thus a cached depiction is displayed without loading
+	 * the plugin at all. This property is supported by OpenChemLib JS and Marvin
+	 * JS viewers and has no effect on editors and viewers of other plugins.
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isDepictionCache() {
+		return (boolean) getStateHelper().eval(PropertyKeys.depictionCache, false);
+	}
+
+	/**
+	 * Set the value of the <code>depictionCache</code> property.
+	 * 
+	 * @param depictionCache boolean value which indicates that the viewer caches
+	 *                       its depiction in the browser
+	 */
+	public void setDepictionCache(boolean depictionCache) {
+		getStateHelper().put(PropertyKeys.depictionCache, depictionCache);
+	}
+
+	/**
+	 * Return the value of the <code>workerDepiction</code> property.
+	 * <p>
+	 * Flag indicating that a viewer parses and depicts its molecule in a Web
+	 * Worker instead of the browser's main thread. The workers are shared by all
+	 * viewers of the page. This property is supported by OpenChemLib JS viewers
+	 * and has no effect on editors and viewers of other plugins.
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isWorkerDepiction() {
+		return (boolean) getStateHelper().eval(PropertyKeys.workerDepiction, false);
+	}
+
+	/**
+	 * Set the value of the <code>workerDepiction</code> property.
+	 * 
+	 * @param workerDepiction boolean value which indicates that the viewer
+	 *                        depicts its molecule in a Web Worker
+	 */
+	public void setWorkerDepiction(boolean workerDepiction) {
+		getStateHelper().put(PropertyKeys.workerDepiction, workerDepiction);
+	}
 }
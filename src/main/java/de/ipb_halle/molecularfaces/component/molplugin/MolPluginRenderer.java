@@ -17,12 +17,34 @@
  */
 package de.ipb_halle.molecularfaces.component.molplugin;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.convert.ConverterException;
 import jakarta.faces.render.Renderer;
 
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.converter.MolfileMinifier;
+import de.ipb_halle.molecularfaces.depiction.DepictionExecutor;
+import de.ipb_halle.molecularfaces.depiction.DepictionJobProvider;
+import de.ipb_halle.molecularfaces.depiction.DepictionJobs;
+import de.ipb_halle.molecularfaces.depiction.DepictionKey;
+import de.ipb_halle.molecularfaces.depiction.DepictionStore;
+import de.ipb_halle.molecularfaces.depiction.StructureDepictor;
 import de.ipb_halle.molecularfaces.util.RendererUtils;
+import de.ipb_halle.molecularfaces.util.ResourceLoader;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
+import de.ipb_halle.molecularfaces.validator.Molfile;
+import de.ipb_halle.molecularfaces.validator.MolfileValidationResourceHandler;
 
 /**
  * This {@link Renderer} offers functionalities for the specific renderers of
@@ -30,7 +52,35 @@ import de.ipb_halle.molecularfaces.util.RendererUtils;
  * 
  * @author flange
  */
-public abstract class MolPluginRenderer extends Renderer {
+public abstract class MolPluginRenderer extends Renderer implements DepictionJobProvider {
+	private static final Logger LOGGER = Logger.getLogger(MolPluginRenderer.class.getName());
+
+	private static final ScriptTemplate WIDGET_VAR_TEMPLATE = ScriptTemplate.compile("var %r = ");
+	private static final ScriptTemplate LOADER_STATUS_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {");
+	private static final ScriptTemplate CLICK_ACTIVATION_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.ClickActivation.whenClicked(\"%s\", null).then(() => {");
+	private static final ScriptTemplate CLICK_ACTIVATION_WITH_TARGET_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.ClickActivation.whenClicked(\"%s\", \"%s\").then(() => {");
+	private static final ScriptTemplate CLICK_ACTIVATION_LOADED_TEMPLATE = ScriptTemplate
+			.compile("return %r.status();}).then(() => {");
+	private static final ScriptTemplate CACHED_VIEWER_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.CachedViewer.newViewer(\"%s\", "
+					+ "document.getElementById(\"%s\").getAttribute(\"value\"), \"%s\", () => {");
+	private static final ScriptTemplate POOL_REGISTRATION_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.EditorPool.getPool(\"%s\", %r).register(\"%s\", \"%s\", {"
+					+ "signature: \"%s %s %rx%r\", height: %r, width: %r, debounce: %r, recreate: %r, "
+					+ "loadResources: () => {");
+	private static final ScriptTemplate POOL_RESOURCES_LOADED_TEMPLATE = ScriptTemplate
+			.compile("return %r.status();}, ");
+	private static final ScriptTemplate LIVE_VALIDATION_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.LiveValidation.attach(\"%s\", \"%s\", \"%s\", %r);");
+
+	/**
+	 * Delay in milliseconds between the last change of an editor's molecule and
+	 * its live validation request.
+	 */
+	public static final int LIVE_VALIDATION_DELAY = 300;
+
 	@Override
 	public void decode(FacesContext context, UIComponent component) {
 		MolPluginCore plugin = (MolPluginCore) component;
@@ -46,6 +96,24 @@ public abstract class MolPluginRenderer extends Renderer {
 		return RendererUtils.convertSubmittedValueToObject(context, component, submittedValue);
 	}
 
+	/**
+	 * Generate the JavaScript expression that configures the debouncing of the
+	 * editor's OnChangeSubject according to the component's
+	 * <code>changeDebounce</code> property. The expression is meant to be chained
+	 * to <code>editor.getOnChangeSubject()</code>.
+	 * 
+	 * @param plugin component of the molecular structure plugin
+	 * @return JavaScript code or an empty string if debouncing is disabled
+	 */
+	protected String generateSetDebounceJS(MolPluginCore plugin) {
+		int debounce = plugin.getChangeDebounce();
+		if (debounce < 0) {
+			return "";
+		}
+
+		return ".setDebounce(" + debounce + ")";
+	}
+
 	/**
 	 * Generate the inline css style for the &lt;div&gt; element of the rendered
 	 * editor or viewer.
@@ -69,4 +137,358 @@ public abstract class MolPluginRenderer extends Renderer {
 
 		return sb.toString();
 	}
+
+	/**
+	 * Convert the component's value to the string that is sent to the client.
+	 * MDL Molfiles are minified if enabled via the context-param
+	 * {@link MolfileMinifier#WEBXML_MINIFY_MOLFILES}.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @param plugin  component of the molecular structure plugin
+	 * @return converted value
+	 * @throws ConverterException if the value cannot be converted successfully
+	 */
+	protected String convertValueToClientString(FacesContext context, MolPluginCore plugin)
+			throws ConverterException {
+		String molecule = RendererUtils.convertValueToString(context, plugin, plugin.getValue());
+
+		return minifyMolfile(context, molecule, plugin.getFormat());
+	}
+
+	/**
+	 * Minify the given molecule for the transport to the client if it is a MDL
+	 * Molfile and minification is enabled via the context-param
+	 * {@link MolfileMinifier#WEBXML_MINIFY_MOLFILES}.
+	 * 
+	 * @param context  {@link FacesContext} for the request we are processing
+	 * @param molecule molecule string
+	 * @param format   format of the molecule string
+	 * @return minified or unchanged molecule string
+	 */
+	protected String minifyMolfile(FacesContext context, String molecule, String format) {
+		if (MolPluginCore.Format.SMILES.toString().equals(format)) {
+			return molecule;
+		}
+
+		MolecularFacesConfig config = MolecularFacesConfig.getInstance(context);
+		if (!config.isMinifyMolfiles()) {
+			return molecule;
+		}
+
+		return MolfileMinifier.minify(molecule, config.getMinifiedCoordinateDecimals());
+	}
+
+	/**
+	 * Check if the editor of the given component is loaded upon click on a
+	 * static preview image.
+	 * 
+	 * @param plugin component of the molecular structure plugin
+	 * @return {@code true} if the component's <code>activation</code> property is
+	 *         "click" or if the editor is pooled
+	 */
+	protected boolean isClickActivated(MolPluginCore plugin) {
+		return isEditorPooled(plugin) || MolPluginCore.Activation.click.toString().equals(plugin.getActivation());
+	}
+
+	/**
+	 * Check if the given component shares its editor instance via a client-side
+	 * editor pool.
+	 * 
+	 * @param plugin component of the molecular structure plugin
+	 * @return {@code true} if the component's <code>editorPool</code> property is
+	 *         set
+	 */
+	protected boolean isEditorPooled(MolPluginCore plugin) {
+		String editorPool = plugin.getEditorPool();
+		return (editorPool != null) && (!editorPool.isEmpty());
+	}
+
+	/**
+	 * Generate a static SVG depiction of the component's value. The depiction is
+	 * taken from the job submitted before the view was rendered (see
+	 * {@link #submitDepictionJobs(FacesContext, UIComponent, DepictionJobs)}) if
+	 * there is one. Otherwise, the value is depicted directly in case it is an
+	 * {@link IAtomContainer}, or converted to a string and read as MDL Molfile
+	 * according to the component's <code>format</code> property.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @param plugin  component of the molecular structure plugin
+	 * @return SVG &lt;svg&gt; element or an empty string if the value is empty,
+	 *         cannot be depicted or its depiction did not finish in time
+	 */
+	protected String generatePreviewSVG(FacesContext context, MolPluginCore plugin) {
+		List<DepictionExecutor.Job> jobs = DepictionJobs.remove(context, plugin.getClientId(context));
+		if ((jobs != null) && (jobs.size() == 1)) {
+			String svg = jobs.get(0).get();
+			return (svg == null) ? "" : svg;
+		}
+
+		try {
+			return createPreviewTask(context, plugin).call();
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Cannot depict the value of component " + plugin.getClientId(context), e);
+			return "";
+		}
+	}
+
+	/*
+	 * The value is converted in the calling thread, because converters may access
+	 * the FacesContext. IAtomContainers are cloned in the calling thread, because
+	 * the depiction modifies the molecule temporarily. The returned task only uses
+	 * the depictor and its own copy of the molecule.
+	 */
+	private Callable<String> createPreviewTask(FacesContext context, MolPluginCore plugin) throws ConverterException {
+		StructureDepictor depictor = new StructureDepictor(plugin.getWidth(), plugin.getHeight());
+		Object value = plugin.getValue();
+
+		if (value instanceof IAtomContainer) {
+			IAtomContainer atomContainer;
+			try {
+				atomContainer = ((IAtomContainer) value).clone();
+			} catch (CloneNotSupportedException e) {
+				throw new ConverterException(e);
+			}
+			return () -> depictor.depictSvg(atomContainer);
+		}
+
+		String format = plugin.getFormat();
+		String molecule = RendererUtils.convertValueToString(context, plugin, value);
+		DepictionStore store = DepictionStore.getInstance(context);
+		if (MolPluginCore.Format.SMILES.toString().equals(format)) {
+			return () -> depictor.depictSmilesSvg(molecule, store);
+		}
+
+		boolean v3000 = MolPluginCore.Format.MDLV3000.toString().equals(format);
+		return () -> depictor.depictSvg(molecule, v3000, store);
+	}
+
+	/**
+	 * Submits the depiction of the static preview image if the component's editor
+	 * is loaded upon click.
+	 */
+	@Override
+	public void submitDepictionJobs(FacesContext context, UIComponent component, DepictionJobs jobs) {
+		MolPluginCore plugin = (MolPluginCore) component;
+		if (plugin.isReadonly() || !isClickActivated(plugin)) {
+			return;
+		}
+
+		Callable<String> task;
+		try {
+			task = createPreviewTask(context, plugin);
+		} catch (ConverterException e) {
+			// generatePreviewSVG() logs the failure.
+			return;
+		}
+
+		jobs.submit(plugin.getClientId(context), Collections.singletonList(task));
+	}
+
+	/**
+	 * Encodes a focusable &lt;div&gt; element containing a static SVG depiction of
+	 * the component's value into the writer. The editor is loaded when the user
+	 * activates this element.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param plugin
+	 * @param previewId DOM id of the &lt;div&gt; element
+	 * @param style     inline css style of the &lt;div&gt; element
+	 */
+	protected void encodePreview(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String previewId,
+			String style) throws IOException {
+		writer.startElement("div", plugin);
+		writer.writeAttribute("id", previewId, null);
+		writer.writeAttribute("style", style + "cursor:pointer;", null);
+		writer.writeAttribute("tabindex", "0", null);
+		writer.writeAttribute("role", "button", null);
+		writer.write(generatePreviewSVG(context, plugin));
+		writer.endElement("div");
+	}
+
+	/**
+	 * Writes the JavaScript code that registers the component's
+	 * <code>widgetVar</code> into the target. Nothing is written if the
+	 * <code>widgetVar</code> property is not set.
+	 * 
+	 * @param out    target
+	 * @param plugin component of the molecular structure plugin
+	 * @throws IOException if writing fails
+	 */
+	protected void writeWidgetVarJS(Appendable out, MolPluginCore plugin) throws IOException {
+		String widgetVar = plugin.getWidgetVar();
+		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
+			WIDGET_VAR_TEMPLATE.write(out, widgetVar);
+		}
+	}
+
+	/**
+	 * Writes the JavaScript code that starts a viewer into the target. The code
+	 * loads the plugin's resources and registers the component's
+	 * <code>widgetVar</code>.
+	 * <p>
+	 * If the component's <code>depictionCache</code> property is set, the viewer
+	 * is wrapped by {@code molecularfaces.CachedViewer}, which looks up the
+	 * depiction by the given key in the browser's cache and loads the resources
+	 * and starts the viewer only on a cache miss.
+	 *
+	 * @param out         target
+	 * @param plugin      component of the molecular structure plugin
+	 * @param loaderJSVar   name of the plugin's JavaScript ResourcesLoader
+	 *                      instance
+	 * @param pluginName    name of the plugin, which is part of the cache key
+	 * @param divId         DOM id of the viewer's &lt;div&gt; element
+	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element that holds
+	 *                      the molecule
+	 * @param molecule      molecule to be depicted by the viewer
+	 * @param viewerJS      JavaScript expression that waits for the resources and
+	 *                      returns a Promise of the viewer, terminated by
+	 *                      <code>";"</code>
+	 * @throws IOException if writing fails
+	 */
+	protected void writeViewerStartJS(Appendable out, MolPluginCore plugin, String loaderJSVar, String pluginName,
+			String divId, String hiddenInputId, String molecule, String viewerJS) throws IOException {
+		if (!plugin.isDepictionCache()) {
+			plugin.getResourceLoader().writeLoadExtResources(out, loaderJSVar);
+			writeWidgetVarJS(out, plugin);
+			out.append(viewerJS);
+			return;
+		}
+
+		String key = DepictionKey.compute(pluginName, plugin.getWidth(), plugin.getHeight(), molecule);
+
+		writeWidgetVarJS(out, plugin);
+		CACHED_VIEWER_TEMPLATE.write(out, divId, hiddenInputId, key);
+		plugin.getResourceLoader().writeLoadExtResources(out, loaderJSVar);
+		out.append("return ").append(viewerJS).append("});");
+	}
+
+	/**
+	 * Writes the JavaScript code that loads the plugin's resources and starts the
+	 * editor into the target. The code registers the component's
+	 * <code>widgetVar</code> and ends with the opening of the callback function
+	 * that creates the editor, which needs to be closed by the caller via
+	 * <code>"});"</code>.
+	 * <p>
+	 * In case of click activation, the resources are loaded not before the user
+	 * activated the preview element.
+	 * 
+	 * @param out            target
+	 * @param plugin         component of the molecular structure plugin
+	 * @param loaderJSVar    name of the plugin's JavaScript ResourcesLoader
+	 *                       instance
+	 * @param previewId      DOM id of the preview element or {@code null} if the
+	 *                       editor is loaded directly
+	 * @param targetId       DOM id of the hidden element to be displayed upon
+	 *                       activation or {@code null}
+	 * @param onActivationJS JavaScript code to be executed upon activation before
+	 *                       the resources are loaded
+	 * @throws IOException if writing fails
+	 */
+	protected void writeEditorStartJS(Appendable out, MolPluginCore plugin, String loaderJSVar, String previewId,
+			String targetId, String onActivationJS) throws IOException {
+		ResourceLoader resourceLoader = plugin.getResourceLoader();
+
+		if (previewId == null) {
+			resourceLoader.writeLoadExtResources(out, loaderJSVar);
+			writeWidgetVarJS(out, plugin);
+
+			// after resource loading finished
+			LOADER_STATUS_TEMPLATE.write(out, loaderJSVar);
+			return;
+		}
+
+		writeWidgetVarJS(out, plugin);
+		if (targetId != null) {
+			CLICK_ACTIVATION_WITH_TARGET_TEMPLATE.write(out, previewId, targetId);
+		} else {
+			CLICK_ACTIVATION_TEMPLATE.write(out, previewId);
+		}
+		out.append(onActivationJS);
+		resourceLoader.writeLoadExtResources(out, loaderJSVar);
+		CLICK_ACTIVATION_LOADED_TEMPLATE.write(out, loaderJSVar);
+	}
+
+	/**
+	 * Writes the JavaScript code that registers the editor field at its
+	 * client-side editor pool into the target. The pool's size is specified by the
+	 * context-param {@link MolPluginCore#WEBXML_EDITOR_POOL_SIZE}.
+	 * <p>
+	 * The code ends within the options object of the registration. The caller
+	 * needs to write the remaining options
+	 * <ul>
+	 * <li><code>newEditor</code>: JavaScript function expression
+	 * <code>(containerId, molecule) =&gt; ...</code> that returns a Promise
+	 * embedding a new editor,</li>
+	 * <li><code>newViewer</code>: JavaScript function expression
+	 * <code>(divId, molecule) =&gt; ...</code> that renders the molecule into the
+	 * preview element</li>
+	 * </ul>
+	 * and close the registration via <code>"});"</code>.
+	 * 
+	 * @param out           target
+	 * @param context       {@link FacesContext} for the request we are processing
+	 * @param plugin        component of the molecular structure plugin
+	 * @param loaderJSVar   name of the plugin's JavaScript ResourcesLoader
+	 *                      instance
+	 * @param previewId     DOM id of the preview element
+	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 * @param pluginName    name of the plugin type, which is part of the signature
+	 *                      that decides if an editor instance can be reused
+	 * @param recreate      {@code true} if the plugin's editor cannot be moved in
+	 *                      the DOM and needs to be recreated instead
+	 * @throws IOException if writing fails
+	 */
+	protected void writePooledEditorStartJS(Appendable out, FacesContext context, MolPluginCore plugin,
+			String loaderJSVar, String previewId, String hiddenInputId, String pluginName, boolean recreate)
+			throws IOException {
+		int poolSize = MolecularFacesConfig.getInstance(context).getEditorPoolSize();
+		String height = Integer.toString(plugin.getHeight());
+		String width = Integer.toString(plugin.getWidth());
+
+		writeWidgetVarJS(out, plugin);
+
+		// editor instances are reused for fields with the same signature
+		POOL_REGISTRATION_TEMPLATE.write(out, plugin.getEditorPool(), Integer.toString(poolSize), previewId,
+				hiddenInputId, pluginName, plugin.getFormat(), width, height, height, width,
+				Integer.toString(plugin.getChangeDebounce()), Boolean.toString(recreate));
+
+		// resource loading upon activation
+		plugin.getResourceLoader().writeLoadExtResources(out, loaderJSVar);
+		POOL_RESOURCES_LOADED_TEMPLATE.write(out, loaderJSVar);
+	}
+
+	/**
+	 * Encodes the JavaScript that checks the editor's molfile via the
+	 * {@link MolfileValidationResourceHandler} whenever the value of its hidden
+	 * &lt;input&gt; element changes, if the component's
+	 * <code>liveValidation</code> property is set. SMILES values are not checked.
+	 * 
+	 * @param context       {@link FacesContext} for the request we are processing
+	 * @param writer        response writer
+	 * @param plugin        component of the molecular structure plugin
+	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 * @throws IOException if writing fails
+	 */
+	protected void encodeLiveValidationJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin,
+			String hiddenInputId) throws IOException {
+		String format = plugin.getFormat();
+		if (!plugin.isLiveValidation() || MolPluginCore.Format.SMILES.toString().equals(format)) {
+			return;
+		}
+
+		String url = MolfileValidationResourceHandler.getResourceUrl(context);
+		if (url == null) {
+			return;
+		}
+
+		Molfile.Format molfileFormat = MolPluginCore.Format.MDLV3000.toString().equals(format) ? Molfile.Format.V3000
+				: Molfile.Format.V2000;
+
+		writer.startElement("script", plugin);
+		writer.writeAttribute("type", "text/javascript", null);
+		LIVE_VALIDATION_TEMPLATE.write(writer, hiddenInputId, url, molfileFormat.name(),
+				Integer.toString(LIVE_VALIDATION_DELAY));
+		writer.endElement("script");
+	}
 }
@@ -0,0 +1,58 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.molplugin;
+
+import java.io.Serializable;
+
+/**
+ * Reference to a value in the {@link MoleculeStore}, which replaces the value
+ * in the state of a component with <code>valueHandle="true"</code>.
+ * 
+ * @author flange
+ */
+public final class MoleculeHandle implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String key;
+
+	MoleculeHandle(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return key of the value in the {@link MoleculeStore}
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof MoleculeHandle) && key.equals(((MoleculeHandle) obj).key);
+	}
+
+	@Override
+	public int hashCode() {
+		return key.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "MoleculeHandle[" + key + "]";
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.molplugin;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.util.Hashes;
+
+/**
+ * Session-scoped, size-bounded store of the values of components with
+ * <code>valueHandle="true"</code>. Such components keep a
+ * {@link MoleculeHandle} in their state instead of the value, which keeps large
+ * molfiles out of the view state. As every session has its own store, users
+ * cannot evict each other's values.
+ * <p>
+ * String values are addressed by their SHA-256 hash, thus equal molfiles are
+ * stored once per session. Other values (e.g. {@code IAtomContainer} objects)
+ * are addressed by a random key. The store keeps at most
+ * {@link MolecularFacesConfig#getMoleculeStoreSize()} values and evicts the
+ * least recently used ones.
+ * 
+ * @author flange
+ */
+public class MoleculeStore implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Name of the session attribute that holds the store.
+	 */
+	public static final String SESSION_ATTRIBUTE = "de.ipb_halle.molecularfaces.MoleculeStore";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * values in the store of a session.
+	 */
+	public static final String WEBXML_MOLECULE_STORE_SIZE = "de.ipb_halle.molecularfaces.MOLECULE_STORE_SIZE";
+
+	public static final int DEFAULT_MOLECULE_STORE_SIZE = 1000;
+
+	/*
+	 * Guards the creation of stores. The session object itself is not a reliable
+	 * monitor, as containers may return different facades for the same session.
+	 */
+	private static final Object CREATION_LOCK = new Object();
+
+	private final int maxEntries;
+	private final Map<String, Object> values;
+
+	/**
+	 * Creates a store.
+	 * 
+	 * @param maxEntries maximum number of values
+	 */
+	public MoleculeStore(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.values = new LinkedHashMap<String, Object>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+				return size() > MoleculeStore.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the store of the current session. The store and the session are
+	 * created if necessary.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return store of the session
+	 */
+	public static MoleculeStore getInstance(FacesContext context) {
+		context.getExternalContext().getSession(true);
+		Map<String, Object> sessionMap = context.getExternalContext().getSessionMap();
+		MoleculeStore store = (MoleculeStore) sessionMap.get(SESSION_ATTRIBUTE);
+		if (store != null) {
+			return store;
+		}
+
+		synchronized (CREATION_LOCK) {
+			store = (MoleculeStore) sessionMap.get(SESSION_ATTRIBUTE);
+			if (store == null) {
+				store = new MoleculeStore(MolecularFacesConfig.getInstance(context).getMoleculeStoreSize());
+				sessionMap.put(SESSION_ATTRIBUTE, store);
+			}
+
+			return store;
+		}
+	}
+
+	/**
+	 * Stores a value.
+	 * 
+	 * @param value value to store
+	 * @return handle of the value
+	 */
+	public synchronized MoleculeHandle put(Object value) {
+		String key = (value instanceof String) ? Hashes.sha256Hex((String) value) : UUID.randomUUID().toString();
+		values.put(key, value);
+
+		return new MoleculeHandle(key);
+	}
+
+	/**
+	 * Returns a value.
+	 * 
+	 * @param handle handle of the value
+	 * @return the value or {@code null} if it has been evicted
+	 */
+	public synchronized Object get(MoleculeHandle handle) {
+		return values.get(handle.getKey());
+	}
+}
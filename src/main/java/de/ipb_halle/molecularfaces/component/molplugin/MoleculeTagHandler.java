@@ -0,0 +1,208 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.molplugin;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.ValueHolder;
+import jakarta.faces.convert.Converter;
+import jakarta.faces.view.facelets.ComponentConfig;
+import jakarta.faces.view.facelets.ComponentHandler;
+import jakarta.faces.view.facelets.FaceletContext;
+import jakarta.faces.view.facelets.FaceletHandler;
+import jakarta.faces.view.facelets.MetaRuleset;
+import jakarta.faces.view.facelets.Tag;
+import jakarta.faces.view.facelets.TagAttribute;
+import jakarta.faces.view.facelets.TagAttributeException;
+import jakarta.faces.view.facelets.TagConfig;
+import jakarta.faces.view.facelets.TagHandler;
+
+/**
+ * Facelets tag handler of the tag {@code <mol:molecule>}. Depending on the tag
+ * attribute {@code pluginType}, it adds one of the molecular structure plugin
+ * components to the component tree. The plugin type is evaluated once when the
+ * tag is applied (like the {@code <c:if>} branches of the former composite
+ * component), all other attributes are wired directly to the chosen component.
+ * <p>
+ * The tag attribute {@code converter} accepts a converter id or an expression
+ * that evaluates to a {@link Converter} instance or a converter id. Like the
+ * former composite component, the tag registers the converter
+ * {@value #DEFAULT_CONVERTER_ID} if the attribute is missing or evaluates to
+ * {@code null} or an empty string.
+ * 
+ * @author flange
+ */
+public class MoleculeTagHandler extends TagHandler {
+	private static final Logger LOGGER = Logger.getLogger(MoleculeTagHandler.class.getName());
+
+	/**
+	 * Default value of the tag attribute {@code pluginType}.
+	 */
+	public static final String DEFAULT_PLUGIN_TYPE = "OpenChemLibJS";
+
+	/**
+	 * Id of the converter that is registered if the tag attribute
+	 * {@code converter} is not set.
+	 */
+	public static final String DEFAULT_CONVERTER_ID = "molecularfaces.DummyConverter";
+
+	private static final String PLUGIN_TYPE_ATTRIBUTE = "pluginType";
+	private static final String CONVERTER_ATTRIBUTE = "converter";
+
+	private static final Map<String, String> COMPONENT_TYPES;
+	static {
+		Map<String, String> componentTypes = new HashMap<>();
+		componentTypes.put("OpenChemLibJS", OpenChemLibJSComponent.COMPONENT_TYPE);
+		componentTypes.put("MolPaintJS", MolPaintJSComponent.COMPONENT_TYPE);
+		componentTypes.put("MarvinJS", MarvinJSComponent.COMPONENT_TYPE);
+		COMPONENT_TYPES = Collections.unmodifiableMap(componentTypes);
+	}
+
+	private final TagAttribute pluginType;
+	private final TagAttribute converter;
+	private final Map<String, ComponentHandler> delegates = new HashMap<>();
+
+	public MoleculeTagHandler(TagConfig config) {
+		super(config);
+
+		pluginType = getAttribute(PLUGIN_TYPE_ATTRIBUTE);
+		converter = getAttribute(CONVERTER_ATTRIBUTE);
+		getRequiredAttribute("value");
+
+		for (Map.Entry<String, String> entry : COMPONENT_TYPES.entrySet()) {
+			delegates.put(entry.getKey(),
+					new PluginComponentHandler(new PluginComponentConfig(config, entry.getValue())));
+		}
+	}
+
+	/**
+	 * Returns the component type of the given plugin type.
+	 * 
+	 * @param pluginType plugin type: "OpenChemLibJS", "MolPaintJS" or "MarvinJS"
+	 * @return component type or {@code null} if the plugin type is unknown
+	 */
+	public static String getComponentType(String pluginType) {
+		return COMPONENT_TYPES.get(pluginType);
+	}
+
+	@Override
+	public void apply(FaceletContext ctx, UIComponent parent) throws IOException {
+		String type = (pluginType == null) ? DEFAULT_PLUGIN_TYPE : pluginType.getValue(ctx);
+		ComponentHandler delegate = delegates.get(type);
+
+		if (delegate == null) {
+			// Same behaviour as the former composite component: Render nothing.
+			LOGGER.warning(tag.getLocation() + ": Unknown pluginType '" + type + "', nothing will be rendered.");
+			return;
+		}
+
+		delegate.apply(ctx, parent);
+	}
+
+	/*
+	 * Sets the converter given by the tag attribute "converter" or the default
+	 * converter on the newly created component.
+	 */
+	void applyConverter(FaceletContext ctx, UIComponent component) {
+		if (!(component instanceof ValueHolder)) {
+			return;
+		}
+
+		Object value = null;
+		if (converter != null) {
+			value = converter.isLiteral() ? converter.getValue() : converter.getObject(ctx);
+		}
+		if ((value == null) || "".equals(value)) {
+			value = DEFAULT_CONVERTER_ID;
+		}
+
+		if (value instanceof Converter) {
+			((ValueHolder) component).setConverter((Converter<?>) value);
+		} else if (value instanceof String) {
+			((ValueHolder) component)
+					.setConverter(ctx.getFacesContext().getApplication().createConverter((String) value));
+		} else {
+			throw new TagAttributeException(tag, converter,
+					"Expected a converter id or a Converter instance, but got " + value.getClass().getName());
+		}
+	}
+
+	/*
+	 * ComponentHandler for one plugin type. The tag attributes "pluginType" and
+	 * "converter" are handled by the enclosing tag handler.
+	 */
+	private class PluginComponentHandler extends ComponentHandler {
+		PluginComponentHandler(ComponentConfig config) {
+			super(config);
+		}
+
+		@Override
+		protected MetaRuleset createMetaRuleset(@SuppressWarnings("rawtypes") Class type) {
+			return super.createMetaRuleset(type).ignore(PLUGIN_TYPE_ATTRIBUTE).ignore(CONVERTER_ATTRIBUTE);
+		}
+
+		@Override
+		public void onComponentCreated(FaceletContext ctx, UIComponent c, UIComponent parent) {
+			applyConverter(ctx, c);
+		}
+	}
+
+	/*
+	 * ComponentConfig of the tag with a fixed component type.
+	 */
+	private static class PluginComponentConfig implements ComponentConfig {
+		private final TagConfig tagConfig;
+		private final String componentType;
+
+		PluginComponentConfig(TagConfig tagConfig, String componentType) {
+			this.tagConfig = tagConfig;
+			this.componentType = componentType;
+		}
+
+		@Override
+		public String getComponentType() {
+			return componentType;
+		}
+
+		@Override
+		public String getRendererType() {
+			// the components set their default renderer type
+			return null;
+		}
+
+		@Override
+		public Tag getTag() {
+			return tagConfig.getTag();
+		}
+
+		@Override
+		public String getTagId() {
+			return tagConfig.getTagId();
+		}
+
+		@Override
+		public FaceletHandler getNextHandler() {
+			return tagConfig.getNextHandler();
+		}
+	}
+}
@@ -19,8 +19,7 @@ package de.ipb_halle.molecularfaces.component.molplugin;
 
 import jakarta.faces.component.FacesComponent;
 
-import de.ipb_halle.molecularfaces.util.WebXml;
-import de.ipb_halle.molecularfaces.util.WebXmlImpl;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
 
 /**
  * This {@link jakarta.faces.component.UIComponent} renders a chemical structure
@@ -35,22 +34,25 @@ public class OpenChemLibJSComponent extends MolPluginCore {
 	public static final String COMPONENT_TYPE = "molecularfaces.OpenChemLibJS";
 	public static final String DEFAULT_RENDERER = OpenChemLibJSRenderer.RENDERER_TYPE;
 
-	private WebXml webXml = new WebXmlImpl();
-
 	/**
 	 * Name of the context-param in web.xml that specifies the location of
 	 * openchemlib-full.js relative to the application's context root.
 	 */
 	public static final String WEBXML_CUSTOM_RESOURCE_URL = "de.ipb_halle.molecularfaces.OPENCHEMLIBJS_URL";
 
+	/**
+	 * Name of openchemlib-full.js in the resource library of MolecularFaces.
+	 */
+	public static final String RESOURCE_NAME = "plugins/openchemlibjs/openchemlib-full.js";
+
 	public OpenChemLibJSComponent() {
 		super();
 
-		String resourceUrl = webXml.getContextParam(WEBXML_CUSTOM_RESOURCE_URL, getFacesContext(), null);
-		if ((resourceUrl != null) && (!resourceUrl.isEmpty())) {
+		String resourceUrl = MolecularFacesConfig.getInstance(getFacesContext()).getOpenChemLibJSUrl();
+		if (resourceUrl != null) {
 			getResourceLoader().addScriptExtToHead(resourceUrl);
 		} else {
-			getResourceLoader().addScriptResourceToHead("plugins/openchemlibjs/openchemlib-full.js");
+			getResourceLoader().addScriptResourceToHead(RESOURCE_NAME);
 		}
 
 		setRendererType(DEFAULT_RENDERER);
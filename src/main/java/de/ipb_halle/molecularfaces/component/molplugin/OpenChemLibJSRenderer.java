@@ -18,13 +18,16 @@
 package de.ipb_halle.molecularfaces.component.molplugin;
 
 import java.io.IOException;
-import java.util.Formatter;
+
+import jakarta.faces.application.Resource;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.context.ResponseWriter;
 import jakarta.faces.render.FacesRenderer;
 
-import de.ipb_halle.molecularfaces.util.RendererUtils;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.util.ResourceLoader;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
 
 /**
  * This {@link jakarta.faces.render.Renderer} renders a chemical structure editor or viewer using the
@@ -44,6 +47,24 @@ public class OpenChemLibJSRenderer extends MolPluginRenderer {
 	 */
 	private String loaderJSVar = "molecularfaces.openChemLibJSLoaderInstance";
 
+	private static final ScriptTemplate VIEWER_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {"
+			+ "return molecularfaces.OpenChemLibJSViewer.newViewer(\"%s\", "
+			+ "document.getElementById(\"%s\").getAttribute(\"value\"), %r, %r, null, \"%s\");});");
+	private static final ScriptTemplate WORKER_VIEWER_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {"
+			+ "return molecularfaces.OpenChemLibJSViewer.newViewer(\"%s\", "
+			+ "document.getElementById(\"%s\").getAttribute(\"value\"), %r, %r, \"%s\", \"%s\");});");
+	private static final ScriptTemplate EDITOR_TEMPLATE = ScriptTemplate
+			.compile("let editorPromise = molecularfaces.OpenChemLibJSEditor"
+					+ ".newEditor(\"%s\", document.getElementById(\"%s\").getAttribute(\"value\"), \"%s\");"
+					+ "editorPromise.then(editor => editor.getOnChangeSubject()%r.addChangeCallback((mol) => { "
+					+ "document.getElementById(\"%s\").setAttribute(\"value\", mol); }));"
+					+ "return editorPromise;});");
+	private static final ScriptTemplate POOLED_EDITOR_TEMPLATE = ScriptTemplate
+			.compile("newEditor: (containerId, molecule) => molecularfaces.OpenChemLibJSEditor.newEditor(containerId, "
+					+ "molecule, \"%s\"), "
+					+ "newViewer: (divId, molecule) => molecularfaces.OpenChemLibJSViewer.newViewer(divId, molecule, "
+					+ "%r, %r, null, \"%s\")});");
+
 	@Override
 	public void encodeBegin(FacesContext context, UIComponent component) throws IOException {
 		MolPluginCore plugin = (MolPluginCore) component;
@@ -72,23 +93,24 @@ public class OpenChemLibJSRenderer extends MolPluginRenderer {
 		String clientId = plugin.getClientId();
 		String hiddenInputId = clientId + "_Input";
 		String divId = clientId + "_OpenChemLibJSViewer";
+		String molecule = convertValueToClientString(context, plugin);
 
-		encodeViewerHTML(context, writer, plugin, divId, hiddenInputId);
-		encodeViewerJS(writer, plugin, divId, hiddenInputId);
+		encodeViewerHTML(writer, plugin, divId, hiddenInputId, molecule);
+		encodeViewerJS(context, writer, plugin, divId, hiddenInputId, molecule);
 	}
 
 	/**
 	 * Encodes the HTML part of the plugin viewer into the writer. It consists of a
 	 * &lt;div&gt; element that the Javascript plugin uses as rendering target.
 	 * 
-	 * @param context
 	 * @param writer
 	 * @param plugin
 	 * @param divId         DOM id of the embedded &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param molecule      molecule to be depicted
 	 */
-	private void encodeViewerHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String divId,
-			String hiddenInputId) throws IOException {
+	private void encodeViewerHTML(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId,
+			String molecule) throws IOException {
 		// inner <div> is used for the plugin's rendering (aka the Javascript target)
 		writer.startElement("div", plugin);
 		writer.writeAttribute("id", divId, null);
@@ -99,80 +121,153 @@ public class OpenChemLibJSRenderer extends MolPluginRenderer {
 		writer.startElement("input", plugin);
 		writer.writeAttribute("type", "hidden", null);
 		writer.writeAttribute("id", hiddenInputId, null);
-		writer.writeAttribute("value", RendererUtils.convertValueToString(context, plugin, plugin.getValue()), "value");
+		writer.writeAttribute("value", molecule, "value");
 		writer.endElement("input");
 	}
 
 	/**
 	 * Encodes the Javascript part of the plugin viewer into the writer.
 	 * 
+	 * @param context
 	 * @param writer
 	 * @param plugin
 	 * @param divId         DOM id of the &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param molecule      molecule to be depicted
 	 */
-	private void encodeViewerJS(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId)
-			throws IOException {
+	private void encodeViewerJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String divId,
+			String hiddenInputId, String molecule) throws IOException {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
 
-		StringBuilder sb = new StringBuilder(512);
-
-		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
-
-		Formatter fmt = new Formatter(sb);
-
-		// Register a JS variable if required.
-		String widgetVar = plugin.getWidgetVar();
-		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
-		}
-
 		/*
 		 * Start viewer, set the molecule from the hidden <input> element's value and
 		 * return the viewer object embedded in a Promise.
 		 */
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-		fmt.format(
-				"return molecularfaces.OpenChemLibJSViewer.newViewer(\"%s\", "
-						+ "document.getElementById(\"%s\").getAttribute(\"value\"), %d, %d);",
-				divId, hiddenInputId, plugin.getHeight(), plugin.getWidth());
-
-		fmt.close();
+		String viewerJS;
+		String workerScriptUrl = plugin.isWorkerDepiction() ? getWorkerScriptUrl(context) : null;
+		if (workerScriptUrl != null) {
+			viewerJS = WORKER_VIEWER_TEMPLATE.apply(loaderJSVar, divId, hiddenInputId,
+					Integer.toString(plugin.getHeight()), Integer.toString(plugin.getWidth()), workerScriptUrl,
+					plugin.getFormat());
+		} else {
+			viewerJS = VIEWER_TEMPLATE.apply(loaderJSVar, divId, hiddenInputId, Integer.toString(plugin.getHeight()),
+					Integer.toString(plugin.getWidth()), plugin.getFormat());
+		}
 
-		// end of then()
-		sb.append("});");
+		// resource loading, widgetVar registration and depiction cache lookup
+		writeViewerStartJS(writer, plugin, loaderJSVar, "OpenChemLibJS", divId, hiddenInputId, molecule, viewerJS);
 
-		writer.writeText(sb, null);
 		writer.endElement("script");
 	}
 
+	/**
+	 * Returns the URL of openchemlib-full.js, which is imported by the Web
+	 * Workers of viewers with <code>workerDepiction</code>.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return URL of the script or {@code null} if the resource cannot be found
+	 */
+	protected String getWorkerScriptUrl(FacesContext context) {
+		String resourceUrl = MolecularFacesConfig.getInstance(context).getOpenChemLibJSUrl();
+		if (resourceUrl != null) {
+			return resourceUrl;
+		}
+
+		Resource resource = context.getApplication().getResourceHandler()
+				.createResource(OpenChemLibJSComponent.RESOURCE_NAME, ResourceLoader.RESOURCES_LIBRARY_NAME);
+
+		return (resource != null) ? resource.getRequestPath() : null;
+	}
+
 	private void encodeEditor(FacesContext context, ResponseWriter writer, MolPluginCore plugin) throws IOException {
 		String clientId = plugin.getClientId();
 		String hiddenInputId = clientId + "_Input";
 		String divId = clientId + "_OpenChemLibJSEditor";
+		String previewId = isClickActivated(plugin) ? clientId + "_Preview" : null;
+
+		if (isEditorPooled(plugin)) {
+			encodePooledEditorHTML(context, writer, plugin, previewId, hiddenInputId);
+			encodePooledEditorJS(context, writer, plugin, previewId, hiddenInputId);
+		} else {
+			encodeEditorHTML(context, writer, plugin, divId, hiddenInputId, previewId);
+			encodeEditorJS(writer, plugin, divId, hiddenInputId, previewId);
+		}
+		encodeLiveValidationJS(context, writer, plugin, hiddenInputId);
+	}
+
+	/**
+	 * Encodes the HTML part of a pooled plugin editor into the writer. It consists
+	 * of a static preview of the molecule and a hidden &lt;input&gt; element. A
+	 * pooled editor instance is attached not before the user activates the
+	 * preview.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param plugin
+	 * @param previewId     DOM id of the preview element
+	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 */
+	private void encodePooledEditorHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin,
+			String previewId, String hiddenInputId) throws IOException {
+		encodePreview(context, writer, plugin, previewId, generateDivStyle(plugin));
 
-		encodeEditorHTML(context, writer, plugin, divId, hiddenInputId);
-		encodeEditorJS(writer, plugin, divId, hiddenInputId);
+		// hidden <input>
+		writer.startElement("input", plugin);
+		writer.writeAttribute("type", "hidden", null);
+		writer.writeAttribute("id", hiddenInputId, null);
+		writer.writeAttribute("name", plugin.getClientId(), null);
+		writer.writeAttribute("value", convertValueToClientString(context, plugin), "value");
+		writer.endElement("input");
+	}
+
+	/**
+	 * Encodes the Javascript part of a pooled plugin editor into the writer. It
+	 * registers the editor field at the client-side editor pool.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param plugin
+	 * @param previewId     DOM id of the preview element
+	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 */
+	private void encodePooledEditorJS(FacesContext context, ResponseWriter writer, MolPluginCore plugin,
+			String previewId, String hiddenInputId) throws IOException {
+		writer.startElement("script", plugin);
+		writer.writeAttribute("type", "text/javascript", null);
+
+		writePooledEditorStartJS(writer, context, plugin, loaderJSVar, previewId, hiddenInputId, "OpenChemLibJS",
+				false);
+		POOLED_EDITOR_TEMPLATE.write(writer, plugin.getFormat(), Integer.toString(plugin.getHeight()),
+				Integer.toString(plugin.getWidth()), plugin.getFormat());
+		writer.endElement("script");
 	}
 
 	/**
 	 * Encodes the HTML part of the plugin editor into the writer. It consists of a
-	 * &lt;div&gt; and a hidden &lt;input&gt; element.
+	 * &lt;div&gt; and a hidden &lt;input&gt; element. In case of click activation,
+	 * the &lt;div&gt; is hidden behind a static preview of the molecule.
 	 * 
 	 * @param context
 	 * @param writer
 	 * @param plugin
 	 * @param divId         DOM id of the embedded &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the embedded hidden &lt;input&gt; element
+	 * @param previewId     DOM id of the preview element or {@code null}
 	 */
 	private void encodeEditorHTML(FacesContext context, ResponseWriter writer, MolPluginCore plugin, String divId,
-			String hiddenInputId) throws IOException {
+			String hiddenInputId, String previewId) throws IOException {
+		String divStyle = generateDivStyle(plugin);
+
+		if (previewId != null) {
+			encodePreview(context, writer, plugin, previewId, divStyle);
+			divStyle = "display:none;" + divStyle;
+		}
+
 		// inner <div> used for the plugin's rendering (aka the Javascript target)
 		writer.startElement("div", plugin);
 		writer.writeAttribute("id", divId, null);
-		writer.writeAttribute("style", generateDivStyle(plugin), null);
+		writer.writeAttribute("style", divStyle, null);
 		writer.endElement("div");
 
 		// hidden <input>
@@ -180,7 +275,7 @@ public class OpenChemLibJSRenderer extends MolPluginRenderer {
 		writer.writeAttribute("type", "hidden", null);
 		writer.writeAttribute("id", hiddenInputId, null);
 		writer.writeAttribute("name", plugin.getClientId(), null);
-		writer.writeAttribute("value", RendererUtils.convertValueToString(context, plugin, plugin.getValue()), "value");
+		writer.writeAttribute("value", convertValueToClientString(context, plugin), "value");
 		writer.endElement("input");
 	}
 
@@ -194,51 +289,25 @@ public class OpenChemLibJSRenderer extends MolPluginRenderer {
 	 * @param plugin
 	 * @param divId         DOM id of the &lt;div&gt; element
 	 * @param hiddenInputId DOM id of the hidden &lt;input&gt; element
+	 * @param previewId     DOM id of the preview element or {@code null}
 	 */
-	private void encodeEditorJS(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId)
-			throws IOException {
+	private void encodeEditorJS(ResponseWriter writer, MolPluginCore plugin, String divId, String hiddenInputId,
+			String previewId) throws IOException {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
 
-		StringBuilder sb = new StringBuilder(512);
-
-		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
-
-		Formatter fmt = new Formatter(sb);
-
-		// Register a JS variable if required.
-		String widgetVar = plugin.getWidgetVar();
-		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
-		}
-
-		// after resource loading finished
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-
-		// Start editor, set the molecule from the hidden <input> element's value.
-		fmt.format("let editorPromise = molecularfaces.OpenChemLibJSEditor"
-				+ ".newEditor(\"%s\", document.getElementById(\"%s\").getAttribute(\"value\"), \"%s\");",
-				divId, hiddenInputId, plugin.getFormat());
+		// resource loading (upon activation) and widgetVar registration
+		writeEditorStartJS(writer, plugin, loaderJSVar, previewId, divId, "");
 
 		/*
-		 * Register an on-change callback to fill the value of the hidden <input>
-		 * element.
+		 * Start editor, set the molecule from the hidden <input> element's value and
+		 * register an on-change callback to fill the value of the hidden <input>
+		 * element. The OnChangeSubject may debounce the changes. The editor object
+		 * is returned embedded in another Promise that is written into widgetVar.
 		 */
-		fmt.format("editorPromise.then(editor => "
-				+ "editor.getOnChangeSubject().addChangeCallback((mol) => { "
-				+ "document.getElementById(\"%s\").setAttribute(\"value\", mol); }));",
+		EDITOR_TEMPLATE.write(writer, divId, hiddenInputId, plugin.getFormat(), generateSetDebounceJS(plugin),
 				hiddenInputId);
 
-		fmt.close();
-
-		// Return the editor object embedded in another Promise that is written into widgetVar.
-		sb.append("return editorPromise;");
-
-		// end of then() block of the ResourcesLoader's Promise
-		sb.append("});");
-
-		writer.writeText(sb, null);
 		writer.endElement("script");
 	}
 }
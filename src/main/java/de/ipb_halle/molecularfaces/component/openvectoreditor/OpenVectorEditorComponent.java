@@ -19,8 +19,7 @@ package de.ipb_halle.molecularfaces.component.openvectoreditor;
 
 import jakarta.faces.component.FacesComponent;
 
-import de.ipb_halle.molecularfaces.util.WebXml;
-import de.ipb_halle.molecularfaces.util.WebXmlImpl;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
 
 /**
  * This {@link jakarta.faces.component.UIComponent} renders a
@@ -34,8 +33,6 @@ public class OpenVectorEditorComponent extends OpenVectorEditorCore {
 	public static final String COMPONENT_TYPE = "molecularfaces.OpenVectorEditor";
 	public static final String DEFAULT_RENDERER = OpenVectorEditorRenderer.RENDERER_TYPE;
 
-	private WebXml webXml = new WebXmlImpl();
-
 	/**
 	 * Name of the context-param in web.xml that specifies the location of the
 	 * OpenVectorEditor UMD installation relative to the application's context root.
@@ -46,8 +43,8 @@ public class OpenVectorEditorComponent extends OpenVectorEditorCore {
 	public OpenVectorEditorComponent() {
 		super();
 
-		String resourceBaseUrl = webXml.getContextParam(WEBXML_CUSTOM_RESOURCE_BASE_URL, getFacesContext(), null);
-		if ((resourceBaseUrl != null) && (!resourceBaseUrl.isEmpty())) {
+		String resourceBaseUrl = MolecularFacesConfig.getInstance(getFacesContext()).getOpenVectorEditorBaseUrl();
+		if (resourceBaseUrl != null) {
 			getResourceLoader().addScriptExtAsFacetComponent(resourceBaseUrl + "/open-vector-editor.min.js");
 			getResourceLoader().addCssExtAsFacetComponent(resourceBaseUrl + "/main.css");
 		} else {
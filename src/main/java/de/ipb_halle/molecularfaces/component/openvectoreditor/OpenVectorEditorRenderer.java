@@ -25,7 +25,6 @@ import static de.ipb_halle.molecularfaces.util.ResourceLoader.STYLESHEET_FACET_N
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Collections;
-import java.util.Formatter;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -39,6 +38,7 @@ import jakarta.faces.render.FacesRenderer;
 import jakarta.faces.render.Renderer;
 
 import de.ipb_halle.molecularfaces.util.RendererUtils;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
 
 /**
  * This {@link jakarta.faces.render.Renderer} renders the HTML and JavaScript code
@@ -54,6 +54,19 @@ public class OpenVectorEditorRenderer extends Renderer {
 
 	public static final String RENDERER_TYPE = "molecularfaces.OpenVectorEditorRenderer";
 
+	private static final ScriptTemplate WIDGET_VAR_TEMPLATE = ScriptTemplate.compile("var %r = ");
+	private static final ScriptTemplate EDITOR_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {"
+			+ "let valueAsText = document.getElementById(\"%s\").getAttribute(\"value\");"
+			+ "let valueAsJSON = {};"
+			+ "if (!(!valueAsText || valueAsText.length === 0)) {"
+			+ "try { valueAsJSON = JSON.parse(valueAsText); }"
+			+ "catch(e) { console.error(\"Could not parse JSON input: \" + e); }"
+			+ "}"
+			+ "let editorPromise = molecularfaces.OpenVectorEditor.newEditor(\"%s\", \"%s\", valueAsJSON, %r);"
+			+ "editorPromise.then(editor => editor.getOnChangeSubject().addChangeCallback((sequence) => { "
+			+ "document.getElementById(\"%s\").setAttribute(\"value\", JSON.stringify(sequence)); }));"
+			+ "return editorPromise;});");
+
 	/**
 	 * Name of the JavaScript global variable that represents a common
 	 * ResourcesLoader instance for all rendered components of this plugin type.
@@ -122,14 +135,9 @@ public class OpenVectorEditorRenderer extends Renderer {
 	}
 
 	private void encodeJS(ResponseWriter writer, OpenVectorEditorCore plugin, String editorTargetDivId, String iframeId, String hiddenInputId) throws IOException {
-		String jsCode = generateJSCode(plugin, editorTargetDivId, iframeId, hiddenInputId);
-		writeScriptTag(jsCode, plugin, writer);
-	}
-
-	private void writeScriptTag(String jsCode, OpenVectorEditorCore plugin, ResponseWriter writer) throws IOException {
 		writer.startElement("script", plugin);
 		writer.writeAttribute("type", "text/javascript", null);
-		writer.writeText(jsCode, null);
+		writeJSCode(writer, plugin, editorTargetDivId, iframeId, hiddenInputId);
 		writer.endElement("script");
 	}
 
@@ -256,54 +264,25 @@ public class OpenVectorEditorRenderer extends Renderer {
 		writer.endElement("link");
 	}
 
-	private String generateJSCode(OpenVectorEditorCore plugin, String editorTargetDivId, String iframeId, String hiddenInputId) {
-		StringBuilder sb = new StringBuilder(512);
-
+	private void writeJSCode(Appendable out, OpenVectorEditorCore plugin, String editorTargetDivId, String iframeId,
+			String hiddenInputId) throws IOException {
 		// resource loading
-		sb.append(plugin.getResourceLoader().encodeLoadExtResources(loaderJSVar));
-
-		Formatter fmt = new Formatter(sb);
+		plugin.getResourceLoader().writeLoadExtResources(out, loaderJSVar);
 
 		// Register a JS variable if required.
 		String widgetVar = plugin.getWidgetVar();
 		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
-			fmt.format("var %s = ", widgetVar);
+			WIDGET_VAR_TEMPLATE.write(out, widgetVar);
 		}
 
-		// after resource loading finished
-		fmt.format("%s.status().then(() => {", loaderJSVar);
-
 		/*
-		 * Start the editor, set the sequence value after a String-to-JSON
-		 * transformation..
+		 * After resource loading finished: Start the editor, set the sequence value
+		 * after a String-to-JSON transformation and register an on-change callback to
+		 * fill the value of the hidden <input> element. Perform a JSON-to-String
+		 * transformation on the sequence data before. The editor object is returned
+		 * embedded in another Promise that is written into widgetVar.
 		 */
-		fmt.format("let valueAsText = document.getElementById(\"%s\").getAttribute(\"value\");", hiddenInputId);
-		fmt.format("let valueAsJSON = {};");
-		fmt.format("if (!(!valueAsText || valueAsText.length === 0)) {");
-		fmt.format("try { valueAsJSON = JSON.parse(valueAsText); }");
-		fmt.format("catch(e) { console.error(\"%s\" + e); }", "Could not parse JSON input: ");
-		fmt.format("}");
-		fmt.format("let editorPromise = molecularfaces.OpenVectorEditor"
-				+ ".newEditor(\"%s\", \"%s\", valueAsJSON, %b);",
-				editorTargetDivId, iframeId, plugin.isReadonly());
-
-		/*
-		 * Register an on-change callback to fill the value of the hidden <input>
-		 * element. Perform a JSON-to-String transformation on the sequence data before.
-		 */
-		fmt.format("editorPromise.then(editor => "
-				+ "editor.getOnChangeSubject().addChangeCallback((sequence) => { "
-				+ "document.getElementById(\"%s\").setAttribute(\"value\", JSON.stringify(sequence)); }));",
-				hiddenInputId);
-
-		fmt.close();
-
-		// Return the editor object embedded in another Promise that is written into widgetVar.
-		sb.append("return editorPromise;");
-
-		// end of then() block of the ResourcesLoader's Promise
-		sb.append("});");
-
-		return sb.toString();
+		EDITOR_TEMPLATE.write(out, loaderJSVar, hiddenInputId, editorTargetDivId, iframeId,
+				Boolean.toString(plugin.isReadonly()), hiddenInputId);
 	}
 }
@@ -0,0 +1,95 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.structuregrid;
+
+import jakarta.faces.component.FacesComponent;
+import jakarta.faces.event.AbortProcessingException;
+import jakarta.faces.event.ComponentSystemEvent;
+import jakarta.faces.event.ComponentSystemEventListener;
+import jakarta.faces.event.ListenerFor;
+import jakarta.faces.event.PostAddToViewEvent;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore.PluginType;
+import de.ipb_halle.molecularfaces.component.molplugin.OpenChemLibJSComponent;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+
+/**
+ * This {@link jakarta.faces.component.UIComponent} renders a collection of
+ * chemical structures as a grid of static depictions. All structures are drawn
+ * in a single pass by one client-side controller using either
+ * <a href="https://github.com/cheminfo/openchemlib-js">OpenChemLib JS</a> or
+ * <a href="https://chemaxon.com/products/marvin-js">Marvin JS</a>, or are
+ * depicted on the server.
+ * 
+ * @author flange
+ */
+@ListenerFor(systemEventClass = PostAddToViewEvent.class)
+@FacesComponent(StructureGridComponent.COMPONENT_TYPE)
+public class StructureGridComponent extends StructureGridCore implements ComponentSystemEventListener {
+	public static final String COMPONENT_TYPE = "molecularfaces.StructureGrid";
+	public static final String DEFAULT_RENDERER = StructureGridRenderer.RENDERER_TYPE;
+
+	public StructureGridComponent() {
+		super();
+
+		setRendererType(DEFAULT_RENDERER);
+	}
+
+	@Override
+	public void processEvent(ComponentSystemEvent event) throws AbortProcessingException {
+		if (event instanceof PostAddToViewEvent) {
+			processPostAddToViewEvent(event);
+		}
+
+		super.processEvent(event);
+	}
+
+	/*
+	 * The plugin resources depend on the pluginType and serverDepiction
+	 * attributes, which have not been applied to this component in the
+	 * constructor yet. The resources are enqueued here and loaded by handing the
+	 * event to the ResourceLoader again, because it might have processed this
+	 * event before.
+	 */
+	private void processPostAddToViewEvent(ComponentSystemEvent event) {
+		if (isServerDepiction()) {
+			return;
+		}
+
+		MolecularFacesConfig config = MolecularFacesConfig.getInstance(getFacesContext());
+		String pluginType = getPluginType();
+
+		if (PluginType.OpenChemLibJS.toString().equals(pluginType)) {
+			String resourceUrl = config.getOpenChemLibJSUrl();
+			if (resourceUrl != null) {
+				getResourceLoader().addScriptExtToHead(resourceUrl);
+			} else {
+				getResourceLoader().addScriptResourceToHead(OpenChemLibJSComponent.RESOURCE_NAME);
+			}
+		} else if (PluginType.MarvinJS.toString().equals(pluginType)) {
+			String baseDir = config.getMarvinJSBaseUrl();
+			getResourceLoader().addScriptExtToHead(baseDir + "/gui/lib/promise-1.0.0.min.js");
+			getResourceLoader().addScriptExtToHead(baseDir + "/js/marvinjslauncher.js");
+			if (config.isMarvinJSWebServices()) {
+				getResourceLoader().addScriptExtToHead(baseDir + "/js/webservices.js");
+			}
+		}
+
+		getResourceLoader().processEvent(event);
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.structuregrid;
+
+import jakarta.faces.component.UIOutput;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore;
+import de.ipb_halle.molecularfaces.util.ResourceLoader;
+
+/**
+ * This class holds the attribute states of the &lt;mol:structureGrid&gt;
+ * component.
+ * 
+ * @author flange
+ */
+public abstract class StructureGridCore extends UIOutput {
+	/**
+	 * Component family returned by {@link #getFamily()}
+	 */
+	public static final String COMPONENT_FAMILY = "molecularfaces.StructureGridFamily";
+
+	private ResourceLoader resourceLoader = new ResourceLoader(this);
+
+	protected StructureGridCore() {
+		resourceLoader.addScriptResourceToHead("js/MolecularFaces.min.js");
+	}
+
+	protected ResourceLoader getResourceLoader() {
+		return resourceLoader;
+	}
+
+	@Override
+	public String getFamily() {
+		return COMPONENT_FAMILY;
+	}
+
+	protected enum PropertyKeys {
+		batchDepiction, border, columns, format, height, pluginType, serverDepiction, viewportHeight, virtualScroll, widgetVar, width, windowSize;
+	}
+
+	/**
+	 * Return the value of the <code>batchDepiction</code> property.
+	 * <p>
+	 * Flag indicating that the server-side depictions (see
+	 * {@link #isServerDepiction()}) are not embedded into the page, but fetched
+	 * by the browser from the batch depiction resource in a few requests. This
+	 * property has no effect without server-side depiction or with virtual
+	 * scrolling.
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isBatchDepiction() {
+		return (boolean) getStateHelper().eval(PropertyKeys.batchDepiction, false);
+	}
+
+	/**
+	 * Set the value of the <code>batchDepiction</code> property.
+	 * 
+	 * @param batchDepiction boolean value which indicates that the server-side
+	 *                       depictions are fetched via the batch depiction
+	 *                       resource
+	 */
+	public void setBatchDepiction(boolean batchDepiction) {
+		getStateHelper().put(PropertyKeys.batchDepiction, batchDepiction);
+	}
+
+	/**
+	 * Return the value of the <code>border</code> property.
+	 * <p>
+	 * Flag indicating that the cells of the grid are rendered with a border.
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isBorder() {
+		return (boolean) getStateHelper().eval(PropertyKeys.border, false);
+	}
+
+	/**
+	 * Set the value of the <code>border</code> property.
+	 * 
+	 * @param border boolean value which indicates that the cells are rendered
+	 *               surrounded by a border
+	 */
+	public void setBorder(boolean border) {
+		getStateHelper().put(PropertyKeys.border, border);
+	}
+
+	public static final int DEFAULT_COLUMNS = 0;
+
+	/**
+	 * Return the value of the <code>columns</code> property.
+	 * <p>
+	 * The number of columns of the grid. With 0, the grid fills each row with as
+	 * many cells as fit into the available width.
+	 * 
+	 * @return the value of the attribute or 0 if it has not been set in the JSF
+	 *         view.
+	 */
+	public int getColumns() {
+		return (int) getStateHelper().eval(PropertyKeys.columns, DEFAULT_COLUMNS);
+	}
+
+	/**
+	 * Set the value of the <code>columns</code> property.
+	 * 
+	 * @param columns number of columns or 0 for wrapping the cells automatically
+	 */
+	public void setColumns(int columns) {
+		getStateHelper().put(PropertyKeys.columns, columns);
+	}
+
+	public static final String DEFAULT_FORMAT = MolPluginCore.DEFAULT_FORMAT;
+
+	/**
+	 * Return the value of the <code>format</code> property.
+	 * <p>
+	 * Controls the chemical file format of the molecules in the
+	 * <code>value</code> property.
+	 * <p>
+	 * Possible values are provided by the {@link MolPluginCore.Format}
+	 * enumeration.
+	 * 
+	 * @return the value of the attribute or "MDLV2000" if it has not been set in
+	 *         the JSF view.
+	 */
+	public String getFormat() {
+		return (String) getStateHelper().eval(PropertyKeys.format, DEFAULT_FORMAT);
+	}
+
+	/**
+	 * Set the value of the <code>format</code> property.
+	 * 
+	 * @param format chemical file format
+	 */
+	public void setFormat(String format) {
+		getStateHelper().put(PropertyKeys.format, format);
+	}
+
+	public static final int DEFAULT_HEIGHT = 200;
+
+	/**
+	 * Return the value of the <code>height</code> property.
+	 * <p>
+	 * The height of each cell of the grid in pixels.
+	 * 
+	 * @return the value of the attribute or 200 if it has not been set in the JSF
+	 *         view.
+	 */
+	public int getHeight() {
+		return (int) getStateHelper().eval(PropertyKeys.height, DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Set the value of the <code>height</code> property.
+	 * 
+	 * @param height height of a cell
+	 */
+	public void setHeight(int height) {
+		getStateHelper().put(PropertyKeys.height, height);
+	}
+
+	public static final String DEFAULT_PLUGIN_TYPE = MolPluginCore.PluginType.OpenChemLibJS.toString();
+
+	/**
+	 * Return the value of the <code>pluginType</code> property.
+	 * <p>
+	 * The chemical structure plugin that depicts the molecules in the browser.
+	 * Supported values are "OpenChemLibJS" and "MarvinJS".
+	 * 
+	 * @return the value of the attribute or "OpenChemLibJS" if it has not been
+	 *         set in the JSF view.
+	 */
+	public String getPluginType() {
+		return (String) getStateHelper().eval(PropertyKeys.pluginType, DEFAULT_PLUGIN_TYPE);
+	}
+
+	/**
+	 * Set the value of the <code>pluginType</code> property.
+	 * 
+	 * @param pluginType name of the chemical structure plugin
+	 */
+	public void setPluginType(String pluginType) {
+		getStateHelper().put(PropertyKeys.pluginType, pluginType);
+	}
+
+	/**
+	 * Return the value of the <code>serverDepiction</code> property.
+	 * <p>
+	 * Flag indicating that the molecules are depicted as static SVG images on the
+	 * server. In this case, no chemical structure plugin is loaded in the
+	 * browser.
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isServerDepiction() {
+		return (boolean) getStateHelper().eval(PropertyKeys.serverDepiction, false);
+	}
+
+	/**
+	 * Set the value of the <code>serverDepiction</code> property.
+	 * 
+	 * @param serverDepiction boolean value which indicates that the molecules are
+	 *                        depicted on the server
+	 */
+	public void setServerDepiction(boolean serverDepiction) {
+		getStateHelper().put(PropertyKeys.serverDepiction, serverDepiction);
+	}
+
+	public static final int DEFAULT_VIEWPORT_HEIGHT = 600;
+
+	/**
+	 * Return the value of the <code>viewportHeight</code> property.
+	 * <p>
+	 * The height of the scrollable viewport in pixels if virtual scrolling is
+	 * enabled (see {@link #isVirtualScroll()}).
+	 * 
+	 * @return the value of the attribute or 600 if it has not been set in the JSF
+	 *         view.
+	 */
+	public int getViewportHeight() {
+		return (int) getStateHelper().eval(PropertyKeys.viewportHeight, DEFAULT_VIEWPORT_HEIGHT);
+	}
+
+	/**
+	 * Set the value of the <code>viewportHeight</code> property.
+	 * 
+	 * @param viewportHeight height of the scrollable viewport
+	 */
+	public void setViewportHeight(int viewportHeight) {
+		getStateHelper().put(PropertyKeys.viewportHeight, viewportHeight);
+	}
+
+	/**
+	 * Return the value of the <code>virtualScroll</code> property.
+	 * <p>
+	 * Flag indicating that the grid is rendered in a scrollable viewport, which
+	 * only contains the cells of the visible rows. The page contains the number
+	 * of molecules and the first window of molecules (see
+	 * {@link #getWindowSize()}). Further windows are requested from the server
+	 * via AJAX postbacks while the user scrolls. This requires the component to
+	 * be placed inside a form.
+	 * 
+	 * @return the value of the attribute or <code>false</code> if it has not been
+	 *         set in the JSF view.
+	 */
+	public boolean isVirtualScroll() {
+		return (boolean) getStateHelper().eval(PropertyKeys.virtualScroll, false);
+	}
+
+	/**
+	 * Set the value of the <code>virtualScroll</code> property.
+	 * 
+	 * @param virtualScroll boolean value which indicates that the grid is
+	 *                      rendered with virtual scrolling
+	 */
+	public void setVirtualScroll(boolean virtualScroll) {
+		getStateHelper().put(PropertyKeys.virtualScroll, virtualScroll);
+	}
+
+	/**
+	 * Return the value of the <code>widgetVar</code> property.
+	 * <p>
+	 * The client-side variable name of a Promise object that embeds the grid's
+	 * JavaScript instance.
+	 * 
+	 * @return the value of the attribute.
+	 */
+	public String getWidgetVar() {
+		return (String) getStateHelper().eval(PropertyKeys.widgetVar);
+	}
+
+	/**
+	 * Set the value of the <code>widgetVar</code> property.
+	 * 
+	 * @param widgetVar name of the client-side Promise object that embeds the
+	 *                  grid's JavaScript instance
+	 */
+	public void setWidgetVar(String widgetVar) {
+		getStateHelper().put(PropertyKeys.widgetVar, widgetVar);
+	}
+
+	public static final int DEFAULT_WIDTH = 200;
+
+	/**
+	 * Return the value of the <code>width</code> property.
+	 * <p>
+	 * The width of each cell of the grid in pixels.
+	 * 
+	 * @return the value of the attribute or 200 if it has not been set in the JSF
+	 *         view.
+	 */
+	public int getWidth() {
+		return (int) getStateHelper().eval(PropertyKeys.width, DEFAULT_WIDTH);
+	}
+
+	/**
+	 * Set the value of the <code>width</code> property.
+	 * 
+	 * @param width width of a cell
+	 */
+	public void setWidth(int width) {
+		getStateHelper().put(PropertyKeys.width, width);
+	}
+
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+
+	/**
+	 * Return the value of the <code>windowSize</code> property.
+	 * <p>
+	 * The number of molecules that are transferred at once if virtual scrolling
+	 * is enabled (see {@link #isVirtualScroll()}).
+	 * 
+	 * @return the value of the attribute or 100 if it has not been set in the JSF
+	 *         view.
+	 */
+	public int getWindowSize() {
+		return (int) getStateHelper().eval(PropertyKeys.windowSize, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Set the value of the <code>windowSize</code> property.
+	 * 
+	 * @param windowSize number of molecules per window
+	 */
+	public void setWindowSize(int windowSize) {
+		getStateHelper().put(PropertyKeys.windowSize, windowSize);
+	}
+}
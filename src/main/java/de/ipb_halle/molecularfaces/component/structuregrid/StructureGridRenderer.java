@@ -0,0 +1,717 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.structuregrid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.UIForm;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.ResponseWriter;
+import jakarta.faces.convert.Converter;
+import jakarta.faces.convert.ConverterException;
+import jakarta.faces.render.FacesRenderer;
+import jakarta.faces.render.Renderer;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore.Format;
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore.PluginType;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.converter.MDLV2000Converter;
+import de.ipb_halle.molecularfaces.converter.MDLV3000Converter;
+import de.ipb_halle.molecularfaces.depiction.BatchDepictionResourceHandler;
+import de.ipb_halle.molecularfaces.depiction.DepictionExecutor;
+import de.ipb_halle.molecularfaces.depiction.DepictionJobProvider;
+import de.ipb_halle.molecularfaces.depiction.DepictionJobs;
+import de.ipb_halle.molecularfaces.depiction.DepictionRegistry;
+import de.ipb_halle.molecularfaces.depiction.DepictionStore;
+import de.ipb_halle.molecularfaces.depiction.StructureDepictor;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
+
+/**
+ * This {@link Renderer} renders a {@link StructureGridCore} component. It
+ * encodes one grid container, one JSON payload with all molecules and one
+ * script that draws all molecules in a single pass after the plugin's
+ * resources have been loaded. With server-side depiction, the cells are
+ * rendered as static SVG images instead, which are either embedded or fetched
+ * by the client from the batch depiction resource (see
+ * {@link BatchDepictionResourceHandler}).
+ * <p>
+ * With virtual scrolling, the payload contains the number of molecules and the
+ * first window of molecules (or their depictions). The client requests further
+ * windows via AJAX postbacks with the request parameter
+ * <code>clientId + {@value #WINDOW_PARAM_SUFFIX}</code>, which are answered in
+ * {@link #decode(FacesContext, UIComponent)} with a JSON object.
+ * 
+ * @author flange
+ */
+@FacesRenderer(rendererType = StructureGridRenderer.RENDERER_TYPE, componentFamily = StructureGridCore.COMPONENT_FAMILY)
+public class StructureGridRenderer extends Renderer implements DepictionJobProvider {
+	public static final String RENDERER_TYPE = "molecularfaces.StructureGridRenderer";
+
+	/**
+	 * Suffix of the request parameter name that carries the index of the first
+	 * molecule of a requested window.
+	 */
+	public static final String WINDOW_PARAM_SUFFIX = "_window";
+
+	private static final Logger LOGGER = Logger.getLogger(StructureGridRenderer.class.getName());
+
+	/*
+	 * Names of the JavaScript global variables that represent the common
+	 * ResourcesLoader instances of the plugin types. These variables are defined
+	 * in MolecularFaces.js.
+	 */
+	private static final String OPENCHEMLIBJS_LOADER_JS_VAR = "molecularfaces.openChemLibJSLoaderInstance";
+	private static final String MARVINJS_LOADER_JS_VAR = "molecularfaces.marvinJSLoaderInstance";
+
+	private static final ScriptTemplate WIDGET_VAR_TEMPLATE = ScriptTemplate.compile("var %r = ");
+	private static final ScriptTemplate GRID_TEMPLATE = ScriptTemplate.compile("%r.status().then(() => {"
+			+ "return molecularfaces.StructureGrid.newGrid(\"%s\", \"%s\", {plugin: \"%s\", format: \"%s\", "
+			+ "height: %r, width: %r, border: %r, installPath: \"%s\"});});");
+	private static final ScriptTemplate BATCH_TEMPLATE = ScriptTemplate
+			.compile("molecularfaces.BatchDepictions.load(\"%s\", \"%s\");");
+	private static final ScriptTemplate VIRTUAL_GRID_TEMPLATE = ScriptTemplate.compile("%r.then(() => {"
+			+ "return molecularfaces.VirtualStructureGrid.newGrid(\"%s\", \"%s\", {plugin: \"%s\", format: \"%s\", "
+			+ "height: %r, width: %r, border: %r, installPath: \"%s\", clientId: \"%s\", columns: %r, "
+			+ "windowSize: %r});});");
+
+	@Override
+	public void decode(FacesContext context, UIComponent component) {
+		StructureGridCore grid = (StructureGridCore) component;
+
+		if (!grid.isVirtualScroll()) {
+			return;
+		}
+
+		ExternalContext externalContext = context.getExternalContext();
+		String first = externalContext.getRequestParameterMap().get(grid.getClientId(context) + WINDOW_PARAM_SUFFIX);
+		if (first == null) {
+			return;
+		}
+
+		try {
+			externalContext.setResponseContentType("application/json");
+			externalContext.setResponseCharacterEncoding("UTF-8");
+			writeWindowJSON(context, externalContext.getResponseOutputWriter(), grid,
+					Math.max(0, Integer.parseInt(first)));
+		} catch (NumberFormatException e) {
+			externalContext.setResponseStatus(400);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot write a window of component " + grid.getClientId(context), e);
+		}
+
+		context.responseComplete();
+	}
+
+	@Override
+	public void encodeBegin(FacesContext context, UIComponent component) throws IOException {
+		StructureGridCore grid = (StructureGridCore) component;
+
+		if (!grid.isRendered()) {
+			return;
+		}
+
+		String loaderJSVar = getLoaderJSVar(grid.getPluginType());
+		if (!grid.isServerDepiction() && (loaderJSVar == null)) {
+			LOGGER.log(Level.WARNING, "Unsupported pluginType \"{0}\" in component {1}",
+					new Object[] { grid.getPluginType(), grid.getClientId(context) });
+			return;
+		}
+
+		boolean virtual = grid.isVirtualScroll();
+		if (virtual && (findForm(grid) == null)) {
+			LOGGER.log(Level.WARNING, "Component {0} is not inside a form, virtual scrolling is disabled",
+					grid.getClientId(context));
+			virtual = false;
+		}
+
+		ResponseWriter writer = context.getResponseWriter();
+		String clientId = grid.getClientId(context);
+		String gridId = clientId + "_Grid";
+		String dataId = clientId + "_Data";
+
+		// surrounding <div>
+		writer.startElement("div", grid);
+		writer.writeAttribute("id", clientId, null);
+
+		if (virtual) {
+			encodeVirtualGrid(context, writer, grid, loaderJSVar, gridId, dataId);
+		} else {
+			encodeGrid(context, writer, grid, loaderJSVar, gridId, dataId);
+		}
+
+		// end of surrounding <div>
+		writer.endElement("div");
+	}
+
+	private void encodeGrid(FacesContext context, ResponseWriter writer, StructureGridCore grid,
+			String loaderJSVar, String gridId, String dataId) throws IOException {
+		String batchUrl = null;
+		DepictionRegistry registry = null;
+		if (grid.isServerDepiction() && grid.isBatchDepiction()) {
+			// Without a session, the depictions are embedded into the page.
+			registry = DepictionRegistry.getInstance(context);
+			if (registry != null) {
+				batchUrl = BatchDepictionResourceHandler.getResourceUrl(context);
+			}
+		}
+
+		// grid container
+		writer.startElement("div", grid);
+		writer.writeAttribute("id", gridId, null);
+		writer.writeAttribute("style", generateGridStyle(grid), null);
+		if (batchUrl != null) {
+			encodeBatchCells(context, writer, grid, registry);
+		} else if (grid.isServerDepiction()) {
+			batchUrl = encodeDepictedCells(context, writer, grid);
+		}
+		writer.endElement("div");
+
+		if (batchUrl != null) {
+			writer.startElement("script", grid);
+			writer.writeAttribute("type", "text/javascript", null);
+			BATCH_TEMPLATE.write(writer, gridId, batchUrl);
+			writer.endElement("script");
+		} else if (!grid.isServerDepiction()) {
+			encodeData(context, writer, grid, dataId);
+			encodeGridJS(context, writer, grid, loaderJSVar, gridId, dataId);
+		}
+	}
+
+	/**
+	 * Encodes empty cells into the writer, which are filled by the client with
+	 * depictions from the batch depiction resource. The molecules are registered
+	 * in the session's {@link DepictionRegistry} and each cell carries the key of
+	 * its molecule in the attribute <code>data-depiction</code>.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param grid
+	 * @param registry registry of the session
+	 */
+	private void encodeBatchCells(FacesContext context, ResponseWriter writer, StructureGridCore grid,
+			DepictionRegistry registry) throws IOException {
+		boolean v3000 = isV3000(grid);
+		String cellStyle = generateCellStyle(grid);
+
+		for (Object molecule : getMolecules(grid.getValue())) {
+			String molfile = convertMoleculeToStringOrEmpty(context, grid, molecule);
+
+			writer.startElement("div", grid);
+			writer.writeAttribute("style", cellStyle, null);
+			if (!molfile.isEmpty()) {
+				writer.writeAttribute("data-depiction",
+						registry.register(molfile, v3000, grid.getWidth(), grid.getHeight()), null);
+			}
+			writer.endElement("div");
+		}
+	}
+
+	/**
+	 * Encodes the static SVG depictions of all molecules as cells into the
+	 * writer. The depictions are taken from the jobs that have been submitted
+	 * before the view was rendered (see
+	 * {@link #submitDepictionJobs(FacesContext, UIComponent, DepictionJobs)}) or
+	 * computed with one shared depiction generator otherwise. Cells whose
+	 * depiction did not finish in time are left empty and filled by the client
+	 * from the batch depiction resource. Without a session, the batch depiction
+	 * resource is not available and these cells are depicted in the calling
+	 * thread.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param grid
+	 * @return URL of the batch depiction resource if there are cells to be filled
+	 *         by the client, otherwise {@code null}
+	 */
+	private String encodeDepictedCells(FacesContext context, ResponseWriter writer, StructureGridCore grid)
+			throws IOException {
+		StructureDepictor depictor = new StructureDepictor(grid.getWidth(), grid.getHeight());
+		boolean v3000 = isV3000(grid);
+		String cellStyle = generateCellStyle(grid);
+		String batchUrl = null;
+		DepictionRegistry registry = null;
+
+		List<DepictionExecutor.Job> jobs = DepictionJobs.remove(context, grid.getClientId(context));
+		if ((jobs != null) && (jobs.size() != getMoleculeCount(grid.getValue()))) {
+			// The value has changed since the jobs were submitted.
+			jobs = null;
+		}
+
+		int i = 0;
+		for (Object molecule : getMolecules(grid.getValue())) {
+			String svg = (jobs != null) ? jobs.get(i++).get() : depictSvg(context, grid, depictor, molecule, v3000);
+
+			writer.startElement("div", grid);
+			writer.writeAttribute("style", cellStyle, null);
+			if (svg == null) {
+				if (registry == null) {
+					registry = DepictionRegistry.getInstance(context);
+				}
+				if (registry == null) {
+					svg = depictSvg(context, grid, depictor, molecule, v3000);
+				}
+			}
+
+			if (svg != null) {
+				writer.write(svg);
+			} else {
+				if (batchUrl == null) {
+					batchUrl = BatchDepictionResourceHandler.getResourceUrl(context);
+				}
+				String molfile = convertMoleculeToStringOrEmpty(context, grid, molecule);
+				if ((batchUrl != null) && !molfile.isEmpty()) {
+					writer.writeAttribute("data-depiction",
+							registry.register(molfile, v3000, grid.getWidth(), grid.getHeight()), null);
+				}
+			}
+			writer.endElement("div");
+		}
+
+		return batchUrl;
+	}
+
+	private String depictSvg(FacesContext context, StructureGridCore grid, StructureDepictor depictor,
+			Object molecule, boolean v3000) {
+		try {
+			return createDepictionTask(context, grid, depictor, molecule, v3000).call();
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Cannot depict a molecule of component " + grid.getClientId(context), e);
+			return "";
+		}
+	}
+
+	/*
+	 * The molecule is converted in the calling thread, because converters may
+	 * access the FacesContext. IAtomContainers are cloned in the calling thread,
+	 * because the depiction modifies the molecule temporarily. The returned task
+	 * only uses the depictor and its own copy of the molecule.
+	 */
+	private Callable<String> createDepictionTask(FacesContext context, StructureGridCore grid,
+			StructureDepictor depictor, Object molecule, boolean v3000) {
+		if ((molecule instanceof IAtomContainer) && (grid.getConverter() == null)) {
+			try {
+				IAtomContainer atomContainer = ((IAtomContainer) molecule).clone();
+				return () -> depictor.depictSvg(atomContainer);
+			} catch (CloneNotSupportedException e) {
+				// depict the molfile instead
+			}
+		}
+
+		String molfile = convertMoleculeToStringOrEmpty(context, grid, molecule);
+		DepictionStore store = DepictionStore.getInstance(context);
+		return () -> depictor.depictSvg(molfile, v3000, store);
+	}
+
+	/**
+	 * Submits the depictions of all molecules if the grid is depicted on the
+	 * server and neither uses virtual scrolling nor the batch depiction resource.
+	 */
+	@Override
+	public void submitDepictionJobs(FacesContext context, UIComponent component, DepictionJobs jobs) {
+		StructureGridCore grid = (StructureGridCore) component;
+
+		if (!grid.isServerDepiction() || (grid.isVirtualScroll() && (findForm(grid) != null))
+				|| (grid.isBatchDepiction() && (BatchDepictionResourceHandler.getResourceUrl(context) != null))) {
+			return;
+		}
+
+		StructureDepictor depictor = new StructureDepictor(grid.getWidth(), grid.getHeight());
+		boolean v3000 = isV3000(grid);
+		List<Callable<String>> tasks = new ArrayList<>();
+		for (Object molecule : getMolecules(grid.getValue())) {
+			tasks.add(createDepictionTask(context, grid, depictor, molecule, v3000));
+		}
+
+		jobs.submit(grid.getClientId(context), tasks);
+	}
+
+	/**
+	 * Encodes the molecules as JSON array of strings into a &lt;script&gt;
+	 * element of type "application/json", which is parsed by the client-side
+	 * controller at once.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param grid
+	 * @param dataId  DOM id of the &lt;script&gt; element
+	 */
+	private void encodeData(FacesContext context, ResponseWriter writer, StructureGridCore grid, String dataId)
+			throws IOException {
+		writer.startElement("script", grid);
+		writer.writeAttribute("type", "application/json", null);
+		writer.writeAttribute("id", dataId, null);
+		writeMoleculesJSON(context, writer, grid, getMolecules(grid.getValue()));
+		writer.endElement("script");
+	}
+
+	/**
+	 * Encodes the Javascript part of the grid into the writer. The plugin's
+	 * resources are loaded once and all molecules are drawn by one
+	 * molecularfaces.StructureGrid instance.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param grid
+	 * @param loaderJSVar name of the plugin's JavaScript ResourcesLoader instance
+	 * @param gridId      DOM id of the grid container
+	 * @param dataId      DOM id of the data &lt;script&gt; element
+	 */
+	private void encodeGridJS(FacesContext context, ResponseWriter writer, StructureGridCore grid,
+			String loaderJSVar, String gridId, String dataId) throws IOException {
+		writer.startElement("script", grid);
+		writer.writeAttribute("type", "text/javascript", null);
+
+		// resource loading
+		grid.getResourceLoader().writeLoadExtResources(writer, loaderJSVar);
+
+		// Register a JS variable if required.
+		writeWidgetVarJS(writer, grid);
+
+		GRID_TEMPLATE.write(writer, loaderJSVar, gridId, dataId, grid.getPluginType(), grid.getFormat(),
+				Integer.toString(grid.getHeight()), Integer.toString(grid.getWidth()),
+				Boolean.toString(grid.isBorder()), getInstallPath(context, grid));
+
+		writer.endElement("script");
+	}
+
+	/**
+	 * Encodes a grid with virtual scrolling into the writer. It consists of an
+	 * empty viewport, which is filled by the client-side controller, the first
+	 * window of molecules as JSON payload and the script that starts the
+	 * molecularfaces.VirtualStructureGrid instance.
+	 * 
+	 * @param context
+	 * @param writer
+	 * @param grid
+	 * @param loaderJSVar name of the plugin's JavaScript ResourcesLoader instance
+	 *                    or {@code null} with server-side depiction
+	 * @param gridId      DOM id of the viewport
+	 * @param dataId      DOM id of the data &lt;script&gt; element
+	 */
+	private void encodeVirtualGrid(FacesContext context, ResponseWriter writer, StructureGridCore grid,
+			String loaderJSVar, String gridId, String dataId) throws IOException {
+		// viewport
+		writer.startElement("div", grid);
+		writer.writeAttribute("id", gridId, null);
+		writer.writeAttribute("style",
+				"height:" + grid.getViewportHeight() + "px;overflow-y:auto;position:relative;", null);
+		writer.endElement("div");
+
+		// first window
+		writer.startElement("script", grid);
+		writer.writeAttribute("type", "application/json", null);
+		writer.writeAttribute("id", dataId, null);
+		writeWindowJSON(context, writer, grid, 0);
+		writer.endElement("script");
+
+		writer.startElement("script", grid);
+		writer.writeAttribute("type", "text/javascript", null);
+
+		String loaderStatus;
+		if (grid.isServerDepiction()) {
+			loaderStatus = "Promise.resolve()";
+		} else {
+			grid.getResourceLoader().writeLoadExtResources(writer, loaderJSVar);
+			loaderStatus = loaderJSVar + ".status()";
+		}
+
+		writeWidgetVarJS(writer, grid);
+
+		VIRTUAL_GRID_TEMPLATE.write(writer, loaderStatus, gridId, dataId, grid.getPluginType(), grid.getFormat(),
+				Integer.toString(grid.getHeight()), Integer.toString(grid.getWidth()),
+				Boolean.toString(grid.isBorder()), getInstallPath(context, grid), grid.getClientId(context),
+				Integer.toString(grid.getColumns()), Integer.toString(getWindowSize(grid)));
+
+		writer.endElement("script");
+	}
+
+	/**
+	 * Writes a window of molecules as JSON object into the target. The object
+	 * contains the total number of molecules ("total"), the index of the first
+	 * molecule of the window ("first") and either the molecules ("molecules") or,
+	 * with server-side depiction, their SVG depictions ("depictions").
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @param out     target
+	 * @param grid    grid component
+	 * @param first   index of the first molecule of the window
+	 * @throws IOException if writing fails
+	 */
+	protected void writeWindowJSON(FacesContext context, Appendable out, StructureGridCore grid, int first)
+			throws IOException {
+		Object value = grid.getValue();
+		Iterable<?> window = getMolecules(value, first, getWindowSize(grid));
+
+		out.append("{\"total\":").append(Integer.toString(getMoleculeCount(value)));
+		out.append(",\"first\":").append(Integer.toString(first));
+		if (grid.isServerDepiction()) {
+			out.append(",\"depictions\":");
+			writeDepictionsJSON(context, out, grid, window);
+		} else {
+			out.append(",\"molecules\":");
+			writeMoleculesJSON(context, out, grid, window);
+		}
+		out.append('}');
+	}
+
+	private void writeMoleculesJSON(FacesContext context, Appendable out, StructureGridCore grid,
+			Iterable<?> molecules) throws IOException {
+		out.append('[');
+		boolean first = true;
+		for (Object molecule : molecules) {
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+
+			ScriptTemplate.writeJsonString(out, convertMoleculeToStringOrEmpty(context, grid, molecule));
+		}
+		out.append(']');
+	}
+
+	private void writeDepictionsJSON(FacesContext context, Appendable out, StructureGridCore grid,
+			Iterable<?> molecules) throws IOException {
+		StructureDepictor depictor = new StructureDepictor(grid.getWidth(), grid.getHeight());
+		boolean v3000 = isV3000(grid);
+
+		out.append('[');
+		boolean first = true;
+		for (Object molecule : molecules) {
+			if (!first) {
+				out.append(',');
+			}
+			first = false;
+
+			ScriptTemplate.writeJsonString(out, depictSvg(context, grid, depictor, molecule, v3000));
+		}
+		out.append(']');
+	}
+
+	private void writeWidgetVarJS(Appendable out, StructureGridCore grid) throws IOException {
+		String widgetVar = grid.getWidgetVar();
+		if ((widgetVar != null) && (!widgetVar.isEmpty())) {
+			WIDGET_VAR_TEMPLATE.write(out, widgetVar);
+		}
+	}
+
+	/**
+	 * Converts a single molecule of the component's value to a string. The
+	 * component's converter is used if present. Otherwise, strings are used as is
+	 * and {@link IAtomContainer}s are converted to MDL Molfiles according to the
+	 * component's <code>format</code> property.
+	 * 
+	 * @param context  {@link FacesContext} for the request we are processing
+	 * @param grid     grid component
+	 * @param molecule single molecule of the component's value
+	 * @return string representation of the molecule, which is empty for
+	 *         {@code null}
+	 * @throws ConverterException if the conversion fails
+	 */
+	protected String convertMoleculeToString(FacesContext context, StructureGridCore grid, Object molecule)
+			throws ConverterException {
+		@SuppressWarnings("unchecked")
+		Converter<Object> converter = (Converter<Object>) grid.getConverter();
+		if (converter != null) {
+			return converter.getAsString(context, grid, molecule);
+		}
+
+		if (molecule == null) {
+			return "";
+		} else if (molecule instanceof String) {
+			return (String) molecule;
+		} else if (molecule instanceof IAtomContainer) {
+			if (isV3000(grid)) {
+				return new MDLV3000Converter().getAsString(context, grid, molecule);
+			}
+			return new MDLV2000Converter().getAsString(context, grid, molecule);
+		} else {
+			return molecule.toString();
+		}
+	}
+
+	private String convertMoleculeToStringOrEmpty(FacesContext context, StructureGridCore grid, Object molecule) {
+		try {
+			return convertMoleculeToString(context, grid, molecule);
+		} catch (ConverterException e) {
+			LOGGER.log(Level.WARNING, "Cannot convert a molecule of component " + grid.getClientId(context), e);
+			return "";
+		}
+	}
+
+	/**
+	 * Returns the molecules of the component's value, which may be an
+	 * {@link Iterable} (e.g. a {@link java.util.List}), an array or a single
+	 * molecule.
+	 * 
+	 * @param value value of the component
+	 * @return molecules in the order of iteration
+	 */
+	protected Iterable<?> getMolecules(Object value) {
+		if (value == null) {
+			return Collections.emptyList();
+		} else if (value instanceof Iterable) {
+			return (Iterable<?>) value;
+		} else if (value instanceof Object[]) {
+			return Arrays.asList((Object[]) value);
+		} else {
+			return Collections.singletonList(value);
+		}
+	}
+
+	/**
+	 * Returns a window of the molecules of the component's value. Lists and
+	 * arrays are accessed by index, so that lazily loading lists only need to
+	 * provide the requested window.
+	 * 
+	 * @param value value of the component
+	 * @param first index of the first molecule of the window
+	 * @param count maximum number of molecules in the window
+	 * @return molecules of the window in the order of iteration
+	 */
+	protected Iterable<?> getMolecules(Object value, int first, int count) {
+		if (value instanceof Object[]) {
+			value = Arrays.asList((Object[]) value);
+		}
+
+		if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			int size = list.size();
+			return list.subList(Math.min(first, size), (int) Math.min((long) first + count, size));
+		}
+
+		List<Object> window = new ArrayList<>(count);
+		Iterator<?> it = getMolecules(value).iterator();
+		for (int i = 0; it.hasNext() && (i < first + count); i++) {
+			Object molecule = it.next();
+			if (i >= first) {
+				window.add(molecule);
+			}
+		}
+
+		return window;
+	}
+
+	/**
+	 * Returns the number of molecules of the component's value.
+	 * 
+	 * @param value value of the component
+	 * @return number of molecules
+	 */
+	protected int getMoleculeCount(Object value) {
+		if (value instanceof Collection) {
+			return ((Collection<?>) value).size();
+		} else if (value instanceof Object[]) {
+			return ((Object[]) value).length;
+		}
+
+		int count = 0;
+		for (Iterator<?> it = getMolecules(value).iterator(); it.hasNext(); it.next()) {
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Generate the inline css style for the grid container.
+	 * 
+	 * @param grid grid component
+	 * @return inline css style
+	 */
+	protected String generateGridStyle(StructureGridCore grid) {
+		StringBuilder sb = new StringBuilder(96);
+
+		sb.append("display:grid;grid-template-columns:repeat(");
+		if (grid.getColumns() > 0) {
+			sb.append(grid.getColumns());
+		} else {
+			sb.append("auto-fill");
+		}
+		sb.append(',').append(grid.getWidth()).append("px);gap:4px;");
+
+		return sb.toString();
+	}
+
+	/**
+	 * Generate the inline css style for a single cell of the grid. The
+	 * client-side controller generates the same style for its cells.
+	 * 
+	 * @param grid grid component
+	 * @return inline css style
+	 */
+	protected String generateCellStyle(StructureGridCore grid) {
+		StringBuilder sb = new StringBuilder(64);
+
+		sb.append("width:").append(grid.getWidth()).append("px;");
+		sb.append("height:").append(grid.getHeight()).append("px;");
+		if (grid.isBorder()) {
+			sb.append("border:solid;border-width:1px;");
+		}
+
+		return sb.toString();
+	}
+
+	private UIForm findForm(UIComponent component) {
+		for (UIComponent parent = component.getParent(); parent != null; parent = parent.getParent()) {
+			if (parent instanceof UIForm) {
+				return (UIForm) parent;
+			}
+		}
+
+		return null;
+	}
+
+	private int getWindowSize(StructureGridCore grid) {
+		return Math.max(1, grid.getWindowSize());
+	}
+
+	private String getInstallPath(FacesContext context, StructureGridCore grid) {
+		if (PluginType.MarvinJS.toString().equals(grid.getPluginType())) {
+			return MolecularFacesConfig.getInstance(context).getMarvinJSBaseUrl();
+		}
+
+		return "";
+	}
+
+	private boolean isV3000(StructureGridCore grid) {
+		return Format.MDLV3000.toString().equals(grid.getFormat());
+	}
+
+	private String getLoaderJSVar(String pluginType) {
+		if (PluginType.OpenChemLibJS.toString().equals(pluginType)) {
+			return OPENCHEMLIBJS_LOADER_JS_VAR;
+		} else if (PluginType.MarvinJS.toString().equals(pluginType)) {
+			return MARVINJS_LOADER_JS_VAR;
+		} else {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,466 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.faces.FacesException;
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent;
+import de.ipb_halle.molecularfaces.component.molplugin.MolPaintJSComponent;
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore;
+import de.ipb_halle.molecularfaces.component.molplugin.MoleculeStore;
+import de.ipb_halle.molecularfaces.component.molplugin.OpenChemLibJSComponent;
+import de.ipb_halle.molecularfaces.component.openvectoreditor.OpenVectorEditorComponent;
+import de.ipb_halle.molecularfaces.converter.CanonicalMolfileWriter;
+import de.ipb_halle.molecularfaces.converter.LazyAtomContainer;
+import de.ipb_halle.molecularfaces.converter.MolfileMinifier;
+import de.ipb_halle.molecularfaces.depiction.DepictionExecutor;
+import de.ipb_halle.molecularfaces.depiction.DepictionPrefetcher;
+import de.ipb_halle.molecularfaces.depiction.DepictionRegistry;
+import de.ipb_halle.molecularfaces.depiction.DepictionStore;
+import de.ipb_halle.molecularfaces.util.WebXml;
+import de.ipb_halle.molecularfaces.util.WebXmlImpl;
+import de.ipb_halle.molecularfaces.validator.MolfileValidationResourceHandler;
+import de.ipb_halle.molecularfaces.validator.ValidationCache;
+
+/**
+ * Immutable snapshot of the MolecularFaces configuration from the
+ * context-params in web.xml. The snapshot is parsed and validated once at
+ * application startup by {@link MolecularFacesConfigListener} and stored in the
+ * application map, so components and renderers do not need to look up and parse
+ * context-params for each instance.
+ * 
+ * @author flange
+ */
+public final class MolecularFacesConfig {
+	/**
+	 * Key of the snapshot in the application map.
+	 */
+	public static final String APPLICATION_MAP_KEY = MolecularFacesConfig.class.getName();
+
+	private final String openChemLibJSUrl;
+	private final String molPaintJSUrl;
+	private final String openVectorEditorBaseUrl;
+	private final String marvinJSBaseUrl;
+	private final String marvinJSLicenseUrl;
+	private final boolean marvinJSWebServices;
+	private final boolean marvinJSV3000ToV2000;
+	private final String marvinJSEditorSrc;
+	private final int editorPoolSize;
+	private final int moleculeStoreSize;
+	private final int depictionParallelism;
+	private final int depictionTimeout;
+	private final int depictionQueueSize;
+	private final int depictionRegistrySize;
+	private final String depictionStoreDirectory;
+	private final int depictionStoreMaxSize;
+	private final boolean depictionPrefetch;
+	private final List<int[]> depictionPrefetchSizes;
+	private final int depictionPrefetchQueueSize;
+	private final boolean lazyConversion;
+	private final boolean canonicalMolfiles;
+	private final boolean minifyMolfiles;
+	private final int minifiedCoordinateDecimals;
+	private final int validationCacheSize;
+	private final int maxMolfileLength;
+
+	private MolecularFacesConfig(WebXml webXml, FacesContext context) {
+		openChemLibJSUrl = getOptionalString(webXml, context, OpenChemLibJSComponent.WEBXML_CUSTOM_RESOURCE_URL);
+		molPaintJSUrl = getOptionalString(webXml, context, MolPaintJSComponent.WEBXML_CUSTOM_RESOURCE_URL);
+		openVectorEditorBaseUrl = getOptionalString(webXml, context,
+				OpenVectorEditorComponent.WEBXML_CUSTOM_RESOURCE_BASE_URL);
+
+		marvinJSBaseUrl = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_BASE_URL, context, "");
+		marvinJSLicenseUrl = webXml.getContextParam(MarvinJSComponent.WEBXML_MARVINJS_LICENSE_URL, context, "");
+		marvinJSWebServices = getBoolean(webXml, context, MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES);
+		marvinJSV3000ToV2000 = getBoolean(webXml, context, MarvinJSComponent.WEBXML_MARVINJS_V3000_TO_V2000);
+		marvinJSEditorSrc = marvinJSBaseUrl + (marvinJSWebServices ? "/editorws.html" : "/editor.html");
+
+		editorPoolSize = getPositiveInt(webXml, context, MolPluginCore.WEBXML_EDITOR_POOL_SIZE,
+				MolPluginCore.DEFAULT_EDITOR_POOL_SIZE);
+		moleculeStoreSize = getPositiveInt(webXml, context, MoleculeStore.WEBXML_MOLECULE_STORE_SIZE,
+				MoleculeStore.DEFAULT_MOLECULE_STORE_SIZE);
+
+		depictionParallelism = getPositiveInt(webXml, context, DepictionExecutor.WEBXML_DEPICTION_PARALLELISM,
+				Runtime.getRuntime().availableProcessors());
+		depictionTimeout = getPositiveInt(webXml, context, DepictionExecutor.WEBXML_DEPICTION_TIMEOUT,
+				DepictionExecutor.DEFAULT_DEPICTION_TIMEOUT);
+		depictionQueueSize = getPositiveInt(webXml, context, DepictionExecutor.WEBXML_DEPICTION_QUEUE_SIZE,
+				DepictionExecutor.DEFAULT_DEPICTION_QUEUE_SIZE);
+		depictionRegistrySize = getPositiveInt(webXml, context, DepictionRegistry.WEBXML_DEPICTION_REGISTRY_SIZE,
+				DepictionRegistry.DEFAULT_DEPICTION_REGISTRY_SIZE);
+
+		depictionStoreDirectory = getOptionalString(webXml, context,
+				DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY);
+		depictionStoreMaxSize = getPositiveInt(webXml, context, DepictionStore.WEBXML_DEPICTION_STORE_MAX_SIZE,
+				DepictionStore.DEFAULT_MAX_SIZE);
+
+		depictionPrefetch = getBoolean(webXml, context, DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH);
+		depictionPrefetchSizes = getSizes(webXml, context, DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_SIZES,
+				DepictionPrefetcher.DEFAULT_PREFETCH_SIZES);
+		depictionPrefetchQueueSize = getPositiveInt(webXml, context,
+				DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_QUEUE_SIZE, DepictionPrefetcher.DEFAULT_QUEUE_SIZE);
+
+		lazyConversion = getBoolean(webXml, context, LazyAtomContainer.WEBXML_LAZY_CONVERSION);
+		canonicalMolfiles = getBoolean(webXml, context, CanonicalMolfileWriter.WEBXML_CANONICAL_MOLFILES);
+		minifyMolfiles = getBoolean(webXml, context, MolfileMinifier.WEBXML_MINIFY_MOLFILES);
+		minifiedCoordinateDecimals = getPositiveInt(webXml, context,
+				MolfileMinifier.WEBXML_MINIFIED_COORDINATE_DECIMALS, MolfileMinifier.DEFAULT_COORDINATE_DECIMALS);
+
+		validationCacheSize = getPositiveInt(webXml, context, ValidationCache.WEBXML_VALIDATION_CACHE_SIZE,
+				ValidationCache.DEFAULT_VALIDATION_CACHE_SIZE);
+		maxMolfileLength = getPositiveInt(webXml, context,
+				MolfileValidationResourceHandler.WEBXML_MAX_MOLFILE_LENGTH,
+				MolfileValidationResourceHandler.DEFAULT_MAX_MOLFILE_LENGTH);
+	}
+
+	/**
+	 * Parses and validates the configuration from the context-params of the given
+	 * {@link FacesContext}.
+	 * 
+	 * @param context {@link FacesContext} instance
+	 * @return new configuration snapshot
+	 * @throws FacesException if a context-param has an invalid value
+	 */
+	public static MolecularFacesConfig parse(FacesContext context) {
+		return new MolecularFacesConfig(new WebXmlImpl(), context);
+	}
+
+	/**
+	 * Parses the configuration and stores the snapshot in the application map.
+	 * 
+	 * @param context {@link FacesContext} instance
+	 * @return the stored configuration snapshot
+	 * @throws FacesException if a context-param has an invalid value
+	 */
+	public static MolecularFacesConfig install(FacesContext context) {
+		MolecularFacesConfig config = parse(context);
+		context.getExternalContext().getApplicationMap().put(APPLICATION_MAP_KEY, config);
+
+		return config;
+	}
+
+	/**
+	 * Returns the configuration snapshot of the application. If no snapshot has
+	 * been stored at application startup (e.g. in mocked environments without
+	 * faces-config.xml processing), the configuration is parsed on each call.
+	 * 
+	 * @param context {@link FacesContext} instance
+	 * @return configuration snapshot
+	 * @throws FacesException if a context-param has an invalid value
+	 */
+	public static MolecularFacesConfig getInstance(FacesContext context) {
+		Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+		Object config = applicationMap.get(APPLICATION_MAP_KEY);
+		if (config instanceof MolecularFacesConfig) {
+			return (MolecularFacesConfig) config;
+		}
+
+		return parse(context);
+	}
+
+	private static String getOptionalString(WebXml webXml, FacesContext context, String paramName) {
+		String value = webXml.getContextParam(paramName, context, null);
+		return ((value != null) && (!value.isEmpty())) ? value : null;
+	}
+
+	private static boolean getBoolean(WebXml webXml, FacesContext context, String paramName) {
+		String value = webXml.getContextParam(paramName, context, null);
+		if (value == null) {
+			return false;
+		}
+
+		value = value.trim();
+		if ("true".equalsIgnoreCase(value)) {
+			return true;
+		} else if (value.isEmpty() || "false".equalsIgnoreCase(value)) {
+			return false;
+		}
+
+		throw new FacesException(
+				"Invalid value for context-param " + paramName + ": '" + value + "' (expected 'true' or 'false')");
+	}
+
+	private static int getPositiveInt(WebXml webXml, FacesContext context, String paramName, int defaultValue) {
+		String value = webXml.getContextParam(paramName, context, null);
+		if ((value == null) || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+
+		try {
+			int result = Integer.parseInt(value.trim());
+			if (result > 0) {
+				return result;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+
+		throw new FacesException(
+				"Invalid value for context-param " + paramName + ": '" + value + "' (expected a positive integer)");
+	}
+
+	/*
+	 * Parses a comma-separated list of image sizes like "200x200,300x150".
+	 */
+	private static List<int[]> getSizes(WebXml webXml, FacesContext context, String paramName, String defaultValue) {
+		String value = webXml.getContextParam(paramName, context, defaultValue);
+		List<int[]> sizes = new ArrayList<>();
+
+		for (String size : value.split(",")) {
+			size = size.trim();
+			if (size.isEmpty()) {
+				continue;
+			}
+
+			String[] dimensions = size.split("x");
+			try {
+				int width = Integer.parseInt(dimensions[0].trim());
+				int height = (dimensions.length == 2) ? Integer.parseInt(dimensions[1].trim()) : 0;
+				if ((width > 0) && (height > 0)) {
+					sizes.add(new int[] { width, height });
+					continue;
+				}
+			} catch (NumberFormatException e) {
+				// handled below
+			}
+
+			throw new FacesException("Invalid value for context-param " + paramName + ": '" + value
+					+ "' (expected a comma-separated list of sizes like '200x200')");
+		}
+
+		return Collections.unmodifiableList(sizes);
+	}
+
+	/**
+	 * @return location of openchemlib-full.js or {@code null} if the bundled
+	 *         resource is used
+	 * @see OpenChemLibJSComponent#WEBXML_CUSTOM_RESOURCE_URL
+	 */
+	public String getOpenChemLibJSUrl() {
+		return openChemLibJSUrl;
+	}
+
+	/**
+	 * @return location of molpaint.js or {@code null} if the bundled resource is
+	 *         used
+	 * @see MolPaintJSComponent#WEBXML_CUSTOM_RESOURCE_URL
+	 */
+	public String getMolPaintJSUrl() {
+		return molPaintJSUrl;
+	}
+
+	/**
+	 * @return location of the OpenVectorEditor installation or {@code null} if
+	 *         the bundled resources are used
+	 * @see OpenVectorEditorComponent#WEBXML_CUSTOM_RESOURCE_BASE_URL
+	 */
+	public String getOpenVectorEditorBaseUrl() {
+		return openVectorEditorBaseUrl;
+	}
+
+	/**
+	 * @return location of the extracted Marvin JS archive or an empty string
+	 * @see MarvinJSComponent#WEBXML_MARVINJS_BASE_URL
+	 */
+	public String getMarvinJSBaseUrl() {
+		return marvinJSBaseUrl;
+	}
+
+	/**
+	 * @return location of Marvin JS' license file or an empty string
+	 * @see MarvinJSComponent#WEBXML_MARVINJS_LICENSE_URL
+	 */
+	public String getMarvinJSLicenseUrl() {
+		return marvinJSLicenseUrl;
+	}
+
+	/**
+	 * @return {@code true} if Marvin JS uses its webservices
+	 * @see MarvinJSComponent#WEBXML_MARVINJS_WEBSERVICES
+	 */
+	public boolean isMarvinJSWebServices() {
+		return marvinJSWebServices;
+	}
+
+	/**
+	 * @return {@code true} if the Marvin JS viewer down-converts MDL Molfile V3000
+	 *         values to V2000
+	 * @see MarvinJSComponent#WEBXML_MARVINJS_V3000_TO_V2000
+	 */
+	public boolean isMarvinJSV3000ToV2000() {
+		return marvinJSV3000ToV2000;
+	}
+
+	/**
+	 * @return location of the HTML page embedded in the &lt;iframe&gt; of the
+	 *         Marvin JS editor (editor.html or editorws.html)
+	 */
+	public String getMarvinJSEditorSrc() {
+		return marvinJSEditorSrc;
+	}
+
+	/**
+	 * @return maximum number of live editor instances per editor pool
+	 * @see MolPluginCore#WEBXML_EDITOR_POOL_SIZE
+	 */
+	public int getEditorPoolSize() {
+		return editorPoolSize;
+	}
+
+	/**
+	 * @return maximum number of values in the store of a session for components
+	 *         with <code>valueHandle="true"</code>
+	 * @see MoleculeStore#WEBXML_MOLECULE_STORE_SIZE
+	 */
+	public int getMoleculeStoreSize() {
+		return moleculeStoreSize;
+	}
+
+	/**
+	 * @return maximum number of molecules that are depicted concurrently on the
+	 *         server
+	 * @see DepictionExecutor#WEBXML_DEPICTION_PARALLELISM
+	 */
+	public int getDepictionParallelism() {
+		return depictionParallelism;
+	}
+
+	/**
+	 * @return maximum time in milliseconds for a server-side depiction
+	 * @see DepictionExecutor#WEBXML_DEPICTION_TIMEOUT
+	 */
+	public int getDepictionTimeout() {
+		return depictionTimeout;
+	}
+
+	/**
+	 * @return maximum number of server-side depictions that wait for a thread
+	 * @see DepictionExecutor#WEBXML_DEPICTION_QUEUE_SIZE
+	 */
+	public int getDepictionQueueSize() {
+		return depictionQueueSize;
+	}
+
+	/**
+	 * @return maximum number of molecules per session that may be depicted via
+	 *         the batch depiction resource
+	 * @see DepictionRegistry#WEBXML_DEPICTION_REGISTRY_SIZE
+	 */
+	public int getDepictionRegistrySize() {
+		return depictionRegistrySize;
+	}
+
+	/**
+	 * @return directory of the persistent depiction store or {@code null} if the
+	 *         store is disabled
+	 * @see DepictionStore#WEBXML_DEPICTION_STORE_DIRECTORY
+	 */
+	public String getDepictionStoreDirectory() {
+		return depictionStoreDirectory;
+	}
+
+	/**
+	 * @return maximum size of the persistent depiction store in megabytes
+	 * @see DepictionStore#WEBXML_DEPICTION_STORE_MAX_SIZE
+	 */
+	public int getDepictionStoreMaxSize() {
+		return depictionStoreMaxSize;
+	}
+
+	/**
+	 * @return {@code true} if newly converted molecules are depicted into the
+	 *         persistent depiction store in the background
+	 * @see DepictionPrefetcher#WEBXML_DEPICTION_PREFETCH
+	 */
+	public boolean isDepictionPrefetch() {
+		return depictionPrefetch;
+	}
+
+	/**
+	 * @return unmodifiable list of the image sizes (width and height in pixels)
+	 *         in which newly converted molecules are depicted
+	 * @see DepictionPrefetcher#WEBXML_DEPICTION_PREFETCH_SIZES
+	 */
+	public List<int[]> getDepictionPrefetchSizes() {
+		return depictionPrefetchSizes;
+	}
+
+	/**
+	 * @return maximum number of queued background depictions
+	 * @see DepictionPrefetcher#WEBXML_DEPICTION_PREFETCH_QUEUE_SIZE
+	 */
+	public int getDepictionPrefetchQueueSize() {
+		return depictionPrefetchQueueSize;
+	}
+
+	/**
+	 * @return {@code true} if the MDL converters read molfiles lazily
+	 * @see LazyAtomContainer#WEBXML_LAZY_CONVERSION
+	 */
+	public boolean isLazyConversion() {
+		return lazyConversion;
+	}
+
+	/**
+	 * @return {@code true} if the MDL converters write canonical molfiles
+	 * @see CanonicalMolfileWriter#WEBXML_CANONICAL_MOLFILES
+	 */
+	public boolean isCanonicalMolfiles() {
+		return canonicalMolfiles;
+	}
+
+	/**
+	 * @return {@code true} if the renderers minify the molfiles sent to the
+	 *         client
+	 * @see MolfileMinifier#WEBXML_MINIFY_MOLFILES
+	 */
+	public boolean isMinifyMolfiles() {
+		return minifyMolfiles;
+	}
+
+	/**
+	 * @return number of decimals of the coordinates in minified molfiles
+	 * @see MolfileMinifier#WEBXML_MINIFIED_COORDINATE_DECIMALS
+	 */
+	public int getMinifiedCoordinateDecimals() {
+		return minifiedCoordinateDecimals;
+	}
+
+	/**
+	 * @return maximum number of results in the cache of the live validation
+	 * @see ValidationCache#WEBXML_VALIDATION_CACHE_SIZE
+	 */
+	public int getValidationCacheSize() {
+		return validationCacheSize;
+	}
+
+	/**
+	 * @return maximum length of a molfile in characters that is accepted by the
+	 *         live validation
+	 * @see MolfileValidationResourceHandler#WEBXML_MAX_MOLFILE_LENGTH
+	 */
+	public int getMaxMolfileLength() {
+		return maxMolfileLength;
+	}
+}
@@ -0,0 +1,383 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+import javax.vecmath.Point2d;
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.PseudoAtom;
+import org.openscience.cdk.config.Elements;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.interfaces.IPseudoAtom;
+
+/**
+ * Compact binary encoding of {@link IAtomContainer} objects, which is much
+ * smaller and faster than Java serialization of the CDK classes. Integers are
+ * encoded as variable-length quantities, elements as atomic numbers and
+ * coordinates as fixed-point numbers with four decimal places (the precision of
+ * MDL Molfiles).
+ * <p>
+ * The encoding covers the atoms (element or pseudo atom label, formal charge,
+ * mass number, implicit hydrogen count, valency, 2D and 3D coordinates,
+ * aromaticity) and the bonds (order, stereo, aromaticity) of a molecule as well
+ * as the String and Integer properties of the molecule, its atoms and its bonds
+ * (e.g. the title, the remark and the atom-atom mapping read from a Molfile).
+ * Use {@link #isSupported(IAtomContainer)} to check that a molecule has no
+ * other content, e.g. stereo elements, Sgroups or properties of other types.
+ * 
+ * @author flange
+ */
+public class AtomContainerCodec {
+	private static final int VERSION = 2;
+	private static final double COORDINATE_SCALE = 10000.0;
+
+	private static final int ATOM_PSEUDO = 1;
+	private static final int ATOM_2D = 2;
+	private static final int ATOM_3D = 4;
+	private static final int ATOM_AROMATIC = 8;
+
+	private static final int PROPERTY_STRING = 0;
+	private static final int PROPERTY_INTEGER = 1;
+
+	private static final IBond.Order[] ORDERS = IBond.Order.values();
+	private static final IBond.Stereo[] STEREOS = IBond.Stereo.values();
+
+	private AtomContainerCodec() {
+	}
+
+	/**
+	 * Checks if a molecule can be encoded without losing information.
+	 * 
+	 * @param molecule molecule to check
+	 * @return {@code true} if the molecule consists only of content covered by
+	 *         the encoding
+	 */
+	public static boolean isSupported(IAtomContainer molecule) {
+		if ((molecule.getSingleElectronCount() > 0) || (molecule.getLonePairCount() > 0)
+				|| molecule.stereoElements().iterator().hasNext()) {
+			return false;
+		}
+
+		if (!hasSupportedProperties(molecule)) {
+			return false;
+		}
+
+		for (IAtom atom : molecule.atoms()) {
+			if (!hasSupportedProperties(atom)) {
+				return false;
+			}
+		}
+
+		for (IBond bond : molecule.bonds()) {
+			if ((bond.getAtomCount() != 2) || !hasSupportedProperties(bond)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * An empty list of Sgroups is skipped by the encoding.
+	 */
+	private static boolean hasSupportedProperties(IChemObject object) {
+		for (Map.Entry<Object, Object> property : object.getProperties().entrySet()) {
+			Object key = property.getKey();
+			Object value = property.getValue();
+			if (CDKConstants.CTAB_SGROUPS.equals(key) && (value instanceof Collection)
+					&& ((Collection<?>) value).isEmpty()) {
+				continue;
+			}
+			if (!(key instanceof String) || !((value instanceof String) || (value instanceof Integer))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Encodes a molecule.
+	 * 
+	 * @param molecule molecule to encode
+	 * @return encoded molecule
+	 */
+	public static byte[] encode(IAtomContainer molecule) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 8 * molecule.getAtomCount());
+
+		writeVarint(out, VERSION);
+		writeProperties(out, molecule);
+
+		writeVarint(out, molecule.getAtomCount());
+		for (IAtom atom : molecule.atoms()) {
+			writeAtom(out, atom);
+		}
+
+		writeVarint(out, molecule.getBondCount());
+		for (IBond bond : molecule.bonds()) {
+			writeVarint(out, molecule.indexOf(bond.getBegin()));
+			writeVarint(out, molecule.indexOf(bond.getEnd()));
+			writeVarint(out, (bond.getOrder() == null) ? IBond.Order.UNSET.ordinal() : bond.getOrder().ordinal());
+			writeVarint(out, (bond.getStereo() == null) ? IBond.Stereo.NONE.ordinal() : bond.getStereo().ordinal());
+			out.write(bond.isAromatic() ? 1 : 0);
+			writeProperties(out, bond);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes a molecule.
+	 * 
+	 * @param bytes encoded molecule
+	 * @return new {@link AtomContainer}
+	 * @throws IllegalArgumentException if the bytes are not an encoded molecule
+	 */
+	public static IAtomContainer decode(byte[] bytes) {
+		ByteBuffer in = ByteBuffer.wrap(bytes);
+		try {
+			if (readVarint(in) != VERSION) {
+				throw new IllegalArgumentException("Unsupported encoding of a molecule");
+			}
+
+			IAtomContainer molecule = new AtomContainer();
+			readProperties(in, molecule);
+
+			int atomCount = readVarint(in);
+			for (int i = 0; i < atomCount; i++) {
+				molecule.addAtom(readAtom(in));
+			}
+
+			int bondCount = readVarint(in);
+			for (int i = 0; i < bondCount; i++) {
+				int begin = readVarint(in);
+				int end = readVarint(in);
+				IBond.Order order = ORDERS[readVarint(in)];
+				IBond.Stereo stereo = STEREOS[readVarint(in)];
+				boolean aromatic = in.get() != 0;
+
+				molecule.addBond(begin, end, order, stereo);
+				molecule.getBond(i).setIsAromatic(aromatic);
+				readProperties(in, molecule.getBond(i));
+			}
+
+			return molecule;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid encoding of a molecule", e);
+		}
+	}
+
+	private static void writeAtom(ByteArrayOutputStream out, IAtom atom) {
+		int flags = 0;
+		if (atom instanceof IPseudoAtom) {
+			flags |= ATOM_PSEUDO;
+		}
+		if (atom.getPoint2d() != null) {
+			flags |= ATOM_2D;
+		}
+		if (atom.getPoint3d() != null) {
+			flags |= ATOM_3D;
+		}
+		if (atom.isAromatic()) {
+			flags |= ATOM_AROMATIC;
+		}
+		out.write(flags);
+
+		if ((flags & ATOM_PSEUDO) != 0) {
+			writeString(out, ((IPseudoAtom) atom).getLabel());
+		} else {
+			Integer atomicNumber = atom.getAtomicNumber();
+			writeVarint(out, (atomicNumber != null) ? atomicNumber : Elements.ofString(atom.getSymbol()).number());
+		}
+
+		writeVarint(out, zigzag(nullToZero(atom.getFormalCharge())));
+		writeVarint(out, nullToZero(atom.getMassNumber()));
+		writeVarint(out, (atom.getImplicitHydrogenCount() == null) ? 0 : atom.getImplicitHydrogenCount() + 1);
+		writeVarint(out, (atom.getValency() == null) ? 0 : atom.getValency() + 1);
+
+		if ((flags & ATOM_2D) != 0) {
+			writeCoordinate(out, atom.getPoint2d().x);
+			writeCoordinate(out, atom.getPoint2d().y);
+		}
+		if ((flags & ATOM_3D) != 0) {
+			writeCoordinate(out, atom.getPoint3d().x);
+			writeCoordinate(out, atom.getPoint3d().y);
+			writeCoordinate(out, atom.getPoint3d().z);
+		}
+
+		writeProperties(out, atom);
+	}
+
+	private static IAtom readAtom(ByteBuffer in) {
+		int flags = in.get();
+
+		IAtom atom;
+		if ((flags & ATOM_PSEUDO) != 0) {
+			atom = new PseudoAtom(readString(in));
+		} else {
+			atom = new Atom(Elements.ofNumber(readVarint(in)).symbol());
+		}
+
+		atom.setFormalCharge(unzigzag(readVarint(in)));
+		int massNumber = readVarint(in);
+		if (massNumber != 0) {
+			atom.setMassNumber(massNumber);
+		}
+		int implicitHydrogens = readVarint(in);
+		if (implicitHydrogens != 0) {
+			atom.setImplicitHydrogenCount(implicitHydrogens - 1);
+		}
+		int valency = readVarint(in);
+		if (valency != 0) {
+			atom.setValency(valency - 1);
+		}
+
+		if ((flags & ATOM_2D) != 0) {
+			atom.setPoint2d(new Point2d(readCoordinate(in), readCoordinate(in)));
+		}
+		if ((flags & ATOM_3D) != 0) {
+			atom.setPoint3d(new Point3d(readCoordinate(in), readCoordinate(in), readCoordinate(in)));
+		}
+		atom.setIsAromatic((flags & ATOM_AROMATIC) != 0);
+		readProperties(in, atom);
+
+		return atom;
+	}
+
+	private static void writeProperties(ByteArrayOutputStream out, IChemObject object) {
+		Map<Object, Object> properties = object.getProperties();
+		int count = 0;
+		for (Object value : properties.values()) {
+			if ((value instanceof String) || (value instanceof Integer)) {
+				count++;
+			}
+		}
+
+		writeVarint(out, count);
+		for (Map.Entry<Object, Object> property : properties.entrySet()) {
+			Object value = property.getValue();
+			if (value instanceof String) {
+				writeString(out, property.getKey());
+				out.write(PROPERTY_STRING);
+				writeString(out, value);
+			} else if (value instanceof Integer) {
+				writeString(out, property.getKey());
+				out.write(PROPERTY_INTEGER);
+				writeVarint(out, zigzag((Integer) value));
+			}
+		}
+	}
+
+	private static void readProperties(ByteBuffer in, IChemObject object) {
+		int count = readVarint(in);
+		for (int i = 0; i < count; i++) {
+			String key = readString(in);
+			int type = in.get();
+			if (type == PROPERTY_STRING) {
+				object.setProperty(key, readString(in));
+			} else if (type == PROPERTY_INTEGER) {
+				object.setProperty(key, unzigzag(readVarint(in)));
+			} else {
+				throw new IllegalArgumentException("Invalid encoding of a molecule");
+			}
+		}
+	}
+
+	private static void writeCoordinate(ByteArrayOutputStream out, double value) {
+		writeVarint(out, zigzag(Math.toIntExact(Math.round(value * COORDINATE_SCALE))));
+	}
+
+	private static double readCoordinate(ByteBuffer in) {
+		return unzigzag(readVarint(in)) / COORDINATE_SCALE;
+	}
+
+	/*
+	 * null is encoded as 0, other strings as length + 1 and UTF-8 bytes.
+	 */
+	private static void writeString(ByteArrayOutputStream out, Object value) {
+		if (value == null) {
+			writeVarint(out, 0);
+			return;
+		}
+
+		byte[] bytes = value.toString().getBytes(UTF_8);
+		writeVarint(out, bytes.length + 1);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = readVarint(in) - 1;
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/*
+	 * Unsigned LEB128 encoding of a non-negative int.
+	 */
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("Invalid encoding of a molecule");
+	}
+
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static int nullToZero(Integer value) {
+		return (value == null) ? 0 : value;
+	}
+}
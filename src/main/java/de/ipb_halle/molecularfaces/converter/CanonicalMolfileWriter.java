@@ -0,0 +1,221 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.vecmath.Point2d;
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.GraphUtil;
+import org.openscience.cdk.graph.invariant.Canon;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.io.MDLV2000Writer;
+import org.openscience.cdk.io.MDLV3000Writer;
+
+/**
+ * Utility class that writes MDL Molfiles deterministically: the same molecule
+ * is always written to the same string, independent of its atom and bond
+ * order and of the time of writing. The MDL converters write canonical
+ * Molfiles if the context-param {@link #WEBXML_CANONICAL_MOLFILES} is enabled.
+ * <p>
+ * The atoms are ordered by CDK's canonical labelling ({@link Canon}), which
+ * starts from the symmetry classes of the atoms refined by their rounded
+ * coordinates, so that symmetric atoms are ordered by their positions. The
+ * bonds are ordered by the canonical labels of their atoms. Bonds without stereo
+ * information start at the atom with the lower label. Coordinates are rounded to
+ * {@value #COORDINATE_DECIMALS} decimals (without negative zeros) and the date
+ * in the header line is replaced by zeros. The given molecule is not modified.
+ * 
+ * @author flange
+ */
+public class CanonicalMolfileWriter {
+	/**
+	 * Name of the context-param that enables canonical Molfiles in the MDL
+	 * converters.
+	 */
+	public static final String WEBXML_CANONICAL_MOLFILES = "de.ipb_halle.molecularfaces.CANONICAL_MOLFILES";
+
+	/**
+	 * Number of decimals of the written coordinates.
+	 */
+	public static final int COORDINATE_DECIMALS = 4;
+
+	private static final double COORDINATE_SCALE = Math.pow(10, COORDINATE_DECIMALS);
+
+	/*
+	 * The date of the header line (columns 11-20 of the second line).
+	 */
+	private static final int HEADER_DATE_START = 10;
+	private static final int HEADER_DATE_END = 20;
+	private static final String HEADER_DATE_ZEROS = "0000000000";
+
+	private CanonicalMolfileWriter() {
+	}
+
+	/**
+	 * Writes a canonical MDL Molfile.
+	 * 
+	 * @param molecule molecule to write
+	 * @param v3000    {@code true} to write V3000, {@code false} to write V2000
+	 * @return canonical MDL Molfile
+	 * @throws CDKException if copying or writing of the molecule fails
+	 */
+	public static String write(IAtomContainer molecule, boolean v3000) throws CDKException {
+		IAtomContainer mol;
+		try {
+			mol = molecule.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+		canonicalize(mol);
+
+		StringWriter writer = new StringWriter();
+		try {
+			if (v3000) {
+				try (MDLV3000Writer molWriter = new MDLV3000Writer(writer)) {
+					molWriter.write(mol);
+				}
+			} else {
+				try (MDLV2000Writer molWriter = new MDLV2000Writer(writer)) {
+					molWriter.write(mol);
+				}
+			}
+		} catch (CDKException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+
+		return removeHeaderDate(writer.toString());
+	}
+
+	private static void canonicalize(IAtomContainer mol) {
+		int[][] graph = GraphUtil.toAdjList(mol);
+
+		// canonical labels range from 1 to the number of atoms
+		long[] labels = Canon.label(mol, graph, invariants(mol, graph));
+
+		IAtom[] atoms = new IAtom[mol.getAtomCount()];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[(int) labels[i] - 1] = mol.getAtom(i);
+		}
+		mol.setAtoms(atoms);
+
+		IBond[] bonds = new IBond[mol.getBondCount()];
+		for (int i = 0; i < bonds.length; i++) {
+			bonds[i] = mol.getBond(i);
+
+			// the direction of wedge bonds is significant
+			if ((bonds[i].getStereo() == IBond.Stereo.NONE)
+					&& (mol.indexOf(bonds[i].getBegin()) > mol.indexOf(bonds[i].getEnd()))) {
+				bonds[i].setAtoms(new IAtom[] { bonds[i].getEnd(), bonds[i].getBegin() });
+			}
+		}
+		Arrays.sort(bonds, Comparator.<IBond>comparingInt(bond -> Math.min(mol.indexOf(bond.getBegin()),
+				mol.indexOf(bond.getEnd()))).thenComparingInt(bond -> Math.max(mol.indexOf(bond.getBegin()),
+						mol.indexOf(bond.getEnd()))));
+		mol.setBonds(bonds);
+
+		for (IAtom atom : mol.atoms()) {
+			Point2d p2 = atom.getPoint2d();
+			if (p2 != null) {
+				atom.setPoint2d(new Point2d(round(p2.x), round(p2.y)));
+			}
+			Point3d p3 = atom.getPoint3d();
+			if (p3 != null) {
+				atom.setPoint3d(new Point3d(round(p3.x), round(p3.y), round(p3.z)));
+			}
+		}
+	}
+
+	/*
+	 * Ranks the atoms by their symmetry class and their rounded coordinates.
+	 * Without these, ties between symmetric atoms are broken by the input order,
+	 * which results in different coordinates for the same label.
+	 */
+	private static long[] invariants(IAtomContainer mol, int[][] graph) {
+		long[] symmetry = Canon.symmetry(mol, graph);
+		double[][] keys = new double[mol.getAtomCount()][];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = coordinateKey(mol.getAtom(i));
+		}
+
+		Comparator<Integer> order = Comparator.<Integer>comparingLong(i -> symmetry[i])
+				.thenComparing(i -> keys[i], Arrays::compare);
+		Integer[] atoms = new Integer[keys.length];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = i;
+		}
+		Arrays.sort(atoms, order);
+
+		long[] invariants = new long[atoms.length];
+		long rank = 0;
+		for (int i = 0; i < atoms.length; i++) {
+			if ((i == 0) || (order.compare(atoms[i - 1], atoms[i]) != 0)) {
+				rank++;
+			}
+			invariants[atoms[i]] = rank;
+		}
+
+		return invariants;
+	}
+
+	/*
+	 * NaN marks missing coordinates.
+	 */
+	private static double[] coordinateKey(IAtom atom) {
+		Point2d p2 = atom.getPoint2d();
+		Point3d p3 = atom.getPoint3d();
+
+		return new double[] { (p2 != null) ? round(p2.x) : Double.NaN, (p2 != null) ? round(p2.y) : Double.NaN,
+				(p3 != null) ? round(p3.x) : Double.NaN, (p3 != null) ? round(p3.y) : Double.NaN,
+				(p3 != null) ? round(p3.z) : Double.NaN };
+	}
+
+	/*
+	 * Adding 0.0 turns negative zeros into positive zeros.
+	 */
+	private static double round(double coordinate) {
+		return Math.round(coordinate * COORDINATE_SCALE) / COORDINATE_SCALE + 0.0;
+	}
+
+	/**
+	 * Replaces the date of the header line (columns 11-20 of the second line) of
+	 * a Molfile by zeros, so that Molfiles written at different times become
+	 * equal. Text without such a line is returned unchanged.
+	 * 
+	 * @param molfile Molfile in V2000 or V3000 format
+	 * @return the Molfile with a zeroed header date
+	 */
+	public static String removeHeaderDate(String molfile) {
+		int start = molfile.indexOf('\n') + 1;
+		int end = molfile.indexOf('\n', start);
+		if ((start == 0) || (end - start < HEADER_DATE_END)) {
+			return molfile;
+		}
+
+		return molfile.substring(0, start + HEADER_DATE_START) + HEADER_DATE_ZEROS
+				+ molfile.substring(start + HEADER_DATE_END);
+	}
+}
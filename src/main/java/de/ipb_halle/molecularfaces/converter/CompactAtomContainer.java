@@ -0,0 +1,114 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import jakarta.faces.component.StateHolder;
+import jakarta.faces.context.FacesContext;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Wrapper that serializes an {@link IAtomContainer} with the
+ * {@link AtomContainerCodec}, both via Java serialization
+ * ({@link Externalizable}) and via JSF state saving ({@link StateHolder}). The
+ * molecule is decoded lazily on the first call of {@link #getMolecule()}.
+ * <p>
+ * Only molecules that are supported by the codec (see
+ * {@link AtomContainerCodec#isSupported(IAtomContainer)}) should be wrapped.
+ * 
+ * @author flange
+ */
+public class CompactAtomContainer implements Externalizable, StateHolder {
+	private static final long serialVersionUID = 1L;
+
+	private IAtomContainer molecule;
+	private byte[] bytes;
+
+	/**
+	 * Constructor for deserialization and state restoring.
+	 */
+	public CompactAtomContainer() {
+	}
+
+	/**
+	 * Wraps a molecule.
+	 * 
+	 * @param molecule molecule to wrap
+	 */
+	public CompactAtomContainer(IAtomContainer molecule) {
+		this.molecule = molecule;
+	}
+
+	/**
+	 * @return the wrapped molecule; repeated calls return the same instance
+	 */
+	public synchronized IAtomContainer getMolecule() {
+		if ((molecule == null) && (bytes != null)) {
+			molecule = AtomContainerCodec.decode(bytes);
+			bytes = null;
+		}
+
+		return molecule;
+	}
+
+	private synchronized byte[] getBytes() {
+		return (molecule != null) ? AtomContainerCodec.encode(molecule) : bytes;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		byte[] encoded = getBytes();
+		out.writeInt(encoded.length);
+		out.write(encoded);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		byte[] encoded = new byte[in.readInt()];
+		in.readFully(encoded);
+		bytes = encoded;
+	}
+
+	@Override
+	public Object saveState(FacesContext context) {
+		return getBytes();
+	}
+
+	@Override
+	public void restoreState(FacesContext context, Object state) {
+		bytes = (byte[]) state;
+		molecule = null;
+	}
+
+	@Override
+	public boolean isTransient() {
+		return false;
+	}
+
+	/**
+	 * Does nothing, the molecule is always saved.
+	 */
+	@Override
+	public void setTransient(boolean newTransientValue) {
+	}
+}
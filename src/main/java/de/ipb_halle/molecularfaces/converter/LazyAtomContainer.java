@@ -0,0 +1,332 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.io.Serializable;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.ISimpleChemObjectReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV3000Reader;
+
+/**
+ * Creates {@link IAtomContainer} proxies that hold the text of a MDL Molfile
+ * and read it not before the first method call. The MDL converters return such
+ * proxies if lazy conversion is enabled via the context-param
+ * {@link #WEBXML_LAZY_CONVERSION}. As long as a proxy has not been
+ * materialised, the converters return the original Molfile without writing the
+ * molecule.
+ * <p>
+ * The proxies are serializable. Methods of {@link Object} are not delegated:
+ * as long as they have not been materialised, two proxies are equal if they
+ * hold the same Molfile text, afterwards a proxy is only equal to itself. The
+ * hash code is computed from the Molfile text and does not change when the
+ * proxy is materialised.
+ * <p>
+ * The proxies only implement {@link IAtomContainer} and cannot be cast to
+ * {@link AtomContainer} or other CDK classes. Atoms and bonds of the molecule
+ * belong to the underlying {@link AtomContainer} instance, not to the proxy.
+ * Use {@link #unwrap(IAtomContainer)} to obtain this instance.
+ * 
+ * @author flange
+ */
+public final class LazyAtomContainer {
+	/**
+	 * Name of the context-param that enables lazy conversion in the MDL
+	 * converters.
+	 */
+	public static final String WEBXML_LAZY_CONVERSION = "de.ipb_halle.molecularfaces.LAZY_CONVERSION";
+
+	/*
+	 * The counts line is the fourth line of a Molfile.
+	 */
+	private static final int COUNTS_LINE_INDEX = 3;
+
+	private static final String V3000_PREFIX = "M  V30 ";
+
+	private LazyAtomContainer() {
+	}
+
+	/**
+	 * Creates a proxy for the given Molfile. The Molfile is not validated, use
+	 * {@link #checkStructure(String)} to check it.
+	 * 
+	 * @param molfile MDL Molfile
+	 * @param v3000   {@code true} if {@code molfile} is in V3000 format
+	 * @return {@link IAtomContainer} proxy that reads the Molfile on the first
+	 *         method call; the call throws an {@link IllegalStateException} if
+	 *         reading the Molfile fails
+	 */
+	public static IAtomContainer create(String molfile, boolean v3000) {
+		return (IAtomContainer) Proxy.newProxyInstance(LazyAtomContainer.class.getClassLoader(),
+				new Class<?>[] { IAtomContainer.class }, new Handler(molfile, v3000));
+	}
+
+	/**
+	 * @param value any object
+	 * @return {@code true} if {@code value} is a proxy created by
+	 *         {@link #create(String, boolean)} that has not read its Molfile yet
+	 */
+	public static boolean isUnparsed(Object value) {
+		Handler handler = getHandler(value);
+
+		return (handler != null) && (handler.getMolfile() != null);
+	}
+
+	/**
+	 * Returns the original Molfile of a proxy that has not read it yet.
+	 * 
+	 * @param value any object
+	 * @param v3000 {@code true} if the Molfile is requested in V3000 format
+	 * @return the original Molfile or {@code null} if {@code value} is not a
+	 *         proxy created by {@link #create(String, boolean)}, has already been
+	 *         materialised or holds a Molfile in the other format
+	 */
+	public static String getMolfile(Object value, boolean v3000) {
+		Handler handler = getHandler(value);
+		if ((handler == null) || (handler.v3000 != v3000)) {
+			return null;
+		}
+
+		return handler.getMolfile();
+	}
+
+	/**
+	 * @param value any object
+	 * @return {@code true} if {@code value} is a proxy created by
+	 *         {@link #create(String, boolean)}
+	 */
+	static boolean isProxy(Object value) {
+		return getHandler(value) != null;
+	}
+
+	/**
+	 * @param value any object
+	 * @return {@code true} if {@code value} is a proxy created by
+	 *         {@link #create(String, boolean)} for a Molfile in V3000 format
+	 */
+	static boolean isV3000(Object value) {
+		Handler handler = getHandler(value);
+
+		return (handler != null) && handler.v3000;
+	}
+
+	/**
+	 * Returns the underlying molecule of a proxy, which is read if necessary.
+	 * 
+	 * @param molecule any molecule
+	 * @return the {@link AtomContainer} instance of a proxy created by
+	 *         {@link #create(String, boolean)} or {@code molecule} itself if it
+	 *         is not such a proxy
+	 * @throws IllegalStateException if reading the Molfile fails
+	 */
+	public static IAtomContainer unwrap(IAtomContainer molecule) {
+		Handler handler = getHandler(molecule);
+
+		return (handler != null) ? handler.getMolecule() : molecule;
+	}
+
+	/**
+	 * Checks the structure of a Molfile without reading the atoms and bonds: the
+	 * counts line must be readable and the atom and bond blocks must contain at
+	 * least as many lines as announced by the counts line. The version of the
+	 * Molfile is detected from its counts line.
+	 * 
+	 * @param molfile MDL Molfile
+	 * @throws IllegalArgumentException if the structure of the Molfile is invalid
+	 */
+	public static void checkStructure(String molfile) {
+		// trailing empty lines are dropped
+		String[] lines = molfile.split("\r\n|\r|\n");
+		if (lines.length <= COUNTS_LINE_INDEX) {
+			throw new IllegalArgumentException("The Molfile has no counts line.");
+		}
+
+		if (lines[COUNTS_LINE_INDEX].trim().endsWith("V3000")) {
+			checkV3000Structure(lines);
+		} else {
+			int atoms = parseCount(lines[COUNTS_LINE_INDEX], 0);
+			int bonds = parseCount(lines[COUNTS_LINE_INDEX], 3);
+			if (lines.length <= COUNTS_LINE_INDEX + atoms + bonds) {
+				throw new IllegalArgumentException("The Molfile has fewer atoms or bonds than its counts line.");
+			}
+		}
+	}
+
+	/*
+	 * Counts the logical lines (without continuation lines) of the atom and bond
+	 * blocks, which must be terminated. Only the first COUNTS line is used.
+	 */
+	private static void checkV3000Structure(String[] lines) {
+		int atoms = -1;
+		int bonds = 0;
+		int atomLines = 0;
+		int bondLines = 0;
+		String block = null;
+		boolean continued = false;
+		for (String line : lines) {
+			if (!line.startsWith(V3000_PREFIX)) {
+				continue;
+			}
+
+			String content = line.substring(V3000_PREFIX.length()).trim();
+			boolean continuation = continued;
+			continued = content.endsWith("-");
+			if (continuation) {
+				continue;
+			}
+
+			if (content.startsWith("COUNTS ")) {
+				if (atoms < 0) {
+					String[] tokens = content.split("\\s+");
+					if (tokens.length < 3) {
+						throw new IllegalArgumentException("Invalid counts line in the Molfile.");
+					}
+					atoms = parseCount(tokens[1]);
+					bonds = parseCount(tokens[2]);
+				}
+			} else if (content.startsWith("BEGIN ")) {
+				checkNotInAtomOrBondBlock(block);
+				block = content.substring(6).trim();
+			} else if (content.startsWith("END ")) {
+				block = null;
+			} else if ("ATOM".equals(block)) {
+				atomLines++;
+			} else if ("BOND".equals(block)) {
+				bondLines++;
+			}
+		}
+
+		checkNotInAtomOrBondBlock(block);
+		if (atoms < 0) {
+			throw new IllegalArgumentException("The Molfile has no counts line.");
+		}
+		if ((atomLines < atoms) || (bondLines < bonds)) {
+			throw new IllegalArgumentException("The Molfile has fewer atoms or bonds than its counts line.");
+		}
+	}
+
+	private static void checkNotInAtomOrBondBlock(String block) {
+		if ("ATOM".equals(block) || "BOND".equals(block)) {
+			throw new IllegalArgumentException("The " + block + " block of the Molfile is not terminated.");
+		}
+	}
+
+	private static int parseCount(String countsLine, int start) {
+		if (countsLine.length() < start + 3) {
+			throw new IllegalArgumentException("Invalid counts line in the Molfile.");
+		}
+
+		return parseCount(countsLine.substring(start, start + 3).trim());
+	}
+
+	private static int parseCount(String count) {
+		try {
+			int value = Integer.parseInt(count);
+			if (value < 0) {
+				throw new IllegalArgumentException("Invalid counts line in the Molfile.");
+			}
+
+			return value;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid counts line in the Molfile.", e);
+		}
+	}
+
+	private static Handler getHandler(Object value) {
+		if ((value == null) || !Proxy.isProxyClass(value.getClass())) {
+			return null;
+		}
+
+		InvocationHandler handler = Proxy.getInvocationHandler(value);
+
+		return (handler instanceof Handler) ? (Handler) handler : null;
+	}
+
+	private static class Handler implements InvocationHandler, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final boolean v3000;
+		private final int hashCode;
+		private String molfile;
+		private IAtomContainer molecule;
+
+		private Handler(String molfile, boolean v3000) {
+			this.molfile = molfile;
+			this.v3000 = v3000;
+			this.hashCode = molfile.hashCode();
+		}
+
+		private synchronized String getMolfile() {
+			return molfile;
+		}
+
+		/*
+		 * The text is dropped after reading, because the molecule may be modified
+		 * afterwards.
+		 */
+		private synchronized IAtomContainer getMolecule() {
+			if (molecule == null) {
+				StringReader in = new StringReader(molfile);
+				try (ISimpleChemObjectReader reader = v3000 ? new MDLV3000Reader(in) : new MDLV2000Reader(in)) {
+					molecule = reader.read(new AtomContainer());
+				} catch (Exception e) {
+					throw new IllegalStateException("Reading of the Molfile failed: " + e.getMessage(), e);
+				}
+				molfile = null;
+			}
+
+			return molecule;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				switch (method.getName()) {
+				case "equals":
+					return (proxy == args[0]) || isEqualMolfile(getHandler(args[0]));
+				case "hashCode":
+					return hashCode;
+				default:
+					return isUnparsed(proxy) ? "LazyAtomContainer[unparsed]" : "LazyAtomContainer[" + getMolecule() + "]";
+				}
+			}
+
+			try {
+				return method.invoke(getMolecule(), args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		private boolean isEqualMolfile(Handler other) {
+			if ((other == null) || (other == this) || (other.v3000 != v3000)) {
+				return false;
+			}
+
+			String text = getMolfile();
+			return (text != null) && text.equals(other.getMolfile());
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.Converter;
+import jakarta.faces.convert.ConverterException;
+import jakarta.faces.convert.FacesConverter;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+
+/**
+ * This {@link FacesConverter} converts MDL Molfile V2000 and V3000 strings to
+ * CDK's {@link IAtomContainer} objects and vice versa. The version of a Molfile
+ * is detected from its counts line (see {@link #isV3000(String)}) and the
+ * conversion is delegated to {@link MDLV2000Converter} or
+ * {@link MDLV3000Converter}. The converter remembers which molecules it has
+ * read from V3000 Molfiles, without modifying them, and writes them back in
+ * the same version.
+ * 
+ * @author flange
+ */
+@FacesConverter("molecularfaces.MDLAutoConverter")
+public class MDLAutoConverter implements Converter, MolfileConverter {
+	/*
+	 * The counts line is the fourth line of a Molfile.
+	 */
+	private static final int COUNTS_LINE_INDEX = 3;
+
+	/*
+	 * The V2000 format is limited to three digits in the counts line.
+	 */
+	private static final int V2000_MAX_COUNT = 999;
+
+	/*
+	 * Molecules that have been read from V3000 Molfiles. CDK's atom containers
+	 * do not override equals(), thus they are compared by identity. The map does
+	 * not keep the molecules alive.
+	 */
+	private static final Map<IAtomContainer, Boolean> READ_FROM_V3000 = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private final MDLV2000Converter v2000Converter = new MDLV2000Converter();
+	private final MDLV3000Converter v3000Converter = new MDLV3000Converter();
+
+	/**
+	 * Converts a MDL Molfile V2000 or V3000 string to an {@link IAtomContainer}.
+	 * The converter remembers the molecules read from V3000 Molfiles, except for
+	 * lazily converted molecules, which know the version of their Molfile. The
+	 * molecule itself is not modified.
+	 * 
+	 * @return valid {@link IAtomContainer} object or {@code null} if {@code value}
+	 *         is {@code null} or empty.
+	 * @throws ConverterException if reading of the Molfile fails
+	 */
+	@Override
+	public IAtomContainer getAsObject(FacesContext context, UIComponent component, String value)
+			throws ConverterException {
+		boolean v3000 = isV3000(value);
+		IAtomContainer mol = v3000 ? v3000Converter.getAsObject(context, component, value)
+				: v2000Converter.getAsObject(context, component, value);
+
+		if (v3000 && (mol != null) && !LazyAtomContainer.isProxy(mol)) {
+			READ_FROM_V3000.put(mol, Boolean.TRUE);
+		}
+
+		return mol;
+	}
+
+	/**
+	 * Converts an {@link IAtomContainer} to a MDL Molfile string. Molecule
+	 * objects that have been read by this converter are written in the version
+	 * they have been read from. Molecules with more than 999 atoms or bonds are
+	 * always written in V3000 format, other molecules in V2000 format. The
+	 * original Molfile of a lazily converted molecule is returned unchanged if
+	 * the molecule has not been used, unless canonical Molfiles are enabled (see
+	 * {@link CanonicalMolfileWriter}).
+	 * 
+	 * @return valid MDL Molfile or empty string if {@code value} is {@code null}
+	 *         or not an {@link IAtomContainer}
+	 * @throws ConverterException if writing of the Molfile fails
+	 */
+	@Override
+	public String getAsString(FacesContext context, UIComponent component, Object value) throws ConverterException {
+		if ((value == null) || !(value instanceof IAtomContainer)) {
+			return "";
+		}
+
+		return write((IAtomContainer) value,
+				(context != null) && MolecularFacesConfig.getInstance(context).isCanonicalMolfiles());
+	}
+
+	@Override
+	public String write(IAtomContainer mol, boolean canonical) throws ConverterException {
+		if (!canonical) {
+			String molfile = LazyAtomContainer.getMolfile(mol, false);
+			if (molfile == null) {
+				molfile = LazyAtomContainer.getMolfile(mol, true);
+			}
+			if (molfile != null) {
+				return molfile;
+			}
+		}
+
+		if (isReadFromV3000(mol) || (mol.getAtomCount() > V2000_MAX_COUNT)
+				|| (mol.getBondCount() > V2000_MAX_COUNT)) {
+			return v3000Converter.write(mol, canonical);
+		} else {
+			return v2000Converter.write(mol, canonical);
+		}
+	}
+
+	private static boolean isReadFromV3000(IAtomContainer mol) {
+		if (LazyAtomContainer.isProxy(mol)) {
+			return LazyAtomContainer.isV3000(mol);
+		}
+
+		return READ_FROM_V3000.containsKey(mol);
+	}
+
+	/**
+	 * Detects the version of a MDL Molfile from the version tag at the end of its
+	 * counts line (the fourth line) without reading the rest of the Molfile.
+	 * 
+	 * @param molfile MDL Molfile
+	 * @return {@code true} if the counts line ends with "V3000", {@code false}
+	 *         otherwise (also for Molfiles without version tag, which are read as
+	 *         V2000)
+	 */
+	public static boolean isV3000(String molfile) {
+		if (molfile == null) {
+			return false;
+		}
+
+		int start = 0;
+		for (int line = 0; line < COUNTS_LINE_INDEX; line++) {
+			start = molfile.indexOf('\n', start) + 1;
+			if (start == 0) {
+				return false;
+			}
+		}
+
+		int end = molfile.indexOf('\n', start);
+		if (end == -1) {
+			end = molfile.length();
+		}
+		while ((end > start) && Character.isWhitespace(molfile.charAt(end - 1))) {
+			end--;
+		}
+
+		return ((end - start) >= 5) && molfile.startsWith("V3000", end - 5);
+	}
+}
@@ -0,0 +1,277 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import jakarta.faces.context.FacesContext;
+
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.IChemObjectWriter;
+import org.openscience.cdk.io.ISimpleChemObjectReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV2000Writer;
+import org.openscience.cdk.io.MDLV3000Reader;
+import org.openscience.cdk.io.MDLV3000Writer;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+
+/**
+ * Converts collections of MDL Molfile strings to CDK's {@link IAtomContainer}
+ * objects and vice versa, e.g. for backing beans that prepare whole result
+ * sets for structure grids or exports. In contrast to the FacesConverters, the
+ * conversion is split across the threads of a {@link ForkJoinPool} in chunks of
+ * at most {@link #CHUNK_SIZE} molecules. Each chunk reuses one reader or writer
+ * instance for all of its molecules. Like the MDL converters, the batch
+ * converter writes canonical Molfiles (see {@link CanonicalMolfileWriter}) if
+ * this is enabled.
+ * <p>
+ * The results are returned in the order of the input. A molecule that cannot
+ * be converted does not abort the batch, but yields a failed {@link Result}.
+ * <p>
+ * Instances of this class are immutable and can be shared between threads.
+ * 
+ * @author flange
+ */
+public class MDLBatchConverter {
+	/**
+	 * Maximum number of molecules that are converted in one task. Batches of at
+	 * most this size are converted in the calling thread.
+	 */
+	public static final int CHUNK_SIZE = 32;
+
+	private final boolean v3000;
+	private final boolean canonical;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Result of the conversion of a single molecule.
+	 * 
+	 * @param <T> type of the converted value
+	 */
+	public static class Result<T> {
+		private final T value;
+		private final Exception exception;
+
+		private Result(T value, Exception exception) {
+			this.value = value;
+			this.exception = exception;
+		}
+
+		/**
+		 * @return converted value or {@code null} if the conversion failed
+		 */
+		public T getValue() {
+			return value;
+		}
+
+		/**
+		 * @return cause of the failure or {@code null} if the conversion succeeded
+		 */
+		public Exception getException() {
+			return exception;
+		}
+
+		/**
+		 * @return {@code true} if the conversion failed
+		 */
+		public boolean isFailed() {
+			return exception != null;
+		}
+	}
+
+	/**
+	 * Creates a batch converter that runs on the common {@link ForkJoinPool}.
+	 * Canonical Molfiles are written if the context-param
+	 * {@link CanonicalMolfileWriter#WEBXML_CANONICAL_MOLFILES} is enabled in the
+	 * current {@link FacesContext}.
+	 * 
+	 * @param v3000 {@code true} to convert MDL Molfiles V3000, {@code false} to
+	 *              convert MDL Molfiles V2000
+	 */
+	public MDLBatchConverter(boolean v3000) {
+		this(v3000, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a batch converter that runs on the given {@link ForkJoinPool}.
+	 * Canonical Molfiles are written if the context-param
+	 * {@link CanonicalMolfileWriter#WEBXML_CANONICAL_MOLFILES} is enabled in the
+	 * current {@link FacesContext}.
+	 * 
+	 * @param v3000 {@code true} to convert MDL Molfiles V3000, {@code false} to
+	 *              convert MDL Molfiles V2000
+	 * @param pool  pool that runs the conversions
+	 * @throws NullPointerException if {@code pool} is {@code null}
+	 */
+	public MDLBatchConverter(boolean v3000, ForkJoinPool pool) {
+		this(v3000, isCanonicalMolfiles(FacesContext.getCurrentInstance()), pool);
+	}
+
+	/**
+	 * Creates a batch converter that runs on the given {@link ForkJoinPool}.
+	 * 
+	 * @param v3000     {@code true} to convert MDL Molfiles V3000, {@code false}
+	 *                  to convert MDL Molfiles V2000
+	 * @param canonical {@code true} to write canonical Molfiles
+	 * @param pool      pool that runs the conversions
+	 * @throws NullPointerException if {@code pool} is {@code null}
+	 */
+	public MDLBatchConverter(boolean v3000, boolean canonical, ForkJoinPool pool) {
+		this.v3000 = v3000;
+		this.canonical = canonical;
+		this.pool = Objects.requireNonNull(pool);
+	}
+
+	private static boolean isCanonicalMolfiles(FacesContext context) {
+		return (context != null) && MolecularFacesConfig.getInstance(context).isCanonicalMolfiles();
+	}
+
+	/**
+	 * Reads the given MDL Molfiles.
+	 * 
+	 * @param molfiles MDL Molfile strings
+	 * @return results in the order of {@code molfiles}; the value of a result is
+	 *         {@code null} if its Molfile is {@code null} or empty
+	 * @throws NullPointerException if {@code molfiles} is {@code null}
+	 */
+	public List<Result<IAtomContainer>> toObjects(List<String> molfiles) {
+		return convert(molfiles, () -> {
+			ISimpleChemObjectReader reader = v3000 ? new MDLV3000Reader() : new MDLV2000Reader();
+
+			return molfile -> {
+				if ((molfile == null) || molfile.isEmpty()) {
+					return null;
+				}
+
+				reader.setReader(new StringReader(molfile));
+				return reader.read(new AtomContainer());
+			};
+		});
+	}
+
+	/**
+	 * Writes the given molecules as MDL Molfiles.
+	 * 
+	 * @param molecules molecules
+	 * @return results in the order of {@code molecules}; the value of a result is
+	 *         an empty string if its molecule is {@code null}; the original
+	 *         Molfile of a lazily converted molecule is returned unchanged if the
+	 *         molecule has not been used, unless canonical Molfiles are written
+	 * @throws NullPointerException if {@code molecules} is {@code null}
+	 */
+	public List<Result<String>> toStrings(List<IAtomContainer> molecules) {
+		if (canonical) {
+			return convert(molecules, () -> molecule -> (molecule == null) ? ""
+					: CanonicalMolfileWriter.write(molecule, v3000));
+		}
+
+		return convert(molecules, () -> {
+			IChemObjectWriter writer = v3000 ? new MDLV3000Writer() : new MDLV2000Writer();
+
+			return molecule -> {
+				if (molecule == null) {
+					return "";
+				}
+
+				String molfile = LazyAtomContainer.getMolfile(molecule, v3000);
+				if (molfile != null) {
+					return molfile;
+				}
+
+				StringWriter out = new StringWriter();
+				writer.setWriter(out);
+				writer.write(molecule);
+				return out.toString();
+			};
+		});
+	}
+
+	/*
+	 * The supplier is called once per chunk, thus the conversion it returns may
+	 * keep state, e.g. a reader or writer.
+	 */
+	private <S, T> List<Result<T>> convert(List<S> inputs, Supplier<Conversion<S, T>> conversions) {
+		@SuppressWarnings("unchecked")
+		Result<T>[] results = new Result[inputs.size()];
+		ConversionTask<S, T> task = new ConversionTask<>(inputs, results, conversions, 0, results.length);
+
+		if (results.length <= CHUNK_SIZE) {
+			task.compute();
+		} else {
+			pool.invoke(task);
+		}
+
+		return Collections.unmodifiableList(Arrays.asList(results));
+	}
+
+	@FunctionalInterface
+	private interface Conversion<S, T> {
+		T convert(S input) throws Exception;
+	}
+
+	/*
+	 * Splits the range of inputs in halves until it contains at most CHUNK_SIZE
+	 * inputs.
+	 */
+	private static class ConversionTask<S, T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<S> inputs;
+		private final transient Result<T>[] results;
+		private final transient Supplier<Conversion<S, T>> conversions;
+		private final int start;
+		private final int end;
+
+		private ConversionTask(List<S> inputs, Result<T>[] results, Supplier<Conversion<S, T>> conversions,
+				int start, int end) {
+			this.inputs = inputs;
+			this.results = results;
+			this.conversions = conversions;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= CHUNK_SIZE) {
+				Conversion<S, T> conversion = conversions.get();
+				for (int i = start; i < end; i++) {
+					try {
+						results[i] = new Result<>(conversion.convert(inputs.get(i)), null);
+					} catch (Exception e) {
+						results[i] = new Result<>(null, e);
+					}
+				}
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ConversionTask<>(inputs, results, conversions, start, middle),
+						new ConversionTask<>(inputs, results, conversions, middle, end));
+			}
+		}
+	}
+}
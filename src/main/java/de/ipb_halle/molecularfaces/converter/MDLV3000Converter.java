@@ -32,20 +32,30 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.io.MDLV3000Reader;
 import org.openscience.cdk.io.MDLV3000Writer;
 
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.depiction.DepictionPrefetcher;
+
 /**
  * This {@link FacesConverter} converts MDL Molfile V3000 strings to CDK's
- * {@link IAtomContainer} objects and vice versa.
+ * {@link IAtomContainer} objects and vice versa. Successfully read molfiles
+ * are submitted to the {@link DepictionPrefetcher}. If lazy conversion is
+ * enabled via the context-param {@link LazyAtomContainer#WEBXML_LAZY_CONVERSION},
+ * molfiles are not read before the returned {@link IAtomContainer} is used
+ * (see {@link LazyAtomContainer}).
  * 
  * @author flange
  */
 @FacesConverter("molecularfaces.MDLV3000Converter")
-public class MDLV3000Converter implements Converter {
+public class MDLV3000Converter implements Converter, MolfileConverter {
 	/**
 	 * Converts a MDL Molfile V3000 string to an {@link IAtomContainer}.
 	 * 
 	 * @return valid {@link IAtomContainer} object or {@code null} if {@code value}
 	 *         is {@code null} or empty.
-	 * @throws ConverterException if reading of the Molfile fails
+	 * @throws ConverterException if reading of the Molfile fails (in lazy
+	 *                            conversion mode: if the structure of the
+	 *                            Molfile is invalid, see
+	 *                            {@link LazyAtomContainer#checkStructure(String)})
 	 */
 	@Override
 	public IAtomContainer getAsObject(FacesContext context, UIComponent component, String value)
@@ -54,15 +64,35 @@ public class MDLV3000Converter implements Converter {
 			return null;
 		}
 
+		if ((context != null) && MolecularFacesConfig.getInstance(context).isLazyConversion()) {
+			try {
+				LazyAtomContainer.checkStructure(value);
+			} catch (IllegalArgumentException e) {
+				throw new ConverterException(new FacesMessage(e.getMessage()), e);
+			}
+
+			IAtomContainer mol = LazyAtomContainer.create(value, true);
+			DepictionPrefetcher.prefetch(context, component, this, mol);
+			return mol;
+		}
+
+		IAtomContainer mol;
 		try (MDLV3000Reader reader = new MDLV3000Reader(new StringReader(value))) {
-			return reader.read(new AtomContainer());
+			mol = reader.read(new AtomContainer());
 		} catch (Exception e) {
 			throw new ConverterException(new FacesMessage(e.getMessage()), e);
 		}
+
+		DepictionPrefetcher.prefetch(context, component, this, mol);
+
+		return mol;
 	}
 
 	/**
-	 * Converts an {@link IAtomContainer} to a MDL Molfile V3000 string.
+	 * Converts an {@link IAtomContainer} to a MDL Molfile V3000 string. The
+	 * original Molfile of a lazily converted molecule is returned unchanged if the
+	 * molecule has not been used, unless canonical Molfiles are enabled via the
+	 * context-param {@link CanonicalMolfileWriter#WEBXML_CANONICAL_MOLFILES}.
 	 * 
 	 * @return valid MDL Molfile V3000 or empty string if {@code value} is
 	 *         {@code null} or not an {@link IAtomContainer}
@@ -73,7 +103,25 @@ public class MDLV3000Converter implements Converter {
 		if ((value == null) || !(value instanceof IAtomContainer)) {
 			return "";
 		}
-		IAtomContainer mol = (IAtomContainer) value;
+
+		return write((IAtomContainer) value,
+				(context != null) && MolecularFacesConfig.getInstance(context).isCanonicalMolfiles());
+	}
+
+	@Override
+	public String write(IAtomContainer mol, boolean canonical) throws ConverterException {
+		if (canonical) {
+			try {
+				return CanonicalMolfileWriter.write(mol, true);
+			} catch (Exception e) {
+				throw new ConverterException(new FacesMessage(e.getMessage()), e);
+			}
+		}
+
+		String molfile = LazyAtomContainer.getMolfile(mol, true);
+		if (molfile != null) {
+			return molfile;
+		}
 
 		StringWriter writer = new StringWriter();
 		try (MDLV3000Writer molWriter = new MDLV3000Writer(writer)) {
@@ -0,0 +1,45 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.ConverterException;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Interface of the MDL converters that can write molecules without a
+ * {@link FacesContext}, e.g. in the background thread of the
+ * {@link de.ipb_halle.molecularfaces.depiction.DepictionPrefetcher}.
+ * 
+ * @author flange
+ */
+public interface MolfileConverter {
+	/**
+	 * Writes a molecule as MDL Molfile like the converter's
+	 * {@code getAsString(FacesContext, UIComponent, Object)} does.
+	 * 
+	 * @param mol       the molecule
+	 * @param canonical {@code true} if canonical Molfiles are enabled via the
+	 *                  context-param
+	 *                  {@link CanonicalMolfileWriter#WEBXML_CANONICAL_MOLFILES}
+	 * @return valid MDL Molfile
+	 * @throws ConverterException if writing of the Molfile fails
+	 */
+	String write(IAtomContainer mol, boolean canonical) throws ConverterException;
+}
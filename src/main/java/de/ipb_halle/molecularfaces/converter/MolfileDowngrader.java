@@ -0,0 +1,84 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.regex.Pattern;
+
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Writer;
+import org.openscience.cdk.io.MDLV3000Reader;
+
+/**
+ * Utility class that down-converts MDL Molfiles from V3000 to V2000 format via
+ * CDK's reader and writer classes.
+ * 
+ * @author flange
+ */
+public class MolfileDowngrader {
+	/*
+	 * V3000 blocks without a V2000 counterpart: enhanced stereochemistry
+	 * (collections), R-group queries and templates.
+	 */
+	private static final Pattern V3000_ONLY_BLOCKS = Pattern
+			.compile("^M  V30 BEGIN (COLLECTION|RGROUP|TEMPLATE)", Pattern.MULTILINE);
+
+	private static final int V2000_MAX_COUNT = 999;
+
+	private MolfileDowngrader() {
+	}
+
+	/**
+	 * Converts a MDL Molfile V3000 to V2000 if the structure can be expressed in
+	 * V2000 without loss of information that is relevant for its depiction.
+	 * 
+	 * @param v3000Molfile MDL Molfile V3000 string
+	 * @return MDL Molfile V2000 string or {@code null} if {@code v3000Molfile} is
+	 *         {@code null}, empty, cannot be read or cannot be expressed in V2000
+	 *         (e.g. more than 999 atoms or bonds, enhanced stereochemistry)
+	 */
+	public static String toV2000(String v3000Molfile) {
+		if ((v3000Molfile == null) || v3000Molfile.isEmpty()
+				|| V3000_ONLY_BLOCKS.matcher(v3000Molfile).find()) {
+			return null;
+		}
+
+		IAtomContainer mol;
+		try (MDLV3000Reader reader = new MDLV3000Reader(new StringReader(v3000Molfile))) {
+			mol = reader.read(new AtomContainer());
+		} catch (Exception e) {
+			return null;
+		}
+
+		// The counts line of V2000 is limited to three digits.
+		if ((mol.getAtomCount() > V2000_MAX_COUNT) || (mol.getBondCount() > V2000_MAX_COUNT)) {
+			return null;
+		}
+
+		StringWriter writer = new StringWriter();
+		try (MDLV2000Writer molWriter = new MDLV2000Writer(writer)) {
+			molWriter.write(mol);
+		} catch (Exception e) {
+			return null;
+		}
+
+		return writer.toString();
+	}
+}
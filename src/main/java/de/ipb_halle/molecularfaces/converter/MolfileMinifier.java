@@ -0,0 +1,387 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class that shortens MDL Molfiles for the transport to the client
+ * while keeping them valid Molfiles. Reading a minified Molfile results in the
+ * same molecule as reading the original Molfile, except for the precision of
+ * the coordinates.
+ * <p>
+ * The minification
+ * <ul>
+ * <li>rounds the coordinates to the given number of decimals (V2000 keeps its
+ * fixed-width columns, V3000 coordinates are written without trailing zeros),
+ * except for 3D Molfiles, whose coordinates keep their precision,</li>
+ * <li>clears the user, program and date columns of the second header line,
+ * but keeps its dimensional code ("2D" or "3D") and the following
+ * columns,</li>
+ * <li>removes trailing zero fields of V2000 atom and bond lines and trailing
+ * whitespace,</li>
+ * <li>removes V2000 property lines without entries and empty V3000 blocks
+ * (except for the atom and bond blocks).</li>
+ * </ul>
+ * The renderers of the chemical structure plugins minify the Molfiles sent to
+ * the client if the context-param {@link #WEBXML_MINIFY_MOLFILES} is enabled.
+ * 
+ * @author flange
+ */
+public class MolfileMinifier {
+	/**
+	 * Name of the context-param that enables the minification of Molfiles sent
+	 * to the client.
+	 */
+	public static final String WEBXML_MINIFY_MOLFILES = "de.ipb_halle.molecularfaces.MINIFY_MOLFILES";
+
+	/**
+	 * Name of the context-param that specifies the number of decimals of the
+	 * coordinates in minified Molfiles.
+	 */
+	public static final String WEBXML_MINIFIED_COORDINATE_DECIMALS = "de.ipb_halle.molecularfaces.MINIFIED_COORDINATE_DECIMALS";
+
+	/**
+	 * Default number of decimals of the coordinates in minified Molfiles.
+	 */
+	public static final int DEFAULT_COORDINATE_DECIMALS = 2;
+
+	/*
+	 * Layout of the V2000 atom block: three coordinates with 10 characters each,
+	 * followed by a space and the atom symbol (3 characters) and the mass
+	 * difference field (2 characters), which are followed by 3-character fields.
+	 * Bond lines start with three 3-character fields that are required.
+	 */
+	private static final int V2000_COORDINATE_WIDTH = 10;
+	private static final int V2000_COORDINATES_END = 3 * V2000_COORDINATE_WIDTH;
+	private static final int V2000_SYMBOL_END = 34;
+	private static final int V2000_MASS_DIFFERENCE_END = 36;
+	private static final int V2000_BOND_REQUIRED_END = 9;
+	private static final String V2000_ZERO_FIELD = "  0";
+	private static final String V2000_ZERO_MASS_DIFFERENCE = " 0";
+
+	/*
+	 * The second header line holds the user's initials, the program name and the
+	 * date in columns 1-20, followed by the dimensional code in columns 21-22.
+	 */
+	private static final int HEADER_DATE_END = 20;
+	private static final int HEADER_DIMENSION_END = 22;
+	private static final String HEADER_3D = "3D";
+
+	/*
+	 * Number of decimals that keeps the coordinates unchanged.
+	 */
+	private static final int KEEP_COORDINATES = -1;
+
+	private static final Pattern V2000_EMPTY_PROPERTY = Pattern.compile("M  [A-Z]{3}  0");
+	private static final Pattern V3000_ATOM = Pattern
+			.compile("(M  V30 \\d+ (?:\"[^\"]*\"|\\S+) )(\\S+) (\\S+) (\\S+)(.*)");
+	private static final Pattern V3000_BEGIN_BLOCK = Pattern.compile("M  V30 BEGIN (\\S+).*");
+	private static final String V3000_ATOM_BLOCK_START = "M  V30 BEGIN ATOM";
+	private static final String V3000_ATOM_BLOCK_END = "M  V30 END ATOM";
+	private static final String V3000_CONTINUATION = "-";
+	private static final String END_LINE = "M  END";
+
+	private MolfileMinifier() {
+	}
+
+	/**
+	 * Minifies a MDL Molfile V2000 or V3000.
+	 * 
+	 * @param molfile  MDL Molfile V2000 or V3000 string
+	 * @param decimals number of decimals of the coordinates (V2000 coordinates
+	 *                 have at most 4 decimals); ignored for 3D Molfiles, which
+	 *                 are recognised by the dimensional code "3D" in the header
+	 *                 or by a non-zero z coordinate
+	 * @return minified MDL Molfile or {@code molfile} itself if it is
+	 *         {@code null}, empty or its counts line cannot be read
+	 */
+	public static String minify(String molfile, int decimals) {
+		if ((molfile == null) || molfile.isEmpty()) {
+			return molfile;
+		}
+
+		String[] lines = molfile.split("\r?\n", -1);
+		if (lines.length < 4) {
+			return molfile;
+		}
+
+		List<String> minified = new ArrayList<>(lines.length);
+		minified.add(lines[0].stripTrailing());
+		minified.add(minifyHeaderLine(lines[1]));
+		minified.add(lines[2].stripTrailing());
+
+		boolean v3000 = MDLAutoConverter.isV3000(molfile);
+		if (is3D(lines, v3000)) {
+			decimals = KEEP_COORDINATES;
+		}
+
+		int end;
+		if (v3000) {
+			minified.add(lines[3]);
+			end = minifyV3000(lines, decimals, minified);
+		} else {
+			end = minifyV2000(lines, decimals, minified);
+		}
+		if (end < 0) {
+			return molfile;
+		}
+
+		// keep everything after the end line unchanged
+		StringBuilder sb = new StringBuilder(molfile.length());
+		for (String line : minified) {
+			sb.append(line).append('\n');
+		}
+		for (int i = end; i < lines.length; i++) {
+			sb.append(lines[i]);
+			if (i < lines.length - 1) {
+				sb.append('\n');
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private static String minifyHeaderLine(String line) {
+		String dimensionAndRest = (line.length() > HEADER_DATE_END) ? line.substring(HEADER_DATE_END).stripTrailing()
+				: "";
+
+		return dimensionAndRest.isEmpty() ? "" : " ".repeat(HEADER_DATE_END) + dimensionAndRest;
+	}
+
+	private static boolean is3D(String[] lines, boolean v3000) {
+		String header = lines[1];
+		if ((header.length() >= HEADER_DIMENSION_END)
+				&& HEADER_3D.equals(header.substring(HEADER_DATE_END, HEADER_DIMENSION_END))) {
+			return true;
+		}
+
+		return v3000 ? hasV3000ZCoordinate(lines) : hasV2000ZCoordinate(lines);
+	}
+
+	private static boolean hasV2000ZCoordinate(String[] lines) {
+		int atoms;
+		try {
+			atoms = Integer.parseInt(lines[3].substring(0, 3).trim());
+		} catch (IndexOutOfBoundsException | NumberFormatException e) {
+			return false;
+		}
+
+		for (int i = 4; (i < 4 + atoms) && (i < lines.length); i++) {
+			if ((lines[i].length() >= V2000_COORDINATES_END) && isNonZero(
+					lines[i].substring(V2000_COORDINATES_END - V2000_COORDINATE_WIDTH, V2000_COORDINATES_END))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean hasV3000ZCoordinate(String[] lines) {
+		boolean atomBlock = false;
+		boolean continued = false;
+		for (int i = 4; i < lines.length; i++) {
+			String line = lines[i].stripTrailing();
+			if (V3000_ATOM_BLOCK_START.equals(line)) {
+				atomBlock = true;
+			} else if (V3000_ATOM_BLOCK_END.equals(line)) {
+				return false;
+			} else if (atomBlock && !continued) {
+				Matcher matcher = V3000_ATOM.matcher(line);
+				if (matcher.matches() && isNonZero(matcher.group(4))) {
+					return true;
+				}
+			}
+			continued = line.endsWith(V3000_CONTINUATION);
+		}
+
+		return false;
+	}
+
+	private static boolean isNonZero(String coordinate) {
+		try {
+			return Double.parseDouble(coordinate.trim()) != 0.0;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Returns the index of the first line after the end line or -1 if the counts
+	 * line cannot be read.
+	 */
+	private static int minifyV2000(String[] lines, int decimals, List<String> minified) {
+		String countsLine = lines[3];
+		int atoms;
+		int bonds;
+		try {
+			atoms = Integer.parseInt(countsLine.substring(0, 3).trim());
+			bonds = Integer.parseInt(countsLine.substring(3, 6).trim());
+		} catch (IndexOutOfBoundsException | NumberFormatException e) {
+			return -1;
+		}
+		if (lines.length < 4 + atoms + bonds) {
+			return -1;
+		}
+		minified.add(countsLine);
+
+		int i = 4;
+		for (int atom = 0; atom < atoms; atom++, i++) {
+			minified.add(minifyV2000Atom(lines[i], decimals));
+		}
+		for (int bond = 0; bond < bonds; bond++, i++) {
+			minified.add(stripZeroFields(lines[i].stripTrailing(), V2000_BOND_REQUIRED_END));
+		}
+		for (; i < lines.length; i++) {
+			String line = lines[i].stripTrailing();
+			if (!V2000_EMPTY_PROPERTY.matcher(line).matches()) {
+				minified.add(line);
+			}
+			if (END_LINE.equals(line)) {
+				return i + 1;
+			}
+		}
+
+		return lines.length;
+	}
+
+	private static String minifyV2000Atom(String line, int decimals) {
+		if (line.length() < V2000_SYMBOL_END) {
+			return line;
+		}
+
+		StringBuilder sb = new StringBuilder(line.length());
+		for (int start = 0; start < V2000_COORDINATES_END; start += V2000_COORDINATE_WIDTH) {
+			if (decimals == KEEP_COORDINATES) {
+				sb.append(line, start, start + V2000_COORDINATE_WIDTH);
+				continue;
+			}
+
+			String field = line.substring(start, start + V2000_COORDINATE_WIDTH);
+			try {
+				double coordinate = round(Double.parseDouble(field.trim()), decimals).doubleValue();
+				sb.append(String.format(Locale.ROOT, "%10.4f", coordinate));
+			} catch (NumberFormatException e) {
+				sb.append(field);
+			}
+		}
+
+		String fields = stripZeroFields(line.substring(V2000_COORDINATES_END).stripTrailing(),
+				V2000_MASS_DIFFERENCE_END - V2000_COORDINATES_END);
+		if (fields.endsWith(V2000_ZERO_MASS_DIFFERENCE)
+				&& (fields.length() == V2000_MASS_DIFFERENCE_END - V2000_COORDINATES_END)) {
+			fields = fields.substring(0, V2000_SYMBOL_END - V2000_COORDINATES_END);
+		}
+		sb.append(fields);
+
+		// the reader requires the padded atom symbol
+		while (sb.length() < V2000_SYMBOL_END) {
+			sb.append(' ');
+		}
+
+		return sb.toString();
+	}
+
+	/*
+	 * Returns the index of the first line after the end line.
+	 */
+	private static int minifyV3000(String[] lines, int decimals, List<String> minified) {
+		boolean atomBlock = false;
+		boolean continued = false;
+		for (int i = 4; i < lines.length; i++) {
+			String line = lines[i].stripTrailing();
+
+			Matcher beginMatcher = V3000_BEGIN_BLOCK.matcher(line);
+			if (beginMatcher.matches() && isRemovableBlock(beginMatcher.group(1)) && (i + 1 < lines.length)
+					&& lines[i + 1].stripTrailing().equals("M  V30 END " + beginMatcher.group(1))) {
+				i++;
+				continue;
+			}
+
+			if (V3000_ATOM_BLOCK_START.equals(line)) {
+				atomBlock = true;
+			} else if (V3000_ATOM_BLOCK_END.equals(line)) {
+				atomBlock = false;
+			} else if (atomBlock && !continued) {
+				line = minifyV3000Atom(line, decimals);
+			}
+			continued = line.endsWith(V3000_CONTINUATION);
+
+			minified.add(line);
+			if (END_LINE.equals(line)) {
+				return i + 1;
+			}
+		}
+
+		return lines.length;
+	}
+
+	private static boolean isRemovableBlock(String name) {
+		return !"CTAB".equals(name) && !"ATOM".equals(name) && !"BOND".equals(name);
+	}
+
+	private static String minifyV3000Atom(String line, int decimals) {
+		Matcher matcher = V3000_ATOM.matcher(line);
+		if (!matcher.matches() || (decimals == KEEP_COORDINATES)) {
+			return line;
+		}
+
+		try {
+			StringBuilder sb = new StringBuilder(line.length());
+			sb.append(matcher.group(1));
+			for (int group = 2; group <= 4; group++) {
+				BigDecimal coordinate = round(Double.parseDouble(matcher.group(group)), decimals);
+				sb.append(coordinate.stripTrailingZeros().toPlainString());
+				if (group < 4) {
+					sb.append(' ');
+				}
+			}
+			sb.append(matcher.group(5));
+
+			return sb.toString();
+		} catch (NumberFormatException e) {
+			return line;
+		}
+	}
+
+	private static BigDecimal round(double coordinate, int decimals) {
+		BigDecimal rounded = BigDecimal.valueOf(coordinate).setScale(decimals, RoundingMode.HALF_UP);
+
+		// avoid negative zeros
+		return (rounded.signum() == 0) ? BigDecimal.ZERO.setScale(decimals) : rounded;
+	}
+
+	/*
+	 * Removes trailing 3-character zero fields, but keeps the first minLength
+	 * characters.
+	 */
+	private static String stripZeroFields(String line, int minLength) {
+		String result = line;
+		while ((result.length() - V2000_ZERO_FIELD.length() >= minLength) && result.endsWith(V2000_ZERO_FIELD)) {
+			result = result.substring(0, result.length() - V2000_ZERO_FIELD.length());
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import jakarta.faces.application.FacesMessage;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.Converter;
+import jakarta.faces.convert.ConverterException;
+import jakarta.faces.convert.FacesConverter;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * This {@link FacesConverter} converts SMILES strings to CDK's
+ * {@link IAtomContainer} objects with 2D coordinates and vice versa (see
+ * {@link SmilesTranscoder}).
+ * 
+ * @author flange
+ */
+@FacesConverter("molecularfaces.SMILESConverter")
+public class SMILESConverter implements Converter {
+	/**
+	 * Converts a SMILES string to an {@link IAtomContainer}.
+	 * 
+	 * @return valid {@link IAtomContainer} object with 2D coordinates or
+	 *         {@code null} if {@code value} is {@code null} or empty.
+	 * @throws ConverterException if reading of the SMILES fails
+	 */
+	@Override
+	public IAtomContainer getAsObject(FacesContext context, UIComponent component, String value)
+			throws ConverterException {
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+
+		try {
+			return SmilesTranscoder.read(value);
+		} catch (Exception e) {
+			throw new ConverterException(new FacesMessage(e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Converts an {@link IAtomContainer} to an isomeric SMILES string.
+	 * 
+	 * @return valid SMILES or empty string if {@code value} is {@code null} or not
+	 *         an {@link IAtomContainer}
+	 * @throws ConverterException if writing of the SMILES fails
+	 */
+	@Override
+	public String getAsString(FacesContext context, UIComponent component, Object value) throws ConverterException {
+		if ((value == null) || !(value instanceof IAtomContainer)) {
+			return "";
+		}
+
+		try {
+			return SmilesTranscoder.write((IAtomContainer) value);
+		} catch (Exception e) {
+			throw new ConverterException(new FacesMessage(e.getMessage()), e);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV2000Writer;
+import org.openscience.cdk.layout.StructureDiagramGenerator;
+import org.openscience.cdk.smiles.SmiFlavor;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Utility class that reads and writes SMILES via CDK's {@link SmilesParser}
+ * and {@link SmilesGenerator} and translates between SMILES and MDL Molfiles
+ * V2000.
+ * <p>
+ * Molecules read from SMILES get 2D coordinates from CDK's
+ * {@link StructureDiagramGenerator}. The layouts of the
+ * {@value #LAYOUT_CACHE_SIZE} most recently read SMILES are cached in this
+ * class, so repeated reading of the same SMILES only copies the cached
+ * molecule.
+ * 
+ * @author flange
+ */
+public class SmilesTranscoder {
+	/**
+	 * Maximum number of cached layouts.
+	 */
+	public static final int LAYOUT_CACHE_SIZE = 1000;
+
+	/*
+	 * SMILES -> molecule with 2D coordinates; the cached molecules are never
+	 * modified or handed out.
+	 */
+	private static final Map<String, IAtomContainer> LAYOUT_CACHE = Collections
+			.synchronizedMap(new LinkedHashMap<String, IAtomContainer>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, IAtomContainer> eldest) {
+					return size() > LAYOUT_CACHE_SIZE;
+				}
+			});
+
+	private static final SmilesGenerator SMILES_GENERATOR = new SmilesGenerator(SmiFlavor.Isomeric);
+
+	private SmilesTranscoder() {
+	}
+
+	/**
+	 * Reads a SMILES string and lays out the molecule in 2D.
+	 * 
+	 * @param smiles SMILES string
+	 * @return new molecule with 2D coordinates, which may be modified by the
+	 *         caller
+	 * @throws CDKException if reading or laying out of the SMILES fails
+	 */
+	public static IAtomContainer read(String smiles) throws CDKException {
+		IAtomContainer layout = LAYOUT_CACHE.get(smiles);
+		if (layout == null) {
+			layout = new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(smiles);
+			new StructureDiagramGenerator().generateCoordinates(layout);
+			LAYOUT_CACHE.put(smiles, layout);
+		}
+
+		try {
+			return layout.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes a molecule as isomeric SMILES.
+	 * 
+	 * @param molecule molecule to write
+	 * @return SMILES string
+	 * @throws CDKException if writing of the SMILES fails
+	 */
+	public static String write(IAtomContainer molecule) throws CDKException {
+		return SMILES_GENERATOR.create(molecule);
+	}
+
+	/**
+	 * Converts a SMILES string to a MDL Molfile V2000 with 2D coordinates.
+	 * 
+	 * @param smiles SMILES string
+	 * @return MDL Molfile V2000 string, an empty string if {@code smiles} is
+	 *         {@code null} or empty or {@code null} if {@code smiles} cannot be
+	 *         read
+	 */
+	public static String toV2000(String smiles) {
+		if ((smiles == null) || smiles.isEmpty()) {
+			return "";
+		}
+
+		StringWriter writer = new StringWriter();
+		try (MDLV2000Writer molWriter = new MDLV2000Writer(writer)) {
+			molWriter.write(read(smiles));
+		} catch (Exception e) {
+			return null;
+		}
+
+		return writer.toString();
+	}
+
+	/**
+	 * Converts a MDL Molfile V2000 to a SMILES string.
+	 * 
+	 * @param molfile MDL Molfile V2000 string
+	 * @return SMILES string (empty if {@code molfile} is {@code null}, empty or
+	 *         without atoms) or {@code null} if {@code molfile} cannot be read
+	 */
+	public static String fromV2000(String molfile) {
+		if ((molfile == null) || molfile.isEmpty()) {
+			return "";
+		}
+
+		try (MDLV2000Reader reader = new MDLV2000Reader(new StringReader(molfile))) {
+			return write(reader.read(new AtomContainer()));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+}
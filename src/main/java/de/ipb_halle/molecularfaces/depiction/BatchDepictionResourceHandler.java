@@ -0,0 +1,196 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import jakarta.faces.application.Resource;
+import jakarta.faces.application.ResourceHandler;
+import jakarta.faces.application.ResourceHandlerWrapper;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.FacesContext;
+
+import org.openscience.cdk.exception.CDKException;
+
+import de.ipb_halle.molecularfaces.util.ResourceLoader;
+import de.ipb_halle.molecularfaces.util.ScriptTemplate;
+
+/**
+ * This {@link ResourceHandler} serves the batch depiction resource
+ * {@value #RESOURCE_NAME} of the library
+ * {@value ResourceLoader#RESOURCES_LIBRARY_NAME}. The resource takes a
+ * comma-separated list of keys from the {@link DepictionRegistry} of the
+ * session in the request parameter {@value #KEYS_PARAM} and answers with one
+ * JSON object that maps each key to its SVG depiction or to {@code null} if the
+ * key is unknown. The molecules are depicted concurrently with the CDK on the
+ * {@link DepictionExecutor}.
+ * <p>
+ * All other resource requests are delegated to the wrapped handler.
+ * 
+ * @author flange
+ */
+public class BatchDepictionResourceHandler extends ResourceHandlerWrapper {
+	/**
+	 * Name of the batch depiction resource.
+	 */
+	public static final String RESOURCE_NAME = "depictions.json";
+
+	/**
+	 * Name of the request parameter that carries the comma-separated keys.
+	 */
+	public static final String KEYS_PARAM = "keys";
+
+	/**
+	 * Maximum number of keys per request.
+	 */
+	public static final int MAX_KEYS = 256;
+
+	private static final Logger LOGGER = Logger.getLogger(BatchDepictionResourceHandler.class.getName());
+
+	/*
+	 * The depictions are immutable for a given key, thus the browser may reuse
+	 * complete responses.
+	 */
+	private static final String CACHE_CONTROL = "private, max-age=86400";
+
+	public BatchDepictionResourceHandler(ResourceHandler wrapped) {
+		super(wrapped);
+	}
+
+	/**
+	 * Returns the URL of the batch depiction resource without the request
+	 * parameter {@value #KEYS_PARAM}.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return URL or {@code null} if the resource cannot be found
+	 */
+	public static String getResourceUrl(FacesContext context) {
+		Resource resource = context.getApplication().getResourceHandler().createResource(RESOURCE_NAME,
+				ResourceLoader.RESOURCES_LIBRARY_NAME);
+
+		return (resource != null) ? resource.getRequestPath() : null;
+	}
+
+	@Override
+	public void handleResourceRequest(FacesContext context) throws IOException {
+		if (isBatchDepictionRequest(context)) {
+			handleBatchDepictionRequest(context);
+		} else {
+			super.handleResourceRequest(context);
+		}
+	}
+
+	/**
+	 * Checks if the request addresses the batch depiction resource (see
+	 * {@link ResourceLoader#isLibraryResourceRequest(FacesContext, String)}).
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return {@code true} for requests of the batch depiction resource
+	 */
+	protected boolean isBatchDepictionRequest(FacesContext context) {
+		return ResourceLoader.isLibraryResourceRequest(context, RESOURCE_NAME);
+	}
+
+	private void handleBatchDepictionRequest(FacesContext context) throws IOException {
+		ExternalContext externalContext = context.getExternalContext();
+		String keysParam = externalContext.getRequestParameterMap().get(KEYS_PARAM);
+		List<String> keys = (keysParam == null) ? List.of()
+				: Arrays.stream(keysParam.split(",")).filter(key -> !key.isEmpty()).distinct()
+						.collect(Collectors.toList());
+
+		if (keys.size() > MAX_KEYS) {
+			externalContext.setResponseStatus(400);
+			context.responseComplete();
+			return;
+		}
+
+		List<String> depictions = depict(context, DepictionRegistry.getExistingInstance(externalContext), keys);
+
+		externalContext.setResponseContentType("application/json");
+		externalContext.setResponseCharacterEncoding("UTF-8");
+		externalContext.setResponseHeader("Cache-Control", depictions.contains(null) ? "no-store" : CACHE_CONTROL);
+
+		Writer writer = externalContext.getResponseOutputWriter();
+		writer.append('{');
+		for (int i = 0; i < keys.size(); i++) {
+			if (i > 0) {
+				writer.append(',');
+			}
+			ScriptTemplate.writeJsonString(writer, keys.get(i));
+			writer.append(':');
+			ScriptTemplate.writeJsonString(writer, depictions.get(i));
+		}
+		writer.append('}');
+		writer.flush();
+
+		context.responseComplete();
+	}
+
+	/**
+	 * Depicts the molecules of the given keys concurrently on the
+	 * {@link DepictionExecutor}. Depictions of the same size share one
+	 * {@link StructureDepictor}. Depictions in the {@link DepictionStore} are not
+	 * depicted again.
+	 * 
+	 * @param context  {@link FacesContext} for the request we are processing
+	 * @param registry registry of the session or {@code null}
+	 * @param keys     keys of the molecules
+	 * @return SVG depictions in the order of the keys; {@code null} for unknown
+	 *         keys or failed or timed out depictions
+	 */
+	protected List<String> depict(FacesContext context, DepictionRegistry registry, List<String> keys) {
+		if (registry == null) {
+			return keys.stream().map(key -> (String) null).collect(Collectors.toList());
+		}
+
+		DepictionExecutor executor = DepictionExecutor.getInstance(context);
+		DepictionStore store = DepictionStore.getInstance(context);
+		Map<String, StructureDepictor> depictors = new HashMap<>();
+		List<DepictionExecutor.Job> jobs = new ArrayList<>(keys.size());
+
+		for (String key : keys) {
+			DepictionRegistry.Entry entry = registry.get(key);
+			if (entry == null) {
+				jobs.add(null);
+				continue;
+			}
+
+			StructureDepictor depictor = depictors.computeIfAbsent(entry.getWidth() + "x" + entry.getHeight(),
+					size -> new StructureDepictor(entry.getWidth(), entry.getHeight()));
+			jobs.add(executor.submit(() -> {
+				try {
+					return depictor.depictSvg(entry.getMolfile(), entry.isV3000(), store);
+				} catch (CDKException e) {
+					LOGGER.log(Level.WARNING, "Cannot depict the molecule with key " + key, e);
+					return null;
+				}
+			}));
+		}
+
+		return jobs.stream().map(job -> (job != null) ? job.get() : null).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+
+/**
+ * Application-wide executor for server-side depictions. It runs at most
+ * {@link MolecularFacesConfig#getDepictionParallelism()} depictions
+ * concurrently and limits the time that callers wait for each depiction to
+ * {@link MolecularFacesConfig#getDepictionTimeout()} milliseconds. Depictions
+ * that did not finish in time are cancelled and their threads are interrupted.
+ * At most {@link MolecularFacesConfig#getDepictionQueueSize()} depictions wait
+ * for a thread; further depictions are rejected and treated like depictions
+ * that did not finish in time.
+ * <p>
+ * The executor is created on first use, stored in the application map and shut
+ * down by {@link DepictionExecutorListener} when the application is destroyed.
+ * 
+ * @author flange
+ */
+public class DepictionExecutor {
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * concurrent server-side depictions. Defaults to the number of available
+	 * processors.
+	 */
+	public static final String WEBXML_DEPICTION_PARALLELISM = "de.ipb_halle.molecularfaces.DEPICTION_PARALLELISM";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum time in
+	 * milliseconds for a server-side depiction.
+	 */
+	public static final String WEBXML_DEPICTION_TIMEOUT = "de.ipb_halle.molecularfaces.DEPICTION_TIMEOUT";
+
+	public static final int DEFAULT_DEPICTION_TIMEOUT = 2000;
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * server-side depictions that wait for a thread.
+	 */
+	public static final String WEBXML_DEPICTION_QUEUE_SIZE = "de.ipb_halle.molecularfaces.DEPICTION_QUEUE_SIZE";
+
+	public static final int DEFAULT_DEPICTION_QUEUE_SIZE = 1024;
+
+	/**
+	 * Key of the executor in the application map.
+	 */
+	public static final String APPLICATION_MAP_KEY = DepictionExecutor.class.getName();
+
+	private static final Logger LOGGER = Logger.getLogger(DepictionExecutor.class.getName());
+
+	private final ThreadPoolExecutor pool;
+	private final long timeoutNanos;
+
+	/**
+	 * A submitted depiction.
+	 */
+	public static class Job {
+		private final Future<String> future;
+		private final long deadline;
+		private final ThreadPoolExecutor pool;
+
+		private Job(Future<String> future, long deadline, ThreadPoolExecutor pool) {
+			this.future = future;
+			this.deadline = deadline;
+			this.pool = pool;
+		}
+
+		/**
+		 * Waits for the depiction until the job's deadline has passed. The
+		 * deadline is counted from the submission of the job, thus the caller does
+		 * not wait at all for jobs that have already timed out.
+		 * 
+		 * @return the depiction, an empty string if the depiction failed or
+		 *         {@code null} if it did not finish in time
+		 */
+		public String get() {
+			try {
+				return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				cancel();
+				return null;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancel();
+				return null;
+			} catch (ExecutionException e) {
+				LOGGER.log(Level.WARNING, "Cannot depict a molecule", e.getCause());
+				return "";
+			}
+		}
+
+		/*
+		 * Interrupts a running depiction and removes a waiting one from the queue.
+		 */
+		private void cancel() {
+			future.cancel(true);
+			if ((pool != null) && (future instanceof Runnable)) {
+				pool.remove((Runnable) future);
+			}
+		}
+	}
+
+	/**
+	 * Creates an executor with a queue of {@link #DEFAULT_DEPICTION_QUEUE_SIZE}
+	 * depictions.
+	 * 
+	 * @param parallelism   maximum number of concurrent depictions
+	 * @param timeoutMillis maximum time in milliseconds for a depiction
+	 */
+	public DepictionExecutor(int parallelism, long timeoutMillis) {
+		this(parallelism, timeoutMillis, DEFAULT_DEPICTION_QUEUE_SIZE);
+	}
+
+	/**
+	 * Creates an executor.
+	 * 
+	 * @param parallelism   maximum number of concurrent depictions
+	 * @param timeoutMillis maximum time in milliseconds for a depiction
+	 * @param queueSize     maximum number of depictions that wait for a thread
+	 */
+	public DepictionExecutor(int parallelism, long timeoutMillis, int queueSize) {
+		pool = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize), runnable -> {
+					Thread thread = new Thread(runnable, "molecularfaces-depiction");
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		pool.allowCoreThreadTimeOut(true);
+		timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+	}
+
+	/**
+	 * Returns the executor of the application, which is created if necessary.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return executor of the application
+	 */
+	public static DepictionExecutor getInstance(FacesContext context) {
+		Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+
+		synchronized (DepictionExecutor.class) {
+			DepictionExecutor executor = (DepictionExecutor) applicationMap.get(APPLICATION_MAP_KEY);
+			if (executor == null) {
+				MolecularFacesConfig config = MolecularFacesConfig.getInstance(context);
+				executor = new DepictionExecutor(config.getDepictionParallelism(), config.getDepictionTimeout(),
+						config.getDepictionQueueSize());
+				applicationMap.put(APPLICATION_MAP_KEY, executor);
+			}
+
+			return executor;
+		}
+	}
+
+	/**
+	 * Shuts down the executor of the application if it has been created.
+	 * 
+	 * @param context {@link FacesContext} instance
+	 */
+	public static void shutdown(FacesContext context) {
+		synchronized (DepictionExecutor.class) {
+			Object executor = context.getExternalContext().getApplicationMap().remove(APPLICATION_MAP_KEY);
+			if (executor instanceof DepictionExecutor) {
+				((DepictionExecutor) executor).pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Submits a depiction. The task must not access the {@link FacesContext} and
+	 * must not share mutable objects (e.g. the {@code IAtomContainer} of a bean)
+	 * with the request thread, as the depiction may mutate them and may still be
+	 * running when the caller has given up waiting for it.
+	 * 
+	 * @param task task that returns the depiction
+	 * @return the submitted job, which yields {@code null} if the queue is full
+	 */
+	public Job submit(Callable<String> task) {
+		long deadline = System.nanoTime() + timeoutNanos;
+
+		try {
+			return new Job(pool.submit(task), deadline, pool);
+		} catch (RejectedExecutionException e) {
+			return new Job(CompletableFuture.completedFuture(null), deadline, null);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import jakarta.faces.application.Application;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.event.AbortProcessingException;
+import jakarta.faces.event.PreDestroyApplicationEvent;
+import jakarta.faces.event.SystemEvent;
+import jakarta.faces.event.SystemEventListener;
+
+/**
+ * This {@link SystemEventListener} shuts down the {@link DepictionPrefetcher}
+ * and the {@link DepictionExecutor} and closes the {@link DepictionStore} when
+ * the application is destroyed. The listener is registered in the
+ * faces-config.xml of this library.
+ * 
+ * @author flange
+ */
+public class DepictionExecutorListener implements SystemEventListener {
+	@Override
+	public void processEvent(SystemEvent event) throws AbortProcessingException {
+		if (event instanceof PreDestroyApplicationEvent) {
+			FacesContext context = FacesContext.getCurrentInstance();
+			DepictionPrefetcher.shutdown(context);
+			DepictionExecutor.shutdown(context);
+			DepictionStore.shutdown(context);
+		}
+	}
+
+	@Override
+	public boolean isListenerForSource(Object source) {
+		return source instanceof Application;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+
+/**
+ * Interface of {@link jakarta.faces.render.Renderer}s that depict molecules on
+ * the server. Before the view is rendered, {@link PreRenderDepictionListener}
+ * asks the renderers of all components to submit their depictions, which are
+ * then computed concurrently.
+ * 
+ * @author flange
+ */
+public interface DepictionJobProvider {
+	/**
+	 * Submits the server-side depictions that are needed to encode the given
+	 * component. Nothing needs to be submitted if the component is not depicted
+	 * on the server.
+	 * 
+	 * @param context   {@link FacesContext} for the request we are processing
+	 * @param component component to be rendered
+	 * @param jobs      depiction jobs of the request
+	 */
+	void submitDepictionJobs(FacesContext context, UIComponent component, DepictionJobs jobs);
+}
@@ -0,0 +1,97 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import jakarta.faces.context.FacesContext;
+
+/**
+ * The server-side depictions of the current request, which are submitted to the
+ * {@link DepictionExecutor} before the view is rendered (see
+ * {@link PreRenderDepictionListener}) and collected by the renderers in
+ * document order. The jobs are grouped by the client id of the component that
+ * requires them.
+ * 
+ * @author flange
+ */
+public class DepictionJobs {
+	/**
+	 * Key of the instance in the attributes of the {@link FacesContext}.
+	 */
+	public static final String ATTRIBUTE = DepictionJobs.class.getName();
+
+	private final DepictionExecutor executor;
+	private final Map<String, List<DepictionExecutor.Job>> jobs = new HashMap<>();
+
+	private DepictionJobs(DepictionExecutor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the depiction jobs of the current request, which are created if
+	 * necessary.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return depiction jobs of the request
+	 */
+	public static DepictionJobs getInstance(FacesContext context) {
+		DepictionJobs instance = (DepictionJobs) context.getAttributes().get(ATTRIBUTE);
+		if (instance == null) {
+			instance = new DepictionJobs(DepictionExecutor.getInstance(context));
+			context.getAttributes().put(ATTRIBUTE, instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Removes and returns the jobs of a component.
+	 * 
+	 * @param context  {@link FacesContext} for the request we are processing
+	 * @param clientId client id of the component
+	 * @return jobs in the order of submission or {@code null} if no jobs have
+	 *         been submitted for the component
+	 */
+	public static List<DepictionExecutor.Job> remove(FacesContext context, String clientId) {
+		DepictionJobs instance = (DepictionJobs) context.getAttributes().get(ATTRIBUTE);
+
+		return (instance != null) ? instance.jobs.remove(clientId) : null;
+	}
+
+	/**
+	 * Submits the depictions of a component. Previously submitted jobs of the
+	 * component are replaced.
+	 * 
+	 * @param clientId client id of the component
+	 * @param tasks    tasks that return the depictions; they must not access the
+	 *                 {@link FacesContext}
+	 */
+	public void submit(String clientId, List<Callable<String>> tasks) {
+		List<DepictionExecutor.Job> submitted = new ArrayList<>(tasks.size());
+		for (Callable<String> task : tasks) {
+			submitted.add(executor.submit(task));
+		}
+
+		jobs.put(clientId, submitted);
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import de.ipb_halle.molecularfaces.converter.CanonicalMolfileWriter;
+import de.ipb_halle.molecularfaces.util.Hashes;
+
+/**
+ * Utility class that computes keys of cached depictions. A key is the
+ * lowercase hexadecimal SHA-256 hash of the molecule, the size of the image and
+ * the name of the plugin that depicts the molecule. Equal keys thus denote
+ * interchangeable depictions. The date in the header line of Molfiles is
+ * ignored, so that a molecule written at different times yields the same key.
+ * 
+ * @author flange
+ */
+public class DepictionKey {
+	private DepictionKey() {
+	}
+
+	/**
+	 * Computes the key of a depiction.
+	 * 
+	 * @param plugin   name of the plugin that depicts the molecule (e.g.
+	 *                 "OpenChemLibJS")
+	 * @param width    width of the depiction in pixels
+	 * @param height   height of the depiction in pixels
+	 * @param molecule molecule in the plugin's chemical file format; {@code null}
+	 *                 is treated like an empty string and the header date of a
+	 *                 Molfile is ignored
+	 * @return key with 64 hexadecimal digits
+	 */
+	public static String compute(String plugin, int width, int height, String molecule) {
+		String normalized = (molecule != null) ? CanonicalMolfileWriter.removeHeaderDate(molecule) : "";
+
+		return Hashes.sha256Hex(plugin + '\n' + width + '\n' + height + '\n' + normalized);
+	}
+}
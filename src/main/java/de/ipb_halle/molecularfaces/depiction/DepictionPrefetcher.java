@@ -0,0 +1,301 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.ValueHolder;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.Converter;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore;
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.converter.MDLAutoConverter;
+import de.ipb_halle.molecularfaces.converter.MolfileConverter;
+
+/**
+ * Background queue that depicts newly converted molecules into the
+ * {@link DepictionStore}, so that the first page that displays a molecule
+ * after it has been submitted (e.g. a listing page after the molecule has been
+ * saved) finds its depiction in the store. The MDL converters submit each
+ * molecule they have read successfully. As the depictions are addressed by the
+ * molfile that is depicted, the molecule is written back by the converter of
+ * the component (like the renderers do) and the resulting molfile is depicted.
+ * Both happen in the worker thread.
+ * <p>
+ * The molecules are depicted by a single low-priority worker thread in the
+ * sizes of {@link MolecularFacesConfig#getDepictionPrefetchSizes()} and the
+ * size of the converting component. Submissions never block: molecules that
+ * have been submitted recently are skipped and molecules that do not fit into
+ * the bounded queue are dropped.
+ * 
+ * @author flange
+ */
+public class DepictionPrefetcher {
+	/**
+	 * Name of the context-param in web.xml that enables the prefetching of
+	 * depictions. Requires the {@link DepictionStore}.
+	 */
+	public static final String WEBXML_DEPICTION_PREFETCH = "de.ipb_halle.molecularfaces.DEPICTION_PREFETCH";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the comma-separated
+	 * image sizes (e.g. "200x200,300x150") in which molecules are prefetched.
+	 */
+	public static final String WEBXML_DEPICTION_PREFETCH_SIZES = "de.ipb_halle.molecularfaces.DEPICTION_PREFETCH_SIZES";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * queued depictions.
+	 */
+	public static final String WEBXML_DEPICTION_PREFETCH_QUEUE_SIZE = "de.ipb_halle.molecularfaces.DEPICTION_PREFETCH_QUEUE_SIZE";
+
+	public static final String DEFAULT_PREFETCH_SIZES = "200x200";
+
+	public static final int DEFAULT_QUEUE_SIZE = 256;
+
+	/**
+	 * Maximum number of recently submitted keys that are remembered to skip
+	 * duplicates.
+	 */
+	public static final int MAX_RECENT_KEYS = 10000;
+
+	/**
+	 * Key of the prefetcher in the application map.
+	 */
+	public static final String APPLICATION_MAP_KEY = DepictionPrefetcher.class.getName();
+
+	private static final Logger LOGGER = Logger.getLogger(DepictionPrefetcher.class.getName());
+
+	private final DepictionStore store;
+	private final ThreadPoolExecutor worker;
+	private final Set<String> recentKeys = Collections
+			.newSetFromMap(new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+					return size() > MAX_RECENT_KEYS;
+				}
+			});
+
+	/**
+	 * Creates a prefetcher.
+	 * 
+	 * @param store     store that receives the depictions
+	 * @param queueSize maximum number of queued depictions
+	 */
+	public DepictionPrefetcher(DepictionStore store, int queueSize) {
+		this.store = store;
+		worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+				runnable -> {
+					Thread thread = new Thread(runnable, "molecularfaces-depiction-prefetch");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				});
+	}
+
+	/**
+	 * Returns the prefetcher of the application, which is created if necessary.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return prefetcher of the application or {@code null} if prefetching is
+	 *         disabled or the {@link DepictionStore} is not available
+	 */
+	public static DepictionPrefetcher getInstance(FacesContext context) {
+		MolecularFacesConfig config = MolecularFacesConfig.getInstance(context);
+		if (!config.isDepictionPrefetch()) {
+			return null;
+		}
+
+		DepictionStore store = DepictionStore.getInstance(context);
+		if (store == null) {
+			return null;
+		}
+
+		Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+		synchronized (DepictionPrefetcher.class) {
+			DepictionPrefetcher prefetcher = (DepictionPrefetcher) applicationMap.get(APPLICATION_MAP_KEY);
+			if (prefetcher == null) {
+				prefetcher = new DepictionPrefetcher(store, config.getDepictionPrefetchQueueSize());
+				applicationMap.put(APPLICATION_MAP_KEY, prefetcher);
+			}
+
+			return prefetcher;
+		}
+	}
+
+	/**
+	 * Shuts down the prefetcher of the application if it has been created.
+	 * Queued depictions are discarded.
+	 * 
+	 * @param context {@link FacesContext} instance
+	 */
+	public static void shutdown(FacesContext context) {
+		synchronized (DepictionPrefetcher.class) {
+			Object prefetcher = context.getExternalContext().getApplicationMap().remove(APPLICATION_MAP_KEY);
+			if (prefetcher instanceof DepictionPrefetcher) {
+				((DepictionPrefetcher) prefetcher).worker.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Submits the depictions of a converted molecule if prefetching is enabled.
+	 * The depicted molfile is the string representation of the molecule that the
+	 * renderers depict: the result of the component's converter or, if the
+	 * component has none, of the given converter. It is written by the worker
+	 * thread, so this method only enqueues the molecule. Molecules of components
+	 * whose converter is no {@link MolfileConverter} are not prefetched.
+	 * 
+	 * @param context   {@link FacesContext} for the request we are processing or
+	 *                  {@code null}
+	 * @param component converting component or {@code null}
+	 * @param converter converter that has read the molecule
+	 * @param molecule  the converted molecule
+	 */
+	public static void prefetch(FacesContext context, UIComponent component, Converter<?> converter,
+			IAtomContainer molecule) {
+		if (context == null) {
+			return;
+		}
+
+		Converter<?> renderConverter = converter;
+		if ((component instanceof ValueHolder) && (((ValueHolder) component).getConverter() != null)) {
+			renderConverter = ((ValueHolder) component).getConverter();
+		}
+		if (!(renderConverter instanceof MolfileConverter)) {
+			return;
+		}
+
+		DepictionPrefetcher prefetcher = getInstance(context);
+		if (prefetcher == null) {
+			return;
+		}
+
+		MolecularFacesConfig config = MolecularFacesConfig.getInstance(context);
+		List<int[]> sizes = new ArrayList<>(config.getDepictionPrefetchSizes());
+		if (component instanceof MolPluginCore) {
+			MolPluginCore plugin = (MolPluginCore) component;
+			sizes.add(new int[] { plugin.getWidth(), plugin.getHeight() });
+		}
+
+		prefetcher.submit(molecule, (MolfileConverter) renderConverter, config.isCanonicalMolfiles(), sizes);
+	}
+
+	/**
+	 * Submits the depictions of a molecule unless the queue is full. The molecule
+	 * is written by the worker thread with the given converter.
+	 * 
+	 * @param molecule  the molecule
+	 * @param converter converter that writes the depicted molfile
+	 * @param canonical {@code true} if canonical Molfiles are enabled
+	 * @param sizes     sizes of the depictions as pairs of width and height
+	 * @return {@code true} if the molecule has been queued
+	 */
+	public boolean submit(IAtomContainer molecule, MolfileConverter converter, boolean canonical,
+			List<int[]> sizes) {
+		return execute(() -> {
+			String molfile;
+			try {
+				molfile = converter.write(molecule, canonical);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.FINE, "Cannot prefetch the depiction of a molecule", e);
+				return;
+			}
+			boolean v3000 = MDLAutoConverter.isV3000(molfile);
+
+			for (int[] size : sizes) {
+				String key = DepictionKey.compute(StructureDepictor.PLUGIN_NAME, size[0], size[1], molfile);
+				if (addRecentKey(key)) {
+					depict(molfile, v3000, size[0], size[1]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Submits a depiction unless it has been submitted recently or the queue is
+	 * full. Depictions that are already in the store are not depicted again.
+	 * 
+	 * @param molfile MDL Molfile
+	 * @param v3000   {@code true} if {@code molfile} is in V3000 format
+	 * @param width   width of the depiction in pixels
+	 * @param height  height of the depiction in pixels
+	 * @return {@code true} if the depiction has been queued
+	 */
+	public boolean submit(String molfile, boolean v3000, int width, int height) {
+		if ((molfile == null) || molfile.isEmpty()) {
+			return false;
+		}
+
+		String key = DepictionKey.compute(StructureDepictor.PLUGIN_NAME, width, height, molfile);
+		if (!addRecentKey(key)) {
+			return false;
+		}
+
+		if (!execute(() -> depict(molfile, v3000, width, height))) {
+			synchronized (recentKeys) {
+				recentKeys.remove(key);
+			}
+			return false;
+		}
+
+		return true;
+	}
+
+	private boolean addRecentKey(String key) {
+		synchronized (recentKeys) {
+			return recentKeys.add(key);
+		}
+	}
+
+	private boolean execute(Runnable task) {
+		try {
+			worker.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			// The queue is full or the prefetcher has been shut down.
+			return false;
+		}
+	}
+
+	private void depict(String molfile, boolean v3000, int width, int height) {
+		try {
+			new StructureDepictor(width, height).depictSvg(molfile, v3000, store);
+		} catch (CDKException | RuntimeException e) {
+			LOGGER.log(Level.FINE, "Cannot prefetch the depiction of a molecule", e);
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+
+/**
+ * Session-scoped registry of the molecules that may be depicted via the batch
+ * depiction resource (see {@link BatchDepictionResourceHandler}). Components
+ * register their molecules while rendering and pass the returned keys to the
+ * client, thus the resource only depicts molecules that the session has
+ * actually been shown.
+ * <p>
+ * The registry keeps at most {@link #DEFAULT_DEPICTION_REGISTRY_SIZE} molecules
+ * (configurable via the context-param {@link #WEBXML_DEPICTION_REGISTRY_SIZE})
+ * and evicts the least recently used ones. It is only created in an existing
+ * session.
+ * 
+ * @author flange
+ */
+public class DepictionRegistry implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Name of the session attribute that holds the registry.
+	 */
+	public static final String SESSION_ATTRIBUTE = "de.ipb_halle.molecularfaces.DepictionRegistry";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * registered molecules per session.
+	 */
+	public static final String WEBXML_DEPICTION_REGISTRY_SIZE = "de.ipb_halle.molecularfaces.DEPICTION_REGISTRY_SIZE";
+
+	public static final int DEFAULT_DEPICTION_REGISTRY_SIZE = 500;
+
+	/*
+	 * Guards the creation of registries. The session object itself is not a
+	 * reliable monitor, as containers may return different facades for the same
+	 * session.
+	 */
+	private static final Object CREATION_LOCK = new Object();
+
+	private final int maxEntries;
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Creates an empty registry.
+	 * 
+	 * @param maxEntries maximum number of registered molecules
+	 */
+	DepictionRegistry(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > DepictionRegistry.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * A registered molecule with the size of its depiction.
+	 */
+	public static class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String molfile;
+		private final boolean v3000;
+		private final int width;
+		private final int height;
+
+		private Entry(String molfile, boolean v3000, int width, int height) {
+			this.molfile = molfile;
+			this.v3000 = v3000;
+			this.width = width;
+			this.height = height;
+		}
+
+		public String getMolfile() {
+			return molfile;
+		}
+
+		public boolean isV3000() {
+			return v3000;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+	}
+
+	/**
+	 * Returns the registry of the current session, which is created if
+	 * necessary. A session is never created for the registry.
+	 * 
+	 * @param context {@link FacesContext} of the request we are processing
+	 * @return registry of the session or {@code null} if there is no session
+	 */
+	public static DepictionRegistry getInstance(FacesContext context) {
+		ExternalContext externalContext = context.getExternalContext();
+		if (externalContext.getSession(false) == null) {
+			return null;
+		}
+
+		Map<String, Object> sessionMap = externalContext.getSessionMap();
+		DepictionRegistry registry = (DepictionRegistry) sessionMap.get(SESSION_ATTRIBUTE);
+		if (registry != null) {
+			return registry;
+		}
+
+		synchronized (CREATION_LOCK) {
+			registry = (DepictionRegistry) sessionMap.get(SESSION_ATTRIBUTE);
+			if (registry == null) {
+				registry = new DepictionRegistry(
+						MolecularFacesConfig.getInstance(context).getDepictionRegistrySize());
+				sessionMap.put(SESSION_ATTRIBUTE, registry);
+			}
+
+			return registry;
+		}
+	}
+
+	/**
+	 * Returns the registry of the current session without creating a session.
+	 * 
+	 * @param externalContext {@link ExternalContext} of the request we are
+	 *                        processing
+	 * @return registry of the session or {@code null} if there is no session or
+	 *         nothing has been registered yet
+	 */
+	public static DepictionRegistry getExistingInstance(ExternalContext externalContext) {
+		if (externalContext.getSession(false) == null) {
+			return null;
+		}
+
+		return (DepictionRegistry) externalContext.getSessionMap().get(SESSION_ATTRIBUTE);
+	}
+
+	/**
+	 * Registers a molecule for depiction.
+	 * 
+	 * @param molfile MDL Molfile
+	 * @param v3000   {@code true} if {@code molfile} is in V3000 format
+	 * @param width   width of the depiction in pixels
+	 * @param height  height of the depiction in pixels
+	 * @return key of the depiction
+	 */
+	public String register(String molfile, boolean v3000, int width, int height) {
+		String key = DepictionKey.compute(StructureDepictor.PLUGIN_NAME, width, height, molfile);
+
+		synchronized (entries) {
+			entries.put(key, new Entry(molfile, v3000, width, height));
+		}
+
+		return key;
+	}
+
+	/**
+	 * Returns a registered molecule.
+	 * 
+	 * @param key key of the depiction
+	 * @return registered molecule or {@code null} if the key is unknown
+	 */
+	public Entry get(String key) {
+		synchronized (entries) {
+			return entries.get(key);
+		}
+	}
+}
@@ -0,0 +1,643 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+
+/**
+ * Persistent, content-addressed store of SVG depictions on disk, which survives
+ * restarts and redeployments of the application. The depictions are addressed
+ * by their keys (see {@link DepictionKey}).
+ * <p>
+ * The depictions are appended as records to segment files. When a segment has
+ * reached its share of the maximum size of the store, a new segment is started.
+ * The oldest segments are deleted when the store exceeds its maximum size.
+ * Each time the store is opened, it starts a new segment, so a segment that was
+ * truncated by a crash is never appended to.
+ * <p>
+ * The index is an open-addressing hash table in a memory-mapped file, which
+ * maps the keys to the positions of the records. Entries of deleted segments
+ * are ignored on lookup and purged by compaction, which rebuilds the index from
+ * the remaining segments when it fills up. The index is also rebuilt if it is
+ * missing or does not match the configuration.
+ * <p>
+ * The store holds an exclusive lock on the file {@code store.lock} in its
+ * directory while it is open. If the directory is already used by another store
+ * (e.g. of another deployment or of an overlapping redeployment), it cannot be
+ * opened and the application depicts without a persistent store.
+ * <p>
+ * Instances of this class are thread-safe. Depictions are read concurrently.
+ * Writes are serialized and only block readers while the index or the set of
+ * segments is modified. Compaction rebuilds the index in memory and replaces
+ * it at once. Failing I/O operations are logged and treated like missing
+ * depictions, thus the store never breaks a depiction.
+ * 
+ * @author flange
+ */
+public class DepictionStore implements Closeable {
+	/**
+	 * Name of the context-param in web.xml that specifies the directory of the
+	 * depiction store. The store is disabled if this context-param is not set.
+	 */
+	public static final String WEBXML_DEPICTION_STORE_DIRECTORY = "de.ipb_halle.molecularfaces.DEPICTION_STORE_DIRECTORY";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum size of
+	 * the depiction store in megabytes.
+	 */
+	public static final String WEBXML_DEPICTION_STORE_MAX_SIZE = "de.ipb_halle.molecularfaces.DEPICTION_STORE_MAX_SIZE";
+
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	/**
+	 * Key of the store in the application map.
+	 */
+	public static final String APPLICATION_MAP_KEY = DepictionStore.class.getName();
+
+	private static final Logger LOGGER = Logger.getLogger(DepictionStore.class.getName());
+
+	private static final int KEY_LENGTH = 32;
+
+	/*
+	 * Record layout: magic, key, length of the depiction, UTF-8 encoded
+	 * depiction
+	 */
+	private static final int RECORD_MAGIC = 0x4d464452;
+	private static final int RECORD_HEADER_LENGTH = 4 + KEY_LENGTH + 4;
+
+	/*
+	 * Index layout: header (magic, capacity, number of used slots, unused),
+	 * followed by the slots (key, segment number + 1, offset, length, unused). A
+	 * slot with segment number 0 is empty.
+	 */
+	private static final int INDEX_MAGIC = 0x4d464449;
+	private static final int INDEX_HEADER_LENGTH = 16;
+	private static final int SLOT_LENGTH = KEY_LENGTH + 16;
+	private static final int MIN_CAPACITY = 1024;
+
+	/*
+	 * Expected average size of a record, which determines the capacity of the
+	 * index.
+	 */
+	private static final int AVERAGE_RECORD_LENGTH = 4096;
+
+	private static final int SEGMENTS_PER_STORE = 8;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+	private static final String INDEX_FILE_NAME = "index.dat";
+	private static final String LOCK_FILE_NAME = "store.lock";
+
+	private final Path directory;
+	private final long maxSize;
+	private final long segmentSize;
+	private final int capacity;
+
+	/*
+	 * Writers (put, compact and close) synchronize on this instance. They
+	 * additionally hold the write lock while they modify the index or the
+	 * segments, which readers only access with the read lock.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final FileChannel lockChannel;
+	private final FileLock fileLock;
+	private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+	private final FileChannel indexChannel;
+	private final MappedByteBuffer index;
+	private long totalSize;
+	private int currentSegment;
+	private long currentSegmentSize;
+	private int usedSlots;
+
+	/**
+	 * Opens the store in the given directory, which is created if necessary.
+	 * 
+	 * @param directory directory of the store
+	 * @param maxSize   maximum size of the segments in bytes
+	 * @throws IOException if the store cannot be opened, e.g. because the
+	 *                     directory is used by another store
+	 */
+	public DepictionStore(Path directory, long maxSize) throws IOException {
+		this(directory, maxSize, capacityFor(maxSize));
+	}
+
+	/*
+	 * The capacity of the index must be a power of two.
+	 */
+	DepictionStore(Path directory, long maxSize, int capacity) throws IOException {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.segmentSize = Math.max(1, Math.min(Integer.MAX_VALUE, maxSize / SEGMENTS_PER_STORE));
+		this.capacity = capacity;
+
+		Files.createDirectories(directory);
+		lockChannel = FileChannel.open(directory.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		fileLock = tryLock(lockChannel);
+		if (fileLock == null) {
+			lockChannel.close();
+			throw new IOException("The directory " + directory + " is used by another depiction store");
+		}
+
+		try {
+			openSegments();
+
+			indexChannel = FileChannel.open(directory.resolve(INDEX_FILE_NAME), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			boolean valid = indexChannel.size() == indexLength(capacity);
+			index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexLength(capacity));
+			if (valid && (index.getInt(0) == INDEX_MAGIC) && (index.getInt(4) == capacity)) {
+				usedSlots = index.getInt(8);
+			} else {
+				compact();
+			}
+
+			currentSegment = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+			startSegment(currentSegment);
+			evict();
+		} catch (IOException | RuntimeException e) {
+			for (FileChannel channel : segments.values()) {
+				channel.close();
+			}
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Returns null if another process or another store in this JVM holds the
+	 * lock.
+	 */
+	private static FileLock tryLock(FileChannel channel) throws IOException {
+		try {
+			return channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the store of the application, which is opened if necessary.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return store of the application or {@code null} if the store is disabled
+	 *         or cannot be opened
+	 */
+	public static DepictionStore getInstance(FacesContext context) {
+		Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+
+		synchronized (DepictionStore.class) {
+			Object store = applicationMap.get(APPLICATION_MAP_KEY);
+			if (store == null) {
+				store = open(MolecularFacesConfig.getInstance(context));
+				applicationMap.put(APPLICATION_MAP_KEY, store);
+			}
+
+			return (store instanceof DepictionStore) ? (DepictionStore) store : null;
+		}
+	}
+
+	/*
+	 * Returns Boolean.FALSE if the store is disabled or cannot be opened, so
+	 * that getInstance() does not try again.
+	 */
+	private static Object open(MolecularFacesConfig config) {
+		String directory = config.getDepictionStoreDirectory();
+		if (directory == null) {
+			return Boolean.FALSE;
+		}
+
+		try {
+			return new DepictionStore(Paths.get(directory), config.getDepictionStoreMaxSize() * 1024L * 1024L);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Cannot open the depiction store in " + directory, e);
+			return Boolean.FALSE;
+		}
+	}
+
+	/**
+	 * Closes the store of the application if it has been opened.
+	 * 
+	 * @param context {@link FacesContext} instance
+	 */
+	public static void shutdown(FacesContext context) {
+		synchronized (DepictionStore.class) {
+			Object store = context.getExternalContext().getApplicationMap().remove(APPLICATION_MAP_KEY);
+			if (store instanceof DepictionStore) {
+				try {
+					((DepictionStore) store).close();
+				} catch (IOException e) {
+					LOGGER.log(Level.WARNING, "Cannot close the depiction store", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a depiction.
+	 * 
+	 * @param key key of the depiction
+	 * @return the depiction or {@code null} if it is not stored or the store has
+	 *         been closed
+	 * @throws IllegalArgumentException if the key is not a key computed by
+	 *                                  {@link DepictionKey}
+	 */
+	public String get(String key) {
+		byte[] keyBytes = parseKey(key);
+
+		lock.readLock().lock();
+		try {
+			if (!indexChannel.isOpen()) {
+				return null;
+			}
+
+			int position = slotPosition(findSlot(index, capacity, keyBytes));
+			FileChannel channel = segments.get(index.getInt(position + KEY_LENGTH) - 1);
+			if (channel == null) {
+				return null;
+			}
+
+			int offset = index.getInt(position + KEY_LENGTH + 4);
+			int length = index.getInt(position + KEY_LENGTH + 8);
+			ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + length);
+			readFully(channel, record, offset);
+			if (!isRecord(record, keyBytes, length)) {
+				return null;
+			}
+
+			return new String(record.array(), RECORD_HEADER_LENGTH, length, UTF_8);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot read a depiction from the depiction store", e);
+			return null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Stores a depiction unless a depiction with the same key is already stored
+	 * or the store has been closed. A stored record that is incomplete or corrupt
+	 * is replaced.
+	 * 
+	 * @param key       key of the depiction
+	 * @param depiction the depiction
+	 * @throws IllegalArgumentException if the key is not a key computed by
+	 *                                  {@link DepictionKey}
+	 */
+	public synchronized void put(String key, String depiction) {
+		byte[] keyBytes = parseKey(key);
+		if (!indexChannel.isOpen() || isStored(keyBytes)) {
+			return;
+		}
+
+		byte[] bytes = depiction.getBytes(UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + bytes.length);
+		record.putInt(RECORD_MAGIC).put(keyBytes).putInt(bytes.length).put(bytes).flip();
+
+		try {
+			if (isIndexFull()) {
+				compact();
+				if (isIndexFull()) {
+					// only possible with a single segment of tiny records
+					return;
+				}
+			}
+
+			if ((currentSegmentSize > 0) && (currentSegmentSize + record.remaining() > segmentSize)) {
+				lock.writeLock().lock();
+				try {
+					startSegment(currentSegment + 1);
+					evict();
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+
+			// Readers never access the unindexed end of the current segment.
+			long offset = currentSegmentSize;
+			while (record.hasRemaining()) {
+				currentSegmentSize += segments.get(currentSegment).write(record, currentSegmentSize);
+			}
+			totalSize += record.limit();
+
+			lock.writeLock().lock();
+			try {
+				if (putSlot(index, capacity, keyBytes, currentSegment, (int) offset, bytes.length)) {
+					usedSlots++;
+					index.putInt(8, usedSlots);
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Cannot write a depiction into the depiction store", e);
+		}
+	}
+
+	/**
+	 * Flushes the index and closes all files.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!indexChannel.isOpen()) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			index.force();
+			indexChannel.close();
+			for (FileChannel channel : segments.values()) {
+				channel.close();
+			}
+			segments.clear();
+		} finally {
+			lock.writeLock().unlock();
+			lockChannel.close();
+		}
+	}
+
+	/**
+	 * Rebuilds the index from the records of all segments. Records of later
+	 * segments replace records of earlier segments with the same key. If the
+	 * index is still too full, the oldest segments are deleted. The new index is
+	 * built in memory, so readers continue to use the old index until it is
+	 * replaced.
+	 */
+	synchronized void compact() throws IOException {
+		while (true) {
+			ByteBuffer newIndex = ByteBuffer.allocate((int) indexLength(capacity));
+			newIndex.putInt(0, INDEX_MAGIC);
+			newIndex.putInt(4, capacity);
+			for (Map.Entry<Integer, FileChannel> entry : segments.entrySet()) {
+				indexSegment(newIndex, entry.getKey(), entry.getValue());
+			}
+
+			int newUsedSlots = newIndex.getInt(8);
+			if ((newUsedSlots < capacity / 2) || (segments.size() <= 1)) {
+				lock.writeLock().lock();
+				try {
+					index.put(0, newIndex.array());
+					usedSlots = newUsedSlots;
+				} finally {
+					lock.writeLock().unlock();
+				}
+				return;
+			}
+
+			lock.writeLock().lock();
+			try {
+				deleteOldestSegment();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	private void openSegments() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				int segment;
+				try {
+					segment = Integer.parseInt(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+				} catch (NumberFormatException e) {
+					continue;
+				}
+
+				FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				segments.put(segment, channel);
+				totalSize += channel.size();
+			}
+		}
+	}
+
+	private void startSegment(int segment) throws IOException {
+		FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segments.put(segment, channel);
+		currentSegment = segment;
+		currentSegmentSize = 0;
+	}
+
+	/*
+	 * Deletes the oldest segments until the store does not exceed its maximum
+	 * size. The current segment is never deleted.
+	 */
+	private void evict() throws IOException {
+		while ((totalSize > maxSize) && (segments.size() > 1)) {
+			deleteOldestSegment();
+		}
+	}
+
+	private void deleteOldestSegment() throws IOException {
+		Map.Entry<Integer, FileChannel> oldest = segments.pollFirstEntry();
+		totalSize -= oldest.getValue().size();
+		oldest.getValue().close();
+		Files.deleteIfExists(segmentFile(oldest.getKey()));
+	}
+
+	/*
+	 * Adds the records of a segment to the given index. The scan stops at the
+	 * first incomplete or corrupt record.
+	 */
+	private void indexSegment(ByteBuffer newIndex, int segment, FileChannel channel) throws IOException {
+		long size = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+		byte[] keyBytes = new byte[KEY_LENGTH];
+
+		long offset = 0;
+		while (offset + RECORD_HEADER_LENGTH <= size) {
+			header.clear();
+			readFully(channel, header, offset);
+			header.flip();
+
+			int magic = header.getInt();
+			header.get(keyBytes);
+			int length = header.getInt();
+			if ((magic != RECORD_MAGIC) || (length < 0) || (offset + RECORD_HEADER_LENGTH + length > size)) {
+				return;
+			}
+
+			if (putSlot(newIndex, capacity, keyBytes, segment, (int) offset, length)) {
+				newIndex.putInt(8, newIndex.getInt(8) + 1);
+			}
+			offset += RECORD_HEADER_LENGTH + length;
+		}
+	}
+
+	private boolean isIndexFull() {
+		return usedSlots >= capacity * 3 / 4;
+	}
+
+	/*
+	 * Returns true if a complete record of the key is stored. Only called by
+	 * writers, which do not need the read lock.
+	 */
+	private boolean isStored(byte[] keyBytes) {
+		int position = slotPosition(findSlot(index, capacity, keyBytes));
+		FileChannel channel = segments.get(index.getInt(position + KEY_LENGTH) - 1);
+		if (channel == null) {
+			return false;
+		}
+
+		int offset = index.getInt(position + KEY_LENGTH + 4);
+		int length = index.getInt(position + KEY_LENGTH + 8);
+		try {
+			if ((long) offset + RECORD_HEADER_LENGTH + length > channel.size()) {
+				return false;
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+			readFully(channel, header, offset);
+			return isRecord(header, keyBytes, length);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Returns true if the key has been added to a new slot.
+	 */
+	private static boolean putSlot(ByteBuffer index, int capacity, byte[] keyBytes, int segment, int offset,
+			int length) {
+		int position = slotPosition(findSlot(index, capacity, keyBytes));
+		boolean added = index.getInt(position + KEY_LENGTH) == 0;
+
+		index.put(position, keyBytes);
+		index.putInt(position + KEY_LENGTH, segment + 1);
+		index.putInt(position + KEY_LENGTH + 4, offset);
+		index.putInt(position + KEY_LENGTH + 8, length);
+
+		return added;
+	}
+
+	/*
+	 * Returns the slot of the key or the empty slot where the key would be
+	 * inserted (linear probing). The index always contains empty slots, because
+	 * it is compacted before it fills up.
+	 */
+	private static int findSlot(ByteBuffer index, int capacity, byte[] keyBytes) {
+		int mask = capacity - 1;
+		int slot = ByteBuffer.wrap(keyBytes).getInt() & mask;
+		byte[] slotKey = new byte[KEY_LENGTH];
+
+		while (true) {
+			int position = slotPosition(slot);
+			if (index.getInt(position + KEY_LENGTH) == 0) {
+				return slot;
+			}
+
+			index.get(position, slotKey);
+			if (Arrays.equals(slotKey, keyBytes)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private boolean isRecord(ByteBuffer record, byte[] keyBytes, int length) {
+		record.flip();
+		if (record.getInt() != RECORD_MAGIC) {
+			return false;
+		}
+
+		byte[] recordKey = new byte[KEY_LENGTH];
+		record.get(recordKey);
+
+		return Arrays.equals(recordKey, keyBytes) && (record.getInt() == length);
+	}
+
+	private Path segmentFile(int segment) {
+		return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+
+	private static byte[] parseKey(String key) {
+		if ((key == null) || (key.length() != 2 * KEY_LENGTH)) {
+			throw new IllegalArgumentException("Invalid depiction key: " + key);
+		}
+
+		byte[] bytes = new byte[KEY_LENGTH];
+		for (int i = 0; i < KEY_LENGTH; i++) {
+			int high = Character.digit(key.charAt(2 * i), 16);
+			int low = Character.digit(key.charAt(2 * i + 1), 16);
+			if ((high < 0) || (low < 0)) {
+				throw new IllegalArgumentException("Invalid depiction key: " + key);
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+
+		return bytes;
+	}
+
+	private static int slotPosition(int slot) {
+		return INDEX_HEADER_LENGTH + slot * SLOT_LENGTH;
+	}
+
+	private static long indexLength(int capacity) {
+		return INDEX_HEADER_LENGTH + (long) capacity * SLOT_LENGTH;
+	}
+
+	/*
+	 * Power of two that leaves room for the expected number of records.
+	 */
+	private static int capacityFor(long maxSize) {
+		long records = 2 * maxSize / AVERAGE_RECORD_LENGTH;
+		int capacity = MIN_CAPACITY;
+		while ((capacity < records) && (capacity < (1 << 24))) {
+			capacity <<= 1;
+		}
+
+		return capacity;
+	}
+}
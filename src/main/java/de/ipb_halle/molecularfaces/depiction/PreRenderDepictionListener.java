@@ -0,0 +1,106 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.UIViewRoot;
+import jakarta.faces.component.visit.VisitCallback;
+import jakarta.faces.component.visit.VisitContext;
+import jakarta.faces.component.visit.VisitHint;
+import jakarta.faces.component.visit.VisitResult;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.PartialViewContext;
+import jakarta.faces.event.AbortProcessingException;
+import jakarta.faces.event.PreRenderViewEvent;
+import jakarta.faces.event.SystemEvent;
+import jakarta.faces.event.SystemEventListener;
+import jakarta.faces.render.Renderer;
+
+/**
+ * This {@link SystemEventListener} collects the server-side depictions of all
+ * components that are about to be rendered. It visits the rendered components
+ * of the view (or the components to be rendered by an AJAX request) and lets
+ * their renderers submit depiction jobs if they implement
+ * {@link DepictionJobProvider}. The jobs run concurrently on the
+ * {@link DepictionExecutor} while the view is rendered. The listener is
+ * registered in the faces-config.xml of this library.
+ * 
+ * @author flange
+ */
+public class PreRenderDepictionListener implements SystemEventListener {
+	@Override
+	public void processEvent(SystemEvent event) throws AbortProcessingException {
+		if (!(event instanceof PreRenderViewEvent)) {
+			return;
+		}
+
+		FacesContext context = FacesContext.getCurrentInstance();
+		UIViewRoot viewRoot = context.getViewRoot();
+		if (viewRoot == null) {
+			return;
+		}
+
+		Collection<String> renderIds = null;
+		PartialViewContext partialViewContext = context.getPartialViewContext();
+		if (partialViewContext.isAjaxRequest() && !partialViewContext.isRenderAll()) {
+			renderIds = partialViewContext.getRenderIds();
+			if (renderIds.isEmpty()) {
+				return;
+			}
+		}
+
+		Set<VisitHint> hints = EnumSet.of(VisitHint.SKIP_UNRENDERED);
+		VisitContext subtreeContext = VisitContext.createVisitContext(context, null, hints);
+		VisitCallback callback = (visit, target) -> {
+			submitDepictionJobs(context, target);
+			return VisitResult.ACCEPT;
+		};
+
+		if (renderIds == null) {
+			viewRoot.visitTree(subtreeContext, callback);
+		} else {
+			// visit the complete subtrees of the components to be rendered
+			viewRoot.visitTree(VisitContext.createVisitContext(context, renderIds, hints), (visit, target) -> {
+				target.visitTree(subtreeContext, callback);
+				return VisitResult.REJECT;
+			});
+		}
+	}
+
+	private void submitDepictionJobs(FacesContext context, UIComponent component) {
+		String rendererType = component.getRendererType();
+		if (rendererType == null) {
+			return;
+		}
+
+		Renderer renderer = context.getRenderKit().getRenderer(component.getFamily(), rendererType);
+		if (renderer instanceof DepictionJobProvider) {
+			((DepictionJobProvider) renderer).submitDepictionJobs(context, component,
+					DepictionJobs.getInstance(context));
+		}
+	}
+
+	@Override
+	public boolean isListenerForSource(Object source) {
+		return source instanceof UIViewRoot;
+	}
+}
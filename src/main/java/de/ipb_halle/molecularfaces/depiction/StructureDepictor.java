@@ -0,0 +1,185 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import java.io.StringReader;
+import java.util.regex.Pattern;
+
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.depict.Depiction;
+import org.openscience.cdk.depict.DepictionGenerator;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.ISimpleChemObjectReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV3000Reader;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Renders static SVG depictions of chemical structures on the server side via
+ * the CDK's {@link DepictionGenerator}.
+ * <p>
+ * Instances of this class are immutable and can be shared between threads.
+ * 
+ * @author flange
+ */
+public class StructureDepictor {
+	private static final String SVG_START_TAG = "<svg";
+	private static final Pattern GENERATED_ID_PATTERN = Pattern.compile(" id='mol\\d+[a-z0-9]*'");
+
+	/**
+	 * Name of the depicting plugin that is part of the keys (see
+	 * {@link DepictionKey}).
+	 */
+	public static final String PLUGIN_NAME = "CDK";
+
+	private final DepictionGenerator generator;
+	private final int width;
+	private final int height;
+
+	/**
+	 * Creates a depictor that renders SVG images of the given size. Molecules are
+	 * scaled to fit into the image.
+	 * 
+	 * @param width  width of the image in pixels
+	 * @param height height of the image in pixels
+	 */
+	public StructureDepictor(int width, int height) {
+		generator = new DepictionGenerator().withSize(width, height).withFillToFit();
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Renders the given molecule as SVG. Molecules without 2D coordinates are laid
+	 * out automatically without modifying the given object.
+	 * 
+	 * @param molecule molecule to depict
+	 * @return SVG &lt;svg&gt; element without XML prolog or an empty string
+	 *         if {@code molecule} is {@code null}
+	 * @throws CDKException if the depiction fails
+	 */
+	public String depictSvg(IAtomContainer molecule) throws CDKException {
+		if (molecule == null) {
+			return "";
+		}
+
+		Depiction depiction = generator.depict(molecule);
+
+		return toEmbeddableSvg(depiction.toSvgStr(Depiction.UNITS_PX));
+	}
+
+	/**
+	 * Renders the given MDL Molfile as SVG.
+	 * 
+	 * @param molfile MDL Molfile in V2000 or V3000 format
+	 * @param v3000   {@code true} if {@code molfile} is in V3000 format
+	 * @return SVG &lt;svg&gt; element without XML prolog or an empty string
+	 *         if {@code molfile} is {@code null} or empty
+	 * @throws CDKException if reading or depicting the molecule fails
+	 */
+	public String depictSvg(String molfile, boolean v3000) throws CDKException {
+		if ((molfile == null) || molfile.isEmpty()) {
+			return "";
+		}
+
+		return depictSvg(readMolfile(molfile, v3000));
+	}
+
+	/**
+	 * Renders the given MDL Molfile as SVG like
+	 * {@link #depictSvg(String, boolean)}, but returns the depiction from the
+	 * given store if it has already been stored. New depictions are added to the
+	 * store.
+	 * 
+	 * @param molfile MDL Molfile in V2000 or V3000 format
+	 * @param v3000   {@code true} if {@code molfile} is in V3000 format
+	 * @param store   persistent depiction store or {@code null}
+	 * @return SVG &lt;svg&gt; element without XML prolog or an empty string
+	 *         if {@code molfile} is {@code null} or empty
+	 * @throws CDKException if reading or depicting the molecule fails
+	 */
+	public String depictSvg(String molfile, boolean v3000, DepictionStore store) throws CDKException {
+		if ((store == null) || (molfile == null) || molfile.isEmpty()) {
+			return depictSvg(molfile, v3000);
+		}
+
+		String key = DepictionKey.compute(PLUGIN_NAME, width, height, molfile);
+		String svg = store.get(key);
+		if (svg == null) {
+			svg = depictSvg(molfile, v3000);
+			store.put(key, svg);
+		}
+
+		return svg;
+	}
+
+	/**
+	 * Renders the given SMILES as SVG like {@link #depictSvg(IAtomContainer)}
+	 * with the depiction store like
+	 * {@link #depictSvg(String, boolean, DepictionStore)}.
+	 * 
+	 * @param smiles SMILES string
+	 * @param store  persistent depiction store or {@code null}
+	 * @return SVG &lt;svg&gt; element without XML prolog or an empty string
+	 *         if {@code smiles} is {@code null} or empty
+	 * @throws CDKException if reading or depicting the molecule fails
+	 */
+	public String depictSmilesSvg(String smiles, DepictionStore store) throws CDKException {
+		if ((smiles == null) || smiles.isEmpty()) {
+			return "";
+		}
+
+		String key = (store != null) ? DepictionKey.compute(PLUGIN_NAME, width, height, smiles) : null;
+		String svg = (key != null) ? store.get(key) : null;
+		if (svg == null) {
+			svg = depictSvg(new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(smiles));
+			if (key != null) {
+				store.put(key, svg);
+			}
+		}
+
+		return svg;
+	}
+
+	private IAtomContainer readMolfile(String molfile, boolean v3000) throws CDKException {
+		StringReader in = new StringReader(molfile);
+		try (ISimpleChemObjectReader reader = v3000 ? new MDLV3000Reader(in) : new MDLV2000Reader(in)) {
+			return reader.read(new AtomContainer());
+		} catch (CDKException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+	}
+
+	/*
+	 * Removes the XML prolog (declaration and DOCTYPE) in order to embed the SVG
+	 * into HTML and the element ids generated by the CDK, which would be
+	 * duplicated if a page contains more than one depiction.
+	 */
+	private String toEmbeddableSvg(String svg) {
+		int start = svg.indexOf(SVG_START_TAG);
+		if (start > 0) {
+			svg = svg.substring(start);
+		}
+
+		return GENERATED_ID_PATTERN.matcher(svg).replaceAll("").trim();
+	}
+}
@@ -17,16 +17,20 @@
  */
 package de.ipb_halle.molecularfaces.util;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.Collections;
-import java.util.Formatter;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import jakarta.faces.application.ResourceHandler;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.component.UIOutput;
 import jakarta.faces.component.html.HtmlBody;
+import jakarta.faces.context.ExternalContext;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.event.AbortProcessingException;
 import jakarta.faces.event.ComponentSystemEvent;
@@ -67,6 +71,11 @@ public class ResourceLoader implements ComponentSystemEventListener, Serializabl
 	 */
 	public static final String STYLESHEET = "jakarta.faces.resource.Stylesheet";
 
+	/*
+	 * Optional suffix of an extension-mapped FacesServlet after a resource name.
+	 */
+	private static final Pattern MAPPING_SUFFIX = Pattern.compile("(\\.[^./]+)?");
+
 	private final UIComponent component;
 
 	/*
@@ -90,6 +99,33 @@ public class ResourceLoader implements ComponentSystemEventListener, Serializabl
 		component.subscribeToEvent(PostAddToViewEvent.class, this);
 	}
 
+	/**
+	 * Checks if the request addresses the given resource of the library
+	 * {@value #RESOURCES_LIBRARY_NAME}. The path of the request (the path info of
+	 * a prefix-mapped or the servlet path of an extension-mapped FacesServlet)
+	 * must consist of the resource identifier and the resource name, which may
+	 * only be followed by the suffix of the extension mapping (e.g. ".xhtml").
+	 * 
+	 * @param context      {@link FacesContext} for the request we are processing
+	 * @param resourceName name of the resource
+	 * @return {@code true} if the request addresses the resource
+	 */
+	public static boolean isLibraryResourceRequest(FacesContext context, String resourceName) {
+		ExternalContext externalContext = context.getExternalContext();
+		if (!RESOURCES_LIBRARY_NAME.equals(externalContext.getRequestParameterMap().get("ln"))) {
+			return false;
+		}
+
+		String path = externalContext.getRequestPathInfo();
+		if (path == null) {
+			path = externalContext.getRequestServletPath();
+		}
+		String resourcePath = ResourceHandler.RESOURCE_IDENTIFIER + '/' + resourceName;
+
+		return (path != null) && path.startsWith(resourcePath)
+				&& MAPPING_SUFFIX.matcher(path.substring(resourcePath.length())).matches();
+	}
+
 	@Override
 	public void processEvent(ComponentSystemEvent event) throws AbortProcessingException {
 		if (event instanceof PostAddToViewEvent) {
@@ -343,24 +379,47 @@ public class ResourceLoader implements ComponentSystemEventListener, Serializabl
 	 */
 	public StringBuilder encodeLoadExtResources(String loaderJSVar) {
 		StringBuilder sb = new StringBuilder(256);
-		Formatter fmt = new Formatter(sb);
+		try {
+			writeLoadExtResources(sb, loaderJSVar);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOExceptions.
+			throw new UncheckedIOException(e);
+		}
 
+		return sb;
+	}
+
+	/**
+	 * Writes a JavaScript code fragment for loading resources that have been
+	 * enqueued for loading via {@code molecularfaces.ResourcesLoader} into the
+	 * given target. Nothing is written if there are no resources to load.
+	 * 
+	 * @param out         target (e.g. the {@link jakarta.faces.context.ResponseWriter})
+	 * @param loaderJSVar JavaScript variable name of the
+	 *                    {@code molecularfaces.ResourcesLoader} instance
+	 * @throws IOException if writing fails
+	 */
+	public void writeLoadExtResources(Appendable out, String loaderJSVar) throws IOException {
+		if (scriptsExtToLoadInHead.isEmpty() && scriptsExtToLoadInBodyAtTop.isEmpty() && cssExtToLoad.isEmpty()) {
+			return;
+		}
+
+		out.append(loaderJSVar);
 		for (String script : scriptsExtToLoadInHead) {
-			fmt.format(".addScriptToHead(\"%s\")", script);
+			writeLoaderCall(out, ".addScriptToHead(\"", script);
 		}
 		for (String script : scriptsExtToLoadInBodyAtTop) {
-			fmt.format(".addScriptToBodyAtTop(\"%s\")", script);
+			writeLoaderCall(out, ".addScriptToBodyAtTop(\"", script);
 		}
 		for (String href : cssExtToLoad) {
-			fmt.format(".addCssToHead(\"%s\")", href);
-		}
-		fmt.close();
-
-		if (sb.length() > 0) {
-			sb.insert(0, loaderJSVar);
-			sb.append(";");
+			writeLoaderCall(out, ".addCssToHead(\"", href);
 		}
+		out.append(';');
+	}
 
-		return sb;
+	private void writeLoaderCall(Appendable out, String functionStart, String url) throws IOException {
+		out.append(functionStart);
+		ScriptTemplate.writeEscaped(out, url);
+		out.append("\")");
 	}
 }
@@ -0,0 +1,302 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A precompiled template for JavaScript code. The template string is split into
+ * its constant fragments and parameter slots once, so rendering a template does
+ * not parse anything and writes the fragments and arguments directly into the
+ * target (e.g. a {@link jakarta.faces.context.ResponseWriter}).
+ * <p>
+ * Slots in the template string:
+ * <ul>
+ * <li><code>%s</code>: the argument is escaped to be used inside a JavaScript
+ * string literal (see {@link #writeEscaped(Appendable, CharSequence)})</li>
+ * <li><code>%r</code>: the argument is written as is (e.g. numbers, variable
+ * names or JavaScript code)</li>
+ * <li><code>%%</code>: a literal percent sign</li>
+ * </ul>
+ * Instances of this class are immutable and can be shared between threads.
+ * 
+ * @author flange
+ */
+public final class ScriptTemplate {
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private final String[] fragments;
+	private final boolean[] escapeSlot;
+
+	private ScriptTemplate(String[] fragments, boolean[] escapeSlot) {
+		this.fragments = fragments;
+		this.escapeSlot = escapeSlot;
+	}
+
+	/**
+	 * Compiles the given template string.
+	 * 
+	 * @param template template string
+	 * @return compiled template
+	 * @throws IllegalArgumentException if the template string contains an unknown
+	 *                                  slot
+	 */
+	public static ScriptTemplate compile(String template) {
+		List<String> fragments = new ArrayList<>();
+		List<Boolean> escapeSlot = new ArrayList<>();
+		StringBuilder fragment = new StringBuilder();
+
+		for (int i = 0; i < template.length(); i++) {
+			char c = template.charAt(i);
+			if (c != '%') {
+				fragment.append(c);
+				continue;
+			}
+
+			char next = (i + 1 < template.length()) ? template.charAt(i + 1) : 0;
+			i++;
+			if (next == '%') {
+				fragment.append('%');
+			} else if ((next == 's') || (next == 'r')) {
+				fragments.add(fragment.toString());
+				escapeSlot.add(next == 's');
+				fragment.setLength(0);
+			} else {
+				throw new IllegalArgumentException("Unknown slot at index " + (i - 1) + " in template: " + template);
+			}
+		}
+		fragments.add(fragment.toString());
+
+		boolean[] escape = new boolean[escapeSlot.size()];
+		for (int i = 0; i < escape.length; i++) {
+			escape[i] = escapeSlot.get(i);
+		}
+
+		return new ScriptTemplate(fragments.toArray(new String[0]), escape);
+	}
+
+	/**
+	 * @return number of parameter slots of this template
+	 */
+	public int getSlotCount() {
+		return escapeSlot.length;
+	}
+
+	/**
+	 * Writes the template with the given arguments into the target.
+	 * 
+	 * @param out  target
+	 * @param args one argument per slot; {@code null} is written as "null"
+	 * @throws IOException              if writing fails
+	 * @throws IllegalArgumentException if the number of arguments does not match
+	 *                                  the number of slots
+	 */
+	public void write(Appendable out, String... args) throws IOException {
+		if (args.length != escapeSlot.length) {
+			throw new IllegalArgumentException(
+					"Template expects " + escapeSlot.length + " arguments, but got " + args.length);
+		}
+
+		for (int i = 0; i < escapeSlot.length; i++) {
+			out.append(fragments[i]);
+
+			String arg = (args[i] == null) ? "null" : args[i];
+			if (escapeSlot[i]) {
+				writeEscaped(out, arg);
+			} else {
+				out.append(arg);
+			}
+		}
+		out.append(fragments[escapeSlot.length]);
+	}
+
+	/**
+	 * Applies the given arguments to the template.
+	 * 
+	 * @param args one argument per slot; {@code null} is written as "null"
+	 * @return the resulting JavaScript code
+	 * @throws IllegalArgumentException if the number of arguments does not match
+	 *                                  the number of slots
+	 */
+	public String apply(String... args) {
+		StringBuilder sb = new StringBuilder(256);
+		try {
+			write(sb, args);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOExceptions.
+			throw new UncheckedIOException(e);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the given value escaped for the use inside a single- or double-quoted
+	 * JavaScript string literal. Besides quotes, backslashes and line
+	 * terminators (including U+2028 and U+2029), the characters '&lt;' and
+	 * '&gt;' are escaped, so the value cannot terminate the surrounding
+	 * &lt;script&gt; element.
+	 * 
+	 * @param out   target
+	 * @param value value to be escaped
+	 * @throws IOException if writing fails
+	 */
+	public static void writeEscaped(Appendable out, CharSequence value) throws IOException {
+		int length = value.length();
+		int start = 0;
+
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			String replacement;
+
+			switch (c) {
+			case '"':
+				replacement = "\\\"";
+				break;
+			case '\'':
+				replacement = "\\'";
+				break;
+			case '\\':
+				replacement = "\\\\";
+				break;
+			case '\n':
+				replacement = "\\n";
+				break;
+			case '\r':
+				replacement = "\\r";
+				break;
+			case '<':
+			case '>':
+			case '\u2028':
+			case '\u2029':
+				replacement = null;
+				break;
+			default:
+				continue;
+			}
+
+			// flush the unescaped run
+			out.append(value, start, i);
+			start = i + 1;
+
+			if (replacement != null) {
+				out.append(replacement);
+			} else {
+				writeUnicodeEscape(out, c);
+			}
+		}
+
+		out.append(value, start, length);
+	}
+
+	/**
+	 * Writes the given value as double-quoted JSON string. Besides quotes,
+	 * backslashes and control characters, the characters '&lt;', '&gt;', U+2028
+	 * and U+2029 are escaped, so the string can be embedded into a
+	 * &lt;script&gt; element.
+	 * 
+	 * @param out   target
+	 * @param value value to be written or {@code null}, which is written as JSON
+	 *              <code>null</code>
+	 * @throws IOException if writing fails
+	 */
+	public static void writeJsonString(Appendable out, CharSequence value) throws IOException {
+		if (value == null) {
+			out.append("null");
+			return;
+		}
+
+		int length = value.length();
+		int start = 0;
+
+		out.append('"');
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			String replacement;
+
+			switch (c) {
+			case '"':
+				replacement = "\\\"";
+				break;
+			case '\\':
+				replacement = "\\\\";
+				break;
+			case '\n':
+				replacement = "\\n";
+				break;
+			case '\r':
+				replacement = "\\r";
+				break;
+			case '\t':
+				replacement = "\\t";
+				break;
+			case '<':
+			case '>':
+			case '\u2028':
+			case '\u2029':
+				replacement = null;
+				break;
+			default:
+				if (c >= 0x20) {
+					continue;
+				}
+				replacement = null;
+			}
+
+			// flush the unescaped run
+			out.append(value, start, i);
+			start = i + 1;
+
+			if (replacement != null) {
+				out.append(replacement);
+			} else {
+				writeUnicodeEscape(out, c);
+			}
+		}
+
+		out.append(value, start, length);
+		out.append('"');
+	}
+
+	private static void writeUnicodeEscape(Appendable out, char c) throws IOException {
+		out.append("\\u").append(HEX_DIGITS[(c >> 12) & 0xF]).append(HEX_DIGITS[(c >> 8) & 0xF])
+				.append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+	}
+
+	/**
+	 * Escapes the given value for the use inside a JavaScript string literal.
+	 * 
+	 * @param value value to be escaped
+	 * @return escaped value
+	 * @see #writeEscaped(Appendable, CharSequence)
+	 */
+	public static String escape(CharSequence value) {
+		StringBuilder sb = new StringBuilder(value.length() + 16);
+		try {
+			writeEscaped(sb, value);
+		} catch (IOException e) {
+			// StringBuilder does not throw IOExceptions.
+			throw new UncheckedIOException(e);
+		}
+
+		return sb.toString();
+	}
+}
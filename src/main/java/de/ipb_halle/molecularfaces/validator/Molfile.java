@@ -63,7 +63,11 @@ public @interface Molfile {
 		/**
 		 * MDL Molfile V3000
 		 */
-		V3000;
+		V3000,
+		/**
+		 * MDL Molfile V2000 or V3000, detected from the counts line of the molfile
+		 */
+		AUTO;
 	}
 
 	Format format() default Format.V2000;
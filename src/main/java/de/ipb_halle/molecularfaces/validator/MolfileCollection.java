@@ -0,0 +1,57 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.validator;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+/**
+ * Molfile check constraint for collections of molfiles. Large collections are
+ * checked in parallel. Each invalid molfile is reported as a constraint
+ * violation with its index in the property path.
+ * 
+ * @author flange
+ */
+@Target({ FIELD, METHOD, PARAMETER, ANNOTATION_TYPE, TYPE_USE })
+@Retention(RUNTIME)
+@Constraint(validatedBy = MolfileCollectionValidator.class)
+@Documented
+public @interface MolfileCollection {
+	String message() default "invalid MDL Molfile";
+
+	Class<?>[] groups() default {};
+
+	Class<? extends Payload>[] payload() default {};
+
+	Molfile.Mode mode() default Molfile.Mode.RELAXED;
+
+	Molfile.Format format() default Molfile.Format.V2000;
+
+	/**
+	 * Stop the check after the first invalid molfile has been found. Parallel
+	 * checks may report a few more invalid molfiles that were checked at the
+	 * same time.
+	 */
+	boolean failFast() default false;
+}
@@ -0,0 +1,127 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.validator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import de.ipb_halle.molecularfaces.validator.Molfile.Format;
+
+/**
+ * Checks that all Strings of a given collection are valid MDL Molfiles
+ * according to the CDK library (see {@link MolfileValidator}). Collections
+ * with more than {@link #CHUNK_SIZE} elements are split into chunks that are
+ * checked on the common {@link ForkJoinPool}, whose parallelism is bounded by
+ * the number of available processors.
+ * 
+ * @author flange
+ */
+public class MolfileCollectionValidator implements ConstraintValidator<MolfileCollection, Collection<String>> {
+	/**
+	 * Maximum number of molfiles that are checked in one task. Collections of at
+	 * most this size are checked in the calling thread.
+	 */
+	public static final int CHUNK_SIZE = 16;
+
+	private Molfile.Mode mode;
+	private Format format;
+	private boolean failFast;
+
+	@Override
+	public void initialize(MolfileCollection constraintAnnotation) {
+		mode = constraintAnnotation.mode();
+		format = constraintAnnotation.format();
+		failFast = constraintAnnotation.failFast();
+	}
+
+	@Override
+	public boolean isValid(Collection<String> value, ConstraintValidatorContext context) {
+		if ((value == null) || value.isEmpty()) {
+			return true;
+		}
+
+		List<String> molfiles = new ArrayList<>(value);
+		boolean[] invalid = new boolean[molfiles.size()];
+		ValidationTask task = new ValidationTask(molfiles, invalid, new AtomicBoolean(), 0, invalid.length);
+		if (invalid.length <= CHUNK_SIZE) {
+			task.compute();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+
+		// one violation per invalid molfile
+		boolean valid = true;
+		for (int i = 0; i < invalid.length; i++) {
+			if (invalid[i]) {
+				if (valid) {
+					context.disableDefaultConstraintViolation();
+					valid = false;
+				}
+				context.buildConstraintViolationWithTemplate(context.getDefaultConstraintMessageTemplate())
+						.addBeanNode().inIterable().atIndex(i).addConstraintViolation();
+			}
+		}
+
+		return valid;
+	}
+
+	/*
+	 * Splits the range of molfiles in halves until it contains at most
+	 * CHUNK_SIZE molfiles.
+	 */
+	private class ValidationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<String> molfiles;
+		private final boolean[] invalid;
+		private final AtomicBoolean failed;
+		private final int start;
+		private final int end;
+
+		private ValidationTask(List<String> molfiles, boolean[] invalid, AtomicBoolean failed, int start, int end) {
+			this.molfiles = molfiles;
+			this.invalid = invalid;
+			this.failed = failed;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= CHUNK_SIZE) {
+				for (int i = start; (i < end) && !(failFast && failed.get()); i++) {
+					if (!MolfileValidator.isValidMolfile(molfiles.get(i), format, mode)) {
+						invalid[i] = true;
+						failed.set(true);
+					}
+				}
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new ValidationTask(molfiles, invalid, failed, start, middle),
+						new ValidationTask(molfiles, invalid, failed, middle, end));
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.validator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import jakarta.faces.application.Resource;
+import jakarta.faces.application.ResourceHandler;
+import jakarta.faces.application.ResourceHandlerWrapper;
+import jakarta.faces.context.ExternalContext;
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.util.ResourceLoader;
+import de.ipb_halle.molecularfaces.validator.Molfile.Format;
+import de.ipb_halle.molecularfaces.validator.Molfile.Mode;
+
+/**
+ * This {@link ResourceHandler} serves the live validation resource
+ * {@value #RESOURCE_NAME} of the library
+ * {@value ResourceLoader#RESOURCES_LIBRARY_NAME}. The resource checks the
+ * molfile in the request parameter {@value #MOLFILE_PARAM} according to the
+ * rules of {@link MolfileValidator} and answers with a JSON object like
+ * <code>{"valid":true}</code>. The optional request parameters
+ * {@value #FORMAT_PARAM} and {@value #MODE_PARAM} take the names of the
+ * constants of {@link Format} and {@link Mode} (default: V2000 and RELAXED).
+ * Molfiles that are longer than allowed by the context-param
+ * {@link #WEBXML_MAX_MOLFILE_LENGTH} are rejected with status
+ * 400. The results are cached in the {@link ValidationCache}.
+ * <p>
+ * Editors with <code>liveValidation="true"</code> call this resource via POST
+ * requests after their molecule has changed, which is much cheaper than a
+ * partial request with the full JSF lifecycle.
+ * <p>
+ * All other resource requests are delegated to the wrapped handler.
+ * 
+ * @author flange
+ */
+public class MolfileValidationResourceHandler extends ResourceHandlerWrapper {
+	/**
+	 * Name of the live validation resource.
+	 */
+	public static final String RESOURCE_NAME = "validation.json";
+
+	/**
+	 * Name of the request parameter that carries the molfile.
+	 */
+	public static final String MOLFILE_PARAM = "molfile";
+
+	/**
+	 * Name of the request parameter that carries the format of the molfile.
+	 */
+	public static final String FORMAT_PARAM = "format";
+
+	/**
+	 * Name of the request parameter that carries the mode of the check.
+	 */
+	public static final String MODE_PARAM = "mode";
+
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum length of
+	 * a molfile in characters, which is accepted by the live validation resource.
+	 */
+	public static final String WEBXML_MAX_MOLFILE_LENGTH = "de.ipb_halle.molecularfaces.MAX_MOLFILE_LENGTH";
+
+	/**
+	 * Default maximum length of a molfile in characters, which is enough for a
+	 * V2000 molfile with 999 atoms and 999 bonds.
+	 */
+	public static final int DEFAULT_MAX_MOLFILE_LENGTH = 1 << 17;
+
+	public MolfileValidationResourceHandler(ResourceHandler wrapped) {
+		super(wrapped);
+	}
+
+	/**
+	 * Returns the URL of the live validation resource without request
+	 * parameters.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return URL or {@code null} if the resource cannot be found
+	 */
+	public static String getResourceUrl(FacesContext context) {
+		Resource resource = context.getApplication().getResourceHandler().createResource(RESOURCE_NAME,
+				ResourceLoader.RESOURCES_LIBRARY_NAME);
+
+		return (resource != null) ? resource.getRequestPath() : null;
+	}
+
+	@Override
+	public void handleResourceRequest(FacesContext context) throws IOException {
+		if (isValidationRequest(context)) {
+			handleValidationRequest(context);
+		} else {
+			super.handleResourceRequest(context);
+		}
+	}
+
+	/**
+	 * Checks if the request addresses the live validation resource (see
+	 * {@link ResourceLoader#isLibraryResourceRequest(FacesContext, String)}).
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return {@code true} for requests of the live validation resource
+	 */
+	protected boolean isValidationRequest(FacesContext context) {
+		return ResourceLoader.isLibraryResourceRequest(context, RESOURCE_NAME);
+	}
+
+	private void handleValidationRequest(FacesContext context) throws IOException {
+		ExternalContext externalContext = context.getExternalContext();
+		Map<String, String> params = externalContext.getRequestParameterMap();
+		String molfile = params.get(MOLFILE_PARAM);
+
+		Format format;
+		Mode mode;
+		try {
+			format = Format.valueOf(params.getOrDefault(FORMAT_PARAM, Format.V2000.name()));
+			mode = Mode.valueOf(params.getOrDefault(MODE_PARAM, Mode.RELAXED.name()));
+		} catch (IllegalArgumentException e) {
+			format = null;
+			mode = null;
+		}
+
+		if ((format == null) || ((molfile != null)
+				&& (molfile.length() > MolecularFacesConfig.getInstance(context).getMaxMolfileLength()))) {
+			externalContext.setResponseStatus(400);
+			context.responseComplete();
+			return;
+		}
+
+		boolean valid = ValidationCache.getInstance(context).isValidMolfile(molfile, format, mode);
+
+		externalContext.setResponseContentType("application/json");
+		externalContext.setResponseCharacterEncoding("UTF-8");
+		externalContext.setResponseHeader("Cache-Control", "no-store");
+
+		Writer writer = externalContext.getResponseOutputWriter();
+		writer.append("{\"valid\":").append(Boolean.toString(valid)).append('}');
+		writer.flush();
+
+		context.responseComplete();
+	}
+}
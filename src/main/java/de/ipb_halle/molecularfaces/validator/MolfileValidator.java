@@ -27,6 +27,7 @@ import org.openscience.cdk.io.IChemObjectReader.Mode;
 import org.openscience.cdk.io.MDLV2000Reader;
 import org.openscience.cdk.io.MDLV3000Reader;
 
+import de.ipb_halle.molecularfaces.converter.MDLAutoConverter;
 import de.ipb_halle.molecularfaces.validator.Molfile.Format;
 
 /**
@@ -36,15 +37,38 @@ import de.ipb_halle.molecularfaces.validator.Molfile.Format;
  * @author flange
  */
 public class MolfileValidator implements ConstraintValidator<Molfile, String> {
-	private Mode cdkReaderMode;
+	private Molfile.Mode mode;
 	private Format format;
 
 	@Override
 	public void initialize(Molfile constraintAnnotation) {
+		mode = constraintAnnotation.mode();
 		format = constraintAnnotation.format();
+	}
+
+	@Override
+	public boolean isValid(String value, ConstraintValidatorContext context) {
+		return isValidMolfile(value, format, mode);
+	}
+
+	/**
+	 * Checks if the given String is a valid MDL Molfile according to the CDK
+	 * library.
+	 * 
+	 * @param value  String to check
+	 * @param format expected format of the molfile
+	 * @param mode   strictness of the check
+	 * @return {@code true} if {@code value} is {@code null}, empty or a valid MDL
+	 *         Molfile
+	 */
+	public static boolean isValidMolfile(String value, Format format, Molfile.Mode mode) {
+		if (value == null || value.isEmpty()) {
+			return true;
+		}
 
 		// translation between different enumerations
-		switch (constraintAnnotation.mode()) {
+		Mode cdkReaderMode;
+		switch (mode) {
 		case RELAXED:
 			cdkReaderMode = Mode.RELAXED;
 			break;
@@ -53,23 +77,21 @@ public class MolfileValidator implements ConstraintValidator<Molfile, String> {
 			cdkReaderMode = Mode.STRICT;
 			break;
 		}
-	}
 
-	@Override
-	public boolean isValid(String value, ConstraintValidatorContext context) {
-		if (value == null || value.isEmpty()) {
-			return true;
+		Format molfileFormat = format;
+		if (molfileFormat == Format.AUTO) {
+			molfileFormat = MDLAutoConverter.isV3000(value) ? Format.V3000 : Format.V2000;
 		}
 
 		// try to read the molfile
-		if (format == Format.V2000) {
+		if (molfileFormat == Format.V2000) {
 			try (MDLV2000Reader reader = new MDLV2000Reader(new StringReader(value), cdkReaderMode)) {
 				reader.read(new AtomContainer());
 				return true;
 			} catch (Exception e) {
 				return false;
 			}
-		} else if (format == Format.V3000) {
+		} else if (molfileFormat == Format.V3000) {
 			try (MDLV3000Reader reader = new MDLV3000Reader(new StringReader(value), cdkReaderMode)) {
 				reader.read(new AtomContainer());
 				return true;
@@ -0,0 +1,131 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.validator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.faces.context.FacesContext;
+
+import de.ipb_halle.molecularfaces.config.MolecularFacesConfig;
+import de.ipb_halle.molecularfaces.util.Hashes;
+import de.ipb_halle.molecularfaces.validator.Molfile.Format;
+import de.ipb_halle.molecularfaces.validator.Molfile.Mode;
+
+/**
+ * Application-wide, size-bounded cache of the results of
+ * {@link MolfileValidator#isValidMolfile(String, Format, Mode)}. The results
+ * are addressed by the SHA-256 hash of the molfile, its format and the mode of
+ * the check. The cache keeps at most
+ * {@link MolecularFacesConfig#getValidationCacheSize()} results and evicts the
+ * least recently used ones.
+ * 
+ * @author flange
+ */
+public class ValidationCache {
+	/**
+	 * Name of the context-param in web.xml that specifies the maximum number of
+	 * results in the cache.
+	 */
+	public static final String WEBXML_VALIDATION_CACHE_SIZE = "de.ipb_halle.molecularfaces.VALIDATION_CACHE_SIZE";
+
+	public static final int DEFAULT_VALIDATION_CACHE_SIZE = 10000;
+
+	/**
+	 * Key of the cache in the application map.
+	 */
+	public static final String APPLICATION_MAP_KEY = ValidationCache.class.getName();
+
+	private final Map<String, Boolean> results;
+
+	/**
+	 * Creates a cache.
+	 * 
+	 * @param maxEntries maximum number of results
+	 */
+	public ValidationCache(int maxEntries) {
+		results = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache of the application, which is created if necessary.
+	 * 
+	 * @param context {@link FacesContext} for the request we are processing
+	 * @return cache of the application
+	 */
+	public static ValidationCache getInstance(FacesContext context) {
+		Map<String, Object> applicationMap = context.getExternalContext().getApplicationMap();
+
+		synchronized (ValidationCache.class) {
+			ValidationCache cache = (ValidationCache) applicationMap.get(APPLICATION_MAP_KEY);
+			if (cache == null) {
+				cache = new ValidationCache(MolecularFacesConfig.getInstance(context).getValidationCacheSize());
+				applicationMap.put(APPLICATION_MAP_KEY, cache);
+			}
+
+			return cache;
+		}
+	}
+
+	/**
+	 * Checks if the given String is a valid MDL Molfile like
+	 * {@link MolfileValidator#isValidMolfile(String, Format, Mode)}. Molfiles are
+	 * only read if their result is not cached.
+	 * 
+	 * @param molfile String to check
+	 * @param format  expected format of the molfile
+	 * @param mode    strictness of the check
+	 * @return {@code true} if {@code molfile} is {@code null}, empty or a valid
+	 *         MDL Molfile
+	 */
+	public boolean isValidMolfile(String molfile, Format format, Mode mode) {
+		if ((molfile == null) || molfile.isEmpty()) {
+			return true;
+		}
+
+		String key = Hashes.sha256Hex(format + "\n" + mode + "\n" + molfile);
+		Boolean valid;
+		synchronized (this) {
+			valid = results.get(key);
+		}
+
+		// read outside of the lock, concurrent checks of the same molfile are rare
+		if (valid == null) {
+			valid = MolfileValidator.isValidMolfile(molfile, format, mode);
+			synchronized (this) {
+				results.put(key, valid);
+			}
+		}
+
+		return valid;
+	}
+
+	/**
+	 * @return number of cached results
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * Fetches server-side depictions from the batch depiction resource (see
+ * BatchDepictionResourceHandler.java). Each request carries the keys of up to
+ * BATCH_SIZE depictions and is answered with one JSON object that maps the
+ * keys to SVG images.
+ */
+molecularfaces.BatchDepictions = class {
+	/**
+	 * Fills all elements with the attribute "data-depiction" inside the 
+	 * container with the id given by the parameter "containerId" with the
+	 * depictions of their keys. The parameter "url" specifies the URL of the
+	 * batch depiction resource. Returns a Promise that resolves when all 
+	 * depictions have been inserted.
+	 */
+	static load(containerId, url) {
+		let cellsByKey = new Map();
+		for (let cell of document.getElementById(containerId).querySelectorAll("[data-depiction]")) {
+			let key = cell.getAttribute("data-depiction");
+			if (!cellsByKey.has(key)) {
+				cellsByKey.set(key, []);
+			}
+			cellsByKey.get(key).push(cell);
+		}
+
+		let keys = Array.from(cellsByKey.keys());
+		let batches = [];
+		for (let i = 0; i < keys.length; i += molecularfaces.BatchDepictions.BATCH_SIZE) {
+			let batchKeys = keys.slice(i, i + molecularfaces.BatchDepictions.BATCH_SIZE);
+			batches.push(molecularfaces.BatchDepictions._fetch(url, batchKeys).then((depictions) => {
+				for (let key of batchKeys) {
+					let svg = depictions[key];
+					if (typeof svg === "string") {
+						for (let cell of cellsByKey.get(key)) {
+							cell.innerHTML = svg;
+						}
+					}
+				}
+			}));
+		}
+
+		return Promise.all(batches);
+	}
+
+	static _fetch(url, keys) {
+		let requestUrl = new URL(url, document.baseURI);
+		requestUrl.searchParams.set("keys", keys.join(","));
+
+		return fetch(requestUrl.href, { credentials: "same-origin" })
+			.then((response) => {
+				if (!response.ok) {
+					throw new Error("Batch depiction request failed with status " + response.status);
+				}
+				return response.json();
+			})
+			.catch((error) => {
+				console.error(error);
+				return {};
+			});
+	}
+}
+
+/**
+ * Maximum number of depictions per request.
+ */
+molecularfaces.BatchDepictions.BATCH_SIZE = 64;
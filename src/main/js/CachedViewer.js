@@ -0,0 +1,143 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * This class wraps a viewer plugin with the persistent depiction cache (see 
+ * molecularfaces.DepictionCache). A cached depiction is inserted into the
+ * <div> container without loading the plugin at all. On a cache miss, the
+ * wrapped viewer is created and its depiction is stored in the cache as soon
+ * as it has been inserted into the <div> container.
+ */
+molecularfaces.CachedViewer = class extends molecularfaces.StructurePlugin {
+	/**
+	 * This constructor should not be used directly to receive an instance of
+	 * this class. Use the static factory method "newViewer" instead. 
+	 */
+	constructor(divId, molecule, key, viewerFactory) {
+		super();
+
+		this._divId = divId;
+		this._molecule = molecule;
+		this._key = key;
+		this._viewerFactory = viewerFactory;
+		this._viewerPromise = null;
+	}
+
+	/**
+	 * Returns an initialized cached viewer instance embedded inside a Promise.
+	 * The depiction is rendered in a <div> container with the id given by the
+	 * parameter "divId". The depiction of the molecule given by the parameter
+	 * "molecule" is looked up in the cache under the parameter "key". The 
+	 * parameter "viewerFactory" is a function that loads the plugin's resources
+	 * and returns the wrapped viewer embedded inside a Promise. It is called 
+	 * not before a cache miss or a change of the molecule.
+	 */
+	static newViewer(divId, molecule, key, viewerFactory) {
+		return new molecularfaces.CachedViewer(divId, molecule, key, viewerFactory).init();
+	}
+
+	init() {
+		if (this._viewerPromise !== null) {
+			return this._viewerPromise.then((viewer) => viewer.init()).then(() => this);
+		}
+
+		let key = this._key;
+		return molecularfaces.DepictionCache.getInstance().get(key).then((depiction) => {
+			if ((depiction !== null) && (this._viewerPromise === null)) {
+				document.getElementById(this._divId).innerHTML = depiction;
+				return this;
+			}
+
+			return this._getViewer().then(() => {
+				this._storeWhenDepicted(key);
+				return this;
+			});
+		});
+	}
+
+	/**
+	 * Returns the wrapped viewer embedded inside a Promise. The viewer is 
+	 * created on the first call.
+	 */
+	_getViewer() {
+		if (this._viewerPromise === null) {
+			this._viewerPromise = this._viewerFactory();
+		}
+
+		return this._viewerPromise;
+	}
+
+	/*
+	 * Some plugins resolve their viewer's Promise before the depiction has been
+	 * inserted, thus the <div> container is observed for a limited time.
+	 */
+	_storeWhenDepicted(key) {
+		let div = document.getElementById(this._divId);
+		let store = () => {
+			if (!div.hasChildNodes()) {
+				return false;
+			}
+			// skip outdated depictions if the molecule has been changed in the meantime
+			if (this._key === key) {
+				molecularfaces.DepictionCache.getInstance().put(key, div.innerHTML);
+			}
+			return true;
+		};
+
+		if (store()) {
+			return;
+		}
+
+		let timeout = null;
+		let observer = new MutationObserver(() => {
+			if (store()) {
+				observer.disconnect();
+				clearTimeout(timeout);
+			}
+		});
+		observer.observe(div, { childList: true });
+		timeout = setTimeout(() => observer.disconnect(), molecularfaces.CachedViewer.STORE_TIMEOUT);
+	}
+
+	getMolecule() {
+		return this._molecule;
+	}
+
+	setMolecule(molecule) {
+		if (typeof molecule === "undefined") {
+			return Promise.resolve(this);
+		}
+
+		this._molecule = molecule;
+
+		// The cache key is computed by the server, thus changed molecules are not cached.
+		this._key = null;
+
+		return this._getViewer().then((viewer) => viewer.setMolecule(molecule)).then(() => this);
+	}
+}
+
+/**
+ * Time in milliseconds to wait for the wrapped viewer's depiction before 
+ * giving up to store it in the cache.
+ */
+molecularfaces.CachedViewer.STORE_TIMEOUT = 10000;
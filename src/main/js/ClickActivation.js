@@ -0,0 +1,77 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * This class implements the click activation of editors: The editor is loaded
+ * not before the user activates a static preview of the molecule.
+ */
+molecularfaces.ClickActivation = class {
+	/**
+	 * Calls the function "callback" each time the user activates the element with
+	 * the id given by the parameter "previewId" by a click or by pressing the
+	 * Enter or Space key.
+	 * 
+	 * Returns a function that removes the registered event listeners.
+	 */
+	static onActivate(previewId, callback) {
+		let preview = document.getElementById(previewId);
+
+		let onClick = function() {
+			callback();
+		};
+		let onKeyDown = function(event) {
+			if ((event.key === "Enter") || (event.key === " ")) {
+				event.preventDefault();
+				callback();
+			}
+		};
+
+		preview.addEventListener("click", onClick);
+		preview.addEventListener("keydown", onKeyDown);
+
+		return function() {
+			preview.removeEventListener("click", onClick);
+			preview.removeEventListener("keydown", onKeyDown);
+		};
+	}
+
+	/**
+	 * Returns a Promise that resolves when the user activates the element with
+	 * the id given by the parameter "previewId" for the first time. Upon
+	 * activation, the preview element is hidden and the element with the id
+	 * given by the parameter "targetId" is displayed, if specified.
+	 */
+	static whenClicked(previewId, targetId) {
+		return new Promise((resolve, reject) => {
+			let remove = molecularfaces.ClickActivation.onActivate(previewId, () => {
+				remove();
+
+				document.getElementById(previewId).style.display = "none";
+				if (targetId) {
+					document.getElementById(targetId).style.display = "";
+				}
+
+				resolve();
+			});
+		});
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * Persistent cache of rendered depictions in the browser's IndexedDB. The
+ * depictions are stored as HTML strings (usually a single <svg> element) under
+ * the keys computed by the server (see DepictionKey.java). All operations
+ * degrade to cache misses if IndexedDB is not available, e.g. in private
+ * browsing modes.
+ */
+molecularfaces.DepictionCache = class {
+	/**
+	 * This constructor should not be used directly to receive an instance of
+	 * this class. Use the static method "getInstance" instead.
+	 */
+	constructor() {
+		this._dbPromise = this._open();
+	}
+
+	/**
+	 * Returns the cache instance of the page.
+	 */
+	static getInstance() {
+		if (molecularfaces.DepictionCache._instance === null) {
+			molecularfaces.DepictionCache._instance = new molecularfaces.DepictionCache();
+		}
+
+		return molecularfaces.DepictionCache._instance;
+	}
+
+	/**
+	 * Returns the depiction stored under the given key embedded in a Promise.
+	 * The Promise resolves with null on a cache miss and is never rejected.
+	 */
+	get(key) {
+		return this._request("readonly", (store) => store.get(key))
+			.then((result) => (typeof result === "string") ? result : null);
+	}
+
+	/**
+	 * Stores the depiction under the given key. Returns a Promise that resolves
+	 * when the transaction has finished and is never rejected.
+	 */
+	put(key, depiction) {
+		return this._request("readwrite", (store) => store.put(depiction, key));
+	}
+
+	_open() {
+		return new Promise((resolve, reject) => {
+			let request;
+			try {
+				request = window.indexedDB.open(molecularfaces.DepictionCache.DB_NAME, 1);
+			} catch (e) {
+				resolve(null);
+				return;
+			}
+
+			request.onupgradeneeded = () => {
+				request.result.createObjectStore(molecularfaces.DepictionCache.STORE_NAME);
+			};
+			request.onsuccess = () => {
+				resolve(request.result);
+			};
+			request.onerror = () => {
+				console.error(request.error);
+				resolve(null);
+			};
+		}).then((db) => this._limitSize(db));
+	}
+
+	/*
+	 * Keeps the cache bounded: the store is cleared when it has grown beyond
+	 * MAX_ENTRIES depictions.
+	 */
+	_limitSize(db) {
+		if (db === null) {
+			return null;
+		}
+
+		return new Promise((resolve, reject) => {
+			try {
+				let store = db.transaction(molecularfaces.DepictionCache.STORE_NAME, "readwrite")
+					.objectStore(molecularfaces.DepictionCache.STORE_NAME);
+				let count = store.count();
+				count.onsuccess = () => {
+					if (count.result > molecularfaces.DepictionCache.MAX_ENTRIES) {
+						store.clear();
+					}
+				};
+				count.transaction.oncomplete = () => resolve(db);
+				count.transaction.onerror = () => resolve(db);
+			} catch (e) {
+				resolve(db);
+			}
+		});
+	}
+
+	_request(mode, operation) {
+		return this._dbPromise.then((db) => {
+			if (db === null) {
+				return null;
+			}
+
+			return new Promise((resolve, reject) => {
+				try {
+					let request = operation(db.transaction(molecularfaces.DepictionCache.STORE_NAME, mode)
+						.objectStore(molecularfaces.DepictionCache.STORE_NAME));
+					request.onsuccess = () => resolve(request.result);
+					request.onerror = () => resolve(null);
+				} catch (e) {
+					resolve(null);
+				}
+			});
+		});
+	}
+}
+
+molecularfaces.DepictionCache._instance = null;
+
+/**
+ * Name of the IndexedDB database.
+ */
+molecularfaces.DepictionCache.DB_NAME = "molecularfaces";
+
+/**
+ * Name of the object store in the database.
+ */
+molecularfaces.DepictionCache.STORE_NAME = "depictions";
+
+/**
+ * Maximum number of cached depictions before the cache is cleared.
+ */
+molecularfaces.DepictionCache.MAX_ENTRIES = 5000;
@@ -0,0 +1,248 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * This class implements a pool of a limited number of live editor instances,
+ * which are shared between the editor fields on a page. Inactive fields show
+ * a static preview of their molecule and keep their value in their hidden
+ * <input> element. When the user activates a field, a pooled editor is moved
+ * into this field. If all editors of the pool are in use, the least recently
+ * activated field is released.
+ * 
+ * An editor is reused as long as the fields have the same "signature" (plugin
+ * type, format and size), otherwise it is replaced by a new editor instance.
+ */
+molecularfaces.EditorPool = class {
+	/**
+	 * This constructor should not be used directly to receive an instance of
+	 * this class. Use the static method "getPool" instead.
+	 */
+	constructor(size) {
+		this._size = Math.max(1, size);
+
+		// pool entries ordered from least to most recently activated
+		this._entries = [];
+
+		// activations are processed one after another
+		this._queue = Promise.resolve();
+	}
+
+	/**
+	 * Returns the pool with the given "name". The pool is created with the given
+	 * "size" (maximum number of live editor instances) if it does not exist yet.
+	 */
+	static getPool(name, size) {
+		let pools = molecularfaces.EditorPool._pools;
+		if (!pools.has(name)) {
+			pools.set(name, new molecularfaces.EditorPool(size));
+		}
+
+		return pools.get(name);
+	}
+
+	/**
+	 * Registers an editor field, which consists of a preview element with the id
+	 * "previewId" and a hidden <input> element with the id "inputId". A pooled
+	 * editor is attached to the field when the user activates the preview.
+	 * 
+	 * The object "options" describes the editor:
+	 * - signature: editors are reused between fields with equal signatures
+	 * - height, width: size of the editor in pixels
+	 * - debounce: debounce delay of the editor's OnChangeSubject
+	 * - recreate: true if the editor does not survive a move in the DOM
+	 * - loadResources(): returns a Promise that resolves when the plugin's
+	 *   resources are loaded
+	 * - newEditor(containerId, molecule): returns a Promise embedding a new
+	 *   editor rendered inside the container with the given id
+	 * - newViewer(divId, molecule): renders the molecule into the preview
+	 * 
+	 * Returns a Promise embedding the editor that is attached upon the first
+	 * activation. Note that this editor instance is shared with other fields.
+	 */
+	register(previewId, inputId, options) {
+		let field = {
+			previewId: previewId,
+			inputId: inputId,
+			options: options,
+			entry: null,
+			value: null
+		};
+
+		return new Promise((resolve, reject) => {
+			molecularfaces.ClickActivation.onActivate(previewId, () => {
+				this.attach(field).then(resolve, reject);
+			});
+		});
+	}
+
+	/**
+	 * Attaches a pooled editor to the given field. Returns a Promise embedding
+	 * the editor.
+	 */
+	attach(field) {
+		let result = this._queue.then(() => this._attach(field));
+
+		// Keep the queue alive in case of errors.
+		this._queue = result.catch(() => {});
+
+		return result;
+	}
+
+	_attach(field) {
+		if (field.entry !== null) {
+			this._touch(field.entry);
+			return field.entry.editorPromise;
+		}
+
+		let entry = this._entries.find((e) => e.field === null);
+		if (!entry) {
+			if (this._entries.length < this._size) {
+				entry = this._newEntry();
+			} else {
+				// the least recently activated editor
+				entry = this._entries[0];
+			}
+		}
+
+		let released = (entry.field !== null) ? this._release(entry) : Promise.resolve();
+
+		return released.then(() => this._bind(entry, field));
+	}
+
+	_newEntry() {
+		let container = document.createElement("div");
+		container.id = "molecularfaces_EditorPool_" + (molecularfaces.EditorPool._counter++);
+
+		let entry = {
+			container: container,
+			field: null,
+			editor: null,
+			editorPromise: null,
+			signature: null
+		};
+		this._entries.push(entry);
+
+		return entry;
+	}
+
+	_touch(entry) {
+		let index = this._entries.indexOf(entry);
+		this._entries.splice(index, 1);
+		this._entries.push(entry);
+	}
+
+	/**
+	 * Writes the editor's molecule into the field's hidden <input> element,
+	 * detaches the field and shows its preview again.
+	 */
+	_release(entry) {
+		let field = entry.field;
+
+		return entry.editorPromise.then((editor) => {
+			// Deliver pending (debounced) changes to the field that is released.
+			editor.getOnChangeSubject().flush();
+
+			return editor.getMoleculePromise();
+		}).then((molecule) => {
+			entry.field = null;
+			field.entry = null;
+
+			if ((typeof molecule === "string") && (molecule !== field.value)) {
+				document.getElementById(field.inputId).setAttribute("value", molecule);
+				this._redrawPreview(field, molecule);
+			}
+
+			document.getElementById(field.previewId).style.display = "";
+		}, () => {
+			// The editor failed to initialize, nothing to save.
+			entry.field = null;
+			field.entry = null;
+			document.getElementById(field.previewId).style.display = "";
+		});
+	}
+
+	_redrawPreview(field, molecule) {
+		let preview = document.getElementById(field.previewId);
+		preview.innerHTML = "";
+
+		field.options.newViewer(field.previewId, molecule).catch((error) => {
+			console.error("Cannot redraw the preview " + field.previewId + ": " + error);
+		});
+	}
+
+	/**
+	 * Moves the entry's editor container into the field and sets the field's
+	 * molecule. The editor is created first if necessary.
+	 */
+	_bind(entry, field) {
+		let options = field.options;
+		let container = entry.container;
+		let preview = document.getElementById(field.previewId);
+		let molecule = document.getElementById(field.inputId).getAttribute("value");
+		let recreate = (entry.editor === null) || options.recreate || (entry.signature !== options.signature);
+
+		field.value = molecule;
+		field.entry = entry;
+		entry.field = field;
+		this._touch(entry);
+
+		if (recreate) {
+			entry.editor = null;
+			entry.signature = options.signature;
+			container.innerHTML = "";
+		}
+
+		container.style.height = options.height + "px";
+		container.style.width = options.width + "px";
+		preview.parentNode.insertBefore(container, preview.nextSibling);
+		preview.style.display = "none";
+
+		if (recreate) {
+			entry.editorPromise = options.loadResources().then(() => {
+				return options.newEditor(container.id, molecule);
+			}).then((editor) => {
+				entry.editor = editor;
+
+				// Fill the hidden <input> element of the field the editor is attached to.
+				editor.getOnChangeSubject().addChangeCallback((mol) => {
+					if ((entry.editor === editor) && (entry.field !== null)) {
+						document.getElementById(entry.field.inputId).setAttribute("value", mol);
+					}
+				});
+
+				return editor;
+			});
+		} else {
+			entry.editorPromise = entry.editor.setMolecule(molecule);
+		}
+
+		entry.editorPromise = entry.editorPromise.then((editor) => {
+			editor.getOnChangeSubject().setDebounce(options.debounce);
+			return editor;
+		});
+
+		return entry.editorPromise;
+	}
+}
+
+molecularfaces.EditorPool._pools = new Map();
+molecularfaces.EditorPool._counter = 0;
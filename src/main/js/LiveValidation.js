@@ -0,0 +1,130 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * Checks the molfile of an editor on the server while the user is drawing (see
+ * MolfileValidationResourceHandler.java). Editors write their molecule into
+ * their hidden <input> element via the on-change callback of their
+ * OnChangeSubject. Each change of this value is checked "delay" milliseconds
+ * after the last change of a burst. Only the verdict of the most recent
+ * request is applied.
+ *
+ * The verdict is published in the attribute "data-molfile-valid" ("true" or
+ * "false") of the hidden <input> element and its parent element and as
+ * bubbling DOM event "molecularfaces:validation" with the detail
+ * { valid: true|false } dispatched on the hidden <input> element.
+ */
+molecularfaces.LiveValidation = class {
+	constructor(inputId, url, format, delay) {
+		this._inputId = inputId;
+		this._url = url;
+		this._format = format;
+		this._delay = delay;
+		this._timer = null;
+		this._requestCount = 0;
+		this._lastMolfile = null;
+	}
+
+	/**
+	 * Starts the live validation of the hidden <input> element with the id
+	 * "inputId". The parameter "url" specifies the URL of the validation
+	 * resource, "format" the molfile format ("V2000" or "V3000") and "delay" the
+	 * debounce delay in milliseconds. Returns the LiveValidation instance or
+	 * null if the element does not exist.
+	 */
+	static attach(inputId, url, format, delay) {
+		let input = document.getElementById(inputId);
+		if (input === null) {
+			return null;
+		}
+
+		let validation = new molecularfaces.LiveValidation(inputId, url, format, delay);
+		validation._lastMolfile = input.getAttribute("value");
+		new MutationObserver(() => validation._onChange())
+			.observe(input, { attributes: true, attributeFilter: ["value"] });
+
+		return validation;
+	}
+
+	_onChange() {
+		let molfile = document.getElementById(this._inputId).getAttribute("value");
+		if (molfile === this._lastMolfile) {
+			return;
+		}
+		this._lastMolfile = molfile;
+
+		clearTimeout(this._timer);
+		this._timer = setTimeout(() => this.validate(), this._delay);
+	}
+
+	/**
+	 * Checks the current value of the hidden <input> element immediately.
+	 * Returns a Promise that resolves with the verdict (true or false) or null
+	 * if the request failed or has been superseded by a newer request.
+	 */
+	validate() {
+		clearTimeout(this._timer);
+		this._timer = null;
+
+		let input = document.getElementById(this._inputId);
+		if (input === null) {
+			return Promise.resolve(null);
+		}
+
+		let requestNumber = ++this._requestCount;
+		let body = new URLSearchParams();
+		body.set("molfile", input.getAttribute("value") || "");
+		body.set("format", this._format);
+
+		return fetch(new URL(this._url, document.baseURI).href, {
+				method: "POST",
+				credentials: "same-origin",
+				body: body
+			})
+			.then((response) => {
+				if (!response.ok) {
+					throw new Error("Live validation request failed with status " + response.status);
+				}
+				return response.json();
+			})
+			.then((verdict) => {
+				if (requestNumber !== this._requestCount) {
+					return null;
+				}
+				this._publish(input, verdict.valid === true);
+
+				return verdict.valid === true;
+			})
+			.catch((error) => {
+				console.error(error);
+				return null;
+			});
+	}
+
+	_publish(input, valid) {
+		input.setAttribute("data-molfile-valid", String(valid));
+		if (input.parentElement !== null) {
+			input.parentElement.setAttribute("data-molfile-valid", String(valid));
+		}
+		input.dispatchEvent(new CustomEvent("molecularfaces:validation", { bubbles: true, detail: { valid: valid } }));
+	}
+}
@@ -60,6 +60,20 @@ molecularfaces.MarvinJSEditor = class extends molecularfaces.StructureEditor {
 		});
 	}
 
+	/**
+	 * Creates the <iframe> container for the editor inside the element with the
+	 * id given by the parameter "containerId". This is used in case the <iframe>
+	 * is not rendered with the page, but created upon click activation.
+	 */
+	static appendIframe(containerId, iframeId, src, height, width) {
+		let iframe = document.createElement("iframe");
+		iframe.id = iframeId;
+		iframe.src = src;
+		iframe.style.height = height + "px";
+		iframe.style.width = width + "px";
+		document.getElementById(containerId).appendChild(iframe);
+	}
+
 	init() {
 		return new Promise((resolve, reject) => {
 			// MarvinJS has some problems with empty molecule strings.
@@ -87,25 +101,36 @@ molecularfaces.MarvinJSEditor = class extends molecularfaces.StructureEditor {
 					obj._editor = sketcherInstance;
 
 					// Set the molecule
-					obj._editor.importStructure("mol", mol).catch(function(error) {
+					obj._editor.importStructure((obj._format === "SMILES") ? "smiles" : "mol", mol).catch(function(error) {
 						alert(error);
 					});
 
 					// Register an on-change listener.
 					obj._editor.on("molchange", function() {
+						/*
+						 * Serialise lazily, the on-change notification may be debounced. This
+						 * saves webservice round trips in case of V3000.
+						 */
 						if (obj._format === "MDLV2000") {
 							// MarvinJS can deliver V2000 immediately.
-							let molecule = obj._editor.exportAsMol();
-
-							obj._molecule = molecule;
-							obj.getOnChangeSubject().notifyChange(molecule);
+							obj._notifyMoleculeChange(function() {
+								return obj._editor.exportAsMol();
+							});
 						} else if ((obj._format === "MDLV3000") && obj._editor.getSupportedFormats().exportFormats.includes("mol:V3")) {
 							// MarvinJS needs to ask the webservice for V3000, thus we get a Promise.
-							obj._editor.exportStructure("mol:V3").then(function(molecule) {
-								obj._molecule = molecule;
-								obj.getOnChangeSubject().notifyChange(molecule);
-							}, function(error) {
-								alert("Molecule export failed:"+error);
+							obj._notifyMoleculeChange(function() {
+								return obj._editor.exportStructure("mol:V3").catch(function(error) {
+									alert("Molecule export failed:"+error);
+									return obj._molecule;
+								});
+							});
+						} else if ((obj._format === "SMILES") && obj._editor.getSupportedFormats().exportFormats.includes("smiles")) {
+							// MarvinJS needs to ask the webservice for SMILES, thus we get a Promise.
+							obj._notifyMoleculeChange(function() {
+								return obj._editor.exportStructure("smiles").catch(function(error) {
+									alert("Molecule export failed:"+error);
+									return obj._molecule;
+								});
 							});
 						}
 					});
@@ -120,7 +145,12 @@ molecularfaces.MarvinJSEditor = class extends molecularfaces.StructureEditor {
 		});
 	}
 
+	/**
+	 * Note: In case of MDLV3000 and SMILES, a pending molecule change is exported
+	 * asynchronously and the previous molecule is returned.
+	 */
 	getMolecule() {
+		this._applyPendingMolecule();
 		return this._molecule;
 	}
 
@@ -128,6 +158,7 @@ molecularfaces.MarvinJSEditor = class extends molecularfaces.StructureEditor {
 		return new Promise((resolve, reject) => {
 			if (typeof molecule !== "undefined") {
 				this._molecule = molecule;
+				this._discardPendingMolecule();
 
 				// MarvinJS has some problems with empty molecule strings.
 				let mol = null;
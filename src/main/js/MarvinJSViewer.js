@@ -91,7 +91,7 @@ molecularfaces.MarvinJSViewer = class extends molecularfaces.StructurePlugin {
 
 					obj._insertSvg(obj._divId, imgData);
 					resolve(obj);
-				} else if (obj._format === "MDLV3000") {
+				} else if ((obj._format === "MDLV3000") || (obj._format === "SMILES")) {
 					// snippets from https://marvinjs-demo.chemaxon.com/latest/examples/example-create-image.html
 					let defaultServices = getDefaultServices(); // function in webservices.js
 					let services = {};
@@ -100,13 +100,13 @@ molecularfaces.MarvinJSViewer = class extends molecularfaces.StructurePlugin {
 					let params = {
 						'imageType': "image/svg",
 						'settings': settings,
-						'inputFormat': "mol:V3",
+						'inputFormat': (obj._format === "SMILES") ? "smiles" : "mol:V3",
 						'services': services
 					}
 
 					let exporter = new namespace.ImageExporter(params);
 
-					// MarvinJS needs to ask the webservice for V3000, thus we get a Promise.
+					// MarvinJS needs to ask the webservice for V3000 and SMILES, thus we get a Promise.
 					exporter.render(mol).then((imgData) => {
 						obj._insertSvg(obj._divId, imgData);
 						resolve(obj);
@@ -68,15 +68,15 @@ molecularfaces.MolPaintJSEditor = class extends molecularfaces.StructureEditor {
 
 			let obj = this;
 			this._editor.setChangeListener(function() {
-				let mol = null;
-				if (obj._format === "MDLV2000") {
-					mol = molPaintJS.getMDLv2000(obj._divId);
-				} else if (obj._format === "MDLV3000") {
-					mol = molPaintJS.getMDLv3000(obj._divId);
-				}
-
-				obj._molecule = mol;
-				obj.getOnChangeSubject().notifyChange(mol);
+				// Serialise lazily, the on-change notification may be debounced.
+				obj._notifyMoleculeChange(function() {
+					if (obj._format === "MDLV2000") {
+						return molPaintJS.getMDLv2000(obj._divId);
+					} else if (obj._format === "MDLV3000") {
+						return molPaintJS.getMDLv3000(obj._divId);
+					}
+					return null;
+				});
 			});
 
 			resolve(this);
@@ -84,6 +84,7 @@ molecularfaces.MolPaintJSEditor = class extends molecularfaces.StructureEditor {
 	}
 
 	getMolecule() {
+		this._applyPendingMolecule();
 		return this._molecule;
 	}
 
@@ -91,6 +92,7 @@ molecularfaces.MolPaintJSEditor = class extends molecularfaces.StructureEditor {
 		return new Promise((resolve, reject) => {
 			if (typeof molecule !== "undefined") {
 				this._molecule = molecule;
+				this._discardPendingMolecule();
 
 				this._editor.setMolecule(molecule);
 			}
@@ -22,10 +22,23 @@ var molecularfaces = molecularfaces || {};
 
 /**
  * The implementation of the subject in an observer pattern.
+ * 
+ * By default, all registered callbacks are notified synchronously upon each
+ * call of notifyChange(data). Editors may fire change events at a high rate
+ * (e.g. while the user drags atoms), thus the notifications can be coalesced
+ * via setDebounce(delay): Only the last change of a burst is propagated to the
+ * callbacks. The data passed to notifyChange(data) may be a function, which
+ * is called lazily at the time the notification is actually delivered, so
+ * expensive serialisations are skipped for intermediate changes.
  */
 molecularfaces.OnChangeSubject = class {
 	constructor() {
 		this._changeCallbacks = [];
+		this._debounce = -1;
+		this._pending = false;
+		this._pendingData = null;
+		this._timer = null;
+		this._flushListener = null;
 	}
 
 	/**
@@ -55,9 +68,110 @@ molecularfaces.OnChangeSubject = class {
 	}
 
 	/**
-	 * Calls all registered on-change callbacks with the new data.
+	 * Configures the coalescing of change notifications. A negative "delay"
+	 * notifies all callbacks synchronously (default), a "delay" of 0 coalesces
+	 * all changes within one animation frame and a positive "delay" notifies
+	 * the callbacks "delay" milliseconds after the last change (trailing-edge
+	 * debouncing).
+	 * 
+	 * Pending notifications are delivered before a form is submitted.
+	 * 
+	 * Returns this object to support method chaining.
+	 */
+	setDebounce(delay) {
+		this.flush();
+		this._debounce = delay;
+
+		if ((delay >= 0) && (this._flushListener === null)) {
+			this._flushListener = () => this.flush();
+
+			// capture phase: flush before any submit or onclick handler runs
+			document.addEventListener("submit", this._flushListener, true);
+			document.addEventListener("click", this._flushListener, true);
+		} else if ((delay < 0) && (this._flushListener !== null)) {
+			document.removeEventListener("submit", this._flushListener, true);
+			document.removeEventListener("click", this._flushListener, true);
+			this._flushListener = null;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns the configured debounce delay.
+	 */
+	getDebounce() {
+		return this._debounce;
+	}
+
+	/**
+	 * Notifies all registered on-change callbacks with the new data. If "data"
+	 * is a function, it is called once at the time of delivery and its result
+	 * (or the value of the Promise it returns) is passed to the callbacks.
 	 */
 	notifyChange(data) {
+		if (this._debounce < 0) {
+			this._deliver(data);
+			return;
+		}
+
+		// Only the most recent change of a burst is of interest.
+		this._pendingData = data;
+		if (this._pending) {
+			if (this._debounce === 0) {
+				return;
+			}
+			clearTimeout(this._timer);
+		}
+		this._pending = true;
+
+		if ((this._debounce === 0) && (typeof window.requestAnimationFrame === "function")) {
+			this._timer = window.requestAnimationFrame(() => this.flush());
+		} else {
+			this._timer = setTimeout(() => this.flush(), this._debounce);
+		}
+	}
+
+	/**
+	 * Delivers a pending notification immediately.
+	 * 
+	 * Returns this object to support method chaining.
+	 */
+	flush() {
+		if (this._pending) {
+			if (this._debounce === 0 && (typeof window.cancelAnimationFrame === "function")) {
+				window.cancelAnimationFrame(this._timer);
+			} else {
+				clearTimeout(this._timer);
+			}
+
+			let data = this._pendingData;
+			this._pending = false;
+			this._pendingData = null;
+			this._timer = null;
+
+			this._deliver(data);
+		}
+
+		return this;
+	}
+
+	_deliver(data) {
+		// Nobody is listening, so there is no need to produce the value.
+		if (this._changeCallbacks.length === 0) {
+			return;
+		}
+
+		let value = (typeof data === "function") ? data() : data;
+
+		if ((value !== null) && (typeof value === "object") && (typeof value.then === "function")) {
+			value.then((resolved) => this._callCallbacks(resolved));
+		} else {
+			this._callCallbacks(value);
+		}
+	}
+
+	_callCallbacks(data) {
 		for (let fn of this._changeCallbacks) {
 			fn.call(this, data);
 		}
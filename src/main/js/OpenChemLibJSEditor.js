@@ -62,15 +62,17 @@ molecularfaces.OpenChemLibJSEditor = class extends molecularfaces.StructureEdito
 
 			let obj = this;
 			this._editor.setChangeListenerCallback(function(idcode, molecule) {
-				let mol = null;
-				if (obj._format === "MDLV2000") {
-					mol = molecule.toMolfile();
-				} else if (obj._format === "MDLV3000") {
-					mol = molecule.toMolfileV3();
-				}
-
-				obj._molecule = mol;
-				obj.getOnChangeSubject().notifyChange(mol);
+				// Serialise lazily, the on-change notification may be debounced.
+				obj._notifyMoleculeChange(function() {
+					if (obj._format === "MDLV2000") {
+						return molecule.toMolfile();
+					} else if (obj._format === "MDLV3000") {
+						return molecule.toMolfileV3();
+					} else if (obj._format === "SMILES") {
+						return molecule.toSmiles();
+					}
+					return null;
+				});
 			});
 
 			resolve(this);
@@ -78,6 +80,7 @@ molecularfaces.OpenChemLibJSEditor = class extends molecularfaces.StructureEdito
 	}
 
 	getMolecule() {
+		this._applyPendingMolecule();
 		return this._molecule;
 	}
 
@@ -85,9 +88,14 @@ molecularfaces.OpenChemLibJSEditor = class extends molecularfaces.StructureEdito
 		return new Promise((resolve, reject) => {
 			if (typeof molecule !== "undefined") {
 				this._molecule = molecule;
+				this._discardPendingMolecule();
 
-				// OCL.StructureEditor's setMolFile() will fire an onChange event.
-				this._editor.setMolFile(molecule);
+				// OCL.StructureEditor's setMolFile() and setSmiles() will fire an onChange event.
+				if ((this._format === "SMILES") && (molecule !== "")) {
+					this._editor.setSmiles(molecule);
+				} else {
+					this._editor.setMolFile(molecule);
+				}
 			}
 
 			resolve(this);
@@ -29,13 +29,15 @@ molecularfaces.OpenChemLibJSViewer = class extends molecularfaces.StructurePlugi
 	 * This constructor should not be used directly to receive an instance of
 	 * this class. Use the static factory method "newViewer" instead. 
 	 */
-	constructor(divId, molecule, height, width) {
+	constructor(divId, molecule, height, width, workerScriptUrl, format) {
 		super();
 
 		this._divId = divId;
 		this._molecule = molecule;
 		this._height = height;
 		this._width = width;
+		this._workerScriptUrl = workerScriptUrl;
+		this._format = format;
 	}
 
 	/**
@@ -43,24 +45,71 @@ molecularfaces.OpenChemLibJSViewer = class extends molecularfaces.StructurePlugi
 	 * Promise. The viewer is rendered in a <div> container with the id given by
 	 * the parameter "divId" and a molecule according to the "molecule" parameter.
 	 * The "height" and "width" parameters should not exceed the size of the
-	 * surrounding <div>.
+	 * surrounding <div>. If the optional parameter "workerScriptUrl" specifies
+	 * the URL of openchemlib-full.js, the molecule is parsed and depicted in a
+	 * Web Worker (see molecularfaces.OpenChemLibJSWorkerPool) and the returned
+	 * Promise resolves when the depiction has been inserted. The molecule is
+	 * parsed as SMILES if the optional parameter "format" is "SMILES",
+	 * otherwise as MDL Molfile.
 	 */
-	static newViewer(divId, molecule, height, width) {
+	static newViewer(divId, molecule, height, width, workerScriptUrl, format) {
 		return new Promise((resolve, reject) => {
-			let obj = new molecularfaces.OpenChemLibJSViewer(divId, molecule, height, width);
-			obj.init().then(resolve(obj));
+			let obj = new molecularfaces.OpenChemLibJSViewer(divId, molecule, height, width, workerScriptUrl, format);
+			if (workerScriptUrl) {
+				obj.init().then(() => resolve(obj));
+			} else {
+				obj.init().then(resolve(obj));
+			}
 		});
 	}
 
 	init() {
+		if (this._workerScriptUrl) {
+			return this._initInWorker();
+		}
+
 		return new Promise((resolve, reject) => {
-			let svg = window.OCL.Molecule.fromMolfile(this._molecule).toSVG(this._width, this._height, null);
+			let svg = molecularfaces.OpenChemLibJSViewer.parseMolecule(this._molecule, this._format)
+				.toSVG(this._width, this._height, null);
 			document.getElementById(this._divId).innerHTML = svg;
 
 			resolve(this);
 		});
 	}
 
+	_initInWorker() {
+		let molecule = this._molecule;
+
+		return molecularfaces.OpenChemLibJSWorkerPool.getInstance(this._workerScriptUrl)
+			.depict(molecule, this._width, this._height, this._format)
+			.catch((error) => {
+				// fall back to the main thread
+				console.error(error);
+				return molecularfaces.OpenChemLibJSViewer.parseMolecule(molecule, this._format)
+					.toSVG(this._width, this._height, null);
+			})
+			.then((svg) => {
+				// skip outdated results if the molecule has been changed in the meantime
+				if (molecule === this._molecule) {
+					document.getElementById(this._divId).innerHTML = svg;
+				}
+
+				return this;
+			});
+	}
+
+	/**
+	 * Parses the molecule string as SMILES if "format" is "SMILES", otherwise
+	 * as MDL Molfile, and returns an OCL.Molecule.
+	 */
+	static parseMolecule(molecule, format) {
+		if ((format === "SMILES") && (molecule !== "")) {
+			return window.OCL.Molecule.fromSmiles(molecule);
+		}
+
+		return window.OCL.Molecule.fromMolfile(molecule);
+	}
+
 	getMolecule() {
 		return this._molecule;
 	}
@@ -0,0 +1,163 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * A small pool of Web Workers that parse MDL Molfiles and render SVG images
+ * via OpenChemLib JS off the browser's main thread. The workers import
+ * openchemlib-full.js themselves. There is one pool per script URL, which is
+ * shared by all viewers of the page.
+ */
+molecularfaces.OpenChemLibJSWorkerPool = class {
+	/**
+	 * This constructor should not be used directly to receive an instance of
+	 * this class. Use the static method "getInstance" instead.
+	 */
+	constructor(scriptUrl, size) {
+		this._scriptUrl = new URL(scriptUrl, document.baseURI).href;
+		this._size = size;
+		this._workers = [];
+		this._nextJobId = 0;
+		this._failure = null;
+
+		// job id -> { resolve, reject, worker }
+		this._jobs = new Map();
+	}
+
+	/**
+	 * Returns the pool for the given URL of openchemlib-full.js.
+	 */
+	static getInstance(scriptUrl) {
+		let pools = molecularfaces.OpenChemLibJSWorkerPool._instances;
+		let pool = pools.get(scriptUrl);
+		if (typeof pool === "undefined") {
+			let size = Math.max(1, Math.min(molecularfaces.OpenChemLibJSWorkerPool.MAX_WORKERS,
+				(navigator.hardwareConcurrency || 2) - 1));
+			pool = new molecularfaces.OpenChemLibJSWorkerPool(scriptUrl, size);
+			pools.set(scriptUrl, pool);
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Parses the molecule in a worker and returns its SVG image with the given
+	 * size embedded in a Promise. The molecule is parsed as SMILES if the
+	 * optional parameter "format" is "SMILES", otherwise as MDL Molfile. The
+	 * Promise is rejected if the worker cannot be started or the molecule
+	 * cannot be parsed.
+	 */
+	depict(molecule, width, height, format) {
+		return new Promise((resolve, reject) => {
+			if (this._failure !== null) {
+				reject(new Error("OpenChemLib JS worker failed: " + this._failure));
+				return;
+			}
+
+			let worker = this._getWorker();
+			let id = this._nextJobId++;
+
+			this._jobs.set(id, { resolve: resolve, reject: reject, worker: worker });
+			worker.pending++;
+			worker.instance.postMessage({ id: id, molecule: molecule, width: width, height: height, format: format });
+		});
+	}
+
+	/**
+	 * Returns the least busy worker. A new worker is started as long as the
+	 * pool is not full and all workers are busy.
+	 */
+	_getWorker() {
+		let leastBusy = null;
+		for (let worker of this._workers) {
+			if ((leastBusy === null) || (worker.pending < leastBusy.pending)) {
+				leastBusy = worker;
+			}
+		}
+
+		if (((leastBusy === null) || (leastBusy.pending > 0)) && (this._workers.length < this._size)) {
+			leastBusy = this._startWorker();
+		}
+
+		return leastBusy;
+	}
+
+	_startWorker() {
+		let source = "importScripts(" + JSON.stringify(this._scriptUrl) + ");"
+			+ "onmessage = (e) => {"
+			+ "let job = e.data;"
+			+ "try {"
+			+ "let mol = ((job.format === \"SMILES\") && (job.molecule !== \"\")) "
+			+ "? OCL.Molecule.fromSmiles(job.molecule) : OCL.Molecule.fromMolfile(job.molecule);"
+			+ "postMessage({ id: job.id, svg: mol.toSVG(job.width, job.height, null) });"
+			+ "} catch (error) {"
+			+ "postMessage({ id: job.id, error: String(error) });"
+			+ "}"
+			+ "};";
+		let blobUrl = URL.createObjectURL(new Blob([source], { type: "text/javascript" }));
+
+		let worker = { instance: new Worker(blobUrl), pending: 0 };
+		worker.instance.onmessage = (e) => this._finishJob(e.data.id, e.data.svg, e.data.error);
+		worker.instance.onerror = (e) => {
+			// e.g. openchemlib-full.js cannot be imported: do not start further workers
+			e.preventDefault();
+			this._failure = e.message;
+			this._removeWorker(worker, e.message);
+		};
+		this._workers.push(worker);
+
+		return worker;
+	}
+
+	_finishJob(id, svg, error) {
+		let job = this._jobs.get(id);
+		if (typeof job === "undefined") {
+			return;
+		}
+
+		this._jobs.delete(id);
+		job.worker.pending--;
+		if (typeof error === "undefined") {
+			job.resolve(svg);
+		} else {
+			job.reject(new Error(error));
+		}
+	}
+
+	_removeWorker(worker, message) {
+		worker.instance.terminate();
+		this._workers = this._workers.filter((w) => w !== worker);
+
+		for (let [id, job] of this._jobs) {
+			if (job.worker === worker) {
+				this._jobs.delete(id);
+				job.reject(new Error("OpenChemLib JS worker failed: " + message));
+			}
+		}
+	}
+}
+
+molecularfaces.OpenChemLibJSWorkerPool._instances = new Map();
+
+/**
+ * Maximum number of workers per pool.
+ */
+molecularfaces.OpenChemLibJSWorkerPool.MAX_WORKERS = 4;
@@ -34,6 +34,8 @@ molecularfaces.StructureEditor = class extends molecularfaces.StructurePlugin {
 		}
 
 		this._onChangeSubject = new molecularfaces.OnChangeSubject();
+		this._moleculeSupplier = null;
+		this._moleculePromise = null;
 	}
 
 	/**
@@ -44,6 +46,66 @@ molecularfaces.StructureEditor = class extends molecularfaces.StructurePlugin {
 		return this._onChangeSubject;
 	}
 
+	/**
+	 * Registers a change of the editor's molecule. The function "supplier"
+	 * serialises the molecule and is not called before the new molecule is
+	 * actually needed, i.e. when the (possibly debounced) on-change callbacks
+	 * are notified or getMolecule() is called.
+	 */
+	_notifyMoleculeChange(supplier) {
+		this._moleculeSupplier = supplier;
+		this._onChangeSubject.notifyChange(() => this._applyPendingMolecule());
+	}
+
+	/**
+	 * Serialises a pending molecule change into this._molecule. Returns the
+	 * molecule or a Promise embedding it if the serialisation is asynchronous
+	 * and has not finished yet.
+	 */
+	_applyPendingMolecule() {
+		let supplier = this._moleculeSupplier;
+		if (supplier !== null) {
+			this._moleculeSupplier = null;
+
+			let mol = supplier();
+			if ((mol !== null) && (typeof mol === "object") && (typeof mol.then === "function")) {
+				let promise = mol.then((molecule) => {
+					if (this._moleculePromise === promise) {
+						this._molecule = molecule;
+						this._moleculePromise = null;
+						return molecule;
+					}
+
+					// Outdated result, the molecule has changed meanwhile.
+					return this._applyPendingMolecule();
+				});
+				this._moleculePromise = promise;
+			} else {
+				this._molecule = mol;
+				this._moleculePromise = null;
+			}
+		}
+
+		return (this._moleculePromise) ? this._moleculePromise : this._molecule;
+	}
+
+	/**
+	 * Returns a Promise embedding the current molecule including a pending
+	 * change, which may be serialised asynchronously.
+	 */
+	getMoleculePromise() {
+		return Promise.resolve(this._applyPendingMolecule());
+	}
+
+	/**
+	 * Discards a pending molecule change, e.g. because the molecule was
+	 * replaced via setMolecule(molecule).
+	 */
+	_discardPendingMolecule() {
+		this._moleculeSupplier = null;
+		this._moleculePromise = null;
+	}
+
 	/**
 	 * Abstract method
 	 *
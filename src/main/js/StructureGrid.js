@@ -0,0 +1,161 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * This class draws a collection of molecules into the cells of a grid
+ * container. All molecules are depicted in a single pass with one shared
+ * plugin context and the cells are attached to the DOM at once.
+ */
+molecularfaces.StructureGrid = class {
+	/**
+	 * This constructor should not be used directly to receive an instance of
+	 * this class. Use the static factory method "newGrid" instead. 
+	 */
+	constructor(gridId, molecules, options) {
+		this._gridId = gridId;
+		this._molecules = molecules;
+		this._plugin = options.plugin;
+		this._format = options.format;
+		this._height = options.height;
+		this._width = options.width;
+		this._border = options.border;
+		this._installPath = options.installPath;
+	}
+
+	/**
+	 * Returns an initialized grid instance embedded inside a Promise. The
+	 * molecules are read from the JSON array in the element with the id given
+	 * by the parameter "dataId" and rendered into the grid container with the id
+	 * given by the parameter "gridId". The "options" object specifies
+	 * - plugin: "OpenChemLibJS" or "MarvinJS",
+	 * - format: chemical file format of the molecules,
+	 * - height and width: size of each cell,
+	 * - border: flag indicating that the cells are rendered with a border,
+	 * - installPath: install location of Marvin JS.
+	 */
+	static newGrid(gridId, dataId, options) {
+		let molecules = JSON.parse(document.getElementById(dataId).textContent);
+		let obj = new molecularfaces.StructureGrid(gridId, molecules, options);
+
+		return obj.init();
+	}
+
+	init() {
+		return this._depict(this._molecules).then((svgs) => {
+			let cellStart = this._getCellStart();
+			let html = "";
+			for (let svg of svgs) {
+				html += cellStart + svg + "</div>";
+			}
+
+			// one DOM update for all cells
+			document.getElementById(this._gridId).innerHTML = html;
+
+			return this;
+		});
+	}
+
+	/**
+	 * Returns the opening tag of a cell.
+	 */
+	_getCellStart() {
+		return "<div style=\"width:" + this._width + "px;height:" + this._height + "px;"
+			+ (this._border ? "border:solid;border-width:1px;" : "") + "\">";
+	}
+
+	/**
+	 * Returns the SVG depictions of the given molecules embedded in a Promise.
+	 */
+	_depict(molecules) {
+		if (this._plugin === "OpenChemLibJS") {
+			return Promise.resolve(this._depictWithOpenChemLibJS(molecules));
+		} else if (this._plugin === "MarvinJS") {
+			return this._depictWithMarvinJS(molecules);
+		}
+
+		return Promise.reject(new Error("Unsupported plugin: " + this._plugin));
+	}
+
+	_depictWithOpenChemLibJS(molecules) {
+		let svgs = [];
+		for (let molecule of molecules) {
+			if (molecule === "") {
+				svgs.push("");
+			} else {
+				svgs.push(window.OCL.Molecule.fromMolfile(molecule).toSVG(this._width, this._height, null));
+			}
+		}
+
+		return svgs;
+	}
+
+	_depictWithMarvinJS(molecules) {
+		// common Marvin package namespace, which is shared with the viewers
+		if (molecularfaces._marvinJSNamespaceLoaderInstance == null) {
+			molecularfaces._marvinJSNamespaceLoaderInstance = new molecularfaces.MarvinJSNamespaceLoader(this._installPath);
+		}
+
+		let settings = {
+			width: this._width,
+			height: this._height,
+			zoomMode: "autoshrink"
+		};
+
+		return molecularfaces._marvinJSNamespaceLoaderInstance.status().then((namespace) => {
+			if (this._format === "MDLV3000") {
+				// MarvinJS needs to ask the webservice for V3000, thus we use one exporter for all molecules.
+				let defaultServices = getDefaultServices(); // function in webservices.js
+				let exporter = new namespace.ImageExporter({
+					'imageType': "image/svg",
+					'settings': settings,
+					'inputFormat': "mol:V3",
+					'services': { 'molconvertws': defaultServices['molconvertws'] }
+				});
+
+				return Promise.all(molecules.map((molecule) => {
+					return (molecule === "") ? "" : exporter.render(molecule);
+				}));
+			}
+
+			return molecules.map((molecule) => {
+				return (molecule === "") ? "" : namespace.ImageExporter.molToDataUrl(molecule, "image/svg", settings);
+			});
+		});
+	}
+
+	/**
+	 * Returns the molecules of this grid.
+	 */
+	getMolecules() {
+		return this._molecules;
+	}
+
+	/**
+	 * Replaces the molecules of this grid and redraws all cells. Returns this
+	 * object embedded in a Promise.
+	 */
+	setMolecules(molecules) {
+		this._molecules = molecules;
+
+		return this.init();
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+"use strict";
+
+// Namespace registration
+var molecularfaces = molecularfaces || {};
+
+/**
+ * This class draws a large collection of molecules into a scrollable viewport.
+ * Only the cells of the visible rows (plus a few rows above and below) are
+ * attached to the DOM. The molecules are transferred in windows of a fixed
+ * size, which are requested from the server via AJAX postbacks while the user
+ * scrolls. At most a fixed number of depicted windows is kept, so the DOM size
+ * and the memory consumption do not depend on the number of molecules.
+ */
+molecularfaces.VirtualStructureGrid = class extends molecularfaces.StructureGrid {
+	/**
+	 * This constructor should not be used directly to receive an instance of
+	 * this class. Use the static factory method "newGrid" instead. 
+	 */
+	constructor(gridId, data, options) {
+		super(gridId, [], options);
+
+		this._clientId = options.clientId;
+		this._columns = options.columns;
+		this._windowSize = options.windowSize;
+		this._total = data.total;
+
+		// window index -> Promise of the depictions, in least recently used order
+		this._windows = new Map();
+		this._putWindow(data.first / this._windowSize, this._depictWindow(data));
+
+		this._renderedRange = null;
+		this._updateScheduled = false;
+	}
+
+	/**
+	 * Returns an initialized grid instance embedded inside a Promise. The number
+	 * of molecules and the first window are read from the JSON object in the
+	 * element with the id given by the parameter "dataId" and rendered into the
+	 * viewport with the id given by the parameter "gridId". Besides the options
+	 * of molecularfaces.StructureGrid, the "options" object specifies
+	 * - clientId: client id of the JSF component,
+	 * - columns: number of columns or 0 to fit the columns into the viewport,
+	 * - windowSize: number of molecules per window.
+	 */
+	static newGrid(gridId, dataId, options) {
+		let data = JSON.parse(document.getElementById(dataId).textContent);
+		let obj = new molecularfaces.VirtualStructureGrid(gridId, data, options);
+
+		return obj.init();
+	}
+
+	init() {
+		let viewport = document.getElementById(this._gridId);
+		viewport.innerHTML = "";
+
+		// The spacer gives the viewport the height of all rows.
+		this._spacer = document.createElement("div");
+		this._rows = document.createElement("div");
+		this._rows.style.cssText = "position:absolute;left:0;top:0;display:grid;gap:"
+			+ molecularfaces.VirtualStructureGrid.GAP + "px;";
+		viewport.append(this._spacer, this._rows);
+
+		if (!this._listening) {
+			this._listening = true;
+			viewport.addEventListener("scroll", () => this._scheduleUpdate(), { passive: true });
+			window.addEventListener("resize", () => this._scheduleUpdate());
+		}
+
+		this._renderedRange = null;
+
+		return this._update().then(() => this);
+	}
+
+	_scheduleUpdate() {
+		if (!this._updateScheduled) {
+			this._updateScheduled = true;
+			window.requestAnimationFrame(() => {
+				this._updateScheduled = false;
+				this._update().catch((error) => console.error(error));
+			});
+		}
+	}
+
+	/**
+	 * Renders the cells of the visible rows. Returns a Promise that resolves
+	 * when the cells are attached.
+	 */
+	_update() {
+		let viewport = document.getElementById(this._gridId);
+		let gap = molecularfaces.VirtualStructureGrid.GAP;
+		let overscan = molecularfaces.VirtualStructureGrid.OVERSCAN_ROWS;
+		let border = this._border ? 2 : 0;
+		let rowHeight = this._height + border + gap;
+
+		let columns = this._columns;
+		if (columns <= 0) {
+			columns = Math.max(1, Math.floor((viewport.clientWidth + gap) / (this._width + border + gap)));
+		}
+		let rowCount = Math.ceil(this._total / columns);
+		this._spacer.style.height = (rowCount * rowHeight) + "px";
+
+		let firstRow = Math.max(0, Math.floor(viewport.scrollTop / rowHeight) - overscan);
+		let lastRow = Math.min(rowCount, Math.ceil((viewport.scrollTop + viewport.clientHeight) / rowHeight) + overscan);
+		let first = firstRow * columns;
+		let last = Math.min(this._total, lastRow * columns);
+
+		let range = first + ":" + last + ":" + columns;
+		if (range === this._renderedRange) {
+			return Promise.resolve();
+		}
+		this._renderedRange = range;
+
+		if (first >= last) {
+			this._rows.innerHTML = "";
+			return Promise.resolve();
+		}
+
+		let firstWindow = Math.floor(first / this._windowSize);
+		let lastWindow = Math.floor((last - 1) / this._windowSize);
+		let promises = [];
+		for (let i = firstWindow; i <= lastWindow; i++) {
+			promises.push(this._getWindow(i));
+		}
+
+		return Promise.all(promises).then((windows) => {
+			// Skip outdated results if the user scrolled in the meantime.
+			if (range !== this._renderedRange) {
+				return;
+			}
+
+			let cellStart = this._getCellStart();
+			let html = "";
+			for (let index = first; index < last; index++) {
+				let svgs = windows[Math.floor(index / this._windowSize) - firstWindow];
+				html += cellStart + svgs[index % this._windowSize] + "</div>";
+			}
+
+			this._rows.style.top = (firstRow * rowHeight) + "px";
+			this._rows.style.gridTemplateColumns = "repeat(" + columns + "," + this._width + "px)";
+			this._rows.innerHTML = html;
+		}, (error) => {
+			// allow a retry with the next update
+			if (range === this._renderedRange) {
+				this._renderedRange = null;
+			}
+			throw error;
+		});
+	}
+
+	/**
+	 * Returns the depictions of the window with the given index embedded in a
+	 * Promise.
+	 */
+	_getWindow(index) {
+		let promise = this._windows.get(index);
+		if (typeof promise === "undefined") {
+			promise = this._fetchWindow(index * this._windowSize).then((data) => this._depictWindow(data));
+			promise.catch(() => this._windows.delete(index));
+		}
+		this._putWindow(index, promise);
+
+		return promise;
+	}
+
+	_putWindow(index, promise) {
+		// (re-)insert as most recently used window and evict the least recently used one
+		this._windows.delete(index);
+		this._windows.set(index, promise);
+		if (this._windows.size > molecularfaces.VirtualStructureGrid.MAX_WINDOWS) {
+			this._windows.delete(this._windows.keys().next().value);
+		}
+	}
+
+	_depictWindow(data) {
+		if (Array.isArray(data.depictions)) {
+			return Promise.resolve(data.depictions);
+		}
+
+		return this._depict(data.molecules);
+	}
+
+	/**
+	 * Requests the window starting with the given molecule index from the JSF
+	 * component via an AJAX postback of the surrounding form and returns the
+	 * parsed JSON response embedded in a Promise.
+	 */
+	_fetchWindow(first) {
+		let form = document.getElementById(this._gridId).closest("form");
+		let params = new URLSearchParams();
+
+		for (let input of form.querySelectorAll("input[name$='jakarta.faces.ViewState'], input[name$='jakarta.faces.ClientWindow']")) {
+			params.append(input.name, input.value);
+		}
+		params.append("jakarta.faces.partial.ajax", "true");
+		params.append("jakarta.faces.partial.execute", this._clientId);
+		params.append("jakarta.faces.source", this._clientId);
+		params.append(this._clientId + "_window", first);
+
+		return fetch(form.action, {
+			method: "POST",
+			headers: { "Faces-Request": "partial/ajax" },
+			credentials: "same-origin",
+			body: params
+		}).then((response) => {
+			if (!response.ok) {
+				throw new Error("Cannot load molecules " + first + " ff. of " + this._clientId + ": " + response.status);
+			}
+			return response.json();
+		});
+	}
+
+	/**
+	 * Returns the total number of molecules.
+	 */
+	getTotal() {
+		return this._total;
+	}
+}
+
+/**
+ * Gap between the cells in pixels.
+ */
+molecularfaces.VirtualStructureGrid.GAP = 4;
+
+/**
+ * Number of rows rendered above and below the visible rows.
+ */
+molecularfaces.VirtualStructureGrid.OVERSCAN_ROWS = 2;
+
+/**
+ * Maximum number of depicted windows kept in memory.
+ */
+molecularfaces.VirtualStructureGrid.MAX_WINDOWS = 8;
@@ -19,9 +19,12 @@ package de.ipb_halle.molecularfaces.component.molplugin;
 
 import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_BASE_URL;
 import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_LICENSE_URL;
+import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_V3000_TO_V2000;
 import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -137,6 +140,48 @@ public class MarvinJSRendererTest {
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_viewer_withMDLV3000Format_withV3000ToV2000_notConvertible() throws IOException {
+		servletContext.addInitParameter(WEBXML_MARVINJS_V3000_TO_V2000, "true");
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setFormat(MolPluginCore.Format.MDLV3000.toString());
+		comp.setReadonly(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MarvinJSRendererTest.class,
+				"MarvinJSRendererTest_encode_viewer_withMDLV3000Format.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_viewer_withMDLV3000Format_withV3000ToV2000() throws IOException {
+		servletContext.addInitParameter(WEBXML_MARVINJS_V3000_TO_V2000, "true");
+		comp.setId("myId");
+		comp.setValue(v3000Molfile);
+		comp.setFormat(MolPluginCore.Format.MDLV3000.toString());
+		comp.setReadonly(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains("V2000"));
+		assertFalse(output.contains("V3000"));
+		assertTrue(output.contains(", \"baseUrl\", 400, 400, \"MDLV2000\");"));
+	}
+
+	@Test
+	public void test_encode_viewer_withMDLV3000Format_withoutV3000ToV2000() throws IOException {
+		comp.setId("myId");
+		comp.setValue(v3000Molfile);
+		comp.setFormat(MolPluginCore.Format.MDLV3000.toString());
+		comp.setReadonly(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains("V3000"));
+		assertTrue(output.contains(", \"baseUrl\", 400, 400, \"MDLV3000\");"));
+	}
+
 	@Test
 	public void test_encode_viewer_withWebservices() throws IOException {
 		servletContext.addInitParameter(WEBXML_MARVINJS_WEBSERVICES, "true");
@@ -153,6 +198,20 @@ public class MarvinJSRendererTest {
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_viewer_withDepictionCache() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setWidgetVar("viewer1");
+		comp.setDepictionCache(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MarvinJSRendererTest.class,
+				"MarvinJSRendererTest_encode_viewer_withDepictionCache.txt");
+		assertEquals(expected, writer.toString());
+	}
+
 	@Test
 	public void test_encode_viewer_withPassthroughAttribute() throws IOException {
 		comp.setId("myId");
@@ -192,6 +251,59 @@ public class MarvinJSRendererTest {
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_editor_withChangeDebounce() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setChangeDebounce(250);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MarvinJSRendererTest.class,
+				"MarvinJSRendererTest_encode_editor_withChangeDebounce.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withClickActivation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setActivation(MolPluginCore.Activation.click.toString());
+		comp.setWidgetVar("editor1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MarvinJSRendererTest.class,
+				"MarvinJSRendererTest_encode_editor_withClickActivation.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_viewer_withClickActivation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setActivation(MolPluginCore.Activation.click.toString());
+		comp.setWidgetVar("viewer1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MarvinJSRendererTest.class,
+				"MarvinJSRendererTest_encode_viewer_withWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withEditorPool() throws IOException {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "2");
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setEditorPool("myPool");
+		comp.setWidgetVar("editor1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MarvinJSRendererTest.class,
+				"MarvinJSRendererTest_encode_editor_withEditorPool.txt");
+		assertEquals(expected, writer.toString());
+	}
+
 	@Test
 	public void test_encode_editor_withWidgetVar() throws IOException {
 		comp.setId("myId");
@@ -240,4 +352,10 @@ public class MarvinJSRendererTest {
 				"MarvinJSRendererTest_encode_editor_withPassthroughAttribute.txt");
 		assertEquals(expected, writer.toString());
 	}
+
+	private String v3000Molfile = "\n" + "Actelion Java MolfileCreator 2.0\n" + "\n"
+			+ "  0  0  0  0  0  0              0 V3000\n" + "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 2 1 0 0 0\n"
+			+ "M  V30 BEGIN ATOM\n" + "M  V30 1 C 10.3125 -11.8125 0 0\n" + "M  V30 2 O 11.6115 -11.0625 0 0\n"
+			+ "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n" + "M  V30 1 1 1 2\n" + "M  V30 END BOND\n"
+			+ "M  V30 END CTAB\n" + "M  END";
 }
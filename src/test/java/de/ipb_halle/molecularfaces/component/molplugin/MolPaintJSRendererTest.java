@@ -19,7 +19,9 @@ package de.ipb_halle.molecularfaces.component.molplugin;
 
 import static de.ipb_halle.molecularfaces.component.molplugin.MolPaintJSComponent.WEBXML_CUSTOM_RESOURCE_URL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -33,6 +35,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import de.ipb_halle.molecularfaces.converter.SmilesTranscoder;
 import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
 import de.ipb_halle.molecularfaces.test.TestUtils;
 
@@ -74,6 +77,40 @@ public class MolPaintJSRendererTest {
 		assertEquals("", writer.toString());
 	}
 
+	@Test
+	public void test_encode_editor_withSMILESFormat_sendsV2000Molfile() throws IOException {
+		comp.setId("myId");
+		comp.setValue("CCO");
+		comp.setFormat(MolPluginCore.Format.SMILES.toString());
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains(" V2000"));
+		assertTrue(output.contains("\"MDLV2000\""));
+		assertFalse(output.contains("CCO"));
+		assertFalse(output.contains("SMILES"));
+	}
+
+	@Test
+	public void test_decode_withSMILESFormat() {
+		comp.setId("myId");
+		comp.setFormat(MolPluginCore.Format.SMILES.toString());
+		rule.getContainer().getRequest().addParameter("myId", SmilesTranscoder.toV2000("OCC"));
+
+		renderer.decode(context, comp);
+		assertEquals("OCC", comp.getSubmittedValue());
+	}
+
+	@Test
+	public void test_decode_withSMILESFormat_withInvalidMolfile() {
+		comp.setId("myId");
+		comp.setFormat(MolPluginCore.Format.SMILES.toString());
+		rule.getContainer().getRequest().addParameter("myId", "invalid");
+
+		renderer.decode(context, comp);
+		assertEquals("invalid", comp.getSubmittedValue());
+	}
+
 	/*
 	 * Viewer
 	 */
@@ -194,6 +231,59 @@ public class MolPaintJSRendererTest {
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_editor_withChangeDebounce() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setChangeDebounce(250);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MolPaintJSRendererTest.class,
+				"MolPaintJSRendererTest_encode_editor_withChangeDebounce.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withClickActivation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setActivation(MolPluginCore.Activation.click.toString());
+		comp.setWidgetVar("editor1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MolPaintJSRendererTest.class,
+				"MolPaintJSRendererTest_encode_editor_withClickActivation.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_viewer_withClickActivation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setActivation(MolPluginCore.Activation.click.toString());
+		comp.setWidgetVar("viewer1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MolPaintJSRendererTest.class,
+				"MolPaintJSRendererTest_encode_viewer_withWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withEditorPool() throws IOException {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "2");
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setEditorPool("myPool");
+		comp.setWidgetVar("editor1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(MolPaintJSRendererTest.class,
+				"MolPaintJSRendererTest_encode_editor_withEditorPool.txt");
+		assertEquals(expected, writer.toString());
+	}
+
 	@Test
 	public void test_encode_editor_withWidgetVar() throws IOException {
 		comp.setId("myId");
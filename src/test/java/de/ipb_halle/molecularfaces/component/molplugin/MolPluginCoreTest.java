@@ -25,11 +25,16 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import jakarta.faces.application.FacesMessage;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.event.PostAddToViewEvent;
@@ -37,7 +42,11 @@ import jakarta.faces.event.PostAddToViewEvent;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
 
+import de.ipb_halle.molecularfaces.converter.LazyAtomContainer;
 import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
 import de.ipb_halle.molecularfaces.util.ResourceLoader;
 
@@ -65,10 +74,26 @@ public class MolPluginCoreTest {
 
 	@Test
 	public void test_gettersAndSettersAndDefaults() {
+		assertEquals(MolPluginCore.DEFAULT_ACTIVATION, comp.getActivation());
+		comp.setActivation("click");
+		assertEquals("click", comp.getActivation());
+
 		assertFalse(comp.isBorder());
 		comp.setBorder(true);
 		assertTrue(comp.isBorder());
 
+		assertEquals(MolPluginCore.DEFAULT_CHANGE_DEBOUNCE, comp.getChangeDebounce());
+		comp.setChangeDebounce(250);
+		assertEquals(250, comp.getChangeDebounce());
+
+		assertFalse(comp.isDepictionCache());
+		comp.setDepictionCache(true);
+		assertTrue(comp.isDepictionCache());
+
+		assertNull(comp.getEditorPool());
+		comp.setEditorPool("myPool");
+		assertEquals("myPool", comp.getEditorPool());
+
 		assertEquals(MolPluginCore.DEFAULT_FORMAT, comp.getFormat());
 		comp.setFormat("some format");
 		assertEquals("some format", comp.getFormat());
@@ -77,10 +102,18 @@ public class MolPluginCoreTest {
 		comp.setHeight(42);
 		assertEquals(42, comp.getHeight());
 
+		assertFalse(comp.isLiveValidation());
+		comp.setLiveValidation(true);
+		assertTrue(comp.isLiveValidation());
+
 		assertFalse(comp.isReadonly());
 		comp.setReadonly(true);
 		assertTrue(comp.isReadonly());
 
+		assertFalse(comp.isValueHandle());
+		comp.setValueHandle(true);
+		assertTrue(comp.isValueHandle());
+
 		assertNull(comp.getWidgetVar());
 		comp.setWidgetVar("myWidgetVar");
 		assertEquals("myWidgetVar", comp.getWidgetVar());
@@ -88,6 +121,183 @@ public class MolPluginCoreTest {
 		assertEquals(MolPluginCore.DEFAULT_WIDTH, comp.getWidth());
 		comp.setWidth(42);
 		assertEquals(42, comp.getWidth());
+
+		assertFalse(comp.isWorkerDepiction());
+		comp.setWorkerDepiction(true);
+		assertTrue(comp.isWorkerDepiction());
+	}
+
+	@Test
+	public void test_setValue_withValueHandle_keepsValueOutOfState() {
+		String molfile = "molfile" + "x".repeat(1000);
+		comp.setValueHandle(true);
+		comp.setValue(molfile);
+
+		assertEquals(molfile, comp.getValue());
+		assertEquals(molfile, comp.getLocalValue());
+		assertTrue(comp.isLocalValueSet());
+
+		Object state = comp.saveState(context);
+		assertFalse(containsValue(state, molfile));
+		MoleculeHandle handle = findHandle(state);
+		assertNotNull(handle);
+
+		// next request
+		context.getAttributes().remove(handle);
+		MolPluginCore restored = new MolPluginCore() {};
+		restored.restoreState(context, state);
+		assertEquals(molfile, restored.getValue());
+		assertEquals(molfile, restored.getLocalValue());
+	}
+
+	@Test
+	public void test_setValue_withValueHandle_withEvictedValue() {
+		context.getExternalContext().getSession(true);
+		context.getExternalContext().getSessionMap().put(MoleculeStore.SESSION_ATTRIBUTE, new MoleculeStore(1));
+		comp.setValueHandle(true);
+		comp.setValue("molfile 1");
+		Object state = comp.saveState(context);
+		MoleculeStore.getInstance(context).put("molfile 2");
+		MoleculeHandle handle = findHandle(state);
+
+		// the current request still knows the value
+		assertEquals("molfile 1", comp.getValue());
+
+		// next request
+		context.getAttributes().remove(handle);
+		MolPluginCore restored = new MolPluginCore() {};
+		restored.restoreState(context, state);
+		assertNull(restored.getLocalValue());
+		assertNull(restored.getValue());
+
+		// reading the value has no side effects
+		assertTrue(restored.isValid());
+		assertFalse(context.isValidationFailed());
+		assertThat(context.getMessageList(), hasSize(0));
+
+		restored.validate(context);
+
+		// the value is not silently replaced by the value expression
+		assertTrue(restored.isLocalValueSet());
+		assertFalse(restored.isValid());
+		assertTrue(context.isValidationFailed());
+		List<FacesMessage> messages = context.getMessageList(restored.getClientId(context));
+		assertThat(messages, hasSize(1));
+		assertEquals(FacesMessage.SEVERITY_ERROR, messages.get(0).getSeverity());
+		assertEquals(MolPluginCore.VALUE_EXPIRED_MESSAGE, messages.get(0).getSummary());
+	}
+
+	@Test
+	public void test_validate_withValueHandle_withSubmittedValue() {
+		context.getExternalContext().getSession(true);
+		context.getExternalContext().getSessionMap().put(MoleculeStore.SESSION_ATTRIBUTE, new MoleculeStore(1));
+		comp.setValueHandle(true);
+		comp.setValue("molfile 1");
+		Object state = comp.saveState(context);
+		MoleculeStore.getInstance(context).put("molfile 2");
+		context.getAttributes().remove(findHandle(state));
+		MolPluginCore restored = new MolPluginCore() {};
+		restored.restoreState(context, state);
+		context.getViewRoot().getChildren().add(restored);
+
+		// a re-entered value replaces the expired one
+		restored.setSubmittedValue("molfile 3");
+		restored.validate(context);
+
+		assertTrue(restored.isValid());
+		assertEquals("molfile 3", restored.getValue());
+		assertThat(context.getMessageList(), hasSize(0));
+	}
+
+	@Test
+	public void test_setValue_withoutValueHandle() {
+		comp.setValue("molfile");
+		assertEquals("molfile", comp.getValue());
+
+		comp.setValueHandle(true);
+		comp.setValue(null);
+		assertNull(comp.getValue());
+	}
+
+	@Test
+	public void test_setValue_withAtomContainer_savesCompactEncoding() {
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new Atom("C"));
+		comp.setValue(mol);
+		assertSame(mol, comp.getValue());
+		assertSame(mol, comp.getLocalValue());
+
+		Object state = comp.saveState(context);
+		assertFalse(containsValue(state, mol));
+
+		MolPluginCore restored = new MolPluginCore() {};
+		restored.restoreState(context, state);
+		IAtomContainer restoredMol = (IAtomContainer) restored.getValue();
+		assertEquals(1, restoredMol.getAtomCount());
+		assertEquals("C", restoredMol.getAtom(0).getSymbol());
+		assertSame(restoredMol, restored.getLocalValue());
+	}
+
+	@Test
+	public void test_setValue_withUnparsedLazyAtomContainer() {
+		IAtomContainer mol = LazyAtomContainer.create("molfile", false);
+		comp.setValue(mol);
+		comp.saveState(context);
+
+		assertSame(mol, comp.getValue());
+		assertTrue(LazyAtomContainer.isUnparsed(mol));
+	}
+
+	@Test
+	public void test_moleculeStore() {
+		MoleculeStore store = new MoleculeStore(2);
+		MoleculeHandle handle1 = store.put("molfile");
+		assertEquals(handle1, store.put("molfile"));
+		assertEquals("molfile", store.get(handle1));
+
+		Object molecule = new Object();
+		MoleculeHandle handle2 = store.put(molecule);
+		assertSame(molecule, store.get(handle2));
+
+		store.put("other molfile");
+		assertNull(store.get(handle1));
+	}
+
+	@Test
+	public void test_moleculeStore_getInstance_isSessionScoped() {
+		MoleculeStore store = MoleculeStore.getInstance(context);
+
+		assertNotNull(context.getExternalContext().getSession(false));
+		assertSame(store, context.getExternalContext().getSessionMap().get(MoleculeStore.SESSION_ATTRIBUTE));
+		assertSame(store, MoleculeStore.getInstance(context));
+	}
+
+	private boolean containsValue(Object state, Object value) {
+		if (value.equals(state)) {
+			return true;
+		} else if (state instanceof Object[]) {
+			return Arrays.stream((Object[]) state).anyMatch(element -> containsValue(element, value));
+		} else if (state instanceof Map) {
+			return containsValue(((Map<?, ?>) state).keySet().toArray(), value)
+					|| containsValue(((Map<?, ?>) state).values().toArray(), value);
+		}
+
+		return false;
+	}
+
+	private MoleculeHandle findHandle(Object state) {
+		if (state instanceof MoleculeHandle) {
+			return (MoleculeHandle) state;
+		} else if (state instanceof Object[]) {
+			for (Object element : (Object[]) state) {
+				MoleculeHandle handle = findHandle(element);
+				if (handle != null) {
+					return handle;
+				}
+			}
+		}
+
+		return null;
 	}
 
 	@Test
@@ -18,18 +18,27 @@
 package de.ipb_halle.molecularfaces.component.molplugin;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
 
 import jakarta.faces.component.UIOutput;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.convert.BooleanConverter;
 
 import org.apache.myfaces.test.mock.MockHttpServletRequest;
+import org.apache.myfaces.test.mock.MockServletContext;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
 
+import de.ipb_halle.molecularfaces.depiction.DepictionJobs;
 import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
 
 /**
@@ -39,6 +48,7 @@ import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
 public class MolPluginRendererTest {
 	private FacesContext context;
 	private MockHttpServletRequest servletRequest;
+	private MockServletContext servletContext;
 	private MolPluginCore comp;
 	private MolPluginRenderer renderer = new MolPluginRenderer() {};
 
@@ -49,6 +59,7 @@ public class MolPluginRendererTest {
 	public void init() {
 		context = rule.getContainer().getFacesContext();
 		servletRequest = rule.getContainer().getRequest();
+		servletContext = rule.getContainer().getServletContext();
 		comp = new MolPluginCore() {};
 	}
 
@@ -118,4 +129,186 @@ public class MolPluginRendererTest {
 		comp.setBorder(true);
 		assertEquals("width:1234px;height:9876px;border:solid;border-width:1px;", renderer.generateDivStyle(comp));
 	}
+
+	/*
+	 * Tests for generateSetDebounceJS(MolPluginCore)
+	 */
+	@Test
+	public void test_generateSetDebounceJS() {
+		assertEquals("", renderer.generateSetDebounceJS(comp));
+
+		comp.setChangeDebounce(0);
+		assertEquals(".setDebounce(0)", renderer.generateSetDebounceJS(comp));
+
+		comp.setChangeDebounce(250);
+		assertEquals(".setDebounce(250)", renderer.generateSetDebounceJS(comp));
+	}
+
+	/*
+	 * Tests for isClickActivated(MolPluginCore)
+	 */
+	@Test
+	public void test_isClickActivated() {
+		assertFalse(renderer.isClickActivated(comp));
+
+		comp.setActivation("click");
+		assertTrue(renderer.isClickActivated(comp));
+
+		comp.setActivation("load");
+		assertFalse(renderer.isClickActivated(comp));
+
+		comp.setEditorPool("myPool");
+		assertTrue(renderer.isClickActivated(comp));
+	}
+
+	/*
+	 * Tests for isEditorPooled(MolPluginCore)
+	 */
+	@Test
+	public void test_isEditorPooled() {
+		assertFalse(renderer.isEditorPooled(comp));
+
+		comp.setEditorPool("");
+		assertFalse(renderer.isEditorPooled(comp));
+
+		comp.setEditorPool("myPool");
+		assertTrue(renderer.isEditorPooled(comp));
+	}
+
+	/*
+	 * Tests for generatePreviewSVG(FacesContext, MolPluginCore)
+	 */
+	@Test
+	public void test_generatePreviewSVG_withMolfile() {
+		comp.setValue(molfile);
+		String svg = renderer.generatePreviewSVG(context, comp);
+
+		assertTrue(svg.startsWith("<svg"));
+		assertTrue(svg.endsWith("</svg>"));
+	}
+
+	@Test
+	public void test_generatePreviewSVG_withAtomContainer() {
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new Atom("C"));
+		comp.setValue(mol);
+
+		assertTrue(renderer.generatePreviewSVG(context, comp).startsWith("<svg"));
+	}
+
+	@Test
+	public void test_generatePreviewSVG_withEmptyOrInvalidValue_returnsEmptyString() {
+		assertEquals("", renderer.generatePreviewSVG(context, comp));
+
+		comp.setValue("");
+		assertEquals("", renderer.generatePreviewSVG(context, comp));
+
+		comp.setValue("invalid molfile");
+		assertEquals("", renderer.generatePreviewSVG(context, comp));
+	}
+
+	@Test
+	public void test_generatePreviewSVG_withSubmittedJob() {
+		comp.setId("myId");
+		comp.setValue(molfile);
+		comp.setActivation("click");
+		renderer.submitDepictionJobs(context, comp, DepictionJobs.getInstance(context));
+
+		assertTrue(renderer.generatePreviewSVG(context, comp).startsWith("<svg"));
+		assertNull(DepictionJobs.remove(context, "myId"));
+	}
+
+	@Test
+	public void test_submitDepictionJobs_withoutPreview_submitsNothing() {
+		comp.setId("myId");
+		comp.setValue(molfile);
+		renderer.submitDepictionJobs(context, comp, DepictionJobs.getInstance(context));
+		assertNull(DepictionJobs.remove(context, "myId"));
+
+		comp.setActivation("click");
+		comp.setReadonly(true);
+		renderer.submitDepictionJobs(context, comp, DepictionJobs.getInstance(context));
+		assertNull(DepictionJobs.remove(context, "myId"));
+	}
+
+	/*
+	 * Tests for writeWidgetVarJS(Appendable, MolPluginCore)
+	 */
+	@Test
+	public void test_writeWidgetVarJS() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		renderer.writeWidgetVarJS(sb, comp);
+		assertEquals("", sb.toString());
+
+		comp.setWidgetVar("");
+		renderer.writeWidgetVarJS(sb, comp);
+		assertEquals("", sb.toString());
+
+		comp.setWidgetVar("editor1");
+		renderer.writeWidgetVarJS(sb, comp);
+		assertEquals("var editor1 = ", sb.toString());
+	}
+
+	/*
+	 * Tests for writeEditorStartJS(Appendable, MolPluginCore, String, String,
+	 * String, String)
+	 */
+	@Test
+	public void test_writeEditorStartJS() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		renderer.writeEditorStartJS(sb, comp, "loader", null, null, "");
+		assertEquals("loader.status().then(() => {", sb.toString());
+
+		comp.setWidgetVar("editor1");
+		sb = new StringBuilder();
+		renderer.writeEditorStartJS(sb, comp, "loader", null, null, "");
+		assertEquals("var editor1 = loader.status().then(() => {", sb.toString());
+
+		sb = new StringBuilder();
+		renderer.writeEditorStartJS(sb, comp, "loader", "preview", "target", "");
+		assertEquals("var editor1 = molecularfaces.ClickActivation.whenClicked(\"preview\", \"target\")"
+				+ ".then(() => {return loader.status();}).then(() => {", sb.toString());
+
+		sb = new StringBuilder();
+		renderer.writeEditorStartJS(sb, comp, "loader", "preview", null, "doSomething();");
+		assertEquals("var editor1 = molecularfaces.ClickActivation.whenClicked(\"preview\", null)"
+				+ ".then(() => {doSomething();return loader.status();}).then(() => {", sb.toString());
+	}
+
+	/*
+	 * Tests for writePooledEditorStartJS(Appendable, FacesContext, MolPluginCore,
+	 * String, String, String, String, boolean)
+	 */
+	@Test
+	public void test_writePooledEditorStartJS() throws IOException {
+		comp.setEditorPool("myPool");
+		comp.setWidgetVar("editor1");
+		comp.setChangeDebounce(250);
+
+		StringBuilder sb = new StringBuilder();
+		renderer.writePooledEditorStartJS(sb, context, comp, "loader", "preview", "input", "Plugin", true);
+		assertEquals("var editor1 = molecularfaces.EditorPool.getPool(\"myPool\", 1).register(\"preview\", \"input\", {"
+				+ "signature: \"Plugin MDLV2000 400x400\", height: 400, width: 400, debounce: 250, recreate: true, "
+				+ "loadResources: () => {return loader.status();}, ", sb.toString());
+	}
+
+	@Test
+	public void test_writePooledEditorStartJS_withPoolSize() throws IOException {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "3");
+		comp.setEditorPool("my\"Pool");
+		comp.setFormat("MDLV3000");
+		comp.setWidth(300);
+
+		StringBuilder sb = new StringBuilder();
+		renderer.writePooledEditorStartJS(sb, context, comp, "loader", "preview", "input", "Plugin", false);
+		assertEquals("molecularfaces.EditorPool.getPool(\"my\\\"Pool\", 3).register(\"preview\", \"input\", {"
+				+ "signature: \"Plugin MDLV3000 300x400\", height: 400, width: 300, debounce: -1, recreate: false, "
+				+ "loadResources: () => {return loader.status();}, ", sb.toString());
+	}
+
+	private String molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "   11.6115  -11.0625   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END\n";
 }
@@ -0,0 +1,359 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.molplugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+
+import jakarta.el.ELResolver;
+import jakarta.el.ExpressionFactory;
+import jakarta.el.FunctionMapper;
+import jakarta.el.MethodExpression;
+import jakarta.el.ValueExpression;
+import jakarta.el.VariableMapper;
+import jakarta.faces.FactoryFinder;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.UIPanel;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.Converter;
+import jakarta.faces.view.Location;
+import jakarta.faces.view.facelets.FaceletContext;
+import jakarta.faces.view.facelets.FaceletHandler;
+import jakarta.faces.view.facelets.Tag;
+import jakarta.faces.view.facelets.TagAttribute;
+import jakarta.faces.view.facelets.TagAttributeException;
+import jakarta.faces.view.facelets.TagConfig;
+import jakarta.faces.view.facelets.TagException;
+
+import org.apache.myfaces.view.facelets.tag.TagAttributeImpl;
+import org.apache.myfaces.view.facelets.tag.TagAttributesImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.converter.DummyConverter;
+import de.ipb_halle.molecularfaces.converter.MDLV2000Converter;
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class MoleculeTagHandlerTest {
+	private static final String NAMESPACE = "http://github.com/ipb-halle/MolecularFaces";
+	private static final Location LOCATION = new Location("test.xhtml", 1, 1);
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	private FaceletContext ctx;
+
+	@Before
+	public void init() {
+		// required by ComponentHandler
+		FactoryFinder.setFactory(FactoryFinder.TAG_HANDLER_DELEGATE_FACTORY,
+				"org.apache.myfaces.view.facelets.tag.faces.TagHandlerDelegateFactoryImpl");
+
+		rule.getContainer().getApplication().addConverter(MoleculeTagHandler.DEFAULT_CONVERTER_ID,
+				DummyConverter.class.getName());
+		rule.getContainer().getApplication().addConverter("molecularfaces.MDLV2000Converter",
+				MDLV2000Converter.class.getName());
+		ctx = new TestFaceletContext(rule.getContainer().getFacesContext());
+	}
+
+	@Test
+	public void test_getComponentType() {
+		assertEquals(OpenChemLibJSComponent.COMPONENT_TYPE, MoleculeTagHandler.getComponentType("OpenChemLibJS"));
+		assertEquals(MolPaintJSComponent.COMPONENT_TYPE, MoleculeTagHandler.getComponentType("MolPaintJS"));
+		assertEquals(MarvinJSComponent.COMPONENT_TYPE, MoleculeTagHandler.getComponentType("MarvinJS"));
+		assertNull(MoleculeTagHandler.getComponentType("openchemlibjs"));
+		assertNull(MoleculeTagHandler.getComponentType(null));
+	}
+
+	@Test
+	public void test_constructor_withoutValue_throwsTagException() {
+		TagConfig config = createTagConfig(attribute("pluginType", "MarvinJS"));
+		assertThrows(TagException.class, () -> new MoleculeTagHandler(config));
+	}
+
+	@Test
+	public void test_apply_withUnknownPluginType() throws IOException {
+		MoleculeTagHandler handler = new MoleculeTagHandler(
+				createTagConfig(attribute("pluginType", "UnknownJS"), attribute("value", "#{bean.molecule}")));
+		UIPanel parent = new UIPanel();
+
+		handler.apply(null, parent);
+
+		assertTrue(parent.getChildren().isEmpty());
+	}
+
+	@Test
+	public void test_applyConverter_withoutConverterAttribute_setsDummyConverter() {
+		MoleculeTagHandler handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}")));
+		OpenChemLibJSComponent component = new OpenChemLibJSComponent();
+
+		handler.applyConverter(ctx, component);
+
+		assertTrue(component.getConverter() instanceof DummyConverter);
+	}
+
+	@Test
+	public void test_applyConverter_withEmptyConverterId_setsDummyConverter() {
+		MoleculeTagHandler handler = new MoleculeTagHandler(
+				createTagConfig(attribute("value", "#{bean.molecule}"), attribute("converter", "")));
+		OpenChemLibJSComponent component = new OpenChemLibJSComponent();
+
+		handler.applyConverter(ctx, component);
+
+		assertTrue(component.getConverter() instanceof DummyConverter);
+	}
+
+	@Test
+	public void test_applyConverter_withConverterId() {
+		MoleculeTagHandler handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}"),
+				attribute("converter", "molecularfaces.MDLV2000Converter")));
+		MarvinJSComponent component = new MarvinJSComponent();
+
+		handler.applyConverter(ctx, component);
+
+		assertTrue(component.getConverter() instanceof MDLV2000Converter);
+	}
+
+	@Test
+	public void test_applyConverter_withExpression() {
+		Converter<?> converter = new MDLV2000Converter();
+		MoleculeTagHandler handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}"),
+				new ExpressionAttribute("converter", "#{bean.converter}", converter)));
+		MolPaintJSComponent component = new MolPaintJSComponent();
+
+		handler.applyConverter(ctx, component);
+		assertSame(converter, component.getConverter());
+
+		handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}"),
+				new ExpressionAttribute("converter", "#{bean.converterId}", "molecularfaces.MDLV2000Converter")));
+		component = new MolPaintJSComponent();
+
+		handler.applyConverter(ctx, component);
+		assertTrue(component.getConverter() instanceof MDLV2000Converter);
+
+		handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}"),
+				new ExpressionAttribute("converter", "#{bean.nothing}", null)));
+		component = new MolPaintJSComponent();
+
+		handler.applyConverter(ctx, component);
+		assertTrue(component.getConverter() instanceof DummyConverter);
+	}
+
+	@Test
+	public void test_applyConverter_withInvalidExpressionValue_throwsTagAttributeException() {
+		MoleculeTagHandler handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}"),
+				new ExpressionAttribute("converter", "#{bean.number}", Integer.valueOf(42))));
+		OpenChemLibJSComponent component = new OpenChemLibJSComponent();
+
+		assertThrows(TagAttributeException.class, () -> handler.applyConverter(ctx, component));
+	}
+
+	@Test
+	public void test_applyConverter_withoutValueHolder() {
+		MoleculeTagHandler handler = new MoleculeTagHandler(createTagConfig(attribute("value", "#{bean.molecule}")));
+		UIPanel component = new UIPanel();
+
+		// no exception
+		handler.applyConverter(ctx, component);
+	}
+
+	private TagAttribute attribute(String name, String value) {
+		return new TagAttributeImpl(LOCATION, "", name, name, value);
+	}
+
+	private TagConfig createTagConfig(TagAttribute... attributes) {
+		Tag tag = new Tag(LOCATION, NAMESPACE, "molecule", "mol:molecule", new TagAttributesImpl(attributes));
+		FaceletHandler nextHandler = (ctx, parent) -> {
+		};
+
+		return new TagConfig() {
+			@Override
+			public Tag getTag() {
+				return tag;
+			}
+
+			@Override
+			public String getTagId() {
+				return "tag1";
+			}
+
+			@Override
+			public FaceletHandler getNextHandler() {
+				return nextHandler;
+			}
+		};
+	}
+
+	/*
+	 * FaceletContext that only provides the FacesContext.
+	 */
+	private static class TestFaceletContext extends FaceletContext {
+		private final FacesContext facesContext;
+
+		TestFaceletContext(FacesContext facesContext) {
+			this.facesContext = facesContext;
+		}
+
+		@Override
+		public FacesContext getFacesContext() {
+			return facesContext;
+		}
+
+		@Override
+		public String generateUniqueId(String base) {
+			return base;
+		}
+
+		@Override
+		public ExpressionFactory getExpressionFactory() {
+			return null;
+		}
+
+		@Override
+		public void setVariableMapper(VariableMapper varMapper) {
+		}
+
+		@Override
+		public void setFunctionMapper(FunctionMapper fnMapper) {
+		}
+
+		@Override
+		public void setAttribute(String name, Object value) {
+		}
+
+		@Override
+		public Object getAttribute(String name) {
+			return null;
+		}
+
+		@Override
+		public void includeFacelet(UIComponent parent, String relativePath) throws IOException {
+		}
+
+		@Override
+		public void includeFacelet(UIComponent parent, URL absolutePath) throws IOException {
+		}
+
+		@Override
+		public ELResolver getELResolver() {
+			return null;
+		}
+
+		@Override
+		public FunctionMapper getFunctionMapper() {
+			return null;
+		}
+
+		@Override
+		public VariableMapper getVariableMapper() {
+			return null;
+		}
+	}
+
+	/*
+	 * Non-literal TagAttribute that evaluates to a fixed object.
+	 */
+	private static class ExpressionAttribute extends TagAttribute {
+		private final String name;
+		private final String expression;
+		private final Object result;
+
+		ExpressionAttribute(String name, String expression, Object result) {
+			this.name = name;
+			this.expression = expression;
+			this.result = result;
+		}
+
+		@Override
+		public boolean getBoolean(FaceletContext ctx) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int getInt(FaceletContext ctx) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getLocalName() {
+			return name;
+		}
+
+		@Override
+		public Location getLocation() {
+			return LOCATION;
+		}
+
+		@Override
+		public MethodExpression getMethodExpression(FaceletContext ctx, @SuppressWarnings("rawtypes") Class type,
+				@SuppressWarnings("rawtypes") Class[] paramTypes) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getNamespace() {
+			return "";
+		}
+
+		@Override
+		public Object getObject(FaceletContext ctx) {
+			return result;
+		}
+
+		@Override
+		public Object getObject(FaceletContext ctx, @SuppressWarnings("rawtypes") Class type) {
+			return result;
+		}
+
+		@Override
+		public String getQName() {
+			return name;
+		}
+
+		@Override
+		public String getValue() {
+			return expression;
+		}
+
+		@Override
+		public String getValue(FaceletContext ctx) {
+			return (result == null) ? null : result.toString();
+		}
+
+		@Override
+		public ValueExpression getValueExpression(FaceletContext ctx, @SuppressWarnings("rawtypes") Class type) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isLiteral() {
+			return false;
+		}
+	}
+}
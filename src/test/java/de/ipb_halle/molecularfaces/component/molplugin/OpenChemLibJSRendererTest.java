@@ -19,7 +19,9 @@ package de.ipb_halle.molecularfaces.component.molplugin;
 
 import static de.ipb_halle.molecularfaces.component.molplugin.OpenChemLibJSComponent.WEBXML_CUSTOM_RESOURCE_URL;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.StringWriter;
@@ -33,6 +35,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import de.ipb_halle.molecularfaces.converter.MolfileMinifier;
 import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
 import de.ipb_halle.molecularfaces.test.TestUtils;
 
@@ -114,10 +117,26 @@ public class OpenChemLibJSRendererTest {
 
 		TestUtils.encodeRenderer(renderer, context, comp);
 		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
-				"OpenChemLibJSRendererTest_encode_viewer_withoutWidgetVar.txt");
+				"OpenChemLibJSRendererTest_encode_viewer_withMDLV3000Format.txt");
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_viewer_withMinifiedMolfiles() throws IOException {
+		servletContext.addInitParameter(MolfileMinifier.WEBXML_MINIFY_MOLFILES, "true");
+		String molfile = "\n  CDK     1019261200\n\n  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+				+ "    1.2345    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\nM  END\n";
+		comp.setId("myId");
+		comp.setValue(molfile);
+		comp.setReadonly(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains("    1.2300    0.0000    0.0000 C  "));
+		assertFalse(output.contains("1.2345"));
+		assertFalse(output.contains("1019261200"));
+	}
+
 	@Test
 	public void test_encode_viewer_withWidgetVar() throws IOException {
 		comp.setId("myId");
@@ -146,6 +165,75 @@ public class OpenChemLibJSRendererTest {
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_viewer_withWorkerDepiction_resourceNotFound() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setWorkerDepiction(true);
+
+		// The mocked ResourceHandler does not find openchemlib-full.js, thus the viewer depicts on the main thread.
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_viewer_withoutWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_viewer_withCustomResourceUrl_withWorkerDepiction() throws IOException {
+		servletContext.addInitParameter(WEBXML_CUSTOM_RESOURCE_URL, "/plugins/openchemlib-full.js");
+		comp = new OpenChemLibJSComponent();
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setWorkerDepiction(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_viewer_withCustomResourceUrl_withWorkerDepiction.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_viewer_withCustomResourceUrl_withDepictionCache() throws IOException {
+		servletContext.addInitParameter(WEBXML_CUSTOM_RESOURCE_URL, "/plugins/openchemlib-full.js");
+		comp = new OpenChemLibJSComponent();
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setWidgetVar("viewer1");
+		comp.setDepictionCache(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_viewer_withCustomResourceUrl_withDepictionCache.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withDepictionCache() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setDepictionCache(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_editor_withoutWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withWorkerDepiction() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setWorkerDepiction(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_editor_withoutWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
 	@Test
 	public void test_encode_viewer_withPassthroughAttribute() throws IOException {
 		comp.setId("myId");
@@ -197,6 +285,84 @@ public class OpenChemLibJSRendererTest {
 		assertEquals(expected, writer.toString());
 	}
 
+	@Test
+	public void test_encode_editor_withLiveValidation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setLiveValidation(true);
+		comp.setFormat(MolPluginCore.Format.MDLV3000.toString());
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains("molecularfaces.LiveValidation.attach(\"myId_Input\", \""));
+		assertTrue(output.contains("validation.json"));
+		assertTrue(output.contains("\"V3000\", " + MolPluginRenderer.LIVE_VALIDATION_DELAY + ");"));
+	}
+
+	@Test
+	public void test_encode_editor_withLiveValidation_withSmiles() throws IOException {
+		comp.setId("myId");
+		comp.setValue("CCO");
+		comp.setLiveValidation(true);
+		comp.setFormat(MolPluginCore.Format.SMILES.toString());
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertFalse(writer.toString().contains("LiveValidation"));
+	}
+
+	@Test
+	public void test_encode_editor_withChangeDebounce() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setChangeDebounce(250);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_editor_withChangeDebounce.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withClickActivation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setActivation(MolPluginCore.Activation.click.toString());
+		comp.setWidgetVar("editor1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_editor_withClickActivation.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_viewer_withClickActivation() throws IOException {
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setReadonly(true);
+		comp.setActivation(MolPluginCore.Activation.click.toString());
+		comp.setWidgetVar("viewer1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_viewer_withWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_editor_withEditorPool() throws IOException {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "2");
+		comp.setId("myId");
+		comp.setValue("molfile");
+		comp.setEditorPool("myPool");
+		comp.setWidgetVar("editor1");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(OpenChemLibJSRendererTest.class,
+				"OpenChemLibJSRendererTest_encode_editor_withEditorPool.txt");
+		assertEquals(expected, writer.toString());
+	}
+
 	@Test
 	public void test_encode_editor_withWidgetVar() throws IOException {
 		comp.setId("myId");
@@ -0,0 +1,149 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.structuregrid;
+
+import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_BASE_URL;
+import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES;
+import static de.ipb_halle.molecularfaces.component.molplugin.OpenChemLibJSComponent.WEBXML_CUSTOM_RESOURCE_URL;
+import static de.ipb_halle.molecularfaces.test.TestUtils.getResourceComponentsFromHead;
+import static de.ipb_halle.molecularfaces.test.TestUtils.matchingResourceComponentsInList;
+import static de.ipb_halle.molecularfaces.util.ResourceLoader.JAVASCRIPT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.event.PostAddToViewEvent;
+
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+import de.ipb_halle.molecularfaces.util.ResourceLoader;
+
+/**
+ * 
+ * @author flange
+ */
+public class StructureGridComponentTest {
+	private FacesContext context;
+	private MockServletContext servletContext;
+	private StructureGridComponent comp;
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		servletContext = rule.getContainer().getServletContext();
+		comp = new StructureGridComponent();
+	}
+
+	@Test
+	public void test_rendererType() {
+		assertEquals(StructureGridComponent.DEFAULT_RENDERER, comp.getRendererType());
+	}
+
+	@Test
+	public void test_family() {
+		assertEquals(StructureGridCore.COMPONENT_FAMILY, comp.getFamily());
+	}
+
+	@Test
+	public void test_defaultValues() {
+		assertFalse(comp.isBorder());
+		assertEquals(0, comp.getColumns());
+		assertEquals("MDLV2000", comp.getFormat());
+		assertEquals(200, comp.getHeight());
+		assertEquals("OpenChemLibJS", comp.getPluginType());
+		assertFalse(comp.isServerDepiction());
+		assertNull(comp.getWidgetVar());
+		assertEquals(200, comp.getWidth());
+	}
+
+	@Test
+	public void test_enqueuedResources_withOpenChemLibJS() {
+		ResourceLoader loader = comp.getResourceLoader();
+		publishPostAddToViewEvent();
+
+		List<UIComponent> componentsInHead = getResourceComponentsFromHead();
+		assertThat(componentsInHead, hasSize(2));
+		assertThat(matchingResourceComponentsInList(componentsInHead, JAVASCRIPT, "js/MolecularFaces.min.js"), hasSize(1));
+		assertThat(matchingResourceComponentsInList(componentsInHead, JAVASCRIPT,
+				"plugins/openchemlibjs/openchemlib-full.js"), hasSize(1));
+		assertThat(loader.getScriptsExtToLoadInHead(), hasSize(0));
+	}
+
+	@Test
+	public void test_enqueuedResources_withOpenChemLibJS_withCustomResourceUrl() {
+		servletContext.addInitParameter(WEBXML_CUSTOM_RESOURCE_URL, "/my/url.js");
+		comp = new StructureGridComponent();
+		ResourceLoader loader = comp.getResourceLoader();
+		publishPostAddToViewEvent();
+
+		List<UIComponent> componentsInHead = getResourceComponentsFromHead();
+		assertThat(componentsInHead, hasSize(1));
+		assertThat(matchingResourceComponentsInList(componentsInHead, JAVASCRIPT, "js/MolecularFaces.min.js"), hasSize(1));
+		assertThat(loader.getScriptsExtToLoadInHead(), hasSize(1));
+		assertTrue(loader.getScriptsExtToLoadInHead().contains("/my/url.js"));
+	}
+
+	@Test
+	public void test_enqueuedResources_withMarvinJS_withWebservices() {
+		servletContext.addInitParameter(WEBXML_MARVINJS_BASE_URL, "baseUrl");
+		servletContext.addInitParameter(WEBXML_MARVINJS_WEBSERVICES, "true");
+		comp = new StructureGridComponent();
+		comp.setPluginType("MarvinJS");
+		ResourceLoader loader = comp.getResourceLoader();
+		publishPostAddToViewEvent();
+
+		List<UIComponent> componentsInHead = getResourceComponentsFromHead();
+		assertThat(componentsInHead, hasSize(1));
+		assertThat(loader.getScriptsExtToLoadInHead(), hasSize(3));
+		assertTrue(loader.getScriptsExtToLoadInHead().contains("baseUrl/gui/lib/promise-1.0.0.min.js"));
+		assertTrue(loader.getScriptsExtToLoadInHead().contains("baseUrl/js/marvinjslauncher.js"));
+		assertTrue(loader.getScriptsExtToLoadInHead().contains("baseUrl/js/webservices.js"));
+	}
+
+	@Test
+	public void test_enqueuedResources_withServerDepiction() {
+		comp.setServerDepiction(true);
+		ResourceLoader loader = comp.getResourceLoader();
+		publishPostAddToViewEvent();
+
+		List<UIComponent> componentsInHead = getResourceComponentsFromHead();
+		assertThat(componentsInHead, hasSize(1));
+		assertThat(matchingResourceComponentsInList(componentsInHead, JAVASCRIPT, "js/MolecularFaces.min.js"), hasSize(1));
+		assertThat(loader.getScriptsExtToLoadInHead(), hasSize(0));
+	}
+
+	private void publishPostAddToViewEvent() {
+		rule.getContainer().getApplication().publishEvent(context, PostAddToViewEvent.class, comp);
+		// The JSF mock implementation does not call processEvent() of the component.
+		comp.processEvent(new PostAddToViewEvent(comp));
+	}
+}
@@ -0,0 +1,450 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.component.structuregrid;
+
+import static de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent.WEBXML_MARVINJS_BASE_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CountDownLatch;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.UIOutput;
+import jakarta.faces.component.html.HtmlForm;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.Converter;
+
+import org.apache.myfaces.renderkit.html.HtmlResponseWriterImpl;
+import org.apache.myfaces.test.mock.MockHttpServletRequest;
+import org.apache.myfaces.test.mock.MockHttpServletResponse;
+import org.apache.myfaces.test.mock.MockPrintWriter;
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.Bond;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond.Order;
+
+import de.ipb_halle.molecularfaces.depiction.DepictionExecutor;
+import de.ipb_halle.molecularfaces.depiction.DepictionJobs;
+import de.ipb_halle.molecularfaces.depiction.DepictionKey;
+import de.ipb_halle.molecularfaces.depiction.DepictionRegistry;
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+import de.ipb_halle.molecularfaces.test.TestUtils;
+
+/**
+ * 
+ * @author flange
+ */
+public class StructureGridRendererTest {
+	private FacesContext context;
+	private MockServletContext servletContext;
+	private StringWriter writer;
+	private StructureGridComponent comp;
+	private StructureGridRenderer renderer = new StructureGridRenderer();
+
+	private String v2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "   11.6115  -11.0625   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END\n";
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		servletContext = rule.getContainer().getServletContext();
+		writer = new StringWriter();
+
+		/*
+		 * We use the implementation of MyFaces here, because MockResponseWriter
+		 * HTML-escapes JavaScript code in <script> tags.
+		 */
+		context.setResponseWriter(new HtmlResponseWriterImpl(writer, "text/html", "UTF-8", false));
+
+		comp = new StructureGridComponent();
+
+		// The batch depiction needs a session.
+		context.getExternalContext().getSession(true);
+	}
+
+	@Test
+	public void test_encodeBegin_withWrongComponentClass_throwsClassCastException() throws IOException {
+		assertThrows(ClassCastException.class, () -> renderer.encodeBegin(context, new UIOutput()));
+	}
+
+	@Test
+	public void test_encode_componentNotRendered() throws IOException {
+		comp.setRendered(false);
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertEquals("", writer.toString());
+	}
+
+	@Test
+	public void test_encode_withUnsupportedPluginType() throws IOException {
+		comp.setPluginType("MolPaintJS");
+		comp.setValue(Arrays.asList("molfile"));
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertEquals("", writer.toString());
+	}
+
+	@Test
+	public void test_encode_withoutWidgetVar() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList("molfile1", null, "molfile3\n</script>"));
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(StructureGridRendererTest.class,
+				"StructureGridRendererTest_encode_withoutWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_withWidgetVar_withColumns_withBorder() throws IOException {
+		comp.setId("myId");
+		comp.setValue(new String[] { "molfile1", "molfile2" });
+		comp.setWidgetVar("myWidgetVar");
+		comp.setColumns(4);
+		comp.setBorder(true);
+		comp.setHeight(150);
+		comp.setWidth(250);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(StructureGridRendererTest.class,
+				"StructureGridRendererTest_encode_withWidgetVar_withColumns_withBorder.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_withMarvinJS_withMDLV3000Format() throws IOException {
+		servletContext.addInitParameter(WEBXML_MARVINJS_BASE_URL, "baseUrl");
+		comp = new StructureGridComponent();
+		comp.setId("myId");
+		comp.setValue(Arrays.asList("molfile1", "molfile2"));
+		comp.setPluginType("MarvinJS");
+		comp.setFormat("MDLV3000");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(StructureGridRendererTest.class,
+				"StructureGridRendererTest_encode_withMarvinJS_withMDLV3000Format.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_withEmptyValue() throws IOException {
+		comp.setId("myId");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertTrue(writer.toString().contains("<script type=\"application/json\" id=\"myId_Data\">[]</script>"));
+	}
+
+	@Test
+	public void test_encode_withConverter() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(1, 2));
+		comp.setConverter(new Converter<Object>() {
+			@Override
+			public Object getAsObject(FacesContext context, UIComponent component, String value) {
+				return null;
+			}
+
+			@Override
+			public String getAsString(FacesContext context, UIComponent component, Object value) {
+				return "converted" + value;
+			}
+		});
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertTrue(writer.toString().contains("[\"converted1\",\"converted2\"]"));
+	}
+
+	@Test
+	public void test_encode_withAtomContainers() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(createMolecule()));
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertTrue(writer.toString().contains("V2000"));
+
+		writer.getBuffer().setLength(0);
+		comp.setFormat("MDLV3000");
+		TestUtils.encodeRenderer(renderer, context, comp);
+		assertTrue(writer.toString().contains("V3000"));
+	}
+
+	@Test
+	public void test_encode_withServerDepiction() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile, createMolecule(), "invalid molfile"));
+		comp.setServerDepiction(true);
+		comp.setWidgetVar("myWidgetVar");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.startsWith("<div id=\"myId\"><div id=\"myId_Grid\" "
+				+ "style=\"display:grid;grid-template-columns:repeat(auto-fill,200px);gap:4px;\">"
+				+ "<div style=\"width:200px;height:200px;\"><svg"));
+		assertEquals(2, output.split("<svg", -1).length - 1);
+		assertTrue(output.endsWith("<div style=\"width:200px;height:200px;\"></div></div></div>"));
+		assertFalse(output.contains("<script"));
+	}
+
+	@Test
+	public void test_encode_withServerDepiction_withSubmittedJobs() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile, createMolecule(), "invalid molfile"));
+		comp.setServerDepiction(true);
+
+		renderer.submitDepictionJobs(context, comp, DepictionJobs.getInstance(context));
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertEquals(2, output.split("<svg", -1).length - 1);
+		assertTrue(output.endsWith("<div style=\"width:200px;height:200px;\"></div></div></div>"));
+		assertFalse(output.contains("<script"));
+		assertNull(DepictionJobs.remove(context, "myId"));
+	}
+
+	@Test
+	public void test_encode_withServerDepiction_withTimedOutJobs() throws IOException {
+		DepictionExecutor executor = new DepictionExecutor(1, 0);
+		context.getExternalContext().getApplicationMap().put(DepictionExecutor.APPLICATION_MAP_KEY, executor);
+		CountDownLatch latch = new CountDownLatch(1);
+		executor.submit(() -> {
+			latch.await();
+			return "";
+		});
+
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile, ""));
+		comp.setServerDepiction(true);
+
+		try {
+			renderer.submitDepictionJobs(context, comp, DepictionJobs.getInstance(context));
+			TestUtils.encodeRenderer(renderer, context, comp);
+		} finally {
+			latch.countDown();
+		}
+
+		String key = DepictionKey.compute("CDK", 200, 200, v2000Molfile);
+		String output = writer.toString();
+		assertTrue(output.startsWith("<div id=\"myId\"><div id=\"myId_Grid\" "
+				+ "style=\"display:grid;grid-template-columns:repeat(auto-fill,200px);gap:4px;\">"
+				+ "<div style=\"width:200px;height:200px;\" data-depiction=\"" + key + "\"></div>"
+				+ "<div style=\"width:200px;height:200px;\"></div></div>"
+				+ "<script type=\"text/javascript\">molecularfaces.BatchDepictions.load(\"myId_Grid\", \""));
+		assertFalse(output.contains("<svg"));
+	}
+
+	@Test
+	public void test_submitDepictionJobs_withBatchDepiction_submitsNothing() {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile));
+		comp.setServerDepiction(true);
+		comp.setBatchDepiction(true);
+
+		renderer.submitDepictionJobs(context, comp, DepictionJobs.getInstance(context));
+		assertNull(DepictionJobs.remove(context, "myId"));
+	}
+
+	@Test
+	public void test_encode_withServerDepiction_withBatchDepiction() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile, null, v2000Molfile));
+		comp.setServerDepiction(true);
+		comp.setBatchDepiction(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String key = DepictionKey.compute("CDK", 200, 200, v2000Molfile);
+		String output = writer.toString();
+		assertTrue(output.startsWith("<div id=\"myId\"><div id=\"myId_Grid\" "
+				+ "style=\"display:grid;grid-template-columns:repeat(auto-fill,200px);gap:4px;\">"
+				+ "<div style=\"width:200px;height:200px;\" data-depiction=\"" + key + "\"></div>"
+				+ "<div style=\"width:200px;height:200px;\"></div>"
+				+ "<div style=\"width:200px;height:200px;\" data-depiction=\"" + key + "\"></div></div>"
+				+ "<script type=\"text/javascript\">molecularfaces.BatchDepictions.load(\"myId_Grid\", \""));
+		assertFalse(output.contains("<svg"));
+
+		DepictionRegistry registry = DepictionRegistry.getExistingInstance(context.getExternalContext());
+		assertEquals(v2000Molfile, registry.get(key).getMolfile());
+	}
+
+	@Test
+	public void test_encode_withServerDepiction_withBatchDepiction_withoutSession() throws IOException {
+		MockHttpServletRequest request = rule.getContainer().getRequest();
+		request.setHttpSession(null);
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile, null));
+		comp.setServerDepiction(true);
+		comp.setBatchDepiction(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains("<svg"));
+		assertFalse(output.contains("data-depiction"));
+		assertFalse(output.contains("BatchDepictions"));
+		assertNull(request.getSession(false));
+	}
+
+	@Test
+	public void test_encode_withBatchDepiction_withoutServerDepiction() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList("molfile1", null, "molfile3\n</script>"));
+		comp.setBatchDepiction(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(StructureGridRendererTest.class,
+				"StructureGridRendererTest_encode_withoutWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	/*
+	 * Virtual scrolling
+	 */
+	@Test
+	public void test_encode_withVirtualScroll() throws IOException {
+		addToForm(comp);
+		comp.setId("myId");
+		comp.setValue(Arrays.asList("molfile1", "molfile2", "molfile3"));
+		comp.setVirtualScroll(true);
+		comp.setWindowSize(2);
+		comp.setViewportHeight(500);
+		comp.setWidgetVar("myWidgetVar");
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(StructureGridRendererTest.class,
+				"StructureGridRendererTest_encode_withVirtualScroll.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_encode_withVirtualScroll_withServerDepiction() throws IOException {
+		addToForm(comp);
+		comp.setId("myId");
+		comp.setValue(Arrays.asList(v2000Molfile, v2000Molfile, v2000Molfile));
+		comp.setVirtualScroll(true);
+		comp.setServerDepiction(true);
+		comp.setWindowSize(2);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String output = writer.toString();
+		assertTrue(output.contains("<script type=\"application/json\" id=\"form:myId_Data\">{\"total\":3,\"first\":0,"
+				+ "\"depictions\":[\"\\u003Csvg"));
+		assertEquals(2, output.split("u003Csvg", -1).length - 1);
+		assertTrue(output.contains("Promise.resolve().then(() => {return molecularfaces.VirtualStructureGrid.newGrid("));
+	}
+
+	@Test
+	public void test_encode_withVirtualScroll_outsideOfForm() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList("molfile1", null, "molfile3\n</script>"));
+		comp.setVirtualScroll(true);
+
+		TestUtils.encodeRenderer(renderer, context, comp);
+		String expected = TestUtils.readResourceFileIgnoreNewlinesAndTabs(StructureGridRendererTest.class,
+				"StructureGridRendererTest_encode_withoutWidgetVar.txt");
+		assertEquals(expected, writer.toString());
+	}
+
+	@Test
+	public void test_decode_withWindowRequest() throws IOException {
+		comp.setId("myId");
+		comp.setValue(new LinkedHashSet<>(Arrays.asList("molfile1", "molfile2", "molfile3", "molfile4", "molfile5")));
+		comp.setVirtualScroll(true);
+		comp.setWindowSize(2);
+		MockHttpServletRequest servletRequest = rule.getContainer().getRequest();
+		servletRequest.addParameter("myId" + StructureGridRenderer.WINDOW_PARAM_SUFFIX, "2");
+
+		renderer.decode(context, comp);
+
+		assertEquals("{\"total\":5,\"first\":2,\"molecules\":[\"molfile3\",\"molfile4\"]}", getResponseContent());
+		assertTrue(context.getResponseComplete());
+	}
+
+	@Test
+	public void test_decode_withWindowRequest_beyondLastMolecule() throws IOException {
+		comp.setId("myId");
+		comp.setValue(new String[] { "molfile1", "molfile2" });
+		comp.setVirtualScroll(true);
+		MockHttpServletRequest servletRequest = rule.getContainer().getRequest();
+		servletRequest.addParameter("myId" + StructureGridRenderer.WINDOW_PARAM_SUFFIX, "10");
+
+		renderer.decode(context, comp);
+
+		assertEquals("{\"total\":2,\"first\":10,\"molecules\":[]}", getResponseContent());
+	}
+
+	@Test
+	public void test_decode_withInvalidWindowRequest() throws IOException {
+		comp.setId("myId");
+		comp.setVirtualScroll(true);
+		MockHttpServletRequest servletRequest = rule.getContainer().getRequest();
+		servletRequest.addParameter("myId" + StructureGridRenderer.WINDOW_PARAM_SUFFIX, "abc");
+
+		renderer.decode(context, comp);
+
+		assertEquals("", getResponseContent());
+		assertEquals(400, rule.getContainer().getResponse().getStatus());
+		assertTrue(context.getResponseComplete());
+	}
+
+	@Test
+	public void test_decode_withoutVirtualScroll() throws IOException {
+		comp.setId("myId");
+		comp.setValue(Arrays.asList("molfile1"));
+		MockHttpServletRequest servletRequest = rule.getContainer().getRequest();
+		servletRequest.addParameter("myId" + StructureGridRenderer.WINDOW_PARAM_SUFFIX, "0");
+
+		renderer.decode(context, comp);
+
+		assertEquals("", getResponseContent());
+		assertFalse(context.getResponseComplete());
+	}
+
+	private void addToForm(UIComponent component) {
+		HtmlForm form = new HtmlForm();
+		form.setId("form");
+		form.getChildren().add(component);
+	}
+
+	private String getResponseContent() throws IOException {
+		MockHttpServletResponse servletResponse = rule.getContainer().getResponse();
+
+		return new String(((MockPrintWriter) servletResponse.getWriter()).content());
+	}
+
+	private IAtomContainer createMolecule() {
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new Atom("C"));
+		mol.addAtom(new Atom("O"));
+		mol.addBond(new Bond(mol.getAtom(0), mol.getAtom(1), Order.SINGLE));
+
+		return mol;
+	}
+}
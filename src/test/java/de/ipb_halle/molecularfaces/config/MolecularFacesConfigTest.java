@@ -0,0 +1,244 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.faces.FacesException;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.event.PostConstructApplicationEvent;
+
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MarvinJSComponent;
+import de.ipb_halle.molecularfaces.component.molplugin.MolPaintJSComponent;
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore;
+import de.ipb_halle.molecularfaces.component.molplugin.MoleculeStore;
+import de.ipb_halle.molecularfaces.component.molplugin.OpenChemLibJSComponent;
+import de.ipb_halle.molecularfaces.component.openvectoreditor.OpenVectorEditorComponent;
+import de.ipb_halle.molecularfaces.converter.CanonicalMolfileWriter;
+import de.ipb_halle.molecularfaces.converter.LazyAtomContainer;
+import de.ipb_halle.molecularfaces.converter.MolfileMinifier;
+import de.ipb_halle.molecularfaces.depiction.DepictionExecutor;
+import de.ipb_halle.molecularfaces.depiction.DepictionPrefetcher;
+import de.ipb_halle.molecularfaces.depiction.DepictionRegistry;
+import de.ipb_halle.molecularfaces.depiction.DepictionStore;
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+import de.ipb_halle.molecularfaces.validator.MolfileValidationResourceHandler;
+import de.ipb_halle.molecularfaces.validator.ValidationCache;
+
+/**
+ * 
+ * @author flange
+ */
+public class MolecularFacesConfigTest {
+	private FacesContext context;
+	private MockServletContext servletContext;
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		servletContext = rule.getContainer().getServletContext();
+	}
+
+	@Test
+	public void test_parse_defaults() {
+		MolecularFacesConfig config = MolecularFacesConfig.parse(context);
+
+		assertNull(config.getOpenChemLibJSUrl());
+		assertNull(config.getMolPaintJSUrl());
+		assertNull(config.getOpenVectorEditorBaseUrl());
+		assertEquals("", config.getMarvinJSBaseUrl());
+		assertEquals("", config.getMarvinJSLicenseUrl());
+		assertFalse(config.isMarvinJSWebServices());
+		assertFalse(config.isMarvinJSV3000ToV2000());
+		assertEquals("/editor.html", config.getMarvinJSEditorSrc());
+		assertEquals(MolPluginCore.DEFAULT_EDITOR_POOL_SIZE, config.getEditorPoolSize());
+		assertEquals(MoleculeStore.DEFAULT_MOLECULE_STORE_SIZE, config.getMoleculeStoreSize());
+		assertEquals(Runtime.getRuntime().availableProcessors(), config.getDepictionParallelism());
+		assertEquals(DepictionExecutor.DEFAULT_DEPICTION_TIMEOUT, config.getDepictionTimeout());
+		assertEquals(DepictionExecutor.DEFAULT_DEPICTION_QUEUE_SIZE, config.getDepictionQueueSize());
+		assertEquals(DepictionRegistry.DEFAULT_DEPICTION_REGISTRY_SIZE, config.getDepictionRegistrySize());
+		assertNull(config.getDepictionStoreDirectory());
+		assertEquals(DepictionStore.DEFAULT_MAX_SIZE, config.getDepictionStoreMaxSize());
+		assertFalse(config.isDepictionPrefetch());
+		assertEquals(1, config.getDepictionPrefetchSizes().size());
+		assertArrayEquals(new int[] { 200, 200 }, config.getDepictionPrefetchSizes().get(0));
+		assertEquals(DepictionPrefetcher.DEFAULT_QUEUE_SIZE, config.getDepictionPrefetchQueueSize());
+		assertFalse(config.isLazyConversion());
+		assertFalse(config.isCanonicalMolfiles());
+		assertFalse(config.isMinifyMolfiles());
+		assertEquals(MolfileMinifier.DEFAULT_COORDINATE_DECIMALS, config.getMinifiedCoordinateDecimals());
+		assertEquals(ValidationCache.DEFAULT_VALIDATION_CACHE_SIZE, config.getValidationCacheSize());
+		assertEquals(MolfileValidationResourceHandler.DEFAULT_MAX_MOLFILE_LENGTH, config.getMaxMolfileLength());
+	}
+
+	@Test
+	public void test_parse() {
+		servletContext.addInitParameter(OpenChemLibJSComponent.WEBXML_CUSTOM_RESOURCE_URL, "/ocl.js");
+		servletContext.addInitParameter(MolPaintJSComponent.WEBXML_CUSTOM_RESOURCE_URL, "/molpaint.js");
+		servletContext.addInitParameter(OpenVectorEditorComponent.WEBXML_CUSTOM_RESOURCE_BASE_URL, "/ove");
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_BASE_URL, "/marvinjs");
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_LICENSE_URL, "/license.cxl");
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES, "TRUE");
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_V3000_TO_V2000, " true ");
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, " 3");
+		servletContext.addInitParameter(MoleculeStore.WEBXML_MOLECULE_STORE_SIZE, "100");
+		servletContext.addInitParameter(DepictionExecutor.WEBXML_DEPICTION_PARALLELISM, "2");
+		servletContext.addInitParameter(DepictionExecutor.WEBXML_DEPICTION_TIMEOUT, "500");
+		servletContext.addInitParameter(DepictionExecutor.WEBXML_DEPICTION_QUEUE_SIZE, "16");
+		servletContext.addInitParameter(DepictionRegistry.WEBXML_DEPICTION_REGISTRY_SIZE, "50");
+		servletContext.addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY, "/var/cache/depictions");
+		servletContext.addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_MAX_SIZE, "64");
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH, "true");
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_SIZES, "100x50, 300x300,");
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_QUEUE_SIZE, "32");
+		servletContext.addInitParameter(LazyAtomContainer.WEBXML_LAZY_CONVERSION, "true");
+		servletContext.addInitParameter(CanonicalMolfileWriter.WEBXML_CANONICAL_MOLFILES, "true");
+		servletContext.addInitParameter(MolfileMinifier.WEBXML_MINIFY_MOLFILES, "true");
+		servletContext.addInitParameter(MolfileMinifier.WEBXML_MINIFIED_COORDINATE_DECIMALS, "3");
+		servletContext.addInitParameter(ValidationCache.WEBXML_VALIDATION_CACHE_SIZE, "500");
+		servletContext.addInitParameter(MolfileValidationResourceHandler.WEBXML_MAX_MOLFILE_LENGTH, "1000");
+
+		MolecularFacesConfig config = MolecularFacesConfig.parse(context);
+
+		assertEquals("/ocl.js", config.getOpenChemLibJSUrl());
+		assertEquals("/molpaint.js", config.getMolPaintJSUrl());
+		assertEquals("/ove", config.getOpenVectorEditorBaseUrl());
+		assertEquals("/marvinjs", config.getMarvinJSBaseUrl());
+		assertEquals("/license.cxl", config.getMarvinJSLicenseUrl());
+		assertTrue(config.isMarvinJSWebServices());
+		assertTrue(config.isMarvinJSV3000ToV2000());
+		assertEquals("/marvinjs/editorws.html", config.getMarvinJSEditorSrc());
+		assertEquals(3, config.getEditorPoolSize());
+		assertEquals(100, config.getMoleculeStoreSize());
+		assertEquals(2, config.getDepictionParallelism());
+		assertEquals(500, config.getDepictionTimeout());
+		assertEquals(16, config.getDepictionQueueSize());
+		assertEquals(50, config.getDepictionRegistrySize());
+		assertEquals("/var/cache/depictions", config.getDepictionStoreDirectory());
+		assertEquals(64, config.getDepictionStoreMaxSize());
+		assertTrue(config.isDepictionPrefetch());
+		assertEquals(2, config.getDepictionPrefetchSizes().size());
+		assertArrayEquals(new int[] { 100, 50 }, config.getDepictionPrefetchSizes().get(0));
+		assertArrayEquals(new int[] { 300, 300 }, config.getDepictionPrefetchSizes().get(1));
+		assertEquals(32, config.getDepictionPrefetchQueueSize());
+		assertTrue(config.isLazyConversion());
+		assertTrue(config.isCanonicalMolfiles());
+		assertTrue(config.isMinifyMolfiles());
+		assertEquals(3, config.getMinifiedCoordinateDecimals());
+		assertEquals(500, config.getValidationCacheSize());
+		assertEquals(1000, config.getMaxMolfileLength());
+	}
+
+	@Test
+	public void test_parse_withEmptyValues() {
+		servletContext.addInitParameter(OpenChemLibJSComponent.WEBXML_CUSTOM_RESOURCE_URL, "");
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES, "");
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "");
+
+		MolecularFacesConfig config = MolecularFacesConfig.parse(context);
+
+		assertNull(config.getOpenChemLibJSUrl());
+		assertFalse(config.isMarvinJSWebServices());
+		assertEquals(MolPluginCore.DEFAULT_EDITOR_POOL_SIZE, config.getEditorPoolSize());
+	}
+
+	@Test
+	public void test_parse_withInvalidEditorPoolSize_throwsFacesException() {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "two");
+		assertThrows(FacesException.class, () -> MolecularFacesConfig.parse(context));
+	}
+
+	@Test
+	public void test_parse_withInvalidDepictionTimeout_throwsFacesException() {
+		servletContext.addInitParameter(DepictionExecutor.WEBXML_DEPICTION_TIMEOUT, "-1");
+		assertThrows(FacesException.class, () -> MolecularFacesConfig.parse(context));
+	}
+
+	@Test
+	public void test_parse_withInvalidDepictionPrefetchSizes_throwsFacesException() {
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_SIZES, "200x200,100");
+		assertThrows(FacesException.class, () -> MolecularFacesConfig.parse(context));
+	}
+
+	@Test
+	public void test_parse_withNonPositiveEditorPoolSize_throwsFacesException() {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "0");
+		assertThrows(FacesException.class, () -> MolecularFacesConfig.parse(context));
+	}
+
+	@Test
+	public void test_parse_withInvalidBoolean_throwsFacesException() {
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_WEBSERVICES, "yes");
+		assertThrows(FacesException.class, () -> MolecularFacesConfig.parse(context));
+	}
+
+	@Test
+	public void test_getInstance() {
+		// not installed: parsed on each call
+		MolecularFacesConfig config1 = MolecularFacesConfig.getInstance(context);
+		MolecularFacesConfig config2 = MolecularFacesConfig.getInstance(context);
+		assertNotSame(config1, config2);
+
+		MolecularFacesConfig installed = MolecularFacesConfig.install(context);
+		assertSame(installed, context.getExternalContext().getApplicationMap()
+				.get(MolecularFacesConfig.APPLICATION_MAP_KEY));
+		assertSame(installed, MolecularFacesConfig.getInstance(context));
+
+		// the snapshot does not change anymore
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "5");
+		assertEquals(MolPluginCore.DEFAULT_EDITOR_POOL_SIZE,
+				MolecularFacesConfig.getInstance(context).getEditorPoolSize());
+	}
+
+	@Test
+	public void test_listener() {
+		servletContext.addInitParameter(MolPluginCore.WEBXML_EDITOR_POOL_SIZE, "4");
+		MolecularFacesConfigListener listener = new MolecularFacesConfigListener();
+
+		assertTrue(listener.isListenerForSource(context.getApplication()));
+		assertFalse(listener.isListenerForSource(new Object()));
+
+		listener.processEvent(new PostConstructApplicationEvent(context, context.getApplication()));
+		assertEquals(4, MolecularFacesConfig.getInstance(context).getEditorPoolSize());
+		assertSame(MolecularFacesConfig.getInstance(context), MolecularFacesConfig.getInstance(context));
+	}
+
+	@Test
+	public void test_listener_withInvalidConfiguration_throwsFacesException() {
+		servletContext.addInitParameter(MarvinJSComponent.WEBXML_MARVINJS_V3000_TO_V2000, "1");
+		MolecularFacesConfigListener listener = new MolecularFacesConfigListener();
+
+		assertThrows(FacesException.class, () -> listener
+				.processEvent(new PostConstructApplicationEvent(context, context.getApplication())));
+	}
+}
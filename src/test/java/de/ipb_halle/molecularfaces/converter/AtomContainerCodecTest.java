@@ -0,0 +1,242 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import javax.vecmath.Point2d;
+import javax.vecmath.Point3d;
+
+import org.junit.Test;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.PseudoAtom;
+import org.openscience.cdk.SingleElectron;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IPseudoAtom;
+import org.openscience.cdk.interfaces.IDoubleBondStereochemistry;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV2000Writer;
+import org.openscience.cdk.stereo.DoubleBondStereochemistry;
+
+/**
+ * 
+ * @author flange
+ */
+public class AtomContainerCodecTest {
+	private String molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  4  3  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "    5.9375  -10.0000   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    5.9375  -11.5000   -0.0000 N   0  3  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    7.2365  -12.2500   -0.0000 O   0  5  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    4.6385   -9.2500   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  2  0  0  0  0\n" + "  2  3  1  0  0  0  0\n" + "  1  4  1  1  0  0  0\n"
+			+ "M  CHG  2   2   1   3  -1\n" + "M  ISO  1   4  13\n" + "M  END\n";
+
+	@Test
+	public void test_encodeAndDecode() throws CDKException, IOException {
+		IAtomContainer mol = readMolfile();
+		mol.setProperty(CDKConstants.TITLE, "my title");
+
+		byte[] bytes = AtomContainerCodec.encode(mol);
+		IAtomContainer decoded = AtomContainerCodec.decode(bytes);
+
+		assertEquals("my title", decoded.getProperty(CDKConstants.TITLE));
+		assertEquals(mol.getAtomCount(), decoded.getAtomCount());
+		for (int i = 0; i < mol.getAtomCount(); i++) {
+			IAtom expected = mol.getAtom(i);
+			IAtom actual = decoded.getAtom(i);
+			assertEquals(expected.getSymbol(), actual.getSymbol());
+			assertEquals(expected.getAtomicNumber(), actual.getAtomicNumber());
+			assertEquals(expected.getFormalCharge(), actual.getFormalCharge());
+			assertEquals(expected.getMassNumber(), actual.getMassNumber());
+			assertEquals(expected.getImplicitHydrogenCount(), actual.getImplicitHydrogenCount());
+			assertEquals(expected.getPoint2d().x, actual.getPoint2d().x, 1e-9);
+			assertEquals(expected.getPoint2d().y, actual.getPoint2d().y, 1e-9);
+			assertNull(actual.getPoint3d());
+		}
+
+		assertEquals(mol.getBondCount(), decoded.getBondCount());
+		for (int i = 0; i < mol.getBondCount(); i++) {
+			IBond expected = mol.getBond(i);
+			IBond actual = decoded.getBond(i);
+			assertEquals(mol.indexOf(expected.getBegin()), decoded.indexOf(actual.getBegin()));
+			assertEquals(mol.indexOf(expected.getEnd()), decoded.indexOf(actual.getEnd()));
+			assertEquals(expected.getOrder(), actual.getOrder());
+			assertEquals(expected.getStereo(), actual.getStereo());
+		}
+
+		// much smaller than Java serialization
+		assertTrue(bytes.length * 10 < serialize(mol).length);
+	}
+
+	@Test
+	public void test_encodeAndDecode_withPseudoAtomsAnd3DCoordinatesAndAromaticity() {
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new PseudoAtom("R1"));
+		mol.addAtom(new org.openscience.cdk.Atom("C"));
+		mol.getAtom(1).setPoint3d(new Point3d(1.23456, -0.5, 100));
+		mol.getAtom(1).setIsAromatic(true);
+		mol.getAtom(0).setPoint2d(new Point2d(-3, 4));
+		mol.addBond(0, 1, IBond.Order.SINGLE);
+		mol.getBond(0).setIsAromatic(true);
+
+		IAtomContainer decoded = AtomContainerCodec.decode(AtomContainerCodec.encode(mol));
+
+		assertTrue(decoded.getAtom(0) instanceof IPseudoAtom);
+		assertEquals("R1", ((IPseudoAtom) decoded.getAtom(0)).getLabel());
+		assertEquals(-3, decoded.getAtom(0).getPoint2d().x, 1e-9);
+		assertEquals(1.2346, decoded.getAtom(1).getPoint3d().x, 1e-9);
+		assertEquals(100, decoded.getAtom(1).getPoint3d().z, 1e-9);
+		assertTrue(decoded.getAtom(1).isAromatic());
+		assertFalse(decoded.getAtom(0).isAromatic());
+		assertTrue(decoded.getBond(0).isAromatic());
+		assertNull(decoded.getProperty(CDKConstants.TITLE));
+	}
+
+	@Test
+	public void test_encodeAndDecode_withProperties() throws CDKException, IOException {
+		String molfileWithProperties = "ethanol\n" + "  MolecularFaces\n" + "my remark\n"
+				+ "  3  2  0  0  0  0  0  0  0  0999 V2000\n"
+				+ "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  1  0  0\n"
+				+ "    1.5000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  2  0  0\n"
+				+ "    2.2500    1.2990    0.0000 O   0  0  0  0  0  0  0  0  0  3  0  0\n"
+				+ "  1  2  1  0  0  0  0\n" + "  2  3  1  0  0  0  0\n" + "M  END\n";
+		IAtomContainer mol;
+		try (MDLV2000Reader reader = new MDLV2000Reader(new StringReader(molfileWithProperties))) {
+			mol = reader.read(new AtomContainer());
+		}
+		mol.getBond(0).setProperty("bond label", "a");
+		assertTrue(AtomContainerCodec.isSupported(mol));
+
+		IAtomContainer decoded = AtomContainerCodec.decode(AtomContainerCodec.encode(mol));
+
+		assertEquals("ethanol", decoded.getProperty(CDKConstants.TITLE));
+		assertEquals("my remark", decoded.getProperty(CDKConstants.REMARK));
+		for (int i = 0; i < mol.getAtomCount(); i++) {
+			assertEquals(Integer.valueOf(i + 1), decoded.getAtom(i).getProperty(CDKConstants.ATOM_ATOM_MAPPING));
+			assertEquals(mol.getAtom(i).getValency(), decoded.getAtom(i).getValency());
+		}
+		assertEquals("a", decoded.getBond(0).getProperty("bond label"));
+		assertEquals(withoutProgramLine(write(mol)), withoutProgramLine(write(decoded)));
+	}
+
+	@Test
+	public void test_decode_withInvalidBytes_throwsIllegalArgumentException() {
+		assertThrows(IllegalArgumentException.class, () -> AtomContainerCodec.decode(new byte[0]));
+		assertThrows(IllegalArgumentException.class, () -> AtomContainerCodec.decode(new byte[] { 2 }));
+		assertThrows(IllegalArgumentException.class, () -> AtomContainerCodec.decode(new byte[] { 1, 0, 5 }));
+	}
+
+	@Test
+	public void test_isSupported() throws CDKException, IOException {
+		IAtomContainer mol = readMolfile();
+		assertTrue(AtomContainerCodec.isSupported(mol));
+
+		mol.addSingleElectron(new SingleElectron(mol.getAtom(0)));
+		assertFalse(AtomContainerCodec.isSupported(mol));
+
+		mol = readMolfile();
+		mol.setProperty("object", new Object());
+		assertFalse(AtomContainerCodec.isSupported(mol));
+
+		mol = readMolfile();
+		mol.getAtom(1).setProperty(CDKConstants.COMMENT, 1.5);
+		assertFalse(AtomContainerCodec.isSupported(mol));
+
+		mol = readMolfile();
+		mol.addStereoElement(new DoubleBondStereochemistry(mol.getBond(0),
+				new IBond[] { mol.getBond(2), mol.getBond(1) }, IDoubleBondStereochemistry.Conformation.OPPOSITE));
+		assertFalse(AtomContainerCodec.isSupported(mol));
+	}
+
+	@Test
+	public void test_compactAtomContainer() throws CDKException, IOException, ClassNotFoundException {
+		IAtomContainer mol = readMolfile();
+		CompactAtomContainer wrapper = new CompactAtomContainer(mol);
+		assertSame(mol, wrapper.getMolecule());
+
+		CompactAtomContainer deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(wrapper)))) {
+			deserialized = (CompactAtomContainer) in.readObject();
+		}
+		assertEquals(4, deserialized.getMolecule().getAtomCount());
+		assertSame(deserialized.getMolecule(), deserialized.getMolecule());
+
+		CompactAtomContainer restored = new CompactAtomContainer();
+		restored.restoreState(null, wrapper.saveState(null));
+		assertEquals(3, restored.getMolecule().getBondCount());
+		assertFalse(restored.isTransient());
+	}
+
+	private IAtomContainer readMolfile() throws CDKException, IOException {
+		try (MDLV2000Reader reader = new MDLV2000Reader(new StringReader(molfile))) {
+			IAtomContainer mol = reader.read(new AtomContainer());
+
+			// the reader perceives stereo elements from the 2D coordinates
+			mol.setStereoElements(new ArrayList<>());
+
+			return mol;
+		}
+	}
+
+	private String write(IAtomContainer mol) throws CDKException, IOException {
+		StringWriter out = new StringWriter();
+		try (MDLV2000Writer writer = new MDLV2000Writer(out)) {
+			writer.write(mol);
+		}
+
+		return out.toString();
+	}
+
+	/*
+	 * The second line of the header contains a timestamp.
+	 */
+	private String withoutProgramLine(String molfile) {
+		String[] lines = molfile.split("\n", -1);
+		lines[1] = "";
+
+		return String.join("\n", lines);
+	}
+
+	private byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+
+		return bytes.toByteArray();
+	}
+}
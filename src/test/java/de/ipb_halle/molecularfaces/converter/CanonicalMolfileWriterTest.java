@@ -0,0 +1,186 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import javax.vecmath.Point2d;
+
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.io.MDLV2000Reader;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class CanonicalMolfileWriterTest {
+	// ethanol with the atom order C-C-O
+	private String ethanol1 = "\n" + "  CDK     1019261200\n" + "\n"
+			+ "  3  2  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    1.2990    0.7500    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    2.5981   -0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "  2  3  1  0  0  0  0\n" + "M  END\n";
+
+	// the same molecule with the atom order O-C-C and another bond order
+	private String ethanol2 = "\n" + "  CDK     0101990000\n" + "\n"
+			+ "  3  2  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "    2.5981    0.0000    0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    1.2990    0.7500    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  3  2  1  0  0  0  0\n" + "  1  2  1  0  0  0  0\n" + "M  END\n";
+
+	private FacesContext context;
+	private MockServletContext servletContext;
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		servletContext = rule.getContainer().getServletContext();
+	}
+
+	@Test
+	public void test_write_isIndependentOfAtomOrder() throws CDKException {
+		IAtomContainer mol1 = read(ethanol1);
+		IAtomContainer mol2 = read(ethanol2);
+		mol2.getAtom(1).setPoint2d(new Point2d(1.29901, 0.75001));
+
+		String v2000 = CanonicalMolfileWriter.write(mol1, false);
+		assertEquals(v2000, CanonicalMolfileWriter.write(mol2, false));
+		assertEquals(CanonicalMolfileWriter.write(mol1, true), CanonicalMolfileWriter.write(mol2, true));
+
+		// the date of the header line is replaced
+		assertTrue(v2000.split("\n")[1].substring(10, 20).equals("0000000000"));
+		assertFalse(v2000.contains("-0.0000"));
+
+		// the molecule is not modified
+		assertEquals("O", mol2.getAtom(0).getSymbol());
+		assertEquals(1.29901, mol2.getAtom(1).getPoint2d().x, 1e-9);
+	}
+
+	@Test
+	public void test_write_withSymmetricAtoms_isIndependentOfAtomOrder() throws CDKException {
+		IAtomContainer ethane1 = new AtomContainer();
+		ethane1.addAtom(atom("C", 0, 0));
+		ethane1.addAtom(atom("C", 1.5, 0));
+		ethane1.addBond(0, 1, IBond.Order.SINGLE);
+		IAtomContainer ethane2 = new AtomContainer();
+		ethane2.addAtom(atom("C", 1.5, 0));
+		ethane2.addAtom(atom("C", 0, 0));
+		ethane2.addBond(1, 0, IBond.Order.SINGLE);
+
+		assertEquals(CanonicalMolfileWriter.write(ethane1, false), CanonicalMolfileWriter.write(ethane2, false));
+		assertEquals(CanonicalMolfileWriter.write(ethane1, true), CanonicalMolfileWriter.write(ethane2, true));
+
+		// Kekulé benzene with its atoms in every rotated order
+		String benzene = CanonicalMolfileWriter.write(benzene(0), false);
+		for (int offset = 1; offset < 6; offset++) {
+			assertEquals(benzene, CanonicalMolfileWriter.write(benzene(offset), false));
+		}
+	}
+
+	@Test
+	public void test_write_isRepeatable() throws CDKException {
+		IAtomContainer mol = read(ethanol1);
+		assertEquals(CanonicalMolfileWriter.write(mol, false), CanonicalMolfileWriter.write(mol, false));
+		assertEquals(3, read(CanonicalMolfileWriter.write(mol, false)).getAtomCount());
+	}
+
+	@Test
+	public void test_converters_withCanonicalMolfiles() throws CDKException {
+		MDLV2000Converter converter = new MDLV2000Converter();
+		IAtomContainer mol1 = read(ethanol1);
+		IAtomContainer mol2 = read(ethanol2);
+		assertNotEquals(converter.getAsString(context, null, mol1), converter.getAsString(context, null, mol2));
+
+		servletContext.addInitParameter(CanonicalMolfileWriter.WEBXML_CANONICAL_MOLFILES, "true");
+		servletContext.addInitParameter(LazyAtomContainer.WEBXML_LAZY_CONVERSION, "true");
+
+		String molfile = converter.getAsString(context, null, mol1);
+		assertEquals(molfile, converter.getAsString(context, null, mol2));
+		assertEquals(molfile, new MDLAutoConverter().getAsString(context, null, mol2));
+
+		// canonical Molfiles are preferred to the original Molfiles of lazy conversion
+		assertEquals(molfile, converter.getAsString(context, null, converter.getAsObject(context, null, ethanol2)));
+		assertEquals(molfile,
+				new MDLAutoConverter().getAsString(context, null, converter.getAsObject(context, null, ethanol2)));
+		assertEquals(CanonicalMolfileWriter.write(mol1, true),
+				new MDLV3000Converter().getAsString(context, null, mol2));
+	}
+
+	private IAtom atom(String symbol, double x, double y) {
+		IAtom atom = new Atom(symbol);
+		atom.setPoint2d(new Point2d(x, y));
+		atom.setImplicitHydrogenCount(0);
+
+		return atom;
+	}
+
+	/*
+	 * The atom at position i of the hexagon has index (i + offset) % 6.
+	 */
+	private IAtomContainer benzene(int offset) {
+		IAtom[] ring = new IAtom[6];
+		for (int i = 0; i < 6; i++) {
+			ring[i] = atom("C", Math.cos(i * Math.PI / 3), Math.sin(i * Math.PI / 3));
+			ring[i].setImplicitHydrogenCount(1);
+		}
+
+		IAtomContainer mol = new AtomContainer();
+		for (int i = 0; i < 6; i++) {
+			mol.addAtom(ring[(i + 6 - offset) % 6]);
+		}
+		for (int i = 0; i < 6; i++) {
+			mol.addBond(mol.indexOf(ring[i]), mol.indexOf(ring[(i + 1) % 6]),
+					(i % 2 == 0) ? IBond.Order.DOUBLE : IBond.Order.SINGLE);
+		}
+
+		return mol;
+	}
+
+	private IAtomContainer read(String molfile) throws CDKException {
+		try (MDLV2000Reader reader = new MDLV2000Reader(new StringReader(molfile))) {
+			return reader.read(new AtomContainer());
+		} catch (CDKException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.ConverterException;
+
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class LazyAtomContainerTest {
+	private String molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "    5.9375  -10.0000   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    5.9375  -11.5000   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END";
+
+	private String v3000Molfile = "\n" + "  CDK\n" + "\n" + "  0  0  0     0  0            999 V3000\n"
+			+ "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 2 1 0 0 0\n" + "M  V30 BEGIN ATOM\n"
+			+ "M  V30 1 C 5.9375 -10.0 0.0 0 -\n" + "M  V30 CHG=0\n" + "M  V30 2 O 5.9375 -11.5 0.0 0\n"
+			+ "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n" + "M  V30 1 1 1 2\n" + "M  V30 END BOND\n"
+			+ "M  V30 END CTAB\n" + "M  END\n";
+
+	private FacesContext context;
+	private MockServletContext servletContext;
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		servletContext = rule.getContainer().getServletContext();
+	}
+
+	@Test
+	public void test_create() {
+		IAtomContainer mol = LazyAtomContainer.create(molfile, false);
+		assertTrue(LazyAtomContainer.isUnparsed(mol));
+		assertEquals(molfile, LazyAtomContainer.getMolfile(mol, false));
+		assertNull(LazyAtomContainer.getMolfile(mol, true));
+
+		// Object methods do not parse
+		IAtomContainer other = LazyAtomContainer.create(molfile, false);
+		assertEquals(mol, mol);
+		assertEquals(mol, other);
+		assertEquals(mol.hashCode(), other.hashCode());
+		assertNotEquals(mol, LazyAtomContainer.create(molfile, true));
+		assertNotEquals(mol, LazyAtomContainer.create(molfile + "\n", false));
+		int hashCode = mol.hashCode();
+		mol.toString();
+		assertTrue(LazyAtomContainer.isUnparsed(mol));
+
+		assertEquals(2, mol.getAtomCount());
+		assertEquals("O", mol.getAtom(1).getSymbol());
+		assertFalse(LazyAtomContainer.isUnparsed(mol));
+		assertNull(LazyAtomContainer.getMolfile(mol, false));
+
+		// materialised proxies are only equal to themselves
+		assertEquals(mol, mol);
+		assertNotEquals(mol, other);
+		assertNotEquals(other, mol);
+		assertEquals(hashCode, mol.hashCode());
+	}
+
+	@Test
+	public void test_unwrap() {
+		IAtomContainer mol = LazyAtomContainer.create(molfile, false);
+		IAtomContainer unwrapped = LazyAtomContainer.unwrap(mol);
+		assertTrue(unwrapped instanceof AtomContainer);
+		assertFalse(LazyAtomContainer.isUnparsed(mol));
+		assertSame(unwrapped.getAtom(0), mol.getAtom(0));
+
+		IAtomContainer plain = new AtomContainer();
+		assertSame(plain, LazyAtomContainer.unwrap(plain));
+		assertNull(LazyAtomContainer.unwrap(null));
+	}
+
+	@Test
+	public void test_checkStructure() {
+		LazyAtomContainer.checkStructure(molfile);
+		LazyAtomContainer.checkStructure(molfile.replace("\n", "\r\n"));
+		LazyAtomContainer.checkStructure(v3000Molfile);
+
+		assertThrows(IllegalArgumentException.class, () -> LazyAtomContainer.checkStructure("invalid"));
+		assertThrows(IllegalArgumentException.class, () -> LazyAtomContainer.checkStructure("\n\n\n  x  1\n"));
+		assertThrows(IllegalArgumentException.class, () -> LazyAtomContainer.checkStructure("\n\n\n  2  1\n"));
+
+		// truncated atom and bond blocks
+		String truncated = molfile.substring(0, molfile.indexOf("  1  2  1"));
+		assertThrows(IllegalArgumentException.class, () -> LazyAtomContainer.checkStructure(truncated));
+		String truncatedV3000 = v3000Molfile.replace("M  V30 1 1 1 2\n", "");
+		assertThrows(IllegalArgumentException.class, () -> LazyAtomContainer.checkStructure(truncatedV3000));
+		String withoutCounts = v3000Molfile.replace("M  V30 COUNTS 2 1 0 0 0\n", "");
+		assertThrows(IllegalArgumentException.class, () -> LazyAtomContainer.checkStructure(withoutCounts));
+	}
+
+	@Test
+	public void test_create_withInvalidMolfile() {
+		IAtomContainer mol = LazyAtomContainer.create("invalid", false);
+		assertThrows(IllegalStateException.class, () -> mol.getAtomCount());
+	}
+
+	@Test
+	public void test_otherObjects() {
+		assertFalse(LazyAtomContainer.isUnparsed(null));
+		assertFalse(LazyAtomContainer.isUnparsed(molfile));
+		assertNull(LazyAtomContainer.getMolfile(new Atom("C"), false));
+	}
+
+	@Test
+	public void test_serialization() throws IOException, ClassNotFoundException {
+		IAtomContainer mol = (IAtomContainer) serializeAndDeserialize(LazyAtomContainer.create(molfile, false));
+		assertEquals(molfile, LazyAtomContainer.getMolfile(mol, false));
+
+		mol.getAtom(0).setSymbol("N");
+		mol = (IAtomContainer) serializeAndDeserialize(mol);
+		assertFalse(LazyAtomContainer.isUnparsed(mol));
+		assertEquals("N", mol.getAtom(0).getSymbol());
+	}
+
+	@Test
+	public void test_converters_withLazyConversion() {
+		servletContext.addInitParameter(LazyAtomContainer.WEBXML_LAZY_CONVERSION, "true");
+		MDLV2000Converter converter = new MDLV2000Converter();
+
+		IAtomContainer mol = converter.getAsObject(context, null, molfile);
+		assertTrue(LazyAtomContainer.isUnparsed(mol));
+		assertSame(molfile, converter.getAsString(context, null, mol));
+
+		// other format
+		String v3000 = new MDLV3000Converter().getAsString(context, null, mol);
+		assertTrue(v3000.contains("V3000"));
+		assertFalse(LazyAtomContainer.isUnparsed(mol));
+
+		// materialised molecules are written
+		mol.getAtom(1).setSymbol("S");
+		String written = converter.getAsString(context, null, mol);
+		assertTrue(written.contains(" S "));
+
+		// structurally invalid molfiles are rejected
+		assertThrows(ConverterException.class, () -> converter.getAsObject(context, null, "invalid"));
+		String unterminated = v3000Molfile.replace("M  V30 END ATOM\n", "");
+		assertThrows(ConverterException.class, () -> new MDLV3000Converter().getAsObject(context, null, unterminated));
+		assertTrue(LazyAtomContainer.isUnparsed(new MDLV3000Converter().getAsObject(context, null, v3000Molfile)));
+	}
+
+	@Test
+	public void test_converters_withoutLazyConversion() {
+		MDLV3000Converter converter = new MDLV3000Converter();
+		IAtomContainer mol = new MDLV2000Converter().getAsObject(context, null, molfile);
+		assertFalse(LazyAtomContainer.isUnparsed(mol));
+
+		mol = converter.getAsObject(context, null, converter.getAsString(context, null, mol));
+		assertFalse(LazyAtomContainer.isUnparsed(mol));
+		assertEquals(2, mol.getAtomCount());
+	}
+
+	private Object serializeAndDeserialize(Object object) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		}
+	}
+}
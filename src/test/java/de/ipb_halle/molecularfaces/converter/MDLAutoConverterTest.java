@@ -0,0 +1,120 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.ConverterException;
+
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * 
+ * @author flange
+ */
+public class MDLAutoConverterTest {
+	private FacesContext context = null;
+	private UIComponent component = null;
+
+	private MDLAutoConverter converter = new MDLAutoConverter();
+
+	private String v2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n" + "M  END\n";
+
+	private String v3000Molfile = "\r\n" + "Actelion Java MolfileCreator 2.0\r\n" + "\r\n"
+			+ "  0  0  0  0  0  0              0 V3000 \r\n" + "M  V30 BEGIN CTAB\r\n"
+			+ "M  V30 COUNTS 1 0 0 0 0\r\n" + "M  V30 BEGIN ATOM\r\n" + "M  V30 1 N 0 0 0 0\r\n"
+			+ "M  V30 END ATOM\r\n" + "M  V30 END CTAB\r\n" + "M  END";
+
+	@Test
+	public void test_isV3000() {
+		assertFalse(MDLAutoConverter.isV3000(v2000Molfile));
+		assertTrue(MDLAutoConverter.isV3000(v3000Molfile));
+		assertTrue(MDLAutoConverter.isV3000("\n\n\nV3000"));
+
+		assertFalse(MDLAutoConverter.isV3000(null));
+		assertFalse(MDLAutoConverter.isV3000(""));
+		assertFalse(MDLAutoConverter.isV3000("V3000\nV3000\nV3000\n"));
+		assertFalse(MDLAutoConverter.isV3000("\n\n\n  1  0  0  0  0  0  0  0  0  0  1\n"));
+		assertFalse(MDLAutoConverter.isV3000("\n\n\n\nV3000"));
+	}
+
+	@Test
+	public void test_getAsObject() {
+		assertNull(converter.getAsObject(context, component, ""));
+		assertEquals("C", converter.getAsObject(context, component, v2000Molfile).getAtom(0).getSymbol());
+		assertEquals("N", converter.getAsObject(context, component, v3000Molfile).getAtom(0).getSymbol());
+		assertThrows(ConverterException.class, () -> converter.getAsObject(context, component, "a"));
+	}
+
+	@Test
+	public void test_roundTrip_keepsVersion() {
+		IAtomContainer mol = converter.getAsObject(context, component, v3000Molfile);
+		// the molecule is not modified
+		assertEquals(new MDLV3000Converter().getAsObject(context, component, v3000Molfile).getProperties(),
+				mol.getProperties());
+		String written = converter.getAsString(context, component, mol);
+		assertTrue(MDLAutoConverter.isV3000(written));
+		assertEquals("N", converter.getAsObject(context, component, written).getAtom(0).getSymbol());
+
+		// molecules read by other converters are written in V2000 format
+		assertFalse(MDLAutoConverter.isV3000(converter.getAsString(context, component,
+				new MDLV3000Converter().getAsObject(context, component, v3000Molfile))));
+
+		mol = converter.getAsObject(context, component, v2000Molfile);
+		assertFalse(MDLAutoConverter.isV3000(converter.getAsString(context, component, mol)));
+
+		// materialised lazy proxies
+		IAtomContainer lazy = LazyAtomContainer.create(v3000Molfile, true);
+		lazy.getAtom(0).setSymbol("O");
+		written = converter.getAsString(context, component, lazy);
+		assertTrue(MDLAutoConverter.isV3000(written));
+		assertTrue(written.contains(" O "));
+	}
+
+	@Test
+	public void test_getAsString() {
+		assertEquals("", converter.getAsString(context, component, null));
+		assertEquals("", converter.getAsString(context, component, new Object()));
+
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new Atom("C"));
+		assertTrue(converter.getAsString(context, component, mol).contains("V2000"));
+
+		for (int i = 0; i < 999; i++) {
+			mol.addAtom(new Atom("C"));
+		}
+		assertTrue(converter.getAsString(context, component, mol).contains("V3000"));
+
+		IAtomContainer lazy = LazyAtomContainer.create(v3000Molfile, true);
+		assertSame(v3000Molfile, converter.getAsString(context, component, lazy));
+		lazy = LazyAtomContainer.create(v2000Molfile, false);
+		assertSame(v2000Molfile, converter.getAsString(context, component, lazy));
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond.Order;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class MDLBatchConverterTest {
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Test
+	public void test_toObjects_withLargeBatch() {
+		List<String> molfiles = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			molfiles.add((i % 50 == 7) ? "invalid" : toMolfile(createChain(1 + i % 20), false));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<MDLBatchConverter.Result<IAtomContainer>> results = new MDLBatchConverter(false, pool)
+					.toObjects(molfiles);
+
+			assertEquals(500, results.size());
+			for (int i = 0; i < 500; i++) {
+				MDLBatchConverter.Result<IAtomContainer> result = results.get(i);
+				if (i % 50 == 7) {
+					assertTrue(result.isFailed());
+					assertNull(result.getValue());
+					assertNotNull(result.getException());
+				} else {
+					assertFalse(result.isFailed());
+					assertNull(result.getException());
+					assertEquals(1 + i % 20, result.getValue().getAtomCount());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void test_toStrings_withLargeBatch_V3000() {
+		List<IAtomContainer> molecules = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			molecules.add(createChain(1 + i % 10));
+		}
+
+		MDLBatchConverter converter = new MDLBatchConverter(true);
+		List<MDLBatchConverter.Result<String>> results = converter.toStrings(molecules);
+		assertEquals(200, results.size());
+
+		List<String> molfiles = new ArrayList<>();
+		for (MDLBatchConverter.Result<String> result : results) {
+			assertFalse(result.isFailed());
+			assertTrue(result.getValue().contains("V3000"));
+			molfiles.add(result.getValue());
+		}
+
+		List<MDLBatchConverter.Result<IAtomContainer>> roundTrip = converter.toObjects(molfiles);
+		for (int i = 0; i < 200; i++) {
+			assertEquals(1 + i % 10, roundTrip.get(i).getValue().getAtomCount());
+		}
+	}
+
+	@Test
+	public void test_smallBatch_withEmptyValues() {
+		MDLBatchConverter converter = new MDLBatchConverter(false);
+
+		List<MDLBatchConverter.Result<IAtomContainer>> objects = converter
+				.toObjects(Arrays.asList(null, "", toMolfile(createChain(3), false)));
+		assertEquals(3, objects.size());
+		assertNull(objects.get(0).getValue());
+		assertFalse(objects.get(0).isFailed());
+		assertNull(objects.get(1).getValue());
+		assertFalse(objects.get(1).isFailed());
+		assertEquals(3, objects.get(2).getValue().getAtomCount());
+
+		List<MDLBatchConverter.Result<String>> strings = converter.toStrings(Arrays.asList(null, createChain(2)));
+		assertEquals("", strings.get(0).getValue());
+		assertTrue(strings.get(1).getValue().contains("V2000"));
+
+		assertTrue(converter.toObjects(new ArrayList<>()).isEmpty());
+		assertThrows(NullPointerException.class, () -> converter.toObjects(null));
+	}
+
+	@Test
+	public void test_toStrings_withLazyAtomContainer() {
+		String molfile = toMolfile(createChain(2), false);
+		IAtomContainer lazy = LazyAtomContainer.create(molfile, false);
+
+		assertSame(molfile, new MDLBatchConverter(false).toStrings(Arrays.asList(lazy)).get(0).getValue());
+	}
+
+	@Test
+	public void test_toStrings_withCanonicalMolfiles() throws CDKException {
+		// canonical labelling requires implicit hydrogen counts
+		IAtomContainer mol1 = createChain(3);
+		mol1.getAtom(0).setSymbol("O");
+		IAtomContainer mol2 = createChain(3);
+		mol2.getAtom(2).setSymbol("O");
+		for (int i = 0; i < 3; i++) {
+			mol1.getAtom(i).setImplicitHydrogenCount(0);
+			mol2.getAtom(i).setImplicitHydrogenCount(0);
+		}
+		String canonical = CanonicalMolfileWriter.write(mol1, false);
+		IAtomContainer lazy = LazyAtomContainer.create(toMolfile(mol2, false), false);
+
+		MDLBatchConverter converter = new MDLBatchConverter(false, true, ForkJoinPool.commonPool());
+		List<MDLBatchConverter.Result<String>> strings = converter.toStrings(Arrays.asList(mol1, mol2, lazy, null));
+		assertEquals(canonical, strings.get(0).getValue());
+		assertEquals(canonical, strings.get(1).getValue());
+		assertEquals(canonical, strings.get(2).getValue());
+		assertEquals("", strings.get(3).getValue());
+
+		// the context-param of the current FacesContext
+		assertNotEquals(canonical, new MDLBatchConverter(false).toStrings(Arrays.asList(mol2)).get(0).getValue());
+		rule.getContainer().getServletContext().addInitParameter(CanonicalMolfileWriter.WEBXML_CANONICAL_MOLFILES,
+				"true");
+		assertEquals(canonical, new MDLBatchConverter(false).toStrings(Arrays.asList(mol2)).get(0).getValue());
+	}
+
+	private IAtomContainer createChain(int atoms) {
+		IAtomContainer mol = new AtomContainer();
+		for (int i = 0; i < atoms; i++) {
+			mol.addAtom(new Atom("C"));
+			if (i > 0) {
+				mol.addBond(i - 1, i, Order.SINGLE);
+			}
+		}
+
+		return mol;
+	}
+
+	private String toMolfile(IAtomContainer mol, boolean v3000) {
+		return (v3000 ? new MDLV3000Converter() : new MDLV2000Converter()).getAsString(null, null, mol);
+	}
+}
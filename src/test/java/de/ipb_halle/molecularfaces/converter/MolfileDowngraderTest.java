@@ -0,0 +1,89 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+
+/**
+ * 
+ * @author flange
+ */
+public class MolfileDowngraderTest {
+	private String benzene = "\n" + "Actelion Java MolfileCreator 2.0\n" + "\n"
+			+ "  0  0  0  0  0  0              0 V3000\n" + "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 6 6 0 0 0\n"
+			+ "M  V30 BEGIN ATOM\n" + "M  V30 1 C 11.5625 -11.5 0 0\n" + "M  V30 2 C 11.5625 -13 0 0\n"
+			+ "M  V30 3 C 12.8615 -13.75 0 0\n" + "M  V30 4 C 14.1605 -13 0 0\n" + "M  V30 5 C 14.1605 -11.5 0 0\n"
+			+ "M  V30 6 C 12.8615 -10.75 0 0\n" + "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n" + "M  V30 1 2 1 2\n"
+			+ "M  V30 2 1 2 3\n" + "M  V30 3 2 3 4\n" + "M  V30 4 1 4 5\n" + "M  V30 5 2 5 6\n" + "M  V30 6 1 6 1\n"
+			+ "M  V30 END BOND\n" + "M  V30 END CTAB\n" + "M  END";
+
+	@Test
+	public void test_toV2000() throws Exception {
+		String v2000 = MolfileDowngrader.toV2000(benzene);
+
+		assertNotNull(v2000);
+		assertTrue(v2000.contains("V2000"));
+
+		IAtomContainer mol;
+		try (MDLV2000Reader reader = new MDLV2000Reader(new StringReader(v2000))) {
+			mol = reader.read(new AtomContainer());
+		}
+		assertEquals(6, mol.getAtomCount());
+		assertEquals(6, mol.getBondCount());
+	}
+
+	@Test
+	public void test_toV2000_withEmptyOrInvalidInput_returnsNull() {
+		assertNull(MolfileDowngrader.toV2000(null));
+		assertNull(MolfileDowngrader.toV2000(""));
+		assertNull(MolfileDowngrader.toV2000("a"));
+	}
+
+	@Test
+	public void test_toV2000_withEnhancedStereo_returnsNull() {
+		String withCollection = benzene.replace("M  V30 END CTAB\n",
+				"M  V30 BEGIN COLLECTION\n" + "M  V30 MDLV30/STEABS ATOMS=(1 1)\n" + "M  V30 END COLLECTION\n"
+						+ "M  V30 END CTAB\n");
+
+		assertNull(MolfileDowngrader.toV2000(withCollection));
+	}
+
+	@Test
+	public void test_toV2000_withTooManyAtoms_returnsNull() throws CDKException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("\n\n\n  0  0  0  0  0  0              0 V3000\n");
+		sb.append("M  V30 BEGIN CTAB\n").append("M  V30 COUNTS 1000 0 0 0 0\n").append("M  V30 BEGIN ATOM\n");
+		for (int i = 1; i <= 1000; i++) {
+			sb.append("M  V30 ").append(i).append(" C ").append(i).append(" 0 0 0\n");
+		}
+		sb.append("M  V30 END ATOM\n").append("M  V30 END CTAB\n").append("M  END");
+
+		assertNull(MolfileDowngrader.toV2000(sb.toString()));
+	}
+}
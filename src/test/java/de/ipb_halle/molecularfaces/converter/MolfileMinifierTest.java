@@ -0,0 +1,170 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.io.ISimpleChemObjectReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV3000Reader;
+
+/**
+ * 
+ * @author flange
+ */
+public class MolfileMinifierTest {
+	private String v2000Molfile = "ethanolate\n" + "  CDK     1019261200\n" + "comment  \n"
+			+ "  3  2  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "    0.0000    0.0000    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    1.2990    0.7500    0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "    2.5981   -0.0020    0.0000 O   0  5  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "  2  3  1  1  0  0  0\n" + "M  CHG  1   3  -1\n" + "M  ISO  0\n"
+			+ "M  END\n";
+
+	private String minifiedV2000Molfile = "ethanolate\n" + "\n" + "comment\n"
+			+ "  3  2  0  0  0  0  0  0  0  0999 V2000\n" + "    0.0000    0.0000    0.0000 C  \n"
+			+ "    1.3000    0.7500    0.0000 C  \n" + "    2.6000    0.0000    0.0000 O   0  5\n"
+			+ "  1  2  1\n" + "  2  3  1  1\n" + "M  CHG  1   3  -1\n" + "M  END\n";
+
+	private String v3000Molfile = "\n" + "  CDK     1019261200\n" + "\n"
+			+ "  0  0  0     0  0            999 V3000\n" + "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 2 1 0 0 0\n"
+			+ "M  V30 BEGIN ATOM\n" + "M  V30 1 C 0.0000 0.0000 0.0000 0\n"
+			+ "M  V30 2 O 1.2990 -0.7500 0.0000 0 CHG=-1\n" + "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n"
+			+ "M  V30 1 1 1 2\n" + "M  V30 END BOND\n" + "M  V30 BEGIN SGROUP\n" + "M  V30 END SGROUP\n"
+			+ "M  V30 END CTAB\n" + "M  END\n";
+
+	private String minifiedV3000Molfile = "\n" + "\n" + "\n" + "  0  0  0     0  0            999 V3000\n"
+			+ "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 2 1 0 0 0\n" + "M  V30 BEGIN ATOM\n" + "M  V30 1 C 0 0 0 0\n"
+			+ "M  V30 2 O 1.3 -0.75 0 0 CHG=-1\n" + "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n"
+			+ "M  V30 1 1 1 2\n" + "M  V30 END BOND\n" + "M  V30 END CTAB\n" + "M  END\n";
+
+	@Test
+	public void test_minify_V2000() throws CDKException {
+		String minified = MolfileMinifier.minify(v2000Molfile, 2);
+		assertEquals(minifiedV2000Molfile, minified);
+		assertTrue(minified.length() < v2000Molfile.length());
+		assertSameMolecule(read(v2000Molfile, false), read(minified, false));
+	}
+
+	@Test
+	public void test_minify_V2000_keepsPrecision() {
+		String minified = MolfileMinifier.minify(v2000Molfile, 4);
+		assertTrue(minified.contains("    2.5981   -0.0020    0.0000 O   0  5\n"));
+	}
+
+	@Test
+	public void test_minify_V3000() throws CDKException {
+		String minified = MolfileMinifier.minify(v3000Molfile, 2);
+		assertEquals(minifiedV3000Molfile, minified);
+		assertSameMolecule(read(v3000Molfile, true), read(minified, true));
+	}
+
+	@Test
+	public void test_minify_V3000_withQuotedAtomType() {
+		String line = "M  V30 1 \"NOT [N,O]\" 1.2345 0.0001 0 0\n";
+		String molfile = v3000Molfile.replace("M  V30 1 C 0.0000 0.0000 0.0000 0\n", line);
+		assertTrue(MolfileMinifier.minify(molfile, 2).contains("M  V30 1 \"NOT [N,O]\" 1.23 0 0 0\n"));
+	}
+
+	@Test
+	public void test_minify_keepsDimensionalCode() {
+		String molfile = v2000Molfile.replace("  CDK     1019261200\n",
+				"  CDK     10192612002D 1   1.00000     0.00000     0\n");
+		assertTrue(MolfileMinifier.minify(molfile, 2).startsWith("ethanolate\n" + " ".repeat(20)
+				+ "2D 1   1.00000     0.00000     0\n" + "comment\n"));
+	}
+
+	@Test
+	public void test_minify_3D_keepsCoordinates() throws CDKException {
+		// the dimensional code of the header
+		String molfile = v2000Molfile.replace("  CDK     1019261200\n", "  CDK     10192612003D\n");
+		String minified = MolfileMinifier.minify(molfile, 2);
+		assertTrue(minified.startsWith("ethanolate\n" + " ".repeat(20) + "3D\n"));
+		assertTrue(minified.contains("    1.2990    0.7500    0.0000 C  \n"));
+		assertTrue(minified.contains("    2.5981   -0.0020    0.0000 O   0  5\n"));
+
+		// z coordinates
+		molfile = v2000Molfile.replace("    1.2990    0.7500    0.0000 C", "    1.2990    0.7500    0.1234 C");
+		minified = MolfileMinifier.minify(molfile, 2);
+		assertTrue(minified.contains("    1.2990    0.7500    0.1234 C  \n"));
+		assertEquals(0.1234, read(minified, false).getAtom(1).getPoint3d().z, 1e-9);
+
+		molfile = v3000Molfile.replace("M  V30 2 O 1.2990 -0.7500 0.0000 0", "M  V30 2 O 1.2990 -0.7500 0.5678 0");
+		minified = MolfileMinifier.minify(molfile, 2);
+		assertTrue(minified.contains("M  V30 2 O 1.2990 -0.7500 0.5678 0 CHG=-1\n"));
+		assertEquals(0.5678, read(minified, true).getAtom(1).getPoint3d().z, 1e-9);
+	}
+
+	@Test
+	public void test_minify_isIdempotent() {
+		assertEquals(minifiedV2000Molfile, MolfileMinifier.minify(minifiedV2000Molfile, 2));
+		assertEquals(minifiedV3000Molfile, MolfileMinifier.minify(minifiedV3000Molfile, 2));
+	}
+
+	@Test
+	public void test_minify_withInvalidInput() {
+		assertNull(MolfileMinifier.minify(null, 2));
+		assertEquals("", MolfileMinifier.minify("", 2));
+		assertEquals("molfile", MolfileMinifier.minify("molfile", 2));
+
+		String invalid = "\n\n\nabc\n";
+		assertEquals(invalid, MolfileMinifier.minify(invalid, 2));
+	}
+
+	private void assertSameMolecule(IAtomContainer expected, IAtomContainer actual) {
+		assertEquals(expected.getAtomCount(), actual.getAtomCount());
+		for (int i = 0; i < expected.getAtomCount(); i++) {
+			assertEquals(expected.getAtom(i).getSymbol(), actual.getAtom(i).getSymbol());
+			assertEquals(expected.getAtom(i).getFormalCharge(), actual.getAtom(i).getFormalCharge());
+			assertEquals(expected.getAtom(i).getImplicitHydrogenCount(),
+					actual.getAtom(i).getImplicitHydrogenCount());
+			assertEquals(expected.getAtom(i).getPoint2d().x, actual.getAtom(i).getPoint2d().x, 0.005);
+			assertEquals(expected.getAtom(i).getPoint2d().y, actual.getAtom(i).getPoint2d().y, 0.005);
+		}
+
+		assertEquals(expected.getBondCount(), actual.getBondCount());
+		for (int i = 0; i < expected.getBondCount(); i++) {
+			IBond expectedBond = expected.getBond(i);
+			IBond actualBond = actual.getBond(i);
+			assertEquals(expectedBond.getOrder(), actualBond.getOrder());
+			assertEquals(expectedBond.getStereo(), actualBond.getStereo());
+			assertEquals(expected.indexOf(expectedBond.getBegin()), actual.indexOf(actualBond.getBegin()));
+			assertEquals(expected.indexOf(expectedBond.getEnd()), actual.indexOf(actualBond.getEnd()));
+		}
+	}
+
+	private IAtomContainer read(String molfile, boolean v3000) throws CDKException {
+		StringReader in = new StringReader(molfile);
+		try (ISimpleChemObjectReader reader = v3000 ? new MDLV3000Reader(in) : new MDLV2000Reader(in)) {
+			return reader.read(new AtomContainer());
+		} catch (CDKException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+	}
+}
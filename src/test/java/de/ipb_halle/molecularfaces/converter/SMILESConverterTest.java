@@ -0,0 +1,112 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.convert.Converter;
+import jakarta.faces.convert.ConverterException;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * 
+ * @author flange
+ */
+public class SMILESConverterTest {
+	private FacesContext context = null;
+	private UIComponent component = null;
+
+	private Converter converter = new SMILESConverter();
+
+	@Test
+	public void testGetAsObjectReturnsNull() {
+		assertNull(converter.getAsObject(context, component, ""));
+		assertNull(converter.getAsObject(context, component, null));
+	}
+
+	@Test
+	public void testGetAsObjectThrowsConverterException() {
+		assertThrows(ConverterException.class, () -> converter.getAsObject(context, component, "C1CC("));
+	}
+
+	@Test
+	public void testGetAsObjectWithValidSmiles() {
+		IAtomContainer mol = (IAtomContainer) converter.getAsObject(context, component, "c1ccccc1");
+		assertNotNull(mol);
+
+		// hydrogens are implicit
+		assertEquals(6, mol.getAtomCount());
+		assertEquals(6, mol.getBondCount());
+
+		IMolecularFormula formula = MolecularFormulaManipulator.getMolecularFormula(mol);
+		assertEquals("C6H6", MolecularFormulaManipulator.getString(formula));
+
+		// 2D layout
+		for (IAtom atom : mol.atoms()) {
+			assertNotNull(atom.getPoint2d());
+		}
+	}
+
+	@Test
+	public void testGetAsObjectReturnsNewInstances() {
+		IAtomContainer mol1 = (IAtomContainer) converter.getAsObject(context, component, "CCO");
+		mol1.getAtom(0).setSymbol("N");
+		IAtomContainer mol2 = (IAtomContainer) converter.getAsObject(context, component, "CCO");
+
+		assertNotSame(mol1, mol2);
+		assertEquals("C", mol2.getAtom(0).getSymbol());
+		assertEquals(mol1.getAtom(1).getPoint2d(), mol2.getAtom(1).getPoint2d());
+	}
+
+	@Test
+	public void testGetAsStringReturnsEmptyString() {
+		assertEquals("", converter.getAsString(context, component, null));
+		assertEquals("", converter.getAsString(context, component, new Object()));
+	}
+
+	@Test
+	public void testOutAndIn() {
+		String smiles = "C[C@H](N)C(=O)O";
+		IAtomContainer mol = (IAtomContainer) converter.getAsObject(context, component, smiles);
+		assertEquals(smiles, converter.getAsString(context, component, mol));
+	}
+
+	@Test
+	public void testTranscoding() {
+		String molfile = SmilesTranscoder.toV2000("CCO");
+		assertTrue(molfile.contains(" V2000"));
+		assertEquals("CCO", SmilesTranscoder.fromV2000(molfile));
+
+		assertEquals("", SmilesTranscoder.toV2000(""));
+		assertEquals("", SmilesTranscoder.fromV2000(null));
+		assertNull(SmilesTranscoder.toV2000("C1CC("));
+		assertNull(SmilesTranscoder.fromV2000("invalid"));
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import jakarta.faces.application.ResourceHandler;
+import jakarta.faces.application.ResourceHandlerWrapper;
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.test.mock.MockHttpServletRequest;
+import org.apache.myfaces.test.mock.MockPrintWriter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class BatchDepictionResourceHandlerTest {
+	private FacesContext context;
+	private MockHttpServletRequest request;
+	private boolean delegated;
+	private BatchDepictionResourceHandler handler;
+
+	private String v2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "   11.6115  -11.0625   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END\n";
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		request = rule.getContainer().getRequest();
+
+		ResourceHandler wrapped = new ResourceHandlerWrapper(context.getApplication().getResourceHandler()) {
+			@Override
+			public void handleResourceRequest(FacesContext context) throws IOException {
+				delegated = true;
+			}
+		};
+		handler = new BatchDepictionResourceHandler(wrapped);
+	}
+
+	@Test
+	public void test_handleResourceRequest_withOtherResource_delegates() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/js/MolecularFaces.min.js.xhtml");
+		request.addParameter("ln", "molecularfaces");
+
+		handler.handleResourceRequest(context);
+
+		assertTrue(delegated);
+		assertEquals("", getResponseContent());
+	}
+
+	@Test
+	public void test_handleResourceRequest_withOtherLibrary_delegates() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/depictions.json.xhtml");
+		request.addParameter("ln", "otherlibrary");
+
+		handler.handleResourceRequest(context);
+
+		assertTrue(delegated);
+	}
+
+	@Test
+	public void test_handleResourceRequest_withRegisteredKeys() throws IOException {
+		context.getExternalContext().getSession(true);
+		DepictionRegistry registry = DepictionRegistry.getInstance(context);
+		String key1 = registry.register(v2000Molfile, false, 100, 80);
+		String key2 = registry.register("invalid molfile", false, 100, 80);
+
+		// prefix mapping
+		request.setServletPath("/faces");
+		request.setPathInfo("/jakarta.faces.resource/depictions.json");
+		request.addParameter("ln", "molecularfaces");
+		request.addParameter("keys", key1 + ",unknown," + key2 + "," + key1);
+
+		handler.handleResourceRequest(context);
+
+		assertFalse(delegated);
+		assertTrue(context.getResponseComplete());
+		String output = getResponseContent();
+		assertTrue(output.startsWith("{\"" + key1 + "\":\"\\u003Csvg"));
+		assertTrue(output.contains("width='100.0px'"));
+		assertTrue(output.endsWith("\",\"unknown\":null,\"" + key2 + "\":null}"));
+		assertEquals("no-store", rule.getContainer().getResponse().getHeader("Cache-Control"));
+	}
+
+	@Test
+	public void test_handleResourceRequest_withoutSession() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/depictions.json.xhtml");
+		request.addParameter("ln", "molecularfaces");
+		request.addParameter("keys", "key1");
+
+		handler.handleResourceRequest(context);
+
+		assertEquals("{\"key1\":null}", getResponseContent());
+	}
+
+	@Test
+	public void test_handleResourceRequest_withTooManyKeys() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/depictions.json.xhtml");
+		request.addParameter("ln", "molecularfaces");
+		String[] keys = new String[BatchDepictionResourceHandler.MAX_KEYS + 1];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "key" + i;
+		}
+		request.addParameter("keys", String.join(",", keys));
+
+		handler.handleResourceRequest(context);
+
+		assertEquals("", getResponseContent());
+		assertEquals(400, rule.getContainer().getResponse().getStatus());
+		assertTrue(context.getResponseComplete());
+	}
+
+	@Test
+	public void test_depict_preservesOrder() {
+		DepictionRegistry registry = new DepictionRegistry(DepictionRegistry.DEFAULT_DEPICTION_REGISTRY_SIZE);
+		String key1 = registry.register(v2000Molfile, false, 100, 80);
+		String key2 = registry.register(v2000Molfile, false, 200, 160);
+
+		assertEquals(Arrays.asList(null, null), handler.depict(context, null, Arrays.asList(key1, key2)));
+		assertEquals(Collections.emptyList(), handler.depict(context, registry, Collections.emptyList()));
+
+		assertTrue(handler.depict(context, registry, Arrays.asList(key1, key2)).get(1).contains("width='200.0px'"));
+	}
+
+	private String getResponseContent() throws IOException {
+		return new String(((MockPrintWriter) rule.getContainer().getResponse().getWriter()).content());
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.faces.context.FacesContext;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class DepictionExecutorTest {
+	private FacesContext context;
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+	}
+
+	@Test
+	public void test_submit() {
+		DepictionExecutor executor = new DepictionExecutor(2, 10000);
+
+		assertEquals("<svg/>", executor.submit(() -> "<svg/>").get());
+	}
+
+	@Test
+	public void test_submit_withFailingTask_returnsEmptyString() {
+		DepictionExecutor executor = new DepictionExecutor(2, 10000);
+
+		assertEquals("", executor.submit(() -> {
+			throw new IllegalStateException("failure");
+		}).get());
+	}
+
+	@Test
+	public void test_submit_withTimeout_returnsNull() throws InterruptedException {
+		DepictionExecutor executor = new DepictionExecutor(1, 50);
+		CountDownLatch latch = new CountDownLatch(1);
+
+		DepictionExecutor.Job blocking = executor.submit(() -> {
+			latch.await();
+			return "<svg/>";
+		});
+		DepictionExecutor.Job queued = executor.submit(() -> "<svg/>");
+
+		// The blocking task is interrupted when its job times out, thus the
+		// queued job is checked first.
+		assertNull(queued.get());
+		assertNull(blocking.get());
+		latch.countDown();
+	}
+
+	@Test
+	public void test_submit_withTimeout_interruptsRunningTask() throws InterruptedException {
+		DepictionExecutor executor = new DepictionExecutor(1, 50);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		DepictionExecutor.Job job = executor.submit(() -> {
+			started.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return "<svg/>";
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		assertNull(job.get());
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void test_submit_withTimeout_removesQueuedTask() {
+		DepictionExecutor executor = new DepictionExecutor(1, 200, 1);
+		CountDownLatch latch = new CountDownLatch(1);
+
+		executor.submit(() -> {
+			latch.await();
+			return "<svg/>";
+		});
+		DepictionExecutor.Job queued = executor.submit(() -> "<svg/>");
+		assertNull(queued.get());
+
+		// The queue has room again.
+		DepictionExecutor.Job next = executor.submit(() -> "<svg/>");
+		latch.countDown();
+		assertEquals("<svg/>", next.get());
+	}
+
+	@Test
+	public void test_submit_withFullQueue_returnsNull() {
+		DepictionExecutor executor = new DepictionExecutor(1, 10000, 1);
+		CountDownLatch latch = new CountDownLatch(1);
+
+		DepictionExecutor.Job blocking = executor.submit(() -> {
+			latch.await();
+			return "<svg/>";
+		});
+		DepictionExecutor.Job queued = executor.submit(() -> "<svg/>");
+		DepictionExecutor.Job rejected = executor.submit(() -> "<svg/>");
+
+		assertNull(rejected.get());
+		latch.countDown();
+		assertEquals("<svg/>", blocking.get());
+		assertEquals("<svg/>", queued.get());
+	}
+
+	@Test
+	public void test_getInstance_and_shutdown() {
+		DepictionExecutor executor = DepictionExecutor.getInstance(context);
+		assertSame(executor, DepictionExecutor.getInstance(context));
+		assertSame(executor,
+				context.getExternalContext().getApplicationMap().get(DepictionExecutor.APPLICATION_MAP_KEY));
+
+		DepictionExecutor.shutdown(context);
+		assertFalse(context.getExternalContext().getApplicationMap()
+				.containsKey(DepictionExecutor.APPLICATION_MAP_KEY));
+	}
+
+	@Test
+	public void test_depictionJobs() {
+		assertNull(DepictionJobs.remove(context, "myId"));
+
+		DepictionJobs jobs = DepictionJobs.getInstance(context);
+		assertSame(jobs, DepictionJobs.getInstance(context));
+		jobs.submit("myId", Arrays.asList(() -> "a", () -> "b"));
+
+		assertEquals(2, DepictionJobs.remove(context, "myId").size());
+		assertNull(DepictionJobs.remove(context, "myId"));
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Writer;
+
+/**
+ * 
+ * @author flange
+ */
+public class DepictionKeyTest {
+	@Test
+	public void test_compute() {
+		assertEquals("7d5eb2c59f2bde1788ac752570b5194741ca77a84745d564a03576c2b31a9224", DepictionKey.compute("OpenChemLibJS", 400, 400, "molfile"));
+	}
+
+	@Test
+	public void test_compute_withNullMolecule() {
+		assertEquals(DepictionKey.compute("OpenChemLibJS", 400, 400, ""),
+				DepictionKey.compute("OpenChemLibJS", 400, 400, null));
+	}
+
+	@Test
+	public void test_compute_differsByPluginAndSizeAndMolecule() {
+		String key = DepictionKey.compute("OpenChemLibJS", 400, 300, "molfile");
+
+		assertNotEquals(key, DepictionKey.compute("MarvinJS", 400, 300, "molfile"));
+		assertNotEquals(key, DepictionKey.compute("OpenChemLibJS", 300, 400, "molfile"));
+		assertNotEquals(key, DepictionKey.compute("OpenChemLibJS", 400, 300, "molfile2"));
+	}
+
+	@Test
+	public void test_compute_ignoresHeaderDateOfMolfile() throws CDKException {
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new Atom("C"));
+		String molfile = write(mol);
+		// the same Molfile as if written at another time
+		int start = molfile.indexOf('\n') + 1;
+		String later = molfile.substring(0, start + 10) + "0101990000" + molfile.substring(start + 20);
+		assertNotEquals(molfile, later);
+
+		assertEquals(DepictionKey.compute("OpenChemLibJS", 400, 300, molfile),
+				DepictionKey.compute("OpenChemLibJS", 400, 300, later));
+		assertNotEquals(DepictionKey.compute("OpenChemLibJS", 400, 300, molfile),
+				DepictionKey.compute("OpenChemLibJS", 400, 300, molfile.replace(" C ", " N ")));
+	}
+
+	private String write(IAtomContainer mol) throws CDKException {
+		StringWriter out = new StringWriter();
+		try (MDLV2000Writer writer = new MDLV2000Writer(out)) {
+			writer.write(mol);
+		} catch (IOException e) {
+			throw new CDKException(e.getMessage(), e);
+		}
+
+		return out.toString();
+	}
+}
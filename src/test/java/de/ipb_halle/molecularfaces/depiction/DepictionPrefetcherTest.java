@@ -0,0 +1,182 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import de.ipb_halle.molecularfaces.component.molplugin.MolPluginCore;
+import de.ipb_halle.molecularfaces.converter.CanonicalMolfileWriter;
+import de.ipb_halle.molecularfaces.converter.LazyAtomContainer;
+import de.ipb_halle.molecularfaces.converter.MDLV2000Converter;
+import de.ipb_halle.molecularfaces.converter.MDLV3000Converter;
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class DepictionPrefetcherTest {
+	private FacesContext context;
+	private MockServletContext servletContext;
+	private DepictionStore store;
+
+	private String v2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "   11.6115  -11.0625   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() throws IOException {
+		context = rule.getContainer().getFacesContext();
+		servletContext = rule.getContainer().getServletContext();
+		store = new DepictionStore(folder.newFolder().toPath(), 1024 * 1024);
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		DepictionPrefetcher.shutdown(context);
+		DepictionStore.shutdown(context);
+		store.close();
+	}
+
+	@Test
+	public void test_submit() throws InterruptedException {
+		DepictionPrefetcher prefetcher = new DepictionPrefetcher(store, 16);
+
+		assertTrue(prefetcher.submit(v2000Molfile, false, 100, 50));
+		assertFalse(prefetcher.submit(v2000Molfile, false, 100, 50));
+		assertFalse(prefetcher.submit("", false, 100, 50));
+		assertFalse(prefetcher.submit(null, false, 100, 50));
+
+		awaitDepiction(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 100, 50, v2000Molfile));
+	}
+
+	@Test
+	public void test_submit_withFullQueue_dropsDepictions() {
+		DepictionPrefetcher prefetcher = new DepictionPrefetcher(store, 1);
+
+		// The worker blocks on the store's monitor.
+		synchronized (store) {
+			boolean allQueued = true;
+			for (int i = 1; i <= 3; i++) {
+				allQueued &= prefetcher.submit(v2000Molfile, false, i, i);
+			}
+			assertFalse(allQueued);
+		}
+	}
+
+	@Test
+	public void test_getInstance_withoutConfiguration_returnsNull() {
+		assertNull(DepictionPrefetcher.getInstance(context));
+
+		// requires the depiction store
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH, "true");
+		assertNull(DepictionPrefetcher.getInstance(context));
+	}
+
+	@Test
+	public void test_prefetch_fromConverter() throws InterruptedException, IOException {
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH, "true");
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_SIZES, "120x80");
+		servletContext.addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY,
+				folder.newFolder().toString());
+		store.close();
+		store = DepictionStore.getInstance(context);
+		assertSame(DepictionPrefetcher.getInstance(context), DepictionPrefetcher.getInstance(context));
+
+		MolPluginCore comp = new MolPluginCore() {};
+		comp.setWidth(300);
+		comp.setHeight(250);
+		MDLV2000Converter converter = new MDLV2000Converter();
+		IAtomContainer mol = converter.getAsObject(context, comp, v2000Molfile);
+
+		// The renderers depict the molfile written by the converter. The worker
+		// writes it at another time, which only changes the header date.
+		String renderedMolfile = converter.getAsString(context, comp, mol);
+		assertNotEquals(v2000Molfile, renderedMolfile);
+		awaitDepiction(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 120, 80, renderedMolfile));
+		awaitDepiction(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 300, 250, renderedMolfile));
+	}
+
+	@Test
+	public void test_prefetch_withComponentConverter() throws InterruptedException, IOException {
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH, "true");
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_SIZES, "120x80");
+		servletContext.addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY,
+				folder.newFolder().toString());
+		servletContext.addInitParameter(CanonicalMolfileWriter.WEBXML_CANONICAL_MOLFILES, "true");
+		store.close();
+		store = DepictionStore.getInstance(context);
+
+		MDLV3000Converter componentConverter = new MDLV3000Converter();
+		MolPluginCore comp = new MolPluginCore() {};
+		comp.setConverter(componentConverter);
+		IAtomContainer mol = new MDLV2000Converter().getAsObject(context, comp, v2000Molfile);
+
+		String renderedMolfile = componentConverter.getAsString(context, comp, mol);
+		assertTrue(renderedMolfile.contains("V3000"));
+		awaitDepiction(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 120, 80, renderedMolfile));
+	}
+
+	@Test
+	public void test_prefetch_withLazyConversion() throws InterruptedException, IOException {
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH, "true");
+		servletContext.addInitParameter(DepictionPrefetcher.WEBXML_DEPICTION_PREFETCH_SIZES, "120x80");
+		servletContext.addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY,
+				folder.newFolder().toString());
+		servletContext.addInitParameter(LazyAtomContainer.WEBXML_LAZY_CONVERSION, "true");
+		store.close();
+		store = DepictionStore.getInstance(context);
+
+		new MDLV2000Converter().getAsObject(context, null, v2000Molfile);
+
+		// The original molfile is written back unchanged.
+		awaitDepiction(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 120, 80, v2000Molfile));
+	}
+
+	private void awaitDepiction(String key) throws InterruptedException {
+		for (int i = 0; (i < 500) && (store.get(key) == null); i++) {
+			Thread.sleep(20);
+		}
+		assertNotNull(store.get(key));
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.test.mock.MockHttpServletRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class DepictionRegistryTest {
+	private FacesContext context;
+	private MockHttpServletRequest request;
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		request = rule.getContainer().getRequest();
+		context.getExternalContext().getSession(true);
+	}
+
+	@Test
+	public void test_getInstance() {
+		DepictionRegistry registry = DepictionRegistry.getInstance(context);
+
+		assertNotNull(registry);
+		assertSame(registry, DepictionRegistry.getInstance(context));
+		assertSame(registry, DepictionRegistry.getExistingInstance(context.getExternalContext()));
+	}
+
+	@Test
+	public void test_getInstance_withoutSession_doesNotCreateSession() {
+		request.setHttpSession(null);
+
+		assertNull(DepictionRegistry.getInstance(context));
+		assertNull(DepictionRegistry.getExistingInstance(context.getExternalContext()));
+		assertNull(request.getSession(false));
+	}
+
+	@Test
+	public void test_register_evictsLeastRecentlyUsedEntries() {
+		rule.getContainer().getServletContext().addInitParameter(DepictionRegistry.WEBXML_DEPICTION_REGISTRY_SIZE,
+				"2");
+		DepictionRegistry registry = DepictionRegistry.getInstance(context);
+
+		String key1 = registry.register("molfile1", false, 100, 100);
+		String key2 = registry.register("molfile2", true, 100, 100);
+		assertEquals("molfile1", registry.get(key1).getMolfile());
+
+		String key3 = registry.register("molfile3", false, 200, 100);
+		assertEquals("molfile1", registry.get(key1).getMolfile());
+		assertNull(registry.get(key2));
+		assertEquals("molfile3", registry.get(key3).getMolfile());
+		assertEquals(200, registry.get(key3).getWidth());
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.test.mock.MockServletContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+
+/**
+ * 
+ * @author flange
+ */
+public class DepictionStoreTest {
+	private Path directory;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() throws IOException {
+		directory = folder.newFolder().toPath();
+	}
+
+	@Test
+	public void test_putAndGet() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertNull(store.get(key(1)));
+
+			store.put(key(1), "<svg>1</svg>");
+			store.put(key(2), "<svg>ä</svg>");
+			store.put(key(1), "<svg>other</svg>");
+
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+			assertEquals("<svg>ä</svg>", store.get(key(2)));
+			assertNull(store.get(key(3)));
+		}
+	}
+
+	@Test
+	public void test_invalidKey_throwsIllegalArgumentException() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertThrows(IllegalArgumentException.class, () -> store.get(null));
+			assertThrows(IllegalArgumentException.class, () -> store.get("abc"));
+			assertThrows(IllegalArgumentException.class, () -> store.put(key(1).replace('0', 'x'), "<svg/>"));
+		}
+	}
+
+	@Test
+	public void test_reopen_keepsDepictions() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			store.put(key(1), "<svg>1</svg>");
+		}
+
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+			store.put(key(2), "<svg>2</svg>");
+		}
+
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+			assertEquals("<svg>2</svg>", store.get(key(2)));
+		}
+	}
+
+	@Test
+	public void test_reopen_withLostIndex_rebuildsIndex() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			store.put(key(1), "<svg>1</svg>");
+		}
+		Files.delete(directory.resolve("index.dat"));
+
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+		}
+	}
+
+	@Test
+	public void test_put_exceedingMaxSize_evictsOldestDepictions() throws IOException {
+		String svg = "<svg>" + "x".repeat(100) + "</svg>";
+		try (DepictionStore store = new DepictionStore(directory, 1600)) {
+			for (int i = 0; i < 50; i++) {
+				store.put(key(i), svg);
+			}
+
+			assertNull(store.get(key(0)));
+			assertEquals(svg, store.get(key(49)));
+			assertTrue(sizeOfSegments() <= 1600 + 200);
+		}
+	}
+
+	@Test
+	public void test_put_withFullIndex_compactsIndex() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 4096, 16)) {
+			for (int i = 0; i < 200; i++) {
+				store.put(key(i), "<svg>" + i + "</svg>");
+				assertEquals("<svg>" + i + "</svg>", store.get(key(i)));
+			}
+		}
+	}
+
+	@Test
+	public void test_put_withCorruptRecord_rewritesRecord() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			store.put(key(1), "<svg>1</svg>");
+		}
+		try (FileChannel channel = FileChannel.open(directory.resolve("segment-0.dat"), StandardOpenOption.WRITE)) {
+			channel.truncate(20);
+		}
+
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertNull(store.get(key(1)));
+			store.put(key(1), "<svg>1</svg>");
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+		}
+	}
+
+	@Test
+	public void test_open_withDirectoryInUse_throwsIOException() throws IOException {
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			store.put(key(1), "<svg>1</svg>");
+
+			assertThrows(IOException.class, () -> new DepictionStore(directory, 1024 * 1024));
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+		}
+
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertEquals("<svg>1</svg>", store.get(key(1)));
+		}
+	}
+
+	@Test
+	public void test_concurrentPutAndGet() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (DepictionStore store = new DepictionStore(directory, 64 * 1024, 256)) {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				tasks.add(() -> {
+					for (int i = 0; i < 200; i++) {
+						String key = key(thread * 1000 + i);
+						store.put(key, "<svg>" + key + "</svg>");
+						String svg = store.get(key);
+						if ((svg != null) && !svg.equals("<svg>" + key + "</svg>")) {
+							throw new AssertionError("Wrong depiction for key " + key);
+						}
+					}
+					return null;
+				});
+			}
+
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+			store.put(key(5000), "<svg>5000</svg>");
+			assertEquals("<svg>5000</svg>", store.get(key(5000)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void test_closedStore() throws IOException {
+		DepictionStore store = new DepictionStore(directory, 1024 * 1024);
+		store.put(key(1), "<svg>1</svg>");
+		store.close();
+		store.close();
+
+		assertNull(store.get(key(1)));
+		store.put(key(2), "<svg>2</svg>");
+	}
+
+	@Test
+	public void test_getInstance() {
+		FacesContext context = rule.getContainer().getFacesContext();
+		MockServletContext servletContext = rule.getContainer().getServletContext();
+
+		assertNull(DepictionStore.getInstance(context));
+		DepictionStore.shutdown(context);
+
+		servletContext.addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY, directory.toString());
+		DepictionStore store = DepictionStore.getInstance(context);
+		assertSame(store, DepictionStore.getInstance(context));
+
+		DepictionStore.shutdown(context);
+		assertNull(context.getExternalContext().getApplicationMap().get(DepictionStore.APPLICATION_MAP_KEY));
+	}
+
+	@Test
+	public void test_getInstance_withDirectoryInUse_returnsNull() throws IOException {
+		FacesContext context = rule.getContainer().getFacesContext();
+		rule.getContainer().getServletContext().addInitParameter(DepictionStore.WEBXML_DEPICTION_STORE_DIRECTORY,
+				directory.toString());
+
+		try (DepictionStore store = new DepictionStore(directory, 1024 * 1024)) {
+			assertNull(DepictionStore.getInstance(context));
+		}
+	}
+
+	private long sizeOfSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith("segment-"))
+					.mapToLong(file -> file.toFile().length()).sum();
+		}
+	}
+
+	private String key(int i) {
+		return DepictionKey.compute("CDK", 100, 100, Integer.toString(i));
+	}
+}
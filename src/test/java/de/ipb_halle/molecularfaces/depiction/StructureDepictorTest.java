@@ -0,0 +1,152 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.depiction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.Bond;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond.Order;
+
+/**
+ * 
+ * @author flange
+ */
+public class StructureDepictorTest {
+	private StructureDepictor depictor = new StructureDepictor(300, 200);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String v2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  2  1  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "   11.6115  -11.0625   -0.0000 O   0  0  0  0  0  0  0  0  0  0  0  0\n"
+			+ "  1  2  1  0  0  0  0\n" + "M  END\n";
+
+	private String v3000Molfile = "\n" + "Actelion Java MolfileCreator 2.0\n" + "\n"
+			+ "  0  0  0  0  0  0              0 V3000\n" + "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 2 1 0 0 0\n"
+			+ "M  V30 BEGIN ATOM\n" + "M  V30 1 C 10.3125 -11.8125 0.0 0\n" + "M  V30 2 O 11.6115 -11.0625 0.0 0\n"
+			+ "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n" + "M  V30 1 1 1 2\n" + "M  V30 END BOND\n"
+			+ "M  V30 END CTAB\n" + "M  END\n";
+
+	@Test
+	public void test_depictSvg_withV2000Molfile() throws CDKException {
+		String svg = depictor.depictSvg(v2000Molfile, false);
+
+		assertTrue(svg.startsWith("<svg"));
+		assertTrue(svg.endsWith("</svg>"));
+		assertTrue(svg.contains("width='300.0px'"));
+		assertTrue(svg.contains("height='200.0px'"));
+	}
+
+	@Test
+	public void test_depictSvg_withV3000Molfile() throws CDKException {
+		String svg = depictor.depictSvg(v3000Molfile, true);
+
+		assertTrue(svg.startsWith("<svg"));
+		assertTrue(svg.endsWith("</svg>"));
+	}
+
+	@Test
+	public void test_depictSvg_withoutCoordinates_doesNotModifyMolecule() throws CDKException {
+		IAtomContainer mol = new AtomContainer();
+		mol.addAtom(new Atom("C"));
+		mol.addAtom(new Atom("O"));
+		mol.addBond(new Bond(mol.getAtom(0), mol.getAtom(1), Order.SINGLE));
+
+		assertTrue(depictor.depictSvg(mol).startsWith("<svg"));
+		assertNull(mol.getAtom(0).getPoint2d());
+	}
+
+	@Test
+	public void test_depictSvg_withEmptyInput_returnsEmptyString() throws CDKException {
+		assertEquals("", depictor.depictSvg((IAtomContainer) null));
+		assertEquals("", depictor.depictSvg(null, false));
+		assertEquals("", depictor.depictSvg("", true));
+	}
+
+	@Test
+	public void test_depictSvg_withInvalidMolfile_throwsCDKException() {
+		assertThrows(CDKException.class, () -> depictor.depictSvg("invalid molfile", false));
+		assertThrows(CDKException.class, () -> depictor.depictSvg(v2000Molfile, true));
+	}
+
+	@Test
+	public void test_depictSvg_withoutXmlPrologAndGeneratedIds() throws CDKException {
+		String svg = depictor.depictSvg(v2000Molfile, false);
+
+		assertFalse(svg.contains("<?xml"));
+		assertFalse(svg.contains("<!DOCTYPE"));
+		assertFalse(svg.contains(" id='"));
+	}
+
+	@Test
+	public void test_depictSmilesSvg() throws CDKException, IOException {
+		String svg = depictor.depictSmilesSvg("c1ccccc1O", null);
+		assertTrue(svg.startsWith("<svg"));
+		assertEquals("", depictor.depictSmilesSvg("", null));
+		assertThrows(CDKException.class, () -> depictor.depictSmilesSvg("C1CC(", null));
+
+		try (DepictionStore store = new DepictionStore(folder.newFolder().toPath(), 1024 * 1024)) {
+			assertEquals(svg, depictor.depictSmilesSvg("c1ccccc1O", store));
+			assertEquals(svg, store.get(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 300, 200, "c1ccccc1O")));
+		}
+	}
+
+	@Test
+	public void test_depictSvg_withStore() throws CDKException, IOException {
+		String key = DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 300, 200, v2000Molfile);
+
+		try (DepictionStore store = new DepictionStore(folder.newFolder().toPath(), 1024 * 1024)) {
+			String svg = depictor.depictSvg(v2000Molfile, false, store);
+			assertEquals(depictor.depictSvg(v2000Molfile, false), svg);
+			assertEquals(svg, store.get(key));
+
+			store.put(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 300, 200, "stored"), "<svg/>");
+			assertEquals("<svg/>", depictor.depictSvg("stored", false, store));
+			assertEquals("", depictor.depictSvg("", false, store));
+		}
+	}
+
+	@Test
+	public void test_depictSvg_withStore_reusesDepictionOfMolfileWrittenAtAnotherTime()
+			throws CDKException, IOException {
+		String molfile = v2000Molfile.replace("Actelion Java MolfileCreator 1.0", "  CDK     1019261200");
+		String later = v2000Molfile.replace("Actelion Java MolfileCreator 1.0", "  CDK     1019261201");
+
+		try (DepictionStore store = new DepictionStore(folder.newFolder().toPath(), 1024 * 1024)) {
+			store.put(DepictionKey.compute(StructureDepictor.PLUGIN_NAME, 300, 200, molfile), "<svg/>");
+
+			assertEquals("<svg/>", depictor.depictSvg(molfile, false, store));
+			assertEquals("<svg/>", depictor.depictSvg(later, false, store));
+		}
+	}
+}
@@ -29,8 +29,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -40,9 +42,11 @@ import java.util.Set;
 import jakarta.faces.component.UIComponent;
 import jakarta.faces.component.UIInput;
 import jakarta.faces.component.UIOutput;
+import jakarta.faces.context.FacesContext;
 import jakarta.faces.event.PostAddToViewEvent;
 import jakarta.faces.event.PreRenderComponentEvent;
 
+import org.apache.myfaces.test.mock.MockHttpServletRequest;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -281,4 +285,46 @@ public class ResourceLoaderTest {
 		loader.addCssExt("CssExt1");
 		loader.addCssExt("CssExt2");
 	}
+
+	@Test
+	public void test_isLibraryResourceRequest() {
+		FacesContext context = rule.getContainer().getFacesContext();
+		MockHttpServletRequest request = rule.getContainer().getRequest();
+		request.addParameter("ln", "molecularfaces");
+
+		// extension mapping
+		request.setServletPath("/jakarta.faces.resource/validation.json.xhtml");
+		assertTrue(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setServletPath("/jakarta.faces.resource/validation.json.jsf");
+		assertTrue(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setServletPath("/jakarta.faces.resource/validation.jsonx.xhtml");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setServletPath("/jakarta.faces.resource/validation.json.bak.xhtml");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setServletPath("/jakarta.faces.resource/js/validation.json.xhtml");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setServletPath("/other/jakarta.faces.resource/validation.json.xhtml");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+
+		// prefix mapping
+		request.setServletPath("/faces");
+		request.setPathInfo("/jakarta.faces.resource/validation.json");
+		assertTrue(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setPathInfo("/jakarta.faces.resource/validation.jsonx");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.setPathInfo("/jakarta.faces.resource/validation.json/x");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "depictions.json"));
+	}
+
+	@Test
+	public void test_isLibraryResourceRequest_withOtherLibrary() {
+		FacesContext context = rule.getContainer().getFacesContext();
+		MockHttpServletRequest request = rule.getContainer().getRequest();
+		request.setServletPath("/jakarta.faces.resource/validation.json.xhtml");
+
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+		request.addParameter("ln", "otherlibrary");
+		assertFalse(ResourceLoader.isLibraryResourceRequest(context, "validation.json"));
+	}
 }
@@ -0,0 +1,99 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author flange
+ */
+public class ScriptTemplateTest {
+	@Test
+	public void test_compile() {
+		assertEquals(0, ScriptTemplate.compile("").getSlotCount());
+		assertEquals(0, ScriptTemplate.compile("let a = {};").getSlotCount());
+		assertEquals(3, ScriptTemplate.compile("f(\"%s\", %r, \"%s\");").getSlotCount());
+		assertEquals(1, ScriptTemplate.compile("%%s %s 100%%").getSlotCount());
+
+		assertThrows(IllegalArgumentException.class, () -> ScriptTemplate.compile("%d"));
+		assertThrows(IllegalArgumentException.class, () -> ScriptTemplate.compile("abc%"));
+	}
+
+	@Test
+	public void test_apply() {
+		assertEquals("", ScriptTemplate.compile("").apply());
+		assertEquals("let a = {};", ScriptTemplate.compile("let a = {};").apply());
+		assertEquals("%s abc 100%", ScriptTemplate.compile("%%s %s 100%%").apply("abc"));
+		assertEquals("var w = f(\"id\", 400, \"a\\\"b\");",
+				ScriptTemplate.compile("var %r = f(\"%s\", %r, \"%s\");").apply("w", "id", "400", "a\"b"));
+		assertEquals("f(null, \"null\");", ScriptTemplate.compile("f(%r, \"%s\");").apply(null, null));
+
+		// raw slots are not escaped
+		assertEquals("f(\"a\");", ScriptTemplate.compile("%r").apply("f(\"a\");"));
+
+		ScriptTemplate template = ScriptTemplate.compile("f(%r, %r);");
+		assertThrows(IllegalArgumentException.class, () -> template.apply("1"));
+		assertThrows(IllegalArgumentException.class, () -> template.apply("1", "2", "3"));
+	}
+
+	@Test
+	public void test_write() throws IOException {
+		StringWriter writer = new StringWriter();
+		ScriptTemplate template = ScriptTemplate.compile("f(\"%s\", %r);");
+
+		template.write(writer, "a", "1");
+		template.write(writer, "b", "2");
+
+		assertEquals("f(\"a\", 1);f(\"b\", 2);", writer.toString());
+	}
+
+	@Test
+	public void test_escape() {
+		assertEquals("", ScriptTemplate.escape(""));
+		assertEquals("form:mol_Input", ScriptTemplate.escape("form:mol_Input"));
+		assertEquals("\\\"\\'\\\\", ScriptTemplate.escape("\"'\\"));
+		assertEquals("a\\nb\\rc\td", ScriptTemplate.escape("a\nb\rc\td"));
+		assertEquals("\\u003C/script\\u003E", ScriptTemplate.escape("</script>"));
+		assertEquals("a\\u2028b\\u2029c", ScriptTemplate.escape("a\u2028b\u2029c"));
+		assertEquals("äöü", ScriptTemplate.escape("äöü"));
+	}
+
+	@Test
+	public void test_writeJsonString() throws IOException {
+		StringWriter writer = new StringWriter();
+		ScriptTemplate.writeJsonString(writer, null);
+		writer.append(',');
+		ScriptTemplate.writeJsonString(writer, "");
+		writer.append(',');
+		ScriptTemplate.writeJsonString(writer, "\"'\\");
+		writer.append(',');
+		ScriptTemplate.writeJsonString(writer, "a\nb\rc\td\u0001");
+		writer.append(',');
+		ScriptTemplate.writeJsonString(writer, "</script>\u2028äöü");
+
+		assertEquals("null,\"\",\"\\\"'\\\\\",\"a\\nb\\rc\\td\\u0001\",\"\\u003C/script\\u003E\\u2028äöü\"",
+				writer.toString());
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.validator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.validator.Molfile.Format;
+
+public class MolfileCollectionValidatorTest {
+	private static Validator validator;
+
+	@BeforeClass
+	public static void setUpValidator() {
+		validator = Validation.buildDefaultValidatorFactory().getValidator();
+	}
+
+	private String validV2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n" + "M  END\n";
+
+	// one space too less after the element symbol
+	private String invalidV2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C  0  0  0  0  0  0  0  0  0  0  0  0\n" + "M  END\n";
+
+	private String validV3000Molfile = "\n" + "Actelion Java MolfileCreator 2.0\n" + "\n"
+			+ "  0  0  0  0  0  0              0 V3000\n" + "M  V30 BEGIN CTAB\n" + "M  V30 COUNTS 1 0 0 0 0\n"
+			+ "M  V30 BEGIN ATOM\n" + "M  V30 1 C 0 0 0 0\n" + "M  V30 END ATOM\n" + "M  V30 BEGIN BOND\n"
+			+ "M  V30 END BOND\n" + "M  V30 END CTAB\n" + "M  END";
+
+	private class Entity {
+		@MolfileCollection
+		private final List<String> molecules;
+
+		public Entity(List<String> molecules) {
+			this.molecules = molecules;
+		}
+	}
+
+	private class FailFastEntity {
+		@MolfileCollection(failFast = true)
+		private final List<String> molecules;
+
+		public FailFastEntity(List<String> molecules) {
+			this.molecules = molecules;
+		}
+	}
+
+	private class AutoEntity {
+		@MolfileCollection(format = Format.AUTO)
+		private final List<String> molecules;
+
+		public AutoEntity(List<String> molecules) {
+			this.molecules = molecules;
+		}
+	}
+
+	@Test
+	public void testSmallCollection() {
+		assertEquals(0, validator.validate(new Entity(null)).size());
+		assertEquals(0, validator.validate(new Entity(new ArrayList<>())).size());
+		assertEquals(0, validator.validate(new Entity(Arrays.asList(validV2000Molfile, "", null))).size());
+
+		Set<ConstraintViolation<Entity>> violations = validator
+				.validate(new Entity(Arrays.asList(validV2000Molfile, invalidV2000Molfile, "abc")));
+		assertEquals(2, violations.size());
+		assertEquals(new TreeSet<>(Arrays.asList("molecules[1]", "molecules[2]")), paths(violations));
+		assertEquals("invalid MDL Molfile", violations.iterator().next().getMessage());
+	}
+
+	@Test
+	public void testLargeCollection() {
+		List<String> molfiles = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			molfiles.add((i % 40 == 3) ? invalidV2000Molfile : validV2000Molfile);
+		}
+
+		Set<ConstraintViolation<Entity>> violations = validator.validate(new Entity(molfiles));
+		assertEquals(new TreeSet<>(Arrays.asList("molecules[3]", "molecules[43]", "molecules[83]", "molecules[123]",
+				"molecules[163]")), paths(violations));
+	}
+
+	@Test
+	public void testFailFast() {
+		List<String> molfiles = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			molfiles.add(invalidV2000Molfile);
+		}
+
+		int violations = validator.validate(new FailFastEntity(molfiles)).size();
+		assertTrue(violations >= 1);
+		assertTrue(violations < 200);
+
+		assertEquals(200, validator.validate(new Entity(molfiles)).size());
+	}
+
+	@Test
+	public void testAutoFormat() {
+		assertEquals(0, validator.validate(new AutoEntity(Arrays.asList(validV2000Molfile, validV3000Molfile))).size());
+		assertEquals(1, validator.validate(new Entity(Arrays.asList(validV2000Molfile, validV3000Molfile))).size());
+	}
+
+	private <T> Set<String> paths(Set<ConstraintViolation<T>> violations) {
+		Set<String> paths = new TreeSet<>();
+		for (ConstraintViolation<T> violation : violations) {
+			paths.add(violation.getPropertyPath().toString());
+		}
+
+		return paths;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * MolecularFaces
+ * Copyright 2021 Leibniz-Institut für Pflanzenbiochemie
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package de.ipb_halle.molecularfaces.validator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import jakarta.faces.application.ResourceHandler;
+import jakarta.faces.application.ResourceHandlerWrapper;
+import jakarta.faces.context.FacesContext;
+
+import org.apache.myfaces.test.mock.MockHttpServletRequest;
+import org.apache.myfaces.test.mock.MockPrintWriter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.ipb_halle.molecularfaces.test.MockedJSFContainerRule;
+import de.ipb_halle.molecularfaces.validator.Molfile.Format;
+import de.ipb_halle.molecularfaces.validator.Molfile.Mode;
+
+/**
+ * 
+ * @author flange
+ */
+public class MolfileValidationResourceHandlerTest {
+	private FacesContext context;
+	private MockHttpServletRequest request;
+	private boolean delegated;
+	private MolfileValidationResourceHandler handler;
+
+	private String validV2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C   0  0  0  0  0  0  0  0  0  0  0  0\n" + "M  END\n";
+
+	// one space too less after the element symbol
+	private String invalidV2000Molfile = "\n" + "Actelion Java MolfileCreator 1.0\n" + "\n"
+			+ "  1  0  0  0  0  0  0  0  0  0999 V2000\n"
+			+ "   10.3125  -11.8125   -0.0000 C  0  0  0  0  0  0  0  0  0  0  0  0\n" + "M  END\n";
+
+	@Rule
+	public MockedJSFContainerRule rule = new MockedJSFContainerRule();
+
+	@Before
+	public void init() {
+		context = rule.getContainer().getFacesContext();
+		request = rule.getContainer().getRequest();
+
+		ResourceHandler wrapped = new ResourceHandlerWrapper(context.getApplication().getResourceHandler()) {
+			@Override
+			public void handleResourceRequest(FacesContext context) throws IOException {
+				delegated = true;
+			}
+		};
+		handler = new MolfileValidationResourceHandler(wrapped);
+	}
+
+	@Test
+	public void test_handleResourceRequest_withOtherResource_delegates() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/depictions.json.xhtml");
+		request.addParameter("ln", "molecularfaces");
+
+		handler.handleResourceRequest(context);
+
+		assertTrue(delegated);
+		assertEquals("", getResponseContent());
+	}
+
+	@Test
+	public void test_handleResourceRequest_withSimilarResourceName_delegates() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/validation.jsonx.xhtml");
+		request.addParameter("ln", "molecularfaces");
+
+		handler.handleResourceRequest(context);
+
+		assertTrue(delegated);
+		assertEquals("", getResponseContent());
+	}
+
+	@Test
+	public void test_handleResourceRequest_withValidMolfile() throws IOException {
+		// prefix mapping
+		request.setServletPath("/faces");
+		request.setPathInfo("/jakarta.faces.resource/validation.json");
+		request.addParameter("ln", "molecularfaces");
+		request.addParameter("molfile", validV2000Molfile);
+
+		handler.handleResourceRequest(context);
+
+		assertFalse(delegated);
+		assertTrue(context.getResponseComplete());
+		assertEquals("{\"valid\":true}", getResponseContent());
+		assertEquals("no-store", rule.getContainer().getResponse().getHeader("Cache-Control"));
+	}
+
+	@Test
+	public void test_handleResourceRequest_withInvalidMolfile() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/validation.json.xhtml");
+		request.addParameter("ln", "molecularfaces");
+		request.addParameter("molfile", invalidV2000Molfile);
+		request.addParameter("format", "AUTO");
+		request.addParameter("mode", "STRICT");
+
+		handler.handleResourceRequest(context);
+
+		assertEquals("{\"valid\":false}", getResponseContent());
+		assertEquals(1, ValidationCache.getInstance(context).size());
+	}
+
+	@Test
+	public void test_handleResourceRequest_withUnknownFormat() throws IOException {
+		request.setServletPath("/jakarta.faces.resource/validation.json.xhtml");
+		request.addParameter("ln", "molecularfaces");
+		request.addParameter("molfile", validV2000Molfile);
+		request.addParameter("format", "SMILES");
+
+		handler.handleResourceRequest(context);
+
+		assertEquals("", getResponseContent());
+		assertEquals(400, rule.getContainer().getResponse().getStatus());
+		assertTrue(context.getResponseComplete());
+	}
+
+	@Test
+	public void test_handleResourceRequest_withTooLongMolfile() throws IOException {
+		rule.getContainer().getServletContext().addInitParameter(
+				MolfileValidationResourceHandler.WEBXML_MAX_MOLFILE_LENGTH,
+				Integer.toString(validV2000Molfile.length() - 1));
+		request.setServletPath("/jakarta.faces.resource/validation.json.xhtml");
+		request.addParameter("ln", "molecularfaces");
+		request.addParameter("molfile", validV2000Molfile);
+
+		handler.handleResourceRequest(context);
+
+		assertEquals("", getResponseContent());
+		assertEquals(400, rule.getContainer().getResponse().getStatus());
+		assertEquals(0, ValidationCache.getInstance(context).size());
+	}
+
+	@Test
+	public void test_validationCache() {
+		ValidationCache cache = new ValidationCache(2);
+		assertTrue(cache.isValidMolfile(null, Format.V2000, Mode.RELAXED));
+		assertTrue(cache.isValidMolfile("", Format.V2000, Mode.RELAXED));
+		assertEquals(0, cache.size());
+
+		assertTrue(cache.isValidMolfile(validV2000Molfile, Format.V2000, Mode.RELAXED));
+		assertTrue(cache.isValidMolfile(validV2000Molfile, Format.V2000, Mode.RELAXED));
+		assertEquals(1, cache.size());
+
+		// format and mode are part of the key
+		assertFalse(cache.isValidMolfile(validV2000Molfile, Format.V3000, Mode.RELAXED));
+		assertEquals(2, cache.size());
+
+		// least recently used results are evicted
+		assertFalse(cache.isValidMolfile(invalidV2000Molfile, Format.V2000, Mode.RELAXED));
+		assertEquals(2, cache.size());
+	}
+
+	private String getResponseContent() throws IOException {
+		return new String(((MockPrintWriter) rule.getContainer().getResponse().getWriter()).content());
+	}
+}
@@ -198,6 +198,24 @@ public class MolfileValidatorTest {
 		assertEquals(1, constraintViolations.size());
 	}
 
+	private class AutoEntity {
+		@Molfile(format = Format.AUTO)
+		private final String molecule;
+
+		public AutoEntity(String molecule) {
+			this.molecule = molecule;
+		}
+	}
+
+	@Test
+	public void testAutoFormat() {
+		assertEquals(0, validator.validate(new AutoEntity(validV2000Molfile)).size());
+		assertEquals(0, validator.validate(new AutoEntity(validV3000Molfile)).size());
+		assertEquals(1, validator.validate(new AutoEntity(invalidV2000Molfile)).size());
+		assertEquals(1, validator.validate(new AutoEntity(invalidV3000Molfile)).size());
+		assertEquals(1, validator.validate(new AutoEntity("a")).size());
+	}
+
 	private class OverwrittenMessageEntity {
 		@Molfile(message = "overwritten message")
 		private final String molecule;